@@ -164,6 +164,12 @@ public class MainWindow extends JFrame implements ControllerListener, UGSEventLi
             if(pendantUI!=null){
                 pendantUI.stop();
             }
+
+            try {
+                backend.shutdown();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Could not shut down the backend", e);
+            }
         }));
     }
     
@@ -474,13 +474,13 @@ public class VisualizerCanvas extends GLCanvas implements GLEventListener, KeyLi
             // Load from stream
             if (this.processedGcodeFile) {
                 IGcodeStreamReader gsr = new GcodeStreamReader(new File(this.gcodeFile));
-                gcodeLineList = gcvp.toObjFromReader(gsr, 0.3);
+                gcodeLineList = gcvp.toObjFromReader(gsr, GcodeViewParse.DEFAULT_ARC_SEGMENTATION);
             }
             // Load raw file
             else {
                 List<String> linesInFile;
                 linesInFile = VisualizerUtils.readFiletoArrayList(this.gcodeFile);
-                gcodeLineList = gcvp.toObjRedux(linesInFile, 0.3);
+                gcodeLineList = gcvp.toObjRedux(linesInFile, GcodeViewParse.DEFAULT_ARC_SEGMENTATION);
             }
             
             this.objectMin = gcvp.getMinimumExtremes();
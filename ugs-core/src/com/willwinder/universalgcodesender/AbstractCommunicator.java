@@ -24,6 +24,7 @@ import com.willwinder.universalgcodesender.connection.ConnectionFactory;
 import com.willwinder.universalgcodesender.i18n.Localization;
 import com.willwinder.universalgcodesender.listeners.CommunicatorListener;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.EventLoop;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -47,6 +48,9 @@ public abstract class AbstractCommunicator implements ICommunicator {
     // Allow events to be sent from same thread for unit tests.
     private boolean launchEventsInDispatchThread = true;
 
+    // If set all state is owned by the event loop thread.
+    private volatile EventLoop eventLoop;
+
     // Serial Communicator Listener Events
     enum SerialCommunicatorEvent {
         COMMAND_SENT,
@@ -72,6 +76,32 @@ public abstract class AbstractCommunicator implements ICommunicator {
         }
     }
 
+    @Override
+    public void setEventLoop(EventLoop eventLoop) {
+        this.eventLoop = eventLoop;
+    }
+
+    @Override
+    public EventLoop getEventLoop() {
+        return eventLoop;
+    }
+
+    /**
+     * Posts the task to the event loop if there is one and the caller is
+     * running on another thread.
+     *
+     * @param task the task to post
+     * @return true if the task was posted and the caller should return
+     */
+    protected boolean postToEventLoop(Runnable task) {
+        EventLoop loop = this.eventLoop;
+        if (loop == null || loop.inEventLoop()) {
+            return false;
+        }
+        loop.execute(task);
+        return true;
+    }
+
     @Override
     public void setConnection(Connection c) {
         connection = c;
@@ -149,7 +179,15 @@ public abstract class AbstractCommunicator implements ICommunicator {
             throw new IllegalArgumentException("Dispatching a " + event + " event requires a String object.");
         }
 
-        if (launchEventsInDispatchThread) {
+        // Listeners are part of the event loop, no need to hand off the event.
+        EventLoop loop = this.eventLoop;
+        if (loop != null) {
+            if (loop.inEventLoop()) {
+                sendEventToListeners(event, string, command);
+            } else {
+                loop.execute(() -> sendEventToListeners(event, string, command));
+            }
+        } else if (launchEventsInDispatchThread) {
             this.eventQueue.add(new EventData(event, string, command));
         } else {
             sendEventToListeners(event, string, command);
@@ -32,7 +32,9 @@ import com.willwinder.universalgcodesender.listeners.CommunicatorListener;
 import com.willwinder.universalgcodesender.model.*;
 import com.willwinder.universalgcodesender.model.UGSEvent.ControlState;
 import com.willwinder.universalgcodesender.services.MessageService;
+import com.willwinder.universalgcodesender.status.StatusSource;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.EventLoop;
 import com.willwinder.universalgcodesender.utils.IGcodeStreamReader;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
@@ -40,6 +42,7 @@ import org.apache.commons.lang3.time.StopWatch;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,6 +69,15 @@ public abstract class AbstractController implements CommunicatorListener, IContr
     private boolean statusUpdatesEnabled = true;
     private int statusUpdateRate = 200;
 
+    // Where status reports come from, set by the concrete class.
+    private StatusSource statusSource;
+
+    // The baud rate of the connection, 0 if it isn't a serial port.
+    private int linkBaudRate = 0;
+
+    // Owns the controller and communicator state in event loop mode.
+    private volatile EventLoop eventLoop;
+
     // Added value
     private Boolean isStreaming = false;
 
@@ -219,6 +231,9 @@ public abstract class AbstractController implements CommunicatorListener, IContr
      */
     @Override
     public void issueSoftReset() throws Exception {
+        if (runInEventLoop(this::issueSoftReset)) {
+            return;
+        }
         flushSendQueues();
         softReset();
     }
@@ -329,7 +344,112 @@ public abstract class AbstractController implements CommunicatorListener, IContr
         }
         return false;
     }
+
+    @Override
+    public void setBatchWritesEnabled(boolean enabled) {
+        if (this.comm != null) {
+            this.comm.setBatchWritesEnabled(enabled);
+        }
+    }
+
+    @Override
+    public boolean isBatchWritesEnabled() {
+        if (this.comm != null) {
+            return this.comm.isBatchWritesEnabled();
+        }
+        return false;
+    }
     
+    @Override
+    public void setEventLoopEnabled(boolean enabled) {
+        if (enabled == (this.eventLoop != null)) {
+            return;
+        }
+
+        if (enabled) {
+            this.eventLoop = new EventLoop(getClass().getSimpleName() + " event loop");
+        } else {
+            this.eventLoop.shutdown();
+            this.eventLoop = null;
+        }
+        this.comm.setEventLoop(this.eventLoop);
+    }
+
+    @Override
+    public boolean isEventLoopEnabled() {
+        return this.eventLoop != null;
+    }
+
+    protected EventLoop getEventLoop() {
+        return this.eventLoop;
+    }
+
+    /**
+     * In event loop mode, runs the task in the loop and waits for it to
+     * finish when called from another thread.
+     *
+     * @param task the task to run
+     * @return true if the task was run by the loop and the caller should return
+     */
+    protected boolean runInEventLoop(EventLoop.Task task) throws Exception {
+        EventLoop loop = this.eventLoop;
+        if (loop == null || loop.inEventLoop()) {
+            return false;
+        }
+        loop.call(task);
+        return true;
+    }
+
+    /**
+     * Runs a task later, in the event loop if enabled or else on the event
+     * dispatch thread.
+     *
+     * @param task the task to run
+     */
+    protected void runLater(Runnable task) {
+        EventLoop loop = this.eventLoop;
+        if (loop != null) {
+            loop.execute(task);
+        } else {
+            java.awt.EventQueue.invokeLater(task);
+        }
+    }
+
+    /**
+     * Replaces the source of status reports, the previous source is stopped.
+     *
+     * @param statusSource the new status source
+     */
+    protected void setStatusSource(StatusSource statusSource) {
+        if (this.statusSource != null) {
+            this.statusSource.stop();
+        }
+        this.statusSource = statusSource;
+    }
+
+    /**
+     * @return the source of status reports or null if the controller has none
+     */
+    public StatusSource getStatusSource() {
+        return this.statusSource;
+    }
+
+    /**
+     * @return the baud rate of the connection, or 0 if it isn't a serial port
+     */
+    protected int getLinkBaudRate() {
+        return this.linkBaudRate;
+    }
+
+    /**
+     * Should be called for every status report received from the controller.
+     */
+    protected void statusReportReceived() {
+        if (this.statusSource != null) {
+            this.statusSource.reportReceived();
+        }
+    }
+
     @Override
     public void setStatusUpdatesEnabled(boolean enabled) {
         if (this.statusUpdatesEnabled != enabled) {
@@ -364,6 +484,7 @@ public abstract class AbstractController implements CommunicatorListener, IContr
         
         // No point in checking response, it throws an exception on errors.
         this.comm.connect(connectionDriver, port, portRate);
+        this.linkBaudRate = connectionDriver == ConnectionDriver.TCP ? 0 : portRate;
         this.setCurrentState(COMM_IDLE);
         
         if (isCommOpen()) {
@@ -378,6 +499,16 @@ public abstract class AbstractController implements CommunicatorListener, IContr
 
     @Override
     public Boolean closeCommPort() throws Exception {
+        EventLoop loop = this.eventLoop;
+        if (loop != null && !loop.inEventLoop()) {
+            return loop.compute(this::closeCommPort);
+        }
+
+        // Stop polling even if the port was lost before it was closed.
+        if (this.statusSource != null) {
+            this.statusSource.stop();
+        }
+
         // Already closed.
         if (!isCommOpen()) {
             return true;
@@ -437,15 +568,27 @@ public abstract class AbstractController implements CommunicatorListener, IContr
      * @return 
      */
     public int getRowStat(RowStat stat) {
+        int total = this.numCommands;
+        int done = this.numCommandsCompleted + this.numCommandsSkipped;
+        int remaining = total <= 0 ? 0 : total - done;
+
+        // A stream that is still being written only knows a lower bound of its
+        // rows, and always has rows remaining until it is complete.
+        IGcodeStreamReader stream = this.streamCommands;
+        if (stream != null && this.isStreaming && !stream.isNumRowsFinal()) {
+            total = Math.max(total, stream.getNumRows());
+            remaining = Math.max(total - done, 1);
+        }
+
         switch (stat) {
             case TOTAL_ROWS:
-                return this.numCommands;
+                return total;
             case ROWS_SENT:
                 return this.numCommandsSent;
             case ROWS_COMPLETED:
-                return this.numCommandsCompleted + this.numCommandsSkipped;
+                return done;
             case ROWS_REMAINING:
-                return this.numCommands <= 0 ? 0 : this.numCommands - (this.numCommandsCompleted + this.numCommandsSkipped);
+                return remaining;
             default:
                 throw new IllegalStateException("This should be impossible - RowStat default case.");
         }
@@ -490,6 +633,10 @@ public abstract class AbstractController implements CommunicatorListener, IContr
      */
     @Override
     public void sendCommandImmediately(GcodeCommand command) throws Exception {
+        if (runInEventLoop(() -> sendCommandImmediately(command))) {
+            return;
+        }
+
         isReadyToSendCommandsEvent();
         
         if (!isCommOpen()) {
@@ -545,6 +692,9 @@ public abstract class AbstractController implements CommunicatorListener, IContr
      */
     @Override
     public void beginStreaming() throws Exception {
+        if (runInEventLoop(this::beginStreaming)) {
+            return;
+        }
 
         this.isReadyToStreamFile();
 
@@ -571,6 +721,8 @@ public abstract class AbstractController implements CommunicatorListener, IContr
         // Send all queued commands and streams then kick off the stream.
         try {
             if (this.streamCommands != null) {
+                // Keep streaming when a file that is still being written has more rows.
+                this.streamCommands.setRowsAvailableListener(() -> runLater(this::streamAvailableRows));
                 comm.queueStreamForComm(this.streamCommands);
             }
 
@@ -583,8 +735,19 @@ public abstract class AbstractController implements CommunicatorListener, IContr
         }
     }
     
+    private void streamAvailableRows() {
+        if (this.isStreaming()) {
+            comm.streamCommands();
+            checkStreamFinished();
+        }
+    }
+
     @Override
     public void pauseStreaming() throws Exception {
+        if (runInEventLoop(this::pauseStreaming)) {
+            return;
+        }
+
         this.dispatchConsoleMessage(MessageType.INFO,"\n**** Pausing file transfer. ****\n\n");
         pauseStreamingEvent();
         this.comm.pauseSend();
@@ -597,6 +760,10 @@ public abstract class AbstractController implements CommunicatorListener, IContr
     
     @Override
     public void resumeStreaming() throws Exception {
+        if (runInEventLoop(this::resumeStreaming)) {
+            return;
+        }
+
         this.dispatchConsoleMessage(MessageType.INFO, "\n**** Resuming file transfer. ****\n\n");
         resumeStreamingEvent();
         this.comm.resumeSend();
@@ -628,6 +795,10 @@ public abstract class AbstractController implements CommunicatorListener, IContr
 
     @Override
     public void cancelSend() throws Exception {
+        if (runInEventLoop(this::cancelSend)) {
+            return;
+        }
+
         this.dispatchConsoleMessage(MessageType.INFO, "\n**** Canceling file transfer. ****\n\n");
 
         cancelSendBeforeEvent();
@@ -701,7 +872,15 @@ public abstract class AbstractController implements CommunicatorListener, IContr
             dispatchCommandCommment(command.getComment());
         }
         dispatchCommandSent(command);
-        dispatchConsoleMessage(MessageType.INFO, ">>> " + StringUtils.trimToEmpty(command.getCommandString()) + "\n");
+        if (messageService != null && isStreaming()) {
+            messageService.dispatchSentLine(command.getCommandNumber(), () -> formatSentCommand(command));
+        } else {
+            dispatchConsoleMessage(MessageType.INFO, () -> formatSentCommand(command));
+        }
+    }
+
+    private static String formatSentCommand(GcodeCommand command) {
+        return ">>> " + StringUtils.trimToEmpty(command.getCommandString()) + "\n";
     }
 
     @Override
@@ -742,6 +921,18 @@ public abstract class AbstractController implements CommunicatorListener, IContr
             this.numCommandsSkipped++;
         }
         
+        this.dispatchConsoleMessage(MessageType.INFO, () -> formatSkippedCommand(command));
+        command.setResponse("<skipped by application>");
+        command.setSkipped(true);
+        dispatchCommandSkipped(command);
+        if (command.hasComment()) {
+            dispatchCommandCommment(command.getComment());
+        }
+
+        checkStreamFinished();
+    }
+
+    private static String formatSkippedCommand(GcodeCommand command) {
         StringBuilder message = new StringBuilder();
         boolean hasComment = command.hasComment();
         boolean hasCommand = StringUtils.isNotEmpty(command.getCommandString());
@@ -772,15 +963,7 @@ public abstract class AbstractController implements CommunicatorListener, IContr
             }
         }
         message.append("\n");
-        this.dispatchConsoleMessage(MessageType.INFO, message.toString());
-        command.setResponse("<skipped by application>");
-        command.setSkipped(true);
-        dispatchCommandSkipped(command);
-        if (command.hasComment()) {
-            dispatchCommandCommment(command.getComment());
-        }
-
-        checkStreamFinished();
+        return message.toString();
     }
     
     /**
@@ -854,6 +1037,16 @@ public abstract class AbstractController implements CommunicatorListener, IContr
         }
     }
     
+    /**
+     * Dispatches a console message which is only created if someone is
+     * listening for messages of the given type.
+     */
+    protected void dispatchConsoleMessage(MessageType type, Supplier<String> message) {
+        if (messageService != null) {
+            messageService.dispatchMessage(type, message);
+        }
+    }
+
     protected void dispatchStateChange(ControlState state) {
         if (listeners != null) {
             for (ControllerListener c : listeners) {
@@ -27,7 +27,10 @@ import com.willwinder.universalgcodesender.utils.CommUtils;
 import com.willwinder.universalgcodesender.utils.IGcodeStreamReader;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +51,14 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
     private int sentBufferSize = 0;
     
     private Boolean singleStepModeEnabled = false;
+
+    // Pack all commands that fit in the buffer into a single connection write.
+    private boolean batchWritesEnabled = false;
+    private final StringBuilder batch = new StringBuilder();
+    private final List<GcodeCommand> batchCommands = new ArrayList<>();
+
+    // Commands sent with sendStringImmediately waiting for their response.
+    private final AtomicInteger immediateCommandsPending = new AtomicInteger();
     
     abstract public int getBufferSize();
 
@@ -71,14 +82,32 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
         return this.singleStepModeEnabled;
     }
 
+    @Override
+    public void setBatchWritesEnabled(boolean enabled) {
+        this.batchWritesEnabled = enabled;
+    }
+
+    @Override
+    public boolean isBatchWritesEnabled() {
+        return this.batchWritesEnabled;
+    }
+
     @Override
     public void queueCommand(GcodeCommand command) {
+        if (postToEventLoop(() -> queueCommand(command))) {
+            return;
+        }
+
         // Add command to queue
         this.commandBuffer.add(command);
     }
 
     @Override
     public void queueStreamForComm(final IGcodeStreamReader input) {
+        if (postToEventLoop(() -> queueStreamForComm(input))) {
+            return;
+        }
+
         commandStream = input;
     }
        
@@ -96,10 +125,40 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
     /** File Stream Methods. **/
     @Override
     public void resetBuffers() {
+        if (postToEventLoop(this::resetBuffers)) {
+            return;
+        }
+
         super.resetBuffers();
         if (activeCommandList != null) {
             activeCommandList.clear();
         }
+        // The controller has dropped anything it hadn't processed.
+        sentBufferSize = 0;
+        immediateCommandsPending.set(0);
+    }
+
+    /**
+     * @return the number of characters sent to the controller which haven't been acknowledged
+     */
+    protected int getSentBufferSize() {
+        return sentBufferSize;
+    }
+
+    /**
+     * Clears the count of sent characters if there are no commands waiting
+     * for a response, in which case the count has drifted from what is
+     * actually in the controller buffer.
+     *
+     * @return true if the count was corrected
+     */
+    protected synchronized boolean correctSentBufferSize() {
+        if (activeCommandList.isEmpty() && sentBufferSize != 0) {
+            logger.log(Level.INFO, "Correcting sent buffer size from {0} to 0", sentBufferSize);
+            sentBufferSize = 0;
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -186,6 +245,10 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
      */
     @Override
     synchronized public void streamCommands() {
+        if (postToEventLoop(this::streamCommands)) {
+            return;
+        }
+
         // If there are no commands to send, exit.
         if (this.getNextCommand() == null) {
             logger.log(Level.FINE, "There are no more commands to stream");
@@ -208,6 +271,8 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
             GcodeCommand command = this.getNextCommand();
 
             if (command.getCommandString().isEmpty()) {
+                // Keep events in order, anything batched is sent first.
+                flushBatch();
                 dispatchListenerEvents(COMMAND_SKIPPED, command);
                 nextCommand = null;
                 continue;
@@ -218,8 +283,15 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
             this.activeCommandList.add(command);
             this.sentBufferSize += (commandString.length() + 1);
 
+            this.sendingCommand(commandString);
+            if (batchWritesEnabled) {
+                batch.append(commandString).append('\n');
+                batchCommands.add(command);
+                nextCommand = null;
+                continue;
+            }
+
             try {
-                this.sendingCommand(commandString);
                 connection.sendStringToComm(commandString + "\n");
                 dispatchListenerEvents(COMMAND_SENT, command);
                 nextCommand = null;
@@ -228,15 +300,50 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
                 System.exit(-1);
             }
         }
+
+        flushBatch();
+    }
+
+    /**
+     * Writes all batched commands to the connection at once and notifies
+     * listeners about each of them in the order they were added.
+     */
+    private void flushBatch() {
+        if (batchCommands.isEmpty()) {
+            return;
+        }
+
+        try {
+            connection.sendStringToComm(batch.toString());
+            for (GcodeCommand command : batchCommands) {
+                dispatchListenerEvents(COMMAND_SENT, command);
+            }
+        } catch (Exception e) {
+            // Stop streaming like on an error response, the user can resume or cancel.
+            logger.log(Level.SEVERE, "Could not write " + batchCommands.size() + " commands to the connection", e);
+            pauseSend();
+            dispatchListenerEvents(PAUSED, "");
+        } finally {
+            batch.setLength(0);
+            batchCommands.clear();
+        }
     }
     
     @Override
     public void pauseSend() {
+        if (postToEventLoop(this::pauseSend)) {
+            return;
+        }
+
         this.sendPaused = true;
     }
     
     @Override
     public void resumeSend() {
+        if (postToEventLoop(this::resumeSend)) {
+            return;
+        }
+
         this.sendPaused = false;
         this.streamCommands();
     }
@@ -248,14 +355,33 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
     
     @Override
     public void cancelSend() {
+        if (postToEventLoop(this::cancelSend)) {
+            return;
+        }
+
         this.nextCommand = null;
         this.commandBuffer.clear();
         this.activeCommandList.clear();
-        this.commandStream = null;
+        closeCommandStream();
         this.sendPaused = false;
         this.sentBufferSize = 0;
     }
 
+    /**
+     * Releases the stream, a prefetching stream would otherwise keep its
+     * reader thread waiting for room in its buffer.
+     */
+    private void closeCommandStream() {
+        if (this.commandStream != null) {
+            try {
+                this.commandStream.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close the command stream", e);
+            }
+            this.commandStream = null;
+        }
+    }
+
     /**
      * Notifies the subclass that a command has been sent.
      * @param command The command being sent.
@@ -277,6 +403,17 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
      * @return true if a command has completed.
      */
     abstract protected boolean processedCommandIsError(String response);
+
+    /**
+     * Returns whether a response answers a command sent with
+     * {@link #sendStringImmediately(String)}, these don't complete an active
+     * command. Only called while such a command is waiting for a response.
+     * @param response
+     * @return true if the response is for an immediate command.
+     */
+    protected boolean isImmediateCommandResponse(String response) {
+        return false;
+    }
     
     /** 
      * Processes message from GRBL. This should only be called from the
@@ -285,9 +422,17 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
      */
     @Override
     public void handleResponseMessage(String response) {
+        if (postToEventLoop(() -> handleResponseMessage(response))) {
+            return;
+        }
+
         // Send this information back up to the Controller.
         dispatchListenerEvents(SerialCommunicatorEvent.RAW_RESPONSE, response);
 
+        if (immediateCommandsPending.get() > 0 && processedCommand(response) && isImmediateCommandResponse(response)) {
+            immediateCommandsPending.decrementAndGet();
+            return;
+        }
 
         // Pause if there was an error and if there are more commands queued
         if (processedCommandIsError(response) &&
@@ -321,6 +466,7 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
         this.commandBuffer.clear();
         this.activeCommandList.clear();
         this.sentBufferSize = 0;
+        this.immediateCommandsPending.set(0);
     }
 
     @Override
@@ -331,10 +477,17 @@ public abstract class BufferedCommunicator extends AbstractCommunicator {
         this.sendPaused = false;
         this.commandBuffer.clear();
         this.activeCommandList.clear();
+        this.immediateCommandsPending.set(0);
     }
 
     @Override
     public void sendByteImmediately(byte b) throws Exception {
         connection.sendByteImmediately(b);
     }
+
+    @Override
+    public void sendStringImmediately(String command) throws Exception {
+        immediateCommandsPending.incrementAndGet();
+        connection.sendStringToComm(command + "\n");
+    }
 }
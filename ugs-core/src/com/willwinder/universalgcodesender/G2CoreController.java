@@ -78,6 +78,7 @@ public class G2CoreController extends TinyGController {
         capabilities.removeCapability(CapabilitiesConstants.SETUP_WIZARD);
 
         setCurrentState(COMM_IDLE);
+        getStatusSource().start();
         dispatchConsoleMessage(MessageType.INFO, "[ready] " + response + "\n");
 
         try {
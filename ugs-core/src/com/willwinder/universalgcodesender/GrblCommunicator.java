@@ -19,18 +19,36 @@
 package com.willwinder.universalgcodesender;
 
 import com.willwinder.universalgcodesender.connection.Connection;
+import com.willwinder.universalgcodesender.connection.ConnectionDriver;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.BufferState;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 /**
+ * Streams commands to GRBL using character counting.
+ *
+ * If GRBL reports its buffer state with the "Bf:" status field the real
+ * size of the serial buffer is detected, which is much larger than the
+ * default on some boards, and the planner occupancy is tracked.
+ *
  * @author wwinder
  */
 public class GrblCommunicator extends BufferedCommunicator {
+    private static final Logger logger = Logger.getLogger(GrblCommunicator.class.getName());
+
+    // Characters of the serial buffer reserved for real time commands.
+    private static final int RX_BUFFER_RESERVED = 5;
 
     private boolean temporarySingleStepMode;
     private final static String EEPROM_COMMAND_PATTERN = "G10|G28|G30|\\$x=|\\$I|\\$N|\\$RST=|G5[456789]|\\$\\$|\\$#";
     private final static Pattern EEPROM_COMMAND = Pattern.compile(EEPROM_COMMAND_PATTERN, Pattern.CASE_INSENSITIVE);
+
+    private volatile int rxBufferSize = GrblUtils.GRBL_RX_BUFFER_SIZE;
+    private volatile int plannerBlocksAvailable = -1;
+    private volatile int plannerBlockCount = -1;
     
     protected GrblCommunicator() {}
 
@@ -50,7 +68,73 @@ public class GrblCommunicator extends BufferedCommunicator {
 
     @Override
     public int getBufferSize() {
-        return GrblUtils.GRBL_RX_BUFFER_SIZE;
+        return rxBufferSize;
+    }
+
+    @Override
+    public void connect(ConnectionDriver connectionDriver, String name, int baud) throws Exception {
+        super.connect(connectionDriver, name, baud);
+        rxBufferSize = GrblUtils.GRBL_RX_BUFFER_SIZE;
+        plannerBlocksAvailable = -1;
+        plannerBlockCount = -1;
+    }
+
+    /**
+     * Updates the streaming state with the free space reported by GRBL.
+     *
+     * When nothing is waiting for a response the serial buffer should be
+     * empty, so the reported free space is the size of the buffer and any
+     * characters still counted as sent are a drift which is cleared.
+     *
+     * @param bufferState the free space reported in the "Bf:" field
+     */
+    public synchronized void updateBufferState(BufferState bufferState) {
+        if (postToEventLoop(() -> updateBufferState(bufferState))) {
+            return;
+        }
+
+        plannerBlocksAvailable = bufferState.plannerBlocksAvailable;
+        plannerBlockCount = Math.max(plannerBlockCount, bufferState.plannerBlocksAvailable);
+
+        boolean rxBufferEmpty = bufferState.rxBytesAvailable + RX_BUFFER_RESERVED >= rxBufferSize;
+        boolean corrected = rxBufferEmpty && correctSentBufferSize();
+
+        boolean grown = false;
+        int detectedSize = bufferState.rxBytesAvailable - RX_BUFFER_RESERVED;
+        if (getSentBufferSize() == 0 && detectedSize > rxBufferSize) {
+            logger.log(Level.INFO, "Detected a serial buffer of {0} characters", bufferState.rxBytesAvailable);
+            rxBufferSize = detectedSize;
+            grown = true;
+        }
+
+        if (corrected || grown) {
+            streamCommands();
+        }
+    }
+
+    /**
+     * @return the number of free planner blocks last reported, or -1 if unknown
+     */
+    public int getPlannerBlocksAvailable() {
+        return plannerBlocksAvailable;
+    }
+
+    /**
+     * @return the number of planner blocks, the most free blocks reported, or -1 if unknown
+     */
+    public int getPlannerBlockCount() {
+        return plannerBlockCount;
+    }
+
+    /**
+     * @return the fraction of the planner blocks in use, between 0 and 1
+     */
+    public double getPlannerOccupancy() {
+        int count = plannerBlockCount;
+        if (count <= 0) {
+            return 0;
+        }
+        return (count - plannerBlocksAvailable) / (double) count;
     }
 
     @Override
@@ -34,15 +34,17 @@ import com.willwinder.universalgcodesender.model.PartialPosition;
 import com.willwinder.universalgcodesender.model.Position;
 import com.willwinder.universalgcodesender.model.UGSEvent.ControlState;
 import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import com.willwinder.universalgcodesender.status.AdaptivePollRate;
+import com.willwinder.universalgcodesender.status.AdaptivePollRate.Activity;
+import com.willwinder.universalgcodesender.status.PollingStatusSource;
+import com.willwinder.universalgcodesender.status.PushStatusSource;
+import com.willwinder.universalgcodesender.status.StatusSource;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
 import com.willwinder.universalgcodesender.types.GrblFeedbackMessage;
 import com.willwinder.universalgcodesender.types.GrblSettingMessage;
 import com.willwinder.universalgcodesender.utils.GrblLookups;
 import org.apache.commons.lang3.StringUtils;
 
-import javax.swing.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Optional;
@@ -69,10 +71,17 @@ public class GrblController extends AbstractController {
     protected Boolean isReady = false;          // Not ready until version is received.
     private Capabilities capabilities = new Capabilities();
     private final GrblFirmwareSettings firmwareSettings;
+    private final GrblStatusParser statusParser = new GrblStatusParser();
 
-    // Polling state
-    private int outstandingPolls = 0;
-    private Timer positionPollTimer = null;  
+    // Reports received without a poll, GRBL forks may push reports on their own.
+    private static final int PUSH_DETECT_REPORTS = 5;
+    private static final long PUSH_DETECT_WINDOW_MS = 2000;
+    private int unsolicitedReports = 0;
+    private long unsolicitedSince = 0;
+
+    // Polls faster or slower depending on what the machine is doing.
+    private final AdaptivePollRate pollRate;
+    private boolean probing = false;
     private ControllerStatus controllerStatus = new ControllerStatusBuilder().setStateString("Disconnected")
                                                                              .setState(ControllerState.DISCONNECTED)
                                                                              .setMachineCoord(new Position(0, 0, 0, Units.MM))
@@ -94,7 +103,8 @@ public class GrblController extends AbstractController {
         super(comm);
         
         this.commandCreator = new GcodeCommandCreator();
-        this.positionPollTimer = createPositionPollTimer();
+        this.pollRate = new AdaptivePollRate(getStatusUpdateRate());
+        setStatusSource(createPollingStatusSource());
 
         // Add our controller settings manager
         this.firmwareSettings = new GrblFirmwareSettings(this);
@@ -213,8 +223,13 @@ public class GrblController extends AbstractController {
                     this.controllerStatus = null;
                 }
 
-                this.stopPollingPosition();
-                positionPollTimer = createPositionPollTimer();
+                // Start over with polling until pushed reports are detected again.
+                this.statusParser.reset();
+                this.probing = false;
+                this.pollRate.setBaudRate(getLinkBaudRate());
+                this.pollRate.update(getPollActivity());
+                setStatusSource(createPollingStatusSource());
+                this.unsolicitedReports = 0;
                 this.beginPollingPosition();
 
                 // In case a reset occurred while streaming.
@@ -244,17 +259,21 @@ public class GrblController extends AbstractController {
                 if (p != null) {
                     dispatchProbeCoordinates(p);
                 }
+                this.probing = false;
             }
 
             else if (GrblUtils.isGrblStatusString(response)) {
-                // Only 1 poll is sent at a time so don't decrement, reset to zero.
-                this.outstandingPolls = 0;
+                detectPushedStatusReports();
+                statusReportReceived();
 
                 // Status string goes to verbose console
                 verbose = true;
                 
                 this.handleStatusString(response);
                 this.checkStreamFinished();
+
+                this.pollRate.reportReceived(response.length());
+                this.updatePollRate(getPollActivity());
             }
 
             else if (GrblUtils.isGrblFeedbackMessage(response, capabilities)) {
@@ -614,53 +633,107 @@ public class GrblController extends AbstractController {
         return controllerStatus;
     }
 
+    private StatusSource createPollingStatusSource() {
+        return new PollingStatusSource(this::runLater, pollRate.getInterval(),
+                this::requestStatusReport, this::statusRequestFailed);
+    }
+
+    private void requestStatusReport() throws Exception {
+        comm.sendByteImmediately(GrblUtils.GRBL_STATUS_COMMAND);
+    }
+
+    private void statusRequestFailed(Exception e) {
+        dispatchConsoleMessage(MessageType.INFO, Localization.getString("controller.exception.sendingstatus")
+                + " (" + e.getMessage() + ")\n");
+        logger.log(Level.WARNING, "Couldn't request a status report", e);
+    }
+
     /**
-     * Create a timer which will execute GRBL's position polling mechanism.
+     * Switches from polling to pushed status reports when several reports
+     * arrive in a short time without having been requested. The pushed
+     * reports are used as they are and polling only resumes if they stop.
      */
-    private Timer createPositionPollTimer() {
-        // Action Listener for GRBL's polling mechanism.
-        ActionListener actionListener = new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent actionEvent) {
-                java.awt.EventQueue.invokeLater(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            if (outstandingPolls == 0) {
-                                outstandingPolls++;
-                                comm.sendByteImmediately(GrblUtils.GRBL_STATUS_COMMAND);
-                            } else {
-                                // If a poll is somehow lost after 20 intervals,
-                                // reset for sending another.
-                                outstandingPolls++;
-                                if (outstandingPolls >= 20) {
-                                    outstandingPolls = 0;
-                                }
-                            }
-                        } catch (Exception ex) {
-                            dispatchConsoleMessage(MessageType.INFO,Localization.getString("controller.exception.sendingstatus")
-                                    + " (" + ex.getMessage() + ")\n");
-                            ex.printStackTrace();
-                        }
-                    }
-                });
-                
+    private void detectPushedStatusReports() {
+        StatusSource source = getStatusSource();
+        if (!(source instanceof PollingStatusSource) || ((PollingStatusSource) source).isOutstanding()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (unsolicitedReports == 0 || now - unsolicitedSince > PUSH_DETECT_WINDOW_MS) {
+            unsolicitedReports = 0;
+            unsolicitedSince = now;
+        }
+        unsolicitedReports++;
+
+        if (unsolicitedReports >= PUSH_DETECT_REPORTS) {
+            logger.log(Level.INFO, "The controller pushes status reports, polling is stopped");
+            boolean running = source.isRunning();
+            setStatusSource(new PushStatusSource(this::runLater, getStatusUpdateRate(), () -> true,
+                    this::requestStatusReport, this::statusRequestFailed));
+            if (running) {
+                beginPollingPosition();
             }
-        };
-        
-        return new Timer(this.getStatusUpdateRate(), actionListener);
+        }
+    }
+
+    /**
+     * @return the poll rate and the share of the link used by status reports
+     */
+    public AdaptivePollRate getPollRate() {
+        return pollRate;
+    }
+
+    private Activity getPollActivity() {
+        ControllerState state = controllerStatus == null ? ControllerState.UNKNOWN : controllerStatus.getState();
+        if (state == ControllerState.ALARM) {
+            // A failed probe cycle ends in an alarm
+            probing = false;
+        }
+
+        if (state == ControllerState.JOG) {
+            return Activity.JOGGING;
+        } else if (probing) {
+            return Activity.PROBING;
+        } else if (isStreaming()) {
+            return Activity.STREAMING;
+        } else if (state == ControllerState.RUN || state == ControllerState.HOLD || state == ControllerState.HOME) {
+            return Activity.MOVING;
+        }
+        return Activity.IDLE;
+    }
+
+    private void updatePollRate(Activity activity) {
+        if (pollRate.update(activity) && getStatusSource() instanceof PollingStatusSource) {
+            getStatusSource().setInterval(pollRate.getInterval());
+            dispatchConsoleMessage(MessageType.VERBOSE, () -> "**** Polling status every " + pollRate + " ****\n");
+            logger.log(Level.FINE, "Polling status every {0}", pollRate);
+        }
+    }
+
+    @Override
+    public void commandSent(GcodeCommand command) {
+        super.commandSent(command);
+
+        // Don't wait for a slow idle poll to notice that the machine is moving
+        String commandString = StringUtils.upperCase(command.getCommandString());
+        if (StringUtils.contains(commandString, "G38")) {
+            probing = true;
+            updatePollRate(Activity.PROBING);
+        } else if (StringUtils.startsWith(commandString, "$J=")) {
+            updatePollRate(Activity.JOGGING);
+        } else if (pollRate.getActivity() == Activity.IDLE && !StringUtils.startsWith(commandString, "$")) {
+            updatePollRate(isStreaming() ? Activity.STREAMING : Activity.MOVING);
+        }
     }
 
     /**
-     * Begin issuing GRBL status request commands.
+     * Begin issuing GRBL status request commands or watching for pushed reports.
      */
     private void beginPollingPosition() {
         // Start sending '?' commands if supported and enabled.
         if (this.isReady && this.capabilities != null && this.getStatusUpdatesEnabled()) {
-            if (!this.positionPollTimer.isRunning()) {
-                this.outstandingPolls = 0;
-                this.positionPollTimer.start();
-            }
+            getStatusSource().start();
         }
     }
 
@@ -668,9 +741,7 @@ public class GrblController extends AbstractController {
      * Stop issuing GRBL status request commands.
      */
     private void stopPollingPosition() {
-        if (this.positionPollTimer.isRunning()) {
-            this.positionPollTimer.stop();
-        }
+        getStatusSource().stop();
     }
 
     
@@ -683,8 +754,17 @@ public class GrblController extends AbstractController {
         ControlState before = getControlState();
         String beforeState = controllerStatus == null ? "" : controllerStatus.getStateString();
 
-        controllerStatus = GrblUtils.getStatusFromStatusString(
-                controllerStatus, string, capabilities, getFirmwareSettings().getReportingUnits());
+        if (capabilities.hasCapability(GrblCapabilitiesConstants.V1_FORMAT)) {
+            controllerStatus = statusParser.parse(string, getFirmwareSettings().getReportingUnits());
+        } else {
+            controllerStatus = GrblUtils.getStatusFromStatusString(
+                    controllerStatus, string, capabilities, getFirmwareSettings().getReportingUnits());
+        }
+
+        // Keep the planner fed with what the controller says it has room for
+        if (controllerStatus.getBufferState() != null && comm instanceof GrblCommunicator) {
+            ((GrblCommunicator) comm).updateBufferState(controllerStatus.getBufferState());
+        }
 
         // Make UGS more responsive to the state being reported by GRBL.
         if (before != getControlState()) {
@@ -750,9 +830,10 @@ public class GrblController extends AbstractController {
     @Override
     protected void statusUpdatesRateValueChanged(int rate) {
         this.stopPollingPosition();
-        this.positionPollTimer = this.createPositionPollTimer();
-        
-        // This will start the timer up again if it is supported and enabled.
+        pollRate.setBaseInterval(rate);
+        getStatusSource().setInterval(getStatusSource() instanceof PollingStatusSource ? pollRate.getInterval() : rate);
+
+        // This will start the status source up again if it is supported and enabled.
         this.beginPollingPosition();
     }
 
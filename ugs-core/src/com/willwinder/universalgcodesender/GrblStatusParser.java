@@ -0,0 +1,442 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender;
+
+import com.willwinder.universalgcodesender.listeners.ControllerState;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.AccessoryStates;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.BufferState;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.EnabledPins;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.OverridePercents;
+import com.willwinder.universalgcodesender.listeners.ControllerStatusBuilder;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+
+/**
+ * Parses GRBL 1.1 status reports like
+ * <Run|MPos:1.000,2.000,3.000|Bf:15,128|FS:500,0|WCO:0.000,0.000,0.000>
+ * in a single pass over the characters.
+ *
+ * The values are parsed into reusable fields without creating any objects.
+ * A new {@link ControllerStatus} is only built if something changed since
+ * the last report, otherwise the last one is returned again. Values which
+ * GRBL only sends every few reports, like the work coordinate offset and
+ * the overrides, are kept from earlier reports.
+ *
+ * A parser keeps the state of one connection and isn't thread safe.
+ *
+ * @author wwinder
+ */
+public class GrblStatusParser {
+    private static final String[] STATES = {
+            "Idle", "Run", "Hold", "Jog", "Alarm", "Door", "Check", "Home", "Sleep"
+    };
+
+    // Powers of ten which are exact as doubles
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    // Larger numbers can't be divided into an exact double
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final String PIN_LETTERS = "XYZPDHRS";
+    private static final String ACCESSORY_LETTERS = "SCFM";
+
+    // The report being parsed
+    private String report;
+    private int position;
+    private int end;
+    private final double[] numbers = new double[4];
+
+    // Values from the current report
+    private int stateStart;
+    private int stateEnd;
+    private final double[] machine = new double[3];
+    private final double[] work = new double[3];
+    private boolean hasMachine;
+    private boolean hasWork;
+    private boolean hasOverrides;
+    private boolean hasPins;
+    private boolean hasAccessories;
+    private boolean hasBuffer;
+    private int pins;
+    private int accessories;
+    private final int[] buffer = new int[2];
+
+    // Values kept from earlier reports
+    private final double[] offset = new double[3];
+    private final int[] overrides = new int[3];
+    private boolean overridesReported;
+    private double feedSpeed;
+    private double spindleSpeed;
+
+    // The last published status and the values it was built from
+    private ControllerStatus status;
+    private int statusPins = -1;
+    private int statusAccessories = -1;
+
+    /**
+     * Forgets everything from earlier reports, for instance after a reset.
+     */
+    public void reset() {
+        status = null;
+        statusPins = -1;
+        statusAccessories = -1;
+        overridesReported = false;
+        feedSpeed = 0;
+        spindleSpeed = 0;
+        for (int i = 0; i < 3; i++) {
+            offset[i] = 0;
+            overrides[i] = 0;
+        }
+    }
+
+    /**
+     * @return the last parsed status or null if nothing has been parsed
+     */
+    public ControllerStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Parses a status report.
+     *
+     * @param statusReport the report including the angle brackets
+     * @param reportingUnits the units of the positions in the report
+     * @return the status, which is the same object as last time if nothing changed
+     */
+    public ControllerStatus parse(String statusReport, Units reportingUnits) {
+        report = statusReport;
+        end = statusReport.length();
+        if (end > 0 && statusReport.charAt(end - 1) == '>') {
+            end--;
+        }
+        position = end > 0 && statusReport.charAt(0) == '<' ? 1 : 0;
+        hasMachine = hasWork = hasOverrides = hasPins = hasAccessories = hasBuffer = false;
+        pins = accessories = 0;
+
+        // The state comes first, the sub state like in 'Hold:0' isn't used
+        stateStart = position;
+        while (position < end && report.charAt(position) != '|' && report.charAt(position) != ':') {
+            position++;
+        }
+        stateEnd = position;
+        skipField();
+
+        while (position < end) {
+            // Skip the '|' separating the fields
+            position++;
+            int nameStart = position;
+            while (position < end && report.charAt(position) != ':' && report.charAt(position) != '|') {
+                position++;
+            }
+            if (position >= end || report.charAt(position) == '|') {
+                continue;
+            }
+            int nameLength = position - nameStart;
+            position++;
+            parseField(nameStart, nameLength);
+        }
+
+        ControllerStatus result = publish(reportingUnits);
+        report = null;
+        return result;
+    }
+
+    private void parseField(int nameStart, int nameLength) {
+        if (isField(nameStart, nameLength, "MPos")) {
+            hasMachine = parseNumbers() >= 3;
+            copy(numbers, machine, hasMachine);
+        } else if (isField(nameStart, nameLength, "WPos")) {
+            hasWork = parseNumbers() >= 3;
+            copy(numbers, work, hasWork);
+        } else if (isField(nameStart, nameLength, "WCO")) {
+            copy(numbers, offset, parseNumbers() >= 3);
+        } else if (isField(nameStart, nameLength, "FS")) {
+            if (parseNumbers() >= 2) {
+                feedSpeed = numbers[0];
+                spindleSpeed = numbers[1];
+            }
+        } else if (isField(nameStart, nameLength, "F")) {
+            if (parseNumbers() >= 1) {
+                feedSpeed = numbers[0];
+            }
+        } else if (isField(nameStart, nameLength, "Ov")) {
+            hasOverrides = parseNumbers() == 3;
+            if (hasOverrides) {
+                overridesReported = true;
+                for (int i = 0; i < 3; i++) {
+                    overrides[i] = (int) numbers[i];
+                }
+            }
+        } else if (isField(nameStart, nameLength, "Bf")) {
+            hasBuffer = parseNumbers() == 2;
+            buffer[0] = (int) numbers[0];
+            buffer[1] = (int) numbers[1];
+        } else if (isField(nameStart, nameLength, "Pn")) {
+            hasPins = true;
+            pins = parseFlags(PIN_LETTERS);
+        } else if (isField(nameStart, nameLength, "A")) {
+            hasAccessories = true;
+            accessories = parseFlags(ACCESSORY_LETTERS);
+        } else {
+            skipField();
+        }
+    }
+
+    private boolean isField(int nameStart, int nameLength, String name) {
+        return nameLength == name.length() && report.regionMatches(nameStart, name, 0, nameLength);
+    }
+
+    private void skipField() {
+        while (position < end && report.charAt(position) != '|') {
+            position++;
+        }
+    }
+
+    private static void copy(double[] from, double[] to, boolean valid) {
+        if (valid) {
+            System.arraycopy(from, 0, to, 0, to.length);
+        }
+    }
+
+    /**
+     * Parses the comma separated numbers of a field into {@link #numbers}.
+     *
+     * @return the number of values, or -1 if one of them isn't a number
+     */
+    private int parseNumbers() {
+        int count = 0;
+        boolean valid = true;
+        while (position < end && report.charAt(position) != '|') {
+            double value = parseNumber();
+            if (Double.isNaN(value)) {
+                valid = false;
+            } else if (count < numbers.length) {
+                numbers[count] = value;
+            }
+            count++;
+
+            if (position < end && report.charAt(position) == ',') {
+                position++;
+            } else {
+                // Garbage after the number
+                skipField();
+            }
+        }
+        return valid ? count : -1;
+    }
+
+    private double parseNumber() {
+        int start = position;
+        boolean negative = false;
+        if (position < end && (report.charAt(position) == '-' || report.charAt(position) == '+')) {
+            negative = report.charAt(position) == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; position < end; position++) {
+            char c = report.charAt(position);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (digits == 0) {
+            return Double.NaN;
+        } else if (digits > MAX_FAST_DIGITS) {
+            return Double.parseDouble(report.substring(start, position));
+        }
+
+        // Both are exact, so the division is rounded just like parsing the string
+        double value = decimals > 0 ? mantissa / POW10[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private int parseFlags(String letters) {
+        int flags = 0;
+        for (; position < end && report.charAt(position) != '|'; position++) {
+            int index = letters.indexOf(Character.toUpperCase(report.charAt(position)));
+            if (index >= 0) {
+                flags |= 1 << index;
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Builds a new status from the parsed values, reusing everything from
+     * the last status which didn't change.
+     */
+    private ControllerStatus publish(Units units) {
+        if (hasMachine && !hasWork) {
+            for (int i = 0; i < 3; i++) {
+                work[i] = -offset[i] + machine[i];
+            }
+        } else if (hasWork && !hasMachine) {
+            for (int i = 0; i < 3; i++) {
+                machine[i] = offset[i] + work[i];
+            }
+        }
+        boolean hasPositions = hasMachine || hasWork;
+
+        // Pins are only reported while triggered, accessories only with the overrides
+        if (!hasPins && overridesReported) {
+            hasPins = true;
+        }
+        if (!hasAccessories && hasOverrides) {
+            hasAccessories = true;
+        }
+
+        ControllerStatus last = status;
+        String stateString = getStateString(last);
+        Position machineCoord = hasPositions ? getPosition(last == null ? null : last.getMachineCoord(), machine, units) : null;
+        Position workCoord = hasPositions ? getPosition(last == null ? null : last.getWorkCoord(), work, units) : null;
+        Position workCoordinateOffset = getPosition(last == null ? null : last.getWorkCoordinateOffset(), offset, units);
+        OverridePercents overridePercents = getOverrides(last);
+        EnabledPins enabledPins = getPins(last);
+        AccessoryStates accessoryStates = getAccessoryStates(last);
+        BufferState bufferState = getBufferState(last);
+
+        if (last != null
+                && stateString == last.getStateString()
+                && machineCoord == last.getMachineCoord()
+                && workCoord == last.getWorkCoord()
+                && workCoordinateOffset == last.getWorkCoordinateOffset()
+                && feedSpeed == last.getFeedSpeed()
+                && spindleSpeed == last.getSpindleSpeed()
+                && overridePercents == last.getOverrides()
+                && enabledPins == last.getEnabledPins()
+                && accessoryStates == last.getAccessoryStates()
+                && bufferState == last.getBufferState()) {
+            return last;
+        }
+
+        ControllerState state = last != null && stateString == last.getStateString()
+                ? last.getState()
+                : ControllerStatusBuilder.getControllerStateFromStateString(stateString);
+        status = new ControllerStatusBuilder()
+                .setStateString(stateString)
+                .setState(state)
+                .setMachineCoord(machineCoord)
+                .setWorkCoord(workCoord)
+                .setWorkCoordinateOffset(workCoordinateOffset)
+                .setFeedSpeed(feedSpeed)
+                .setSpindleSpeed(spindleSpeed)
+                .setOverrides(overridePercents)
+                .setPins(enabledPins)
+                .setAccessoryStates(accessoryStates)
+                .setBufferState(bufferState)
+                .build();
+        return status;
+    }
+
+    private String getStateString(ControllerStatus last) {
+        int length = stateEnd - stateStart;
+        if (last != null && last.getStateString() != null && last.getStateString().length() == length
+                && report.regionMatches(stateStart, last.getStateString(), 0, length)) {
+            return last.getStateString();
+        }
+        for (String state : STATES) {
+            if (state.length() == length && report.regionMatches(stateStart, state, 0, length)) {
+                return state;
+            }
+        }
+        return report.substring(stateStart, stateEnd);
+    }
+
+    private static Position getPosition(Position last, double[] values, Units units) {
+        if (last != null && last.getUnits() == units && last.x == values[0] && last.y == values[1] && last.z == values[2]) {
+            return last;
+        }
+        return new Position(values[0], values[1], values[2], units);
+    }
+
+    private OverridePercents getOverrides(ControllerStatus last) {
+        if (!overridesReported) {
+            return null;
+        }
+        OverridePercents lastOverrides = last == null ? null : last.getOverrides();
+        if (lastOverrides != null && lastOverrides.feed == overrides[0]
+                && lastOverrides.rapid == overrides[1] && lastOverrides.spindle == overrides[2]) {
+            return lastOverrides;
+        }
+        return new OverridePercents(overrides[0], overrides[1], overrides[2]);
+    }
+
+    private EnabledPins getPins(ControllerStatus last) {
+        if (!hasPins) {
+            return null;
+        }
+        if (last != null && last.getEnabledPins() != null && statusPins == pins) {
+            return last.getEnabledPins();
+        }
+        statusPins = pins;
+        return new EnabledPins(toLetters(pins, PIN_LETTERS));
+    }
+
+    private AccessoryStates getAccessoryStates(ControllerStatus last) {
+        if (!hasAccessories) {
+            // Kept until the next override report
+            return last == null ? null : last.getAccessoryStates();
+        }
+        if (last != null && last.getAccessoryStates() != null && statusAccessories == accessories) {
+            return last.getAccessoryStates();
+        }
+        statusAccessories = accessories;
+        return new AccessoryStates(toLetters(accessories, ACCESSORY_LETTERS));
+    }
+
+    private BufferState getBufferState(ControllerStatus last) {
+        if (!hasBuffer) {
+            return null;
+        }
+        BufferState lastBuffer = last == null ? null : last.getBufferState();
+        if (lastBuffer != null && lastBuffer.plannerBlocksAvailable == buffer[0] && lastBuffer.rxBytesAvailable == buffer[1]) {
+            return lastBuffer;
+        }
+        return new BufferState(buffer[0], buffer[1]);
+    }
+
+    private static String toLetters(int flags, String letters) {
+        StringBuilder result = new StringBuilder(letters.length());
+        for (int i = 0; i < letters.length(); i++) {
+            if ((flags & (1 << i)) != 0) {
+                result.append(letters.charAt(i));
+            }
+        }
+        return result.toString();
+    }
+}
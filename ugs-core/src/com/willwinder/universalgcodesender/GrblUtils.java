@@ -20,6 +20,7 @@
 package com.willwinder.universalgcodesender;
 
 import com.willwinder.universalgcodesender.listeners.ControllerStatus;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.BufferState;
 import com.willwinder.universalgcodesender.listeners.ControllerStatus.AccessoryStates;
 import com.willwinder.universalgcodesender.listeners.ControllerStatus.EnabledPins;
 import com.willwinder.universalgcodesender.listeners.ControllerStatus.OverridePercents;
@@ -412,6 +413,14 @@ public class GrblUtils {
             else if (part.startsWith("A:")) {
                 builder.setAccessoryStates(new AccessoryStates(part.substring(part.indexOf(':')+1)));
             }
+            else if (part.startsWith("Bf:")) {
+                String[] bufferParts = part.substring(3).trim().split(",");
+                if (bufferParts.length == 2) {
+                    builder.setBufferState(new BufferState(
+                            Integer.parseInt(bufferParts[0]),
+                            Integer.parseInt(bufferParts[1])));
+                }
+            }
         }
 
         return builder.build();
@@ -23,6 +23,7 @@ import com.willwinder.universalgcodesender.connection.ConnectionDriver;
 import com.willwinder.universalgcodesender.connection.IConnectionListener;
 import com.willwinder.universalgcodesender.listeners.CommunicatorListener;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.EventLoop;
 import com.willwinder.universalgcodesender.utils.IGcodeStreamReader;
 
 /**
@@ -65,6 +66,17 @@ public interface ICommunicator extends IConnectionListener {
      */
     void sendByteImmediately(byte b) throws Exception;
 
+    /**
+     * Sends a command to the controller immediately, ahead of any queued
+     * commands or streams and even while paused. The command doesn't take
+     * room in the controller buffer and its response doesn't complete any
+     * active command.
+     *
+     * @param command the command to send to the controller
+     * @throws Exception if the command couldn't be sent
+     */
+    void sendStringImmediately(String command) throws Exception;
+
     String activeCommandSummary();
 
     /**
@@ -150,6 +162,42 @@ public interface ICommunicator extends IConnectionListener {
      */
     void setSingleStepMode(boolean enable);
 
+    /**
+     * Returns if commands that fit in the controller buffer are written to the
+     * connection together instead of one write per command.
+     *
+     * @return true if writes are batched.
+     */
+    boolean isBatchWritesEnabled();
+
+    /**
+     * Enables or disables batching of writes when streaming commands.
+     * <p>
+     * If enabled all commands that fit in the controller buffer are collected
+     * and written to the connection in a single call. Listeners are still
+     * notified about each sent command in order.
+     *
+     * @param enable set to true to batch writes.
+     */
+    void setBatchWritesEnabled(boolean enable);
+
+    /**
+     * Hands the ownership of the communicator state to an event loop. All
+     * calls from other threads, including responses from the connection,
+     * are posted to the loop and listeners are notified from the loop
+     * thread. Should be set before connecting.
+     *
+     * @param eventLoop the event loop or null to use the calling threads.
+     */
+    void setEventLoop(EventLoop eventLoop);
+
+    /**
+     * Returns the event loop which owns the communicator state.
+     *
+     * @return the event loop or null if not running in an event loop.
+     */
+    EventLoop getEventLoop();
+
     /**
      * Removes listeners for notifying about the progress for sending commands.
      *
@@ -127,6 +127,17 @@ public interface IController {
     void setSingleStepMode(boolean enabled);
     boolean getSingleStepMode();
 
+    void setBatchWritesEnabled(boolean enabled);
+    boolean isBatchWritesEnabled();
+
+    /**
+     * In event loop mode a single thread owns the controller and
+     * communicator state. Calls from other threads are posted to it and
+     * wait for their turn. Should be set before opening the port.
+     */
+    void setEventLoopEnabled(boolean enabled);
+    boolean isEventLoopEnabled();
+
     void setStatusUpdatesEnabled(boolean enabled);
     boolean getStatusUpdatesEnabled();
     
@@ -18,6 +18,7 @@
  */
 package com.willwinder.universalgcodesender;
 
+import com.google.gson.JsonObject;
 import com.willwinder.universalgcodesender.types.TinyGGcodeCommand;
 
 /**
@@ -45,6 +46,16 @@ public class TinyGCommunicator extends BufferedCommunicator {
         return false;
     }
 
+    /**
+     * Status reports requested outside of the stream are answered with a
+     * status report inside a response.
+     */
+    @Override
+    protected boolean isImmediateCommandResponse(String response) {
+        JsonObject jo = TinyGUtils.jsonToObject(response);
+        return jo.get("r").isJsonObject() && jo.getAsJsonObject("r").has(TinyGUtils.FIELD_STATUS_REPORT);
+    }
+
     @Override
     protected void sendingCommand(String response) {
         // no-op for this protocol.
@@ -33,6 +33,7 @@ import com.willwinder.universalgcodesender.model.PartialPosition;
 import com.willwinder.universalgcodesender.model.Position;
 import com.willwinder.universalgcodesender.model.UGSEvent;
 import com.willwinder.universalgcodesender.model.UnitUtils;
+import com.willwinder.universalgcodesender.status.PushStatusSource;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
 import com.willwinder.universalgcodesender.types.TinyGGcodeCommand;
 import org.apache.commons.lang3.StringUtils;
@@ -83,6 +84,7 @@ public class TinyGController extends AbstractController {
                                                         .setWorkCoord(new Position(0, 0, 0, UnitUtils.Units.MM))
                                                         .build();
         firmwareVersion = "TinyG unknown version";
+        setStatusSource(createStatusSource());
     }
 
     @Override
@@ -102,7 +104,7 @@ public class TinyGController extends AbstractController {
 
     @Override
     protected void closeCommBeforeEvent() {
-        // Not needed yet
+        getStatusSource().stop();
     }
 
     @Override
@@ -247,6 +249,7 @@ public class TinyGController extends AbstractController {
         capabilities.removeCapability(CapabilitiesConstants.SETUP_WIZARD);
 
         setCurrentState(COMM_IDLE);
+        getStatusSource().start();
         dispatchConsoleMessage(MessageType.INFO, "[ready] " + response + "\n");
         sendInitCommands();
     }
@@ -262,6 +265,7 @@ public class TinyGController extends AbstractController {
 
         // Notify our listeners about the new status
         controllerStatus = TinyGUtils.updateControllerStatus(controllerStatus, jo);
+        statusReportReceived();
         dispatchStatusString(controllerStatus);
 
         // Notify state change to our listeners
@@ -385,6 +389,22 @@ public class TinyGController extends AbstractController {
     protected void statusUpdatesRateValueChanged(int rate) {
         // Status report interval in milliseconds (50ms minimum interval)
         comm.queueCommand(new GcodeCommand("{si:" + rate + "}"));
+        getStatusSource().setInterval(rate);
+    }
+
+    /**
+     * The controller pushes status reports while the machine is moving,
+     * if they stop a report is requested.
+     */
+    private PushStatusSource createStatusSource() {
+        return new PushStatusSource(this::runLater, getStatusUpdateRate(), this::isMoving,
+                () -> comm.sendStringImmediately(TinyGUtils.COMMAND_STATUS_REPORT),
+                e -> LOGGER.log(Level.WARNING, "Couldn't request a status report", e));
+    }
+
+    private boolean isMoving() {
+        ControllerState state = controllerStatus.getState();
+        return state == ControllerState.RUN || state == ControllerState.JOG || state == ControllerState.HOME;
     }
 
     @Override
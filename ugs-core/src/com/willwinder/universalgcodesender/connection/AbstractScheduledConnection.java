@@ -0,0 +1,59 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.connection;
+
+/**
+ * A connection which sends its output through an {@link OutputScheduler},
+ * letting real-time bytes pass ahead of bulk gcode.
+ *
+ * @author wwinder
+ */
+public abstract class AbstractScheduledConnection extends AbstractConnection {
+
+    protected final OutputScheduler outputScheduler = new OutputScheduler(this::writeToPort);
+
+    /**
+     * Writes data scheduled by the {@link #outputScheduler} to the port.
+     * Urgent data is only valid during the call and must be copied if the
+     * connection needs to keep it.
+     *
+     * @param data the data to write
+     * @param offset the first byte to write
+     * @param length the number of bytes to write
+     * @param urgent true if the data is a real-time command
+     */
+    protected abstract void writeToPort(byte[] data, int offset, int length, boolean urgent) throws Exception;
+
+    @Override
+    public void sendStringToComm(String command) throws Exception {
+        outputScheduler.writeBulk(command.getBytes());
+    }
+
+    @Override
+    public void sendByteImmediately(byte b) throws Exception {
+        outputScheduler.writeUrgent(b);
+    }
+
+    /**
+     * @return the scheduler used to order and measure the output of this connection
+     */
+    public OutputScheduler getOutputScheduler() {
+        return outputScheduler;
+    }
+}
@@ -32,7 +32,7 @@ import java.util.List;
  *
  * @author wwinder
  */
-public class JSSCConnection extends AbstractConnection implements SerialPortEventListener {
+public class JSSCConnection extends AbstractScheduledConnection implements SerialPortEventListener {
 
     private int baudRate;
     private String portName;
@@ -92,21 +92,17 @@ public class JSSCConnection extends AbstractConnection implements SerialPortEven
     }
 
     /**
-     * Sends a command to the serial device. This actually streams the bits to
+     * Writes to the serial device. This actually streams the bits to
      * the comm port.
-     * @param command   Command to be sent to serial device.
      */
     @Override
-    public void sendStringToComm(String command) throws Exception {
-        this.serialPort.writeString(command);
-    }
-        
-    /**
-     * Immediately sends a byte, used for real-time commands.
-     */
-    @Override
-    public void sendByteImmediately(byte b) throws Exception {
-        this.serialPort.writeByte(b);
+    protected void writeToPort(byte[] data, int offset, int length, boolean urgent) throws Exception {
+        if (offset == 0 && length == data.length) {
+            this.serialPort.writeBytes(data);
+        } else {
+            // JSSC can't write part of an array.
+            this.serialPort.writeBytes(Arrays.copyOfRange(data, offset, offset + length));
+        }
     }
     
     /**
@@ -120,8 +116,7 @@ public class JSSCConnection extends AbstractConnection implements SerialPortEven
                 return;
             }
 
-            String s = new String(buf, 0, buf.length);
-            responseMessageHandler.handleResponse(s);
+            responseMessageHandler.handleResponse(buf, 0, buf.length);
         } catch ( Exception e ) {
             e.printStackTrace();
             System.exit(-1);
@@ -31,7 +31,7 @@ import java.util.stream.Collectors;
  *
  * @author Joacim Breiler
  */
-public class JSerialCommConnection extends AbstractConnection implements SerialPortDataListener {
+public class JSerialCommConnection extends AbstractScheduledConnection implements SerialPortDataListener {
 
     private final byte[] buffer = new byte[1024];
     private SerialPort serialPort;
@@ -78,13 +78,8 @@ public class JSerialCommConnection extends AbstractConnection implements SerialP
     }
 
     @Override
-    public void sendByteImmediately(byte b) throws Exception {
-        serialPort.writeBytes(new byte[]{b}, 1);
-    }
-
-    @Override
-    public void sendStringToComm(String command) throws Exception {
-        serialPort.writeBytes(command.getBytes(), command.length());
+    protected void writeToPort(byte[] data, int offset, int length, boolean urgent) throws Exception {
+        serialPort.writeBytes(data, length, offset);
     }
 
     @Override
@@ -117,8 +112,8 @@ public class JSerialCommConnection extends AbstractConnection implements SerialP
         }
 
         int bytesRead = serialPort.readBytes(buffer, Math.min(buffer.length, bytesAvailable));
-        String response = new String(buffer, 0, bytesRead);
-
-        responseMessageHandler.handleResponse(response);
+        if (bytesRead > 0) {
+            responseMessageHandler.handleResponse(buffer, 0, bytesRead);
+        }
     }
 }
@@ -40,12 +40,16 @@ public class LoopBackConnection extends AbstractConnection {
     private Thread  okThread;
     private int ms = 0;
 
+    private void respond(String line) {
+        responseMessageHandler.handleResponse(line + "\n");
+    }
+
     private void initialize() {
-        responseMessageHandler.handleResponse(" ");
-        responseMessageHandler.handleResponse("Grbl 0.9z [ugs diagnostic mode]");
-        responseMessageHandler.handleResponse(" ");
-        responseMessageHandler.handleResponse("This is a diagnostic end point which responds to each gcode");
-        responseMessageHandler.handleResponse("command as fast as possible while doing nothing else.");
+        respond(" ");
+        respond("Grbl 0.9z [ugs diagnostic mode]");
+        respond(" ");
+        respond("This is a diagnostic end point which responds to each gcode");
+        respond("command as fast as possible while doing nothing else.");
     }
 
     Runnable okRunnable = () -> {
@@ -68,9 +72,9 @@ public class LoopBackConnection extends AbstractConnection {
                     if (lastCommand != null) {
                         xyz = String.format("%f,%f,%f", lastCommand.x, lastCommand.y, lastCommand.z);
                     }
-                    responseMessageHandler.handleResponse(String.format("<Idle,MPos:%s,WPos:%s>", xyz, xyz));
+                    respond(String.format("<Idle,MPos:%s,WPos:%s>", xyz, xyz));
                 } else if (command.equals("G61")) {
-                    responseMessageHandler.handleResponse("error: G61 not supported.");
+                    respond("error: G61 not supported.");
                 } else {
                     count++;
                     if (count == 2) {
@@ -82,7 +86,7 @@ public class LoopBackConnection extends AbstractConnection {
                             lastCommand = gcp.getCurrentState().currentPoint;
                         } catch (Exception e) {
                         }
-                        responseMessageHandler.handleResponse("ok");
+                        respond("ok");
                     }
                 }
             } catch (InterruptedException ex) {
@@ -134,7 +138,10 @@ public class LoopBackConnection extends AbstractConnection {
     
     @Override
     public void sendStringToComm(String command) throws Exception {
-        this.sent.put(command);
+        // Batched writes contain several commands, respond to each of them.
+        for (String line : command.split("(?<=\n)")) {
+            this.sent.put(line);
+        }
     }
         
     @Override
@@ -0,0 +1,208 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.connection;
+
+/**
+ * Schedules the output of a connection on two lanes.
+ *
+ * The bulk lane is used for gcode, each buffer is written to the sink in
+ * slices of a bounded size. The urgent lane is used for single real-time
+ * bytes like status requests, feed hold and overrides. Urgent bytes are
+ * written as soon as the sink is free, at the latest between two slices, so
+ * a feed hold never waits for more than one slice of a large buffer.
+ *
+ * The time each urgent byte waited before it was written is recorded.
+ *
+ * @author wwinder
+ */
+public class OutputScheduler {
+    private static final int URGENT_QUEUE_SIZE = 64;
+    public static final int DEFAULT_SLICE_SIZE = 64;
+
+    /**
+     * The destination of the scheduled output, usually the port of the
+     * connection. Bulk data may be kept by the sink, urgent data is only
+     * valid during the call. Sinks that buffer data themselves should let
+     * urgent data pass ahead of anything they have buffered.
+     */
+    public interface Sink {
+        void write(byte[] data, int offset, int length, boolean urgent) throws Exception;
+    }
+
+    private final Sink sink;
+    private final int sliceSize;
+
+    // Keeps bulk writes from interleaving with each other.
+    private final Object bulkLock = new Object();
+    // Held while writing to the sink.
+    private final Object wireLock = new Object();
+
+    // Ring of urgent bytes with the time they were queued, guarded by itself.
+    private final byte[] urgentBytes = new byte[URGENT_QUEUE_SIZE];
+    private final long[] urgentQueuedAt = new long[URGENT_QUEUE_SIZE];
+    private int urgentHead = 0;
+    private int urgentCount = 0;
+
+    // Urgent bytes taken from the ring for writing, guarded by wireLock.
+    private final byte[] urgentOut = new byte[URGENT_QUEUE_SIZE];
+    private final long[] urgentOutQueuedAt = new long[URGENT_QUEUE_SIZE];
+
+    // Latency statistics for urgent bytes, guarded by wireLock.
+    private long urgentWritten = 0;
+    private long totalLatencyNanos = 0;
+    private long maxLatencyNanos = 0;
+    private long lastLatencyNanos = 0;
+
+    public OutputScheduler(Sink sink) {
+        this(sink, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * @param sink where the output is written
+     * @param sliceSize the largest number of bulk bytes written in one call
+     */
+    public OutputScheduler(Sink sink, int sliceSize) {
+        if (sliceSize <= 0) {
+            throw new IllegalArgumentException("The slice size must be positive: " + sliceSize);
+        }
+        this.sink = sink;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * Writes data on the bulk lane one slice at a time, urgent bytes waiting
+     * before or queued during a slice are written right after it. Returns
+     * once all data has been written.
+     *
+     * @param data the data to write
+     */
+    public void writeBulk(byte[] data) throws Exception {
+        synchronized (bulkLock) {
+            int offset = 0;
+            do {
+                int length = Math.min(sliceSize, data.length - offset);
+                synchronized (wireLock) {
+                    drainUrgent();
+                    sink.write(data, offset, length, false);
+                    drainUrgent();
+                }
+                offset += length;
+            } while (offset < data.length);
+        }
+    }
+
+    /**
+     * Writes a real-time byte ahead of any queued bulk data. Returns once
+     * the byte has been written.
+     *
+     * @param b the byte to write
+     */
+    public void writeUrgent(byte b) throws Exception {
+        synchronized (urgentBytes) {
+            if (urgentCount == URGENT_QUEUE_SIZE) {
+                throw new ConnectionException("Too many real-time commands waiting to be sent.");
+            }
+            int tail = (urgentHead + urgentCount) % URGENT_QUEUE_SIZE;
+            urgentBytes[tail] = b;
+            urgentQueuedAt[tail] = System.nanoTime();
+            urgentCount++;
+        }
+
+        synchronized (wireLock) {
+            drainUrgent();
+        }
+    }
+
+    /**
+     * Writes all waiting urgent bytes in one call, must be called holding
+     * the wire lock.
+     */
+    private void drainUrgent() throws Exception {
+        int count;
+        synchronized (urgentBytes) {
+            count = urgentCount;
+            for (int i = 0; i < count; i++) {
+                int index = (urgentHead + i) % URGENT_QUEUE_SIZE;
+                urgentOut[i] = urgentBytes[index];
+                urgentOutQueuedAt[i] = urgentQueuedAt[index];
+            }
+            urgentHead = (urgentHead + count) % URGENT_QUEUE_SIZE;
+            urgentCount = 0;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        sink.write(urgentOut, 0, count, true);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long latency = now - urgentOutQueuedAt[i];
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            lastLatencyNanos = latency;
+        }
+        urgentWritten += count;
+    }
+
+    /**
+     * @return the number of urgent bytes written since the last reset
+     */
+    public long getUrgentBytesWritten() {
+        synchronized (wireLock) {
+            return urgentWritten;
+        }
+    }
+
+    /**
+     * @return the longest time an urgent byte waited before it was written, in nanoseconds
+     */
+    public long getMaxUrgentLatencyNanos() {
+        synchronized (wireLock) {
+            return maxLatencyNanos;
+        }
+    }
+
+    /**
+     * @return the average time urgent bytes waited before they were written, in nanoseconds
+     */
+    public long getAverageUrgentLatencyNanos() {
+        synchronized (wireLock) {
+            return urgentWritten == 0 ? 0 : totalLatencyNanos / urgentWritten;
+        }
+    }
+
+    /**
+     * @return the time the last urgent byte waited before it was written, in nanoseconds
+     */
+    public long getLastUrgentLatencyNanos() {
+        synchronized (wireLock) {
+            return lastLatencyNanos;
+        }
+    }
+
+    public void resetStatistics() {
+        synchronized (wireLock) {
+            urgentWritten = 0;
+            totalLatencyNanos = 0;
+            maxLatencyNanos = 0;
+            lastLatencyNanos = 0;
+        }
+    }
+}
@@ -18,6 +18,9 @@
  */
 package com.willwinder.universalgcodesender.connection;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -26,19 +29,37 @@ import java.util.Set;
  * until we have a complete line. It will then attempt to dispatch that
  * data to a communicator.
  *
+ * The data is framed on the raw bytes, each byte is only scanned once and
+ * partial lines are kept in a reused buffer until the rest of the line
+ * arrives. Lines are only decoded when they are dispatched, short lines
+ * like "ok" are decoded once and reused from a small pool.
+ *
  * @author wwinder
  * @author Joacim Breiler
  */
 public class ResponseMessageHandler {
+    private static final int POOL_SIZE = 64;
+    private static final int MAX_POOLED_LINE_LENGTH = 32;
+
+    private final Charset charset;
+
+    // Partial line waiting for its terminator.
+    private byte[] lineBuffer = new byte[256];
+    private int lineLength = 0;
+
+    // Direct mapped cache of recently decoded short lines.
+    private final byte[][] poolBytes = new byte[POOL_SIZE][];
+    private final String[] poolStrings = new String[POOL_SIZE];
 
-    private final StringBuilder inputBuffer;
     private Set<IConnectionListener> listeners = new HashSet<>();
 
     public ResponseMessageHandler() {
-        inputBuffer = new StringBuilder();
+        this(Charset.defaultCharset());
     }
 
-
+    public ResponseMessageHandler(Charset charset) {
+        this.charset = charset;
+    }
 
     /**
      * Appends the response data to a buffer, then splits out response rows and sends them
@@ -47,28 +68,125 @@ public class ResponseMessageHandler {
      * @param response a complete or part of a response message
      */
     public void handleResponse(String response) {
-        inputBuffer.append(response);
+        byte[] bytes = response.getBytes(charset);
+        handleResponse(bytes, 0, bytes.length);
+    }
 
-        // Only continue if there is a line terminator and split out command(response).
-        if (!inputBuffer.toString().contains("\n")) {
+    /**
+     * Frames the remaining bytes of the buffer, the buffer position is moved
+     * to its limit.
+     *
+     * @param response a complete or part of a response message
+     */
+    public void handleResponse(ByteBuffer response) {
+        if (response.hasArray()) {
+            handleResponse(response.array(), response.arrayOffset() + response.position(), response.remaining());
+            response.position(response.limit());
             return;
         }
 
-        // Split with the -1 option will give an empty string at
-        // the end if there is a terminator there as well.
-        String[] messages = inputBuffer.toString().split("\\r?\\n", -1);
-        for (int i = 0; i < messages.length; i++) {
-            // Make sure this isn't the last command.
-            if ((i + 1) < messages.length) {
+        while (response.hasRemaining()) {
+            byte b = response.get();
+            if (b == '\n') {
+                dispatchLine(lineBuffer, 0, lineLength);
+                lineLength = 0;
+            } else {
+                append(b);
+            }
+        }
+    }
 
-                notifyListeners(messages[i]);
+    /**
+     * Frames the given bytes. The array is not referenced after the call
+     * returns and may be reused by the caller.
+     *
+     * @param response a complete or part of a response message
+     * @param offset the first byte to read
+     * @param length the number of bytes to read
+     */
+    public void handleResponse(byte[] response, int offset, int length) {
+        int end = offset + length;
+        int lineStart = offset;
+        for (int i = offset; i < end; i++) {
+            if (response[i] != '\n') {
+                continue;
+            }
 
-                // Append last command to input buffer because it didn't have a terminator.
+            if (lineLength == 0) {
+                // The whole line is in this chunk, decode it in place.
+                dispatchLine(response, lineStart, i - lineStart);
             } else {
-                inputBuffer.setLength(0);
-                inputBuffer.append(messages[i]);
+                append(response, lineStart, i - lineStart);
+                dispatchLine(lineBuffer, 0, lineLength);
+                lineLength = 0;
+            }
+            lineStart = i + 1;
+        }
+
+        // Keep the unterminated rest until the next chunk.
+        append(response, lineStart, end - lineStart);
+    }
+
+    private void append(byte b) {
+        ensureCapacity(lineLength + 1);
+        lineBuffer[lineLength++] = b;
+    }
+
+    private void append(byte[] bytes, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        ensureCapacity(lineLength + length);
+        System.arraycopy(bytes, offset, lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(capacity, lineBuffer.length * 2));
+        }
+    }
+
+    private void dispatchLine(byte[] bytes, int offset, int length) {
+        // Strip the carriage return of a windows line ending.
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            length--;
+        }
+        notifyListeners(decode(bytes, offset, length));
+    }
+
+    private String decode(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+        if (length > MAX_POOLED_LINE_LENGTH) {
+            return new String(bytes, offset, length, charset);
+        }
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+
+        byte[] pooled = poolBytes[slot];
+        if (pooled != null && pooled.length == length && regionEquals(pooled, bytes, offset)) {
+            return poolStrings[slot];
+        }
+
+        String line = new String(bytes, offset, length, charset);
+        poolBytes[slot] = Arrays.copyOfRange(bytes, offset, offset + length);
+        poolStrings[slot] = line;
+        return line;
+    }
+
+    private static boolean regionEquals(byte[] pooled, byte[] bytes, int offset) {
+        for (int i = 0; i < pooled.length; i++) {
+            if (pooled[i] != bytes[offset + i]) {
+                return false;
             }
         }
+        return true;
     }
 
     public void notifyListeners(String message) {
@@ -18,34 +18,61 @@
 */
 package com.willwinder.universalgcodesender.connection;
 
-import java.io.OutputStream;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.io.BufferedReader;
-import java.net.*;
-import java.net.Socket;
-
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A TCP connection object implementing the connection API.
  *
+ * The socket is non-blocking and serviced by a single selector thread which
+ * sleeps until there is data to read or queued data that could not be
+ * written right away. Commands are written directly from the calling thread
+ * when the socket has room, anything left over is queued and written with
+ * gather writes by the selector thread. Real-time bytes are put ahead of
+ * any queued data.
+ *
  * @author Adam Carmicahel <carneeki@carneeki.net>
  */
-public class TCPConnection extends AbstractConnection implements Runnable, Connection {
+public class TCPConnection extends AbstractScheduledConnection implements Runnable, Connection {
+	private static final Logger logger = Logger.getLogger(TCPConnection.class.getName());
+	private static final int CONNECT_TIMEOUT_MS = 5000;
+	private static final int READ_BUFFER_SIZE = 4096;
 
 	private String host;
 	private int port;
+	private boolean tcpNoDelay = true;
 
 	// General variables
-	private Socket client;
-	private BufferedReader bufIn;
-	private OutputStream bufOut;
-	private InputStreamReader inStream;
+	private SocketChannel channel;
+	private Selector selector;
+	private SelectionKey key;
 	private Thread replyThread;
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	// Data which didn't fit in the socket send buffer, guarded by writeLock.
+	private final Object writeLock = new Object();
+	private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+	private ByteBuffer[] gatherBuffers = new ByteBuffer[16];
+
+	// Set if the connection was lost in the selector thread.
+	private volatile IOException failure;
 
 	@Override
 	public void setUri(String uri) {
@@ -64,31 +91,57 @@ public class TCPConnection extends AbstractConnection implements Runnable, Conne
 		}
 	}
 
+	/**
+	 * Enables or disables Nagle's algorithm, it is disabled by default so
+	 * that short commands are sent without delay. Takes effect the next time
+	 * the port is opened.
+	 *
+	 * @param tcpNoDelay set to true to send data without delay
+	 */
+	public void setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
+
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
 	@Override
 	public boolean openPort() throws Exception {
+		failure = null;
+		channel = SocketChannel.open();
 		try {
-			client = new Socket(host, port);
-		} catch( BindException e) {
+			channel.socket().setTcpNoDelay(tcpNoDelay);
+			channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+			channel.configureBlocking(false);
+			selector = Selector.open();
+			key = channel.register(selector, SelectionKey.OP_READ);
+		} catch (BindException e) {
+			closeQuietly();
 			throw new ConnectionException("Could not bind a local port.", e);
-		} catch( NoRouteToHostException e) {
+		} catch (NoRouteToHostException e) {
+			closeQuietly();
 			throw new ConnectionException("No route to host. The remote host may not be running, blocked by a firewall, or disconnected.", e);
-		} catch( ConnectException e) {
+		} catch (ConnectException e) {
+			closeQuietly();
 			throw new ConnectionException("The port is unreachable on the remote host. The server may not be running, or blocked by a firewall.", e);
-		}
-		
-		if (client == null) {
-			throw new ConnectionException("Socket unable to connect.");
+		} catch (SocketTimeoutException e) {
+			closeQuietly();
+			throw new ConnectionException("Timed out while connecting to the remote host.", e);
+		} catch (UnresolvedAddressException e) {
+			closeQuietly();
+			throw new ConnectionException("Unknown host " + host + ".", e);
+		} catch (IOException e) {
+			closeQuietly();
+			throw new ConnectionException("Socket unable to connect.", e);
 		}
 
-		bufOut = client.getOutputStream();
-		inStream = new InputStreamReader(client.getInputStream());
-		bufIn = new BufferedReader(inStream);
-
 		// start thread so replies can be handled
-		replyThread = new Thread(this);
+		replyThread = new Thread(this, "TCPConnection " + host + ":" + port);
+		replyThread.setDaemon(true);
 		replyThread.start();
 
-		return client.isConnected();
+		return channel.isConnected();
 	}
 
 	/**
@@ -97,75 +150,179 @@ public class TCPConnection extends AbstractConnection implements Runnable, Conne
 	 */
 	@Override
 	public void closePort() throws Exception {
-		if (client != null) {
+		if (channel == null) {
+			return;
+		}
+
+		Thread thread = replyThread;
+		closeQuietly();
+		if (thread != null && thread != Thread.currentThread()) {
+			thread.interrupt();
+			thread.join(1000);
+		}
+	}
+
+	private void closeQuietly() {
+		synchronized (writeLock) {
 			try {
-				replyThread.interrupt();
-				client.close();
-			} catch (SocketException e) {
-				// ignore socketexception if connection was broken early
+				if (selector != null) {
+					selector.close();
+				}
+				if (channel != null) {
+					channel.close();
+				}
+			} catch (IOException e) {
+				// ignore errors if connection was broken early
 			} finally {
-				client = null;
+				writeQueue.clear();
+				selector = null;
+				channel = null;
+				key = null;
 			}
 		}
 	}
 
 	@Override
 	public boolean isOpen() {
-		return (client != null) && (!client.isClosed());
+		SocketChannel c = channel;
+		return c != null && c.isOpen() && failure == null;
 	}
 
 	/**
-	 * Sends a command to remote host.
-	 * @param command Command to be sent to remote host.
+	 * Sends data to the remote host, data which doesn't fit in the socket
+	 * send buffer is queued.
 	 */
-	public void sendStringToComm(String command) throws Exception {
-		try {
-			bufOut.write(command.getBytes());
-			bufOut.flush();
-		} catch (SocketException e) {
-			closePort(); // very likely we got disconnected, attempt to disconnect gracefully
-			throw e;
-		} catch (IOException e) {
-			closePort(); // very likely we got disconnected, attempt to disconnect gracefully
-			throw e;
+	@Override
+	protected void writeToPort(byte[] data, int offset, int length, boolean urgent) throws Exception {
+		if (urgent) {
+			// The urgent buffer is reused by the scheduler, copy the few bytes in case they are queued.
+			ByteBuffer copy = ByteBuffer.allocate(length);
+			copy.put(data, offset, length).flip();
+			write(copy, true);
+		} else {
+			write(ByteBuffer.wrap(data, offset, length).slice(), false);
+		}
+	}
+
+	private void write(ByteBuffer data, boolean urgent) throws ConnectionException {
+		if (failure != null) {
+			throw new ConnectionException("The connection to the remote host was lost.", failure);
+		}
+		if (!isOpen()) {
+			throw new ConnectionException("The connection to the remote host is closed.");
+		}
+
+		boolean pending;
+		synchronized (writeLock) {
+			if (urgent && !writeQueue.isEmpty()) {
+				// Pass everything queued except a partially written buffer.
+				ByteBuffer head = writeQueue.peek();
+				if (head.position() > 0) {
+					writeQueue.poll();
+					writeQueue.addFirst(data);
+					writeQueue.addFirst(head);
+				} else {
+					writeQueue.addFirst(data);
+				}
+			} else {
+				writeQueue.add(data);
+			}
+			try {
+				pending = !flushWriteQueue();
+			} catch (IOException e) {
+				closeQuietly(); // very likely we got disconnected, attempt to disconnect gracefully
+				throw new ConnectionException("Could not write to the remote host.", e);
+			}
+		}
+
+		// Let the selector thread finish the write when the socket has room.
+		Selector s = selector;
+		if (pending && s != null) {
+			s.wakeup();
 		}
 	}
 
 	/**
-	 * Immediately sends a byte, used for real-time commands.
+	 * Writes as much of the queue as the socket accepts. Must be called
+	 * while holding the write lock.
+	 *
+	 * @return true if the queue was completely written
 	 */
-	public void sendByteImmediately(byte b) throws Exception {
-		try {
-			bufOut.write(b);
-			bufOut.flush();
-		} catch (SocketException e) {
-			closePort(); // very likely we got disconnected, attempt to disconnect gracefully
-			throw e;
-		} catch (IOException e) {
-			closePort(); // very likely we got disconnected, attempt to disconnect gracefully
-			throw e;
+	private boolean flushWriteQueue() throws IOException {
+		if (channel == null) {
+			throw new IOException("The connection to the remote host is closed.");
+		}
+
+		while (!writeQueue.isEmpty()) {
+			int count = writeQueue.size();
+			if (count > gatherBuffers.length) {
+				gatherBuffers = new ByteBuffer[Math.max(count, gatherBuffers.length * 2)];
+			}
+			writeQueue.toArray(gatherBuffers);
+
+			long written = channel.write(gatherBuffers, 0, count);
+			Arrays.fill(gatherBuffers, 0, count, null);
+
+			while (!writeQueue.isEmpty() && !writeQueue.peek().hasRemaining()) {
+				writeQueue.poll();
+			}
+
+			// The socket send buffer is full.
+			if (written == 0) {
+				break;
+			}
 		}
+		return writeQueue.isEmpty();
 	}
 
 	/**
 	 * Thread to accept data from remote host, and pass it to responseHandler
 	 */
+	@Override
 	public void run() {
-		String resp;
-		while(!Thread.interrupted() && !client.isClosed())
-		{
-			try {
-				if(inStream.ready() && (resp = bufIn.readLine()) != null) {
-					responseMessageHandler.handleResponse(resp + "\n");
+		Selector s = selector;
+		SelectionKey k = key;
+		SocketChannel c = channel;
+		try {
+			while (!Thread.currentThread().isInterrupted() && s.isOpen() && c.isOpen()) {
+				synchronized (writeLock) {
+					k.interestOps(writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
 				}
-			} catch (SocketException e) {
-				e.printStackTrace();
-				return; // terminate thread if disconnected
-						//TODO: at some point, reconnecting should be considered
-			} catch (IOException e) {
-				e.printStackTrace();
-				return; // terminate thread if disconnected
-						//TODO: at some point, reconnecting should be considered
+
+				s.select();
+				s.selectedKeys().clear();
+				if (!k.isValid()) {
+					break;
+				}
+
+				if (k.isReadable()) {
+					readBuffer.clear();
+					int read = c.read(readBuffer);
+					if (read < 0) {
+						throw new IOException("Connection closed by the remote host.");
+					}
+					readBuffer.flip();
+					responseMessageHandler.handleResponse(readBuffer);
+				}
+
+				if (k.isValid() && k.isWritable()) {
+					synchronized (writeLock) {
+						flushWriteQueue();
+					}
+				}
+			}
+		} catch (IOException e) {
+			if (c.isOpen()) {
+				logger.log(Level.WARNING, "Lost connection to " + host + ":" + port, e);
+				failure = e;
+				closeQuietly();
+			}
+			// terminate thread if disconnected
+			//TODO: at some point, reconnecting should be considered
+		} catch (RuntimeException e) {
+			// The selector or key was closed by closePort
+			if (c.isOpen()) {
+				throw e;
 			}
 		}
 	}
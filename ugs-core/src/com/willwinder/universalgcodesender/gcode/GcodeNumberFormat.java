@@ -0,0 +1,181 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Formats and parses the numbers of gcode words without DecimalFormat.
+ *
+ * Numbers are rounded half even to a fixed number of decimals, trailing
+ * zeros are removed and there is always a digit before the decimal point.
+ * Rounding uses the exact value of the double, so "X1.0005" is rounded
+ * down to "X1" with three decimals because 1.0005 can't be represented
+ * exactly and is stored as 1.000499999...
+ *
+ * Most numbers are formatted with long arithmetic directly into the given
+ * StringBuilder, which can be reused between lines. Numbers which are too
+ * large for that or which are too close to a rounding tie fall back to
+ * BigDecimal.
+ *
+ * All methods are static and thread safe.
+ *
+ * @author wwinder
+ */
+public final class GcodeNumberFormat {
+    // The fast path is exact while the scaled value fits in the mantissa of a double.
+    private static final int MAX_FAST_DECIMALS = 15;
+    private static final double MAX_FAST_SCALED = 1L << 52;
+
+    private static final double[] POW10 = new double[MAX_FAST_DECIMALS + 1];
+    private static final long[] POW10L = new long[MAX_FAST_DECIMALS + 1];
+    static {
+        POW10[0] = 1;
+        POW10L[0] = 1;
+        for (int i = 1; i <= MAX_FAST_DECIMALS; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+            POW10L[i] = POW10L[i - 1] * 10;
+        }
+    }
+
+    private GcodeNumberFormat() {
+    }
+
+    /**
+     * Rounds a number and appends it without trailing zeros, "-0" is never
+     * written.
+     *
+     * @param sb where the number is written.
+     * @param value the number, NaN and infinite values are appended as Double.toString writes them.
+     * @param decimals the maximum number of decimals.
+     * @return the StringBuilder.
+     */
+    public static StringBuilder append(StringBuilder sb, double value, int decimals) {
+        if (decimals < 0) {
+            throw new IllegalArgumentException("Negative number of decimals: " + decimals);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return sb.append(value);
+        }
+
+        double abs = Math.abs(value);
+        if (decimals <= MAX_FAST_DECIMALS) {
+            double scaled = abs * POW10[decimals];
+            // The product is off by at most half an ulp, only a value which is
+            // that close to a tie could be rounded to the wrong side.
+            if (scaled < MAX_FAST_SCALED
+                    && Math.abs(scaled - Math.floor(scaled) - 0.5) > Math.ulp(scaled)) {
+                return appendScaled(sb, value < 0, (long) Math.rint(scaled), decimals);
+            }
+        }
+
+        BigDecimal rounded = new BigDecimal(value).setScale(decimals, RoundingMode.HALF_EVEN);
+        if (rounded.signum() == 0) {
+            return sb.append('0');
+        }
+        return sb.append(rounded.stripTrailingZeros().toPlainString());
+    }
+
+    /**
+     * @see #append(StringBuilder, double, int)
+     */
+    public static String format(double value, int decimals) {
+        return append(new StringBuilder(24), value, decimals).toString();
+    }
+
+    /**
+     * Appends a number given as a whole number of units of 10^-decimals.
+     */
+    private static StringBuilder appendScaled(StringBuilder sb, boolean negative, long units, int decimals) {
+        if (units == 0) {
+            return sb.append('0');
+        }
+        if (negative) {
+            sb.append('-');
+        }
+
+        long integer = units / POW10L[decimals];
+        long fraction = units % POW10L[decimals];
+        sb.append(integer);
+        if (fraction == 0) {
+            return sb;
+        }
+
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+
+        sb.append('.');
+        for (long limit = POW10L[decimals - 1]; fraction < limit; limit /= 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    /**
+     * Parses a decimal number like "-1.25" from part of a string without
+     * copying it. Numbers with up to 15 digits are converted exactly with a
+     * single division, anything else is handed to Double.parseDouble.
+     *
+     * @param s the text containing the number.
+     * @param start index of the first character of the number.
+     * @param end index after the last character of the number.
+     * @throws NumberFormatException if the text isn't a number.
+     */
+    public static double parse(CharSequence s, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int decimals = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) {
+                    decimals++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i < end || !anyDigit || digits > MAX_FAST_DECIMALS || decimals > MAX_FAST_DECIMALS) {
+            return Double.parseDouble(s.subSequence(start, end).toString());
+        }
+
+        double value = mantissa / POW10[decimals];
+        return negative ? -value : value;
+    }
+}
@@ -30,6 +30,9 @@ package com.willwinder.universalgcodesender.gcode;
 
 import com.google.common.collect.Iterables;
 import com.willwinder.universalgcodesender.gcode.processors.CommandProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.CommandProcessorAdapter;
+import com.willwinder.universalgcodesender.gcode.processors.ParsedCommand;
+import com.willwinder.universalgcodesender.gcode.processors.ParsedCommandProcessor;
 import com.willwinder.universalgcodesender.gcode.processors.Stats;
 import com.willwinder.universalgcodesender.gcode.util.Code;
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
@@ -55,10 +58,14 @@ import static com.willwinder.universalgcodesender.gcode.util.Code.ModalGroup.Mot
 public class GcodeParser implements IGcodeParser {
     private static final Logger logger = Logger.getLogger(GcodeParser.class.getName());
 
+    // Reused for every line parsed on a thread.
+    private static final ThreadLocal<GcodeWords> WORDS = ThreadLocal.withInitial(GcodeWords::new);
+
     // Current state
     private GcodeState state;
 
-    private final ArrayList<CommandProcessor> processors = new ArrayList<>();
+    // Text based processors are wrapped in adapters.
+    private final ArrayList<ParsedCommandProcessor> processors = new ArrayList<>();
 
     private Stats statsProcessor;
 
@@ -108,7 +115,15 @@ public class GcodeParser implements IGcodeParser {
      */
     @Override
     public void addCommandProcessor(CommandProcessor p) {
-        this.processors.add(p);
+        this.processors.add(CommandProcessorAdapter.adapt(p));
+    }
+
+    /**
+     * @return true if none of the command processors need to see the commands
+     * in order, so a file can be preprocessed in chunks on several threads.
+     */
+    public boolean canPreprocessInParallel() {
+        return processors.stream().noneMatch(CommandProcessor::isSequential);
     }
 
     /**
@@ -127,6 +142,9 @@ public class GcodeParser implements IGcodeParser {
         this.statsProcessor = new Stats();
         this.state.currentPoint = new Position();
         this.state.commandNumber = -1;
+        for (ParsedCommandProcessor p : processors) {
+            p.reset();
+        }
     }
     
     /**
@@ -175,6 +193,14 @@ public class GcodeParser implements IGcodeParser {
 
     @Override
     public GcodeStats getCurrentStats() {
+        long removed = 0;
+        long removedBytes = 0;
+        for (ParsedCommandProcessor p : processors) {
+            removed += p.getRemovedCommandCount();
+            removedBytes += p.getRemovedByteCount();
+        }
+        statsProcessor.setRemovedCommandCount(removed);
+        statsProcessor.setRemovedByteCount(removedBytes);
         return statsProcessor;
     }
 
@@ -196,8 +222,8 @@ public class GcodeParser implements IGcodeParser {
     public static List<GcodeMeta> processCommand(String command, int line, final GcodeState inputState,
             boolean includeNonMotionStates)
             throws GcodeParserException {
-        List<String> args = GcodePreprocessorUtils.splitCommand(command);
-        if (args.isEmpty()) return null;
+        GcodeWords words = WORDS.get().parse(command);
+        if (words.size() == 0) return null;
 
         // Initialize with original state
         GcodeState state = inputState.copy();
@@ -208,52 +234,58 @@ public class GcodeParser implements IGcodeParser {
         //codes = GcodePreprocessorUtils.parseCodes(args, 'M');
         //handleMCode(for each codes);
 
-        List<String> fCodes = GcodePreprocessorUtils.parseCodes(args, 'F');
-        if (!fCodes.isEmpty()) {
-            try {
-                state.speed = Double.parseDouble(Iterables.getOnlyElement(fCodes));
-            } catch (IllegalArgumentException e) {
+        if (words.has('F')) {
+            if (words.count('F') > 1 || Double.isNaN(words.get('F'))) {
                 throw new GcodeParserException("Multiple F-codes on one line.");
             }
+            state.speed = words.get('F');
         }
 
-        List<String> sCodes = GcodePreprocessorUtils.parseCodes(args, 'S');
-        if (!sCodes.isEmpty()) {
-            try {
-                state.spindleSpeed = Double.parseDouble(Iterables.getOnlyElement(sCodes));
-            } catch (IllegalArgumentException e) {
+        if (words.has('S')) {
+            if (words.count('S') > 1 || Double.isNaN(words.get('S'))) {
                 throw new GcodeParserException("Multiple S-codes on one line.");
             }
+            state.spindleSpeed = words.get('S');
         }
         
         // Gather G codes.
-        Set<Code> gCodes = GcodePreprocessorUtils.getGCodes(args);
+        Set<Code> gCodes = words.getGCodes();
         
-        boolean hasAxisWords = GcodePreprocessorUtils.hasAxisWords(args);
+        boolean hasAxisWords = words.hasAxisWords();
 
         // Error to mix group 1 (Motion) and certain group 0 (NonModal) codes (G10, G28, G30, G92)
-        Collection<Code> motionCodes = gCodes.stream()
-                .filter(c -> c.consumesMotion())
-                .collect(Collectors.toList());
+        int motionCodes = 0;
+        for (Code c : gCodes) {
+            if (c.consumesMotion()) {
+                motionCodes++;
+            }
+        }
 
         // 1 motion code per line.
-        if (motionCodes.size() > 1) {
+        if (motionCodes > 1) {
             throw new GcodeParserException(Localization.getString("parser.gcode.multiple-axis-commands")
-                    + ": " + StringUtils.join(motionCodes, ", "));
+                    + ": " + StringUtils.join(gCodes.stream()
+                            .filter(c -> c.consumesMotion())
+                            .collect(Collectors.toList()), ", "));
         }
 
         // If there are axis words and nothing to use them, add the currentMotionMode.
-        if (hasAxisWords && motionCodes.isEmpty() && state.currentMotionMode != null) {
+        if (hasAxisWords && motionCodes == 0 && state.currentMotionMode != null) {
             gCodes.add(state.currentMotionMode);
         }
 
         // Apply each code to the state.
-        List<GcodeMeta> results = new ArrayList<>();
-        for (Code i : gCodes) {
+        List<GcodeMeta> results = new ArrayList<>(gCodes.size());
+        Iterator<Code> codes = gCodes.iterator();
+        while (codes.hasNext()) {
+            Code i = codes.next();
             if (i == UNKNOWN) {
                 logger.warning("An unknown gcode command was detected in: " + command);
             } else {
-                GcodeMeta meta = handleGCode(i, args, line, state, hasAxisWords);
+                GcodeMeta meta = handleGCode(i, words, line, state, hasAxisWords);
+                // The working state is not touched after the last code, so it
+                // can be handed out as is instead of being copied again.
+                meta.state = codes.hasNext() ? state.copy() : state;
                 meta.command = command;
                 // Commands like 'G21' don't return a point segment.
                 if (meta.point != null) {
@@ -312,7 +344,7 @@ public class GcodeParser implements IGcodeParser {
     /**
      * Create a PointSegment representing the arc command.
      */
-    private static PointSegment addArcPointSegment(Position nextPoint, boolean clockwise, List<String> args, int line, GcodeState state) {
+    private static PointSegment addArcPointSegment(Position nextPoint, boolean clockwise, GcodeWords words, int line, GcodeState state) {
         if (nextPoint == null) {
             return null;
         }
@@ -322,9 +354,9 @@ public class GcodeParser implements IGcodeParser {
         PlaneFormatter plane = new PlaneFormatter(state.plane);
         Position center =
                 GcodePreprocessorUtils.updateCenterWithCommand(
-                        args, state.currentPoint, nextPoint, state.inAbsoluteIJKMode, clockwise, plane);
+                        words, state.currentPoint, nextPoint, state.inAbsoluteIJKMode, clockwise, plane);
 
-        double radius = GcodePreprocessorUtils.parseCoord(args, 'R');
+        double radius = words.get('R');
 
         // Calculate radius if necessary, according to the current G17/18/19 Plane
         if (Double.isNaN(radius)) {
@@ -349,9 +381,10 @@ public class GcodeParser implements IGcodeParser {
     /**
      * Branch parser to handle specific gcode command.
      * 
-     * A copy of the state object should go in the resulting GcodeMeta object.
+     * The caller is responsible for putting a snapshot of the state in the
+     * resulting GcodeMeta object.
      */
-    private static GcodeMeta handleGCode(final Code code, List<String> args, int line, GcodeState state, boolean hasAxisWords)
+    private static GcodeMeta handleGCode(final Code code, GcodeWords words, int line, GcodeState state, boolean hasAxisWords)
             throws GcodeParserException {
         GcodeMeta meta = new GcodeMeta();
 
@@ -361,7 +394,7 @@ public class GcodeParser implements IGcodeParser {
 
         // If it is a movement code make sure it has some coordinates.
         if (code.consumesMotion()) {
-            nextPoint = GcodePreprocessorUtils.updatePointWithCommand(args, state.currentPoint, state.inAbsoluteMode);
+            nextPoint = GcodePreprocessorUtils.updatePointWithCommand(words, state.currentPoint, state.inAbsoluteMode);
 
             if (nextPoint == null) {
                 if (!code.motionOptional()) {
@@ -385,10 +418,10 @@ public class GcodeParser implements IGcodeParser {
 
             // Arc command.
             case G2:
-                meta.point = addArcPointSegment(nextPoint, true, args, line, state);
+                meta.point = addArcPointSegment(nextPoint, true, words, line, state);
                 break;
             case G3:
-                meta.point = addArcPointSegment(nextPoint, false, args, line, state);
+                meta.point = addArcPointSegment(nextPoint, false, words, line, state);
                 break;
 
             case G17:
@@ -463,7 +496,6 @@ public class GcodeParser implements IGcodeParser {
         if (code.getType() == Motion) {
             state.currentMotionMode = code;
         }
-        meta.state = state.copy();
         return meta;
     }
 
@@ -483,49 +515,69 @@ public class GcodeParser implements IGcodeParser {
      */
     @Override
     public List<String> preprocessCommand(String command, final GcodeState initialState) throws GcodeParserException {
-        List<String> ret = new ArrayList<>();
-        ret.add(command);
-        GcodeState tempState = null;
-        for (CommandProcessor p : processors) {
-            // Reset point segments after each pass. The final pass is what we will return.
-            tempState = initialState.copy();
-            // Process each command in the list and add results to the end.
-            // Don't re-process the results with the same preprocessor.
-            for (int i = ret.size(); i > 0; i--) {
-                // The arc expander changes the lastGcodeCommand which causes the following to fail:
-                // G2 Y-0.7 J-14.7
-                // Y28.7 J14.7 (this line treated as a G1)
-                tempState.currentMotionMode = initialState.currentMotionMode;
-                List<String> intermediate = p.processCommand(ret.remove(0), tempState);
-
-                // process results to update the state and collect PointSegments
-                for(String c : intermediate) {
-                    tempState = testState(c, tempState);
-                }
+        return toCommandStrings(preprocessCommand(command, initialState, -1));
+    }
 
-                ret.addAll(intermediate);
-            }
+    /**
+     * Applies all command processors to a command from a line of a program.
+     * The results may include commands from earlier lines which a processor
+     * held back, {@link ParsedCommand#getLine()} tells which line each of
+     * them belongs to. Does not change the parser state.
+     */
+    public List<ParsedCommand> preprocessCommand(String command, final GcodeState initialState, int line)
+            throws GcodeParserException {
+        List<ParsedCommand> commands = Collections.singletonList(new ParsedCommand(command, initialState, line));
+        for (ParsedCommandProcessor p : processors) {
+            commands = applyProcessor(p, commands);
         }
-
-        return ret;
+        return commands;
     }
 
     /**
-     * Helper to statically process the next step in a program without modifying the parser.
+     * Gets the commands which the processors held back, see
+     * {@link CommandProcessor#flush()}. The commands held back by a processor
+     * are passed through the processors after it.
+     *
+     * @param initialState the state after the last command which was preprocessed.
      */
-    static private GcodeState testState(String command, GcodeState state) throws GcodeParserException {
-        GcodeState ret = state;
-
-        // Add command get meta doesn't update the state, so we need to do that manually.
-        Collection<GcodeMeta> metaObjects = processCommand(command, 0, state);
-        if (metaObjects != null) {
-            for (GcodeMeta c : metaObjects) {
-                if (c.state != null) {
-                    ret = c.state;
-                }
+    public List<ParsedCommand> flushCommandProcessors(final GcodeState initialState) throws GcodeParserException {
+        List<ParsedCommand> commands = Collections.emptyList();
+        for (ParsedCommandProcessor p : processors) {
+            commands = applyProcessor(p, commands);
+
+            GcodeState tempState = commands.isEmpty() ? initialState : Iterables.getLast(commands).getPostState();
+            List<ParsedCommand> held = p.flushCommands(tempState);
+            if (!held.isEmpty()) {
+                commands = new ArrayList<>(commands);
+                commands.addAll(held);
             }
         }
+        return commands;
+    }
 
+    /**
+     * Runs the commands through a processor. Each command keeps the state it
+     * was created in, so a command which an earlier processor held back and
+     * releases later still starts where its moves start.
+     */
+    private static List<ParsedCommand> applyProcessor(ParsedCommandProcessor p, List<ParsedCommand> commands)
+            throws GcodeParserException {
+        // The processors replace commands with ones that run in the state of the
+        // command they replace or the state after the previous replacement, a
+        // command which passes through unchanged keeps its parsed result.
+        List<ParsedCommand> processed = new ArrayList<>(commands.size());
+        for (ParsedCommand c : commands) {
+            processed.addAll(p.processCommand(c));
+        }
+        return processed;
+    }
+
+    private static List<String> toCommandStrings(List<ParsedCommand> commands) {
+        // Commands are only turned back into text once all processors are done.
+        List<String> ret = new ArrayList<>(commands.size());
+        for (ParsedCommand c : commands) {
+            ret.add(c.getCommandString());
+        }
         return ret;
     }
 }
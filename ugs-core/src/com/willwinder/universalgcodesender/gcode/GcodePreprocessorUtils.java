@@ -18,12 +18,11 @@
  */
 package com.willwinder.universalgcodesender.gcode;
 
+import com.willwinder.universalgcodesender.gcode.util.ArcSegmentation;
 import com.willwinder.universalgcodesender.gcode.util.Code;
 import com.willwinder.universalgcodesender.gcode.util.PlaneFormatter;
-import com.willwinder.universalgcodesender.i18n.Localization;
 import com.willwinder.universalgcodesender.model.Position;
 
-import java.text.DecimalFormat;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -43,10 +42,7 @@ public class GcodePreprocessorUtils {
     public static final Pattern COMMENT = Pattern.compile("\\(.*\\)|\\s*;.*|%$");
     private static final Pattern COMMENTPARSE = Pattern.compile("(?<=\\()[^\\(\\)]*|(?<=\\;).*|%");
     private static final Pattern GCODE_PATTERN = Pattern.compile("[Gg]0*(\\d+)");
-
-    private static int decimalLength = -1;
-    private static Pattern decimalPattern;
-    private static DecimalFormat decimalFormatter;
+    private static final Pattern FEED_PATTERN = Pattern.compile("F([0-9.]+)", Pattern.CASE_INSENSITIVE);
 
     /**
      * Searches the command string for an 'f' and replaces the speed value 
@@ -58,14 +54,11 @@ public class GcodePreprocessorUtils {
         String returnString = command;
         
         // Check if command sets feed speed.
-        Pattern pattern = Pattern.compile("F([0-9.]+)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(command);
+        Matcher matcher = FEED_PATTERN.matcher(command);
         if (matcher.find()){
-            Double originalFeedRate = Double.parseDouble(matcher.group(1));
-            //System.out.println( "Found feed     " + originalFeedRate.toString() );
-            Double newFeedRate      = originalFeedRate * speed / 100.0;
-            //System.out.println( "Change to feed " + newFeedRate.toString() );
-            returnString = matcher.replaceAll( "F" + newFeedRate.toString() );
+            double originalFeedRate = GcodeNumberFormat.parse(command, matcher.start(1), matcher.end(1));
+            double newFeedRate      = originalFeedRate * speed / 100.0;
+            returnString = matcher.replaceAll( "F" + GcodeNumberFormat.format(newFeedRate, DEFAULT_LINE_DECIMALS) );
         }
 
         return returnString;
@@ -95,51 +88,49 @@ public class GcodePreprocessorUtils {
         return comment;
     }
     
+    /**
+     * Rounds all numbers in the command which have more than the given number
+     * of decimals. A command without such numbers is returned as it is.
+     */
     static public String truncateDecimals(int length, String command) {
-        if (length != decimalLength) {
-            //Only build the decimal formatter if the truncation length has changed.
-            updateDecimalFormatter(length);
+        StringBuilder sb = null;
+        int copied = 0;
+        int end = command.length();
+        int i = 0;
+        while (i < end) {
+            if (!isDigit(command.charAt(i))) {
+                i++;
+                continue;
+            }
 
+            int start = i;
+            while (i < end && isDigit(command.charAt(i))) {
+                i++;
+            }
+            if (i + 1 < end && command.charAt(i) == '.' && isDigit(command.charAt(i + 1))) {
+                int dot = i++;
+                while (i < end && isDigit(command.charAt(i))) {
+                    i++;
+                }
+                if (i - dot - 1 > length) {
+                    if (sb == null) {
+                        sb = new StringBuilder(end);
+                    }
+                    sb.append(command, copied, start);
+                    GcodeNumberFormat.append(sb, GcodeNumberFormat.parse(command, start, i), length);
+                    copied = i;
+                }
+            }
         }
-        Matcher matcher = decimalPattern.matcher(command);
 
-        // Build up the truncated command.
-        Double d;
-        StringBuffer sb = new StringBuffer();
-        while (matcher.find()) {
-            d = Double.parseDouble(matcher.group());
-            matcher.appendReplacement(sb, decimalFormatter.format(d));
+        if (sb == null) {
+            return command;
         }
-        matcher.appendTail(sb);
-        
-        // Return new command.
-        return sb.toString();
+        return sb.append(command, copied, end).toString();
     }
 
-    private static void updateDecimalFormatter(int length) {
-        StringBuilder df = new StringBuilder();
-
-        // Build up the decimal formatter.
-        df.append("#");
-
-        if (length != 0) {
-            df.append(".");
-        }
-        for (int i = 0; i < length; i++) {
-            df.append('#');
-        }
-
-        decimalFormatter = new DecimalFormat(df.toString(), Localization.dfs);
-
-        // Build up the regular expression.
-        df = new StringBuilder();
-        df.append("\\d+\\.\\d");
-        for (int i = 0; i < length; i++) {
-            df.append("\\d");
-        }
-        df.append('+');
-        decimalPattern = Pattern.compile(df.toString());
-        decimalLength = length;
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     static public List<String> parseCodes(List<String> args, char code) {
@@ -195,6 +186,21 @@ public class GcodePreprocessorUtils {
         return updatePointWithCommand(initial, x, y, z, absoluteMode);
     }
 
+    /**
+     * Update a point given the words of a command.
+     */
+    static public Position updatePointWithCommand(GcodeWords words, Position initial, boolean absoluteMode) {
+        double x = words.get('X');
+        double y = words.get('Y');
+        double z = words.get('Z');
+
+        if (Double.isNaN(x) && Double.isNaN(y) && Double.isNaN(z)) {
+            return null;
+        }
+
+        return updatePointWithCommand(initial, x, y, z, absoluteMode);
+    }
+
     /**
      * Update a point given the new coordinates.
      */
@@ -249,40 +255,65 @@ public class GcodePreprocessorUtils {
 
     }
 
-    static public String generateLineFromPoints(final Code command, final Position start, final Position end, final boolean absoluteMode, DecimalFormat formatter) {
-        DecimalFormat df = formatter;
-        if (df == null) {
-            df = new DecimalFormat("0.####", Localization.dfs);
+    static public Position updateCenterWithCommand(
+            GcodeWords words,
+            Position initial,
+            Position nextPoint,
+            boolean absoluteIJKMode,
+            boolean clockwise,
+            PlaneFormatter plane) {
+        double i = words.get('I');
+        double j = words.get('J');
+        double k = words.get('K');
+
+        if (Double.isNaN(i) && Double.isNaN(j) && Double.isNaN(k)) {
+            return GcodePreprocessorUtils.convertRToCenter(
+                            initial, nextPoint, words.get('R'), absoluteIJKMode,
+                            clockwise, plane);
         }
-        
-        StringBuilder sb = new StringBuilder();
+
+        return updatePointWithCommand(initial, i, j, k, absoluteIJKMode);
+    }
+
+    /**
+     * Number of decimals used by {@link #generateLineFromPoints} unless
+     * another precision is given.
+     */
+    public static final int DEFAULT_LINE_DECIMALS = 4;
+
+    static public String generateLineFromPoints(final Code command, final Position start, final Position end, final boolean absoluteMode) {
+        return generateLineFromPoints(command, start, end, absoluteMode, DEFAULT_LINE_DECIMALS);
+    }
+
+    static public String generateLineFromPoints(final Code command, final Position start, final Position end, final boolean absoluteMode, int decimals) {
+        StringBuilder sb = new StringBuilder(48);
         sb.append(command);
 
         if (absoluteMode) {
             if (!Double.isNaN(end.x)) {
                 sb.append("X");
-                sb.append(df.format(end.x));
+                GcodeNumberFormat.append(sb, end.x, decimals);
             }
             if (!Double.isNaN(end.y)) {
                 sb.append("Y");
-                sb.append(df.format(end.y));
+                GcodeNumberFormat.append(sb, end.y, decimals);
             }
             if (!Double.isNaN(end.z)) {
                 sb.append("Z");
-                sb.append(df.format(end.z));
+                GcodeNumberFormat.append(sb, end.z, decimals);
             }
         } else { // calculate offsets.
             if (!Double.isNaN(end.x)) {
                 sb.append("X");
-                sb.append(df.format(end.x-start.x));
+                GcodeNumberFormat.append(sb, end.x-start.x, decimals);
             }
             if (!Double.isNaN(end.y)) {
                 sb.append("Y");
-                sb.append(df.format(end.y-start.x));
+                GcodeNumberFormat.append(sb, end.y-start.x, decimals);
             }
             if (!Double.isNaN(end.z)) {
                 sb.append("Z");
-                sb.append(df.format(end.z-start.x));
+                GcodeNumberFormat.append(sb, end.z-start.x, decimals);
             }
         }
         
@@ -416,16 +447,38 @@ public class GcodePreprocessorUtils {
             return null;
         }
 
-        int numPoints = 20;
-
         if (arcSegmentLength <= 0 && minArcLength > 0) {
             arcSegmentLength = (sweep * radius) / minArcLength;
         }
 
-        if (arcSegmentLength > 0) {
-            numPoints = (int)Math.ceil(arcLength/arcSegmentLength);
+        int numPoints = ArcSegmentation.fixedLength(arcSegmentLength).getSegmentCount(radius, sweep);
+        return GcodePreprocessorUtils.generatePointsAlongArcBDring(start, end, center, clockwise, radius, startAngle, sweep, numPoints, plane);
+    }
+
+    /**
+     * Generates the points along an arc including the start and end points,
+     * the number of points is decided by the segmentation.
+     */
+    static public List<Position> generatePointsAlongArcBDring(
+            final Position start,
+            final Position end,
+            final Position center,
+            boolean clockwise,
+            double R,
+            ArcSegmentation segmentation,
+            PlaneFormatter plane) {
+        double radius = R;
+
+        // Calculate radius if necessary.
+        if (radius == 0) {
+            radius = Math.sqrt(Math.pow(plane.axis0(start) - plane.axis0(center),2.0) + Math.pow(plane.axis1(end) - plane.axis1(center), 2.0));
         }
 
+        double startAngle = GcodePreprocessorUtils.getAngle(center, start, plane);
+        double endAngle = GcodePreprocessorUtils.getAngle(center, end, plane);
+        double sweep = GcodePreprocessorUtils.calculateSweep(startAngle, endAngle, clockwise);
+
+        int numPoints = segmentation.getSegmentCount(radius, sweep);
         return GcodePreprocessorUtils.generatePointsAlongArcBDring(start, end, center, clockwise, radius, startAngle, sweep, numPoints, plane);
     }
 
@@ -625,21 +678,20 @@ public class GcodePreprocessorUtils {
      * http://linuxcnc.org/docs/html/gcode/g-code.html#gcode:g53
      */
     public static SplitCommand extractMotion(Code code, String command) {
-        List<String> args = splitCommand(command);
-        if (args.isEmpty()) return null;
+        GcodeWords words = new GcodeWords().parse(command);
+        if (words.size() == 0) return null;
         
         StringBuilder extracted = new StringBuilder();
         StringBuilder remainder = new StringBuilder();
 
         boolean includeG53 = code == G0 || code == G1;
-        for (String arg : args) {
-            char c = arg.charAt(0);
-            Code lookup = Code.lookupCode(arg);
-            if (lookup.getType() == Motion && lookup != code) return null;
-            if (lookup == code || isMotionWord(c) || (includeG53 && lookup == G53)) {
-                extracted.append(arg);
+        for (int i = 0; i < words.size(); i++) {
+            Code lookup = words.getCode(i);
+            if (lookup != null && lookup.getType() == Motion && lookup != code) return null;
+            if (lookup == code || isMotionWord(words.getLetter(i)) || (includeG53 && lookup == G53)) {
+                words.appendWord(i, extracted);
             } else {
-                remainder.append(arg);
+                words.appendWord(i, remainder);
             }
         }
 
@@ -86,32 +86,42 @@ public class GcodeState {
         this.currentPoint = new Position(0, 0, 0, Units.MM);
     }
 
-    public GcodeState copy() {
-        GcodeState ret = new GcodeState();
-        ret.currentMotionMode = currentMotionMode;
-        ret.plane = plane;
+    /**
+     * Copies the modal state. The current point is shared with the copy as long
+     * as its units match, positions are replaced rather than modified when the
+     * state changes so there is no need to duplicate it for every transition.
+     */
+    private GcodeState(GcodeState other) {
+        this.currentMotionMode = other.currentMotionMode;
+        this.plane = other.plane;
 
-        ret.inAbsoluteMode = inAbsoluteMode;
-        ret.distanceMode = distanceMode;
+        this.inAbsoluteMode = other.inAbsoluteMode;
+        this.distanceMode = other.distanceMode;
 
-        ret.inAbsoluteIJKMode = inAbsoluteIJKMode;
-        ret.arcDistanceMode = arcDistanceMode;
+        this.inAbsoluteIJKMode = other.inAbsoluteIJKMode;
+        this.arcDistanceMode = other.arcDistanceMode;
 
-        ret.feedMode = feedMode;
+        this.feedMode = other.feedMode;
 
-        ret.isMetric = isMetric;
-        ret.units = units;
+        this.isMetric = other.isMetric;
+        this.units = other.units;
 
-        ret.speed = speed;
-        ret.spindleSpeed = spindleSpeed;
+        this.speed = other.speed;
+        this.spindleSpeed = other.spindleSpeed;
 
-        ret.offset = offset;
+        this.offset = other.offset;
 
-        if (currentPoint != null) {
-            ret.currentPoint = new Position(currentPoint.x, currentPoint.y, currentPoint.z, UnitUtils.Units.getUnits(units));
+        Position point = other.currentPoint;
+        Units pointUnits = UnitUtils.Units.getUnits(units);
+        if (point != null && point.getUnits() != pointUnits) {
+            point = new Position(point.x, point.y, point.z, pointUnits);
         }
-        ret.commandNumber = commandNumber;
-        return ret;
+        this.currentPoint = point;
+        this.commandNumber = other.commandNumber;
+    }
+
+    public GcodeState copy() {
+        return new GcodeState(this);
     }
 
     @Override
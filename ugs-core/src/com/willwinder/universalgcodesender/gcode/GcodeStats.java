@@ -28,4 +28,16 @@ public interface GcodeStats {
     Position getMin();
     Position getMax();
     long getCommandCount();
+
+    /**
+     * @return the number of commands the command processors removed by
+     * merging them into other commands.
+     */
+    long getRemovedCommandCount();
+
+    /**
+     * @return the number of bytes the command processors removed by
+     * shortening commands.
+     */
+    long getRemovedByteCount();
 }
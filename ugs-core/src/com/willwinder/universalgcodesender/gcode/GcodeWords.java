@@ -0,0 +1,349 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import com.willwinder.universalgcodesender.gcode.util.Code;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The words of a gcode line, parsed in a single pass into parallel arrays
+ * of letters and values.
+ *
+ * Words are split exactly like {@link GcodePreprocessorUtils#splitCommand},
+ * but nothing is copied into strings. The first word of every letter can
+ * be looked up directly, so reading 'X' or 'F' doesn't scan the line again.
+ *
+ * An instance is meant to be reused by calling {@link #parse} for every
+ * line and isn't thread safe.
+ *
+ * @author wwinder
+ */
+public class GcodeWords {
+    private static final int LETTERS = 26;
+
+    // Powers of ten which are exact as doubles
+    private static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    // Larger numbers can't be divided into an exact double
+    private static final int MAX_FAST_DIGITS = 15;
+
+    // G codes by number, see gCodeKey
+    private static final Code[] G_CODES;
+    static {
+        int maxKey = 0;
+        for (Code code : Code.values()) {
+            if (code.name().startsWith("G")) {
+                maxKey = Math.max(maxKey, gCodeKey(code.toString()));
+            }
+        }
+        G_CODES = new Code[maxKey + 1];
+        for (Code code : Code.values()) {
+            if (code.name().startsWith("G")) {
+                G_CODES[gCodeKey(code.toString())] = code;
+            }
+        }
+    }
+
+    private String command;
+    private boolean systemCommand;
+    private int size;
+    private char[] letters = new char[16];
+    private double[] values = new double[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] lengths = new int[16];
+    private Code[] codes = new Code[16];
+
+    // The first word and the number of words of each letter
+    private int present;
+    private final int[] first = new int[LETTERS];
+    private final int[] counts = new int[LETTERS];
+    private boolean axisWords;
+
+    // The number being read
+    private long mantissa;
+    private int digits;
+    private int decimals;
+    private boolean negative;
+    private boolean dot;
+    private boolean invalid;
+
+    /**
+     * Parses the words of a line, replacing the words of the last line.
+     *
+     * @param line a gcode line without comments
+     * @return this
+     */
+    public GcodeWords parse(String line) {
+        command = line;
+        size = 0;
+        present = 0;
+        axisWords = false;
+
+        // Special handling for GRBL system commands which will not be splitted
+        systemCommand = line.startsWith("$");
+        if (systemCommand) {
+            startWord(0, '$');
+            invalid = true;
+            endWord(line.length());
+            return this;
+        }
+
+        boolean inWord = false;
+        boolean readNumeric = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+
+            // If the last character was numeric and this character isn't, then we hit a boundary.
+            if (readNumeric && !Character.isDigit(c) && c != '.') {
+                readNumeric = false;
+                endWord(i);
+                inWord = Character.isLetter(c);
+                if (inWord) {
+                    startWord(i, c);
+                }
+            } else if (Character.isDigit(c) || c == '.' || c == '-' || Character.isLetter(c)) {
+                if (inWord) {
+                    append(c);
+                } else {
+                    startWord(i, c);
+                    inWord = true;
+                }
+                readNumeric = !Character.isLetter(c);
+            }
+        }
+
+        if (inWord) {
+            endWord(line.length());
+        }
+        return this;
+    }
+
+    private void startWord(int start, char letter) {
+        if (size == letters.length) {
+            int capacity = size * 2;
+            letters = Arrays.copyOf(letters, capacity);
+            values = Arrays.copyOf(values, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+        }
+        letters[size] = letter;
+        starts[size] = start;
+        lengths[size] = 1;
+        mantissa = 0;
+        digits = 0;
+        decimals = 0;
+        negative = false;
+        dot = false;
+        invalid = false;
+    }
+
+    /**
+     * Adds a character to the value of the current word.
+     */
+    private void append(char c) {
+        lengths[size]++;
+        if (c >= '0' && c <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+            }
+            digits++;
+            if (dot) {
+                decimals++;
+            }
+        } else if (c == '.' && !dot) {
+            dot = true;
+        } else if (c == '-' && lengths[size] == 2) {
+            negative = true;
+        } else {
+            invalid = true;
+        }
+    }
+
+    private void endWord(int end) {
+        int index = size++;
+        ends[index] = end;
+        values[index] = getNumber(index);
+
+        char letter = Character.toUpperCase(letters[index]);
+        codes[index] = letter == 'G' ? lookupGCode() : null;
+        if (letter >= 'A' && letter <= 'Z') {
+            int bit = 1 << (letter - 'A');
+            if ((present & bit) == 0) {
+                present |= bit;
+                first[letter - 'A'] = index;
+                counts[letter - 'A'] = 0;
+            }
+            counts[letter - 'A']++;
+            axisWords |= lengths[index] > 1 && (letter == 'X' || letter == 'Y' || letter == 'Z');
+        }
+    }
+
+    private double getNumber(int index) {
+        if (invalid || digits == 0) {
+            return Double.NaN;
+        } else if (digits > MAX_FAST_DIGITS) {
+            return Double.parseDouble(getWord(index).substring(1));
+        }
+
+        // Both are exact, so the division is rounded just like parsing the string
+        double value = decimals > 0 ? mantissa / POW10[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private Code lookupGCode() {
+        if (invalid || negative || digits == 0 || digits > MAX_FAST_DIGITS || (dot && decimals != 1)) {
+            return Code.UNKNOWN;
+        }
+        long key = mantissa * 2 + (dot ? 1 : 0);
+        Code code = key < G_CODES.length ? G_CODES[(int) key] : null;
+        return code == null ? Code.UNKNOWN : code;
+    }
+
+    /**
+     * Maps G codes like "G1" and "G38.2" to an index, codes with one decimal
+     * get odd numbers and codes without decimals even numbers.
+     */
+    private static int gCodeKey(String code) {
+        int dotIndex = code.indexOf('.');
+        if (dotIndex < 0) {
+            return Integer.parseInt(code.substring(1)) * 2;
+        }
+        return Integer.parseInt(code.substring(1, dotIndex) + code.substring(dotIndex + 1)) * 2 + 1;
+    }
+
+    /**
+     * @return true if the line is a GRBL system command like "$H", which is a single word
+     */
+    public boolean isSystemCommand() {
+        return systemCommand;
+    }
+
+    /**
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the first character of a word, usually its letter
+     */
+    public char getLetter(int index) {
+        return letters[index];
+    }
+
+    /**
+     * @return the number following the letter of a word, or NaN if it isn't a number
+     */
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the code of a G word, or null for other words
+     */
+    public Code getCode(int index) {
+        return codes[index];
+    }
+
+    /**
+     * @return the word like "X-0.5" without whitespace
+     */
+    public String getWord(int index) {
+        return appendWord(index, new StringBuilder(lengths[index])).toString();
+    }
+
+    /**
+     * Appends a word like "X-0.5" without whitespace.
+     */
+    public StringBuilder appendWord(int index, StringBuilder sb) {
+        for (int i = starts[index]; i < ends[index]; i++) {
+            char c = command.charAt(i);
+            if (systemCommand || Character.isLetterOrDigit(c) || c == '.' || c == '-') {
+                sb.append(c);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * @return true if there is a word with the letter
+     */
+    public boolean has(char letter) {
+        int index = Character.toUpperCase(letter) - 'A';
+        return index >= 0 && index < LETTERS && (present & (1 << index)) != 0;
+    }
+
+    /**
+     * @return the number of words with the letter
+     */
+    public int count(char letter) {
+        return has(letter) ? counts[Character.toUpperCase(letter) - 'A'] : 0;
+    }
+
+    /**
+     * @return the index of the first word with the letter, or -1 if there is none
+     */
+    public int indexOf(char letter) {
+        return has(letter) ? first[Character.toUpperCase(letter) - 'A'] : -1;
+    }
+
+    /**
+     * @return the value of the first word with the letter, or NaN if there is none
+     */
+    public double get(char letter) {
+        int index = indexOf(letter);
+        return index < 0 ? Double.NaN : values[index];
+    }
+
+    /**
+     * @return true if there are X, Y or Z words
+     */
+    public boolean hasAxisWords() {
+        return axisWords;
+    }
+
+    /**
+     * @return the G codes in the order they appear
+     */
+    public Set<Code> getGCodes() {
+        Set<Code> gCodes = new LinkedHashSet<>();
+        if (has('G')) {
+            for (int i = first['G' - 'A']; i < size; i++) {
+                if (codes[i] != null) {
+                    gCodes.add(codes[i]);
+                }
+            }
+        }
+        return gCodes;
+    }
+}
@@ -24,11 +24,12 @@
 package com.willwinder.universalgcodesender.gcode.processors;
 
 import com.google.common.collect.Iterables;
-import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.GcodeNumberFormat;
 import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils.SplitCommand;
 import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.ArcSegmentation;
 import com.willwinder.universalgcodesender.gcode.util.Code;
 import static com.willwinder.universalgcodesender.gcode.util.Code.G1;
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
@@ -36,7 +37,6 @@ import com.willwinder.universalgcodesender.gcode.util.PlaneFormatter;
 import com.willwinder.universalgcodesender.i18n.Localization;
 import com.willwinder.universalgcodesender.model.Position;
 import com.willwinder.universalgcodesender.types.PointSegment;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -45,16 +45,23 @@ import java.util.List;
  *
  * @author wwinder
  */
-public class ArcExpander implements CommandProcessor {
+public class ArcExpander implements ParsedCommandProcessor {
     final private boolean convertToLines;
-    final private double length;
-    final private DecimalFormat df;
+    final private ArcSegmentation segmentation;
+
+    // Precision of the generated line segments.
+    private static final int DECIMALS = 9;
 
     @Override
     public String getHelp() {
+        if (segmentation.isChordTolerance()) {
+            return Localization.getString("sender.help.arcs") + "\n"
+                    + Localization.getString("sender.arcs.tolerance")
+                    + ": " + GcodeNumberFormat.format(segmentation.getChordTolerance(), DECIMALS);
+        }
         return Localization.getString("sender.help.arcs") + "\n"
                 + Localization.getString("sender.arcs.length")
-                + ": " + df.format(length);
+                + ": " + GcodeNumberFormat.format(segmentation.getSegmentLength(), DECIMALS);
     }
 
     /**
@@ -62,27 +69,35 @@ public class ArcExpander implements CommandProcessor {
      * @param length the length of each smaller segment.
      */
     public ArcExpander(boolean convertToLines, double length) {
-        this.convertToLines = convertToLines;
-        this.length = length;
+        this(convertToLines, ArcSegmentation.fixedLength(length));
+    }
 
-        // Setup decimal formatter
-        df = new DecimalFormat("#.#########", Localization.dfs);
+    /**
+     * @param convertToLines toggles if smaller lines or arcs are returned.
+     * @param segmentation decides the number of segments of each arc.
+     */
+    public ArcExpander(boolean convertToLines, ArcSegmentation segmentation) {
+        this.convertToLines = convertToLines;
+        this.segmentation = segmentation;
     }
 
     @Override
-    public List<String> processCommand(String command, GcodeState state) throws GcodeParserException {
+    public List<ParsedCommand> processCommand(ParsedCommand parsedCommand) throws GcodeParserException {
+        GcodeState state = parsedCommand.getPreState();
         if (state.currentPoint == null) throw new GcodeParserException(Localization.getString("parser.processor.arc.start-error"));
 
         List<String> results = new ArrayList<>();
 
-        List<GcodeMeta> commands = GcodeParser.processCommand(command, 0, state);
+        List<GcodeMeta> commands = parsedCommand.getMeta();
 
         // If this is not an arc, there is nothing to do.
         Code c = hasArcCommand(commands);
         if (c == null) {
-            return Collections.singletonList(command);
+            return Collections.singletonList(parsedCommand);
         }
 
+        String command = parsedCommand.getCommandString();
+
         SplitCommand sc = GcodePreprocessorUtils.extractMotion(c, command);
         if (sc.remainder.length() > 0) {
             results.add(sc.remainder);
@@ -95,7 +110,7 @@ public class ArcExpander implements CommandProcessor {
 
         List<Position> points = GcodePreprocessorUtils.generatePointsAlongArcBDring(
                 start, end, ps.center(), ps.isClockwise(),
-                ps.getRadius(), 0, this.length, new PlaneFormatter(ps.getPlaneState()));
+                ps.getRadius(), segmentation, new PlaneFormatter(ps.getPlaneState()));
 
         // That function returns the first and last points. Exclude the first
         // point because the previous gcode command ends there already.
@@ -104,9 +119,9 @@ public class ArcExpander implements CommandProcessor {
         if (convertToLines) {
             // Tack the speed onto the first line segment in case the arc also
             // changed the feed value.
-            String feed = "F" + arcMeta.point.getSpeed();
+            String feed = "F" + GcodeNumberFormat.format(arcMeta.point.getSpeed(), DECIMALS);
             for (Position point : points) {
-                results.add(GcodePreprocessorUtils.generateLineFromPoints(G1, start, point, state.inAbsoluteMode, df) + feed);
+                results.add(GcodePreprocessorUtils.generateLineFromPoints(G1, start, point, state.inAbsoluteMode, DECIMALS) + feed);
                 start = point;
                 feed = "";
             }
@@ -115,7 +130,7 @@ public class ArcExpander implements CommandProcessor {
             throw new UnsupportedOperationException("I have not implemented this.");
         }
 
-        return results;
+        return parsedCommand.replaceWith(results);
     }
 
     private static Code hasArcCommand(List<GcodeMeta> commands) {
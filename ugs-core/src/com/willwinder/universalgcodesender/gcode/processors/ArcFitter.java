@@ -0,0 +1,394 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.google.common.collect.Iterables;
+import com.willwinder.universalgcodesender.gcode.GcodeNumberFormat;
+import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.GcodeWords;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import com.willwinder.universalgcodesender.gcode.util.GcodeUtils;
+import com.willwinder.universalgcodesender.gcode.util.Plane;
+import com.willwinder.universalgcodesender.gcode.util.PlaneFormatter;
+import com.willwinder.universalgcodesender.i18n.Localization;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils.DEFAULT_LINE_DECIMALS;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G2;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G3;
+
+/**
+ * Replaces runs of G1 moves which lie on a circular arc with a single G2 or
+ * G3 command. Many CAM posts turn every curve into lines, so a circle takes
+ * thousands of commands which the controller has to plan as tiny moves.
+ *
+ * A move is added to a run as long as the points of the run, and the
+ * segments between them, stay within the tolerance of the circle through
+ * the start, the middle and the end of the run in the active plane. Any
+ * three points are on some circle, so runs with fewer moves than the
+ * minimum are written unchanged. Runs which are straight within the
+ * tolerance are not turned into arcs either. The center of the arc is
+ * written with I, J and K words.
+ *
+ * Only absolute G1 moves without other words than X, Y, Z and F are fitted,
+ * any other command, a change of the feed rate or a comment ends a run. The
+ * moves of a run are held back until it ends, so this processor must see the
+ * commands in order and be flushed at the end of the program. The arc keeps
+ * the line of the last move it replaces.
+ *
+ * @author wwinder
+ */
+public class ArcFitter implements ParsedCommandProcessor {
+    // Each move of a run is checked against the circle of the whole run.
+    private static final int MAX_FITTED_COMMANDS = 100;
+
+    // Arcs close to a full circle would change direction if the end point is rounded past the start.
+    private static final double MAX_SWEEP = 1.5 * Math.PI;
+
+    // Controllers such as Grbl reject arcs where the radius at the start and end differ by more than this.
+    private static final double MAX_RADIUS_ERROR_MM = 0.005;
+
+    private final double tolerance;
+    private final int minPoints;
+
+    // Only used on the thread processing the program.
+    private final GcodeWords words = new GcodeWords();
+    private final GcodeWords arcWords = new GcodeWords();
+
+    // The moves held back and the points they move to.
+    private final List<ParsedCommand> run = new ArrayList<>();
+    private final List<Position> points = new ArrayList<>();
+    private Position runStart;
+
+    // The feed rate set by the first move of the run, NaN if it has no F word.
+    private double runFeed;
+
+    // The circle of the run, valid when the run has at least two moves.
+    private PlaneFormatter plane;
+    private double centerAxis0;
+    private double centerAxis1;
+    private boolean clockwise;
+    private boolean curved;
+
+    private long removedCommandCount = 0;
+
+    /**
+     * @param tolerance largest distance in mm between the moves and the arc replacing them.
+     * @param minPoints the least number of moves which are replaced with an arc, at least three.
+     */
+    public ArcFitter(double tolerance, int minPoints) {
+        this.tolerance = tolerance;
+        this.minPoints = Math.max(3, minPoints);
+    }
+
+    @Override
+    public String getHelp() {
+        return Localization.getString("sender.help.arc-fitter");
+    }
+
+    /**
+     * Runs span several commands.
+     */
+    @Override
+    public boolean isSequential() {
+        return true;
+    }
+
+    @Override
+    public long getRemovedCommandCount() {
+        return removedCommandCount;
+    }
+
+    @Override
+    public List<ParsedCommand> processCommand(ParsedCommand command) throws GcodeParserException {
+        if (!run.isEmpty()) {
+            // Commands after a run follow the moves held back, not the ones returned.
+            GcodeState runState = Iterables.getLast(run).getPostState();
+            if (!runState.currentPoint.equals(command.getPreState().currentPoint)) {
+                command = command.withPreState(runState);
+            }
+        }
+
+        Position end = GcodeUtils.getMergeableMoveEnd(command, words);
+        if (end == null) {
+            List<ParsedCommand> results = takeRun();
+            results.add(command);
+            return results;
+        }
+
+        GcodeState state = command.getPreState();
+        if (run.isEmpty() || command.getPostState().speed != state.speed) {
+            List<ParsedCommand> results = takeRun();
+            startRun(command, end);
+            return results;
+        }
+
+        run.add(command);
+        points.add(end);
+        if (run.size() <= MAX_FITTED_COMMANDS && fit(state)) {
+            return Collections.emptyList();
+        }
+        run.remove(run.size() - 1);
+        points.remove(points.size() - 1);
+
+        // Replace a long enough run with an arc and start a new one.
+        if (run.size() >= minPoints) {
+            List<ParsedCommand> results = takeRun();
+            startRun(command, end);
+            return results;
+        }
+
+        // Otherwise drop moves from the start of the run until the rest of it fits.
+        List<ParsedCommand> results = new ArrayList<>();
+        while (!run.isEmpty()) {
+            results.add(run.remove(0));
+            runStart = points.remove(0);
+            runFeed = Double.NaN;
+            run.add(command);
+            points.add(end);
+            if (fit(state)) {
+                return results;
+            }
+            run.remove(run.size() - 1);
+            points.remove(points.size() - 1);
+        }
+        startRun(command, end);
+        return results;
+    }
+
+    @Override
+    public List<String> flush() {
+        List<String> results = new ArrayList<>(1);
+        for (ParsedCommand c : takeRun()) {
+            results.add(c.getCommandString());
+        }
+        return results;
+    }
+
+    @Override
+    public List<ParsedCommand> flushCommands(GcodeState state) {
+        return takeRun();
+    }
+
+    @Override
+    public void reset() {
+        run.clear();
+        points.clear();
+        removedCommandCount = 0;
+    }
+
+    private void startRun(ParsedCommand command, Position end) throws GcodeParserException {
+        runStart = command.getPreState().currentPoint;
+        runFeed = words.has('F') ? command.getPostState().speed : Double.NaN;
+        plane = new PlaneFormatter(command.getPreState().plane);
+        run.add(command);
+        points.add(end);
+    }
+
+    /**
+     * Fits a circle to the run, the moves fit if they are within the
+     * tolerance of the circle and turn the same way around its center.
+     * @return true if the run can be replaced with an arc.
+     */
+    private boolean fit(GcodeState state) {
+        if (points.size() < 2) {
+            return true;
+        }
+
+        // Work relative to the start for precision.
+        Position mid = points.get((points.size() - 1) / 2);
+        Position end = Iterables.getLast(points);
+        double s0 = plane.axis0(runStart);
+        double s1 = plane.axis1(runStart);
+        double b0 = plane.axis0(mid) - s0;
+        double b1 = plane.axis1(mid) - s1;
+        double c0 = plane.axis0(end) - s0;
+        double c1 = plane.axis1(end) - s1;
+
+        double d = 2 * (b0 * c1 - b1 * c0);
+        if (d == 0) {
+            return false;
+        }
+        double b = b0 * b0 + b1 * b1;
+        double c = c0 * c0 + c1 * c1;
+        double center0 = (c1 * b - b1 * c) / d;
+        double center1 = (b0 * c - c0 * b) / d;
+        double radius = Math.hypot(center0, center1);
+
+        // The tolerances are in mm, the points in the units of the program.
+        double maxDistance = tolerance * toProgramUnits(state);
+        double linear = plane.linear(runStart);
+        double previous0 = -center0;
+        double previous1 = -center1;
+        double sweep = 0;
+        double direction = 0;
+        for (Position p : points) {
+            if (plane.linear(p) != linear) {
+                return false;
+            }
+
+            double p0 = plane.axis0(p) - s0 - center0;
+            double p1 = plane.axis1(p) - s1 - center1;
+            if (Math.abs(Math.hypot(p0, p1) - radius) > maxDistance) {
+                return false;
+            }
+
+            // Every move turns the same way around the center.
+            double step = Math.atan2(previous0 * p1 - previous1 * p0, previous0 * p0 + previous1 * p1);
+            if (step == 0 || step * direction < 0) {
+                return false;
+            }
+            direction = step;
+
+            // The arc bulges out from the move in the middle.
+            if (radius * (1 - Math.cos(step / 2)) > maxDistance) {
+                return false;
+            }
+
+            sweep += Math.abs(step);
+            if (sweep > MAX_SWEEP) {
+                return false;
+            }
+            previous0 = p0;
+            previous1 = p1;
+        }
+
+        centerAxis0 = s0 + center0;
+        centerAxis1 = s1 + center1;
+        clockwise = direction < 0;
+
+        // Moves which are straight within the tolerance are left as lines.
+        curved = radius * (1 - Math.cos(sweep / 2)) > maxDistance;
+        return true;
+    }
+
+    /**
+     * Replaces the moves held back with an arc if there are enough of them
+     * and they are not straight.
+     * @return the arc, or the moves held back.
+     */
+    private List<ParsedCommand> takeRun() {
+        List<ParsedCommand> results = new ArrayList<>(Math.min(run.size(), minPoints));
+        if (run.size() < minPoints || !curved) {
+            results.addAll(run);
+        } else {
+            ParsedCommand first = run.get(0);
+            GcodeState state = first.getPreState();
+            StringBuilder line = new StringBuilder(GcodePreprocessorUtils.generateLineFromPoints(
+                    clockwise ? G2 : G3, runStart, getRunEnd(), true));
+
+            Position center = new Position(runStart);
+            plane.setAxis0(center, centerAxis0);
+            plane.setAxis1(center, centerAxis1);
+            Plane p = state.plane == null ? Plane.XY : state.plane;
+            if (p != Plane.YZ) {
+                appendCenter(line, 'I', center.x, runStart.x, state.inAbsoluteIJKMode);
+            }
+            if (p != Plane.ZX) {
+                appendCenter(line, 'J', center.y, runStart.y, state.inAbsoluteIJKMode);
+            }
+            if (p != Plane.XY) {
+                appendCenter(line, 'K', center.z, runStart.z, state.inAbsoluteIJKMode);
+            }
+
+            if (!Double.isNaN(runFeed)) {
+                line.append('F');
+                GcodeNumberFormat.append(line, runFeed, DEFAULT_LINE_DECIMALS);
+            }
+
+            if (isRoundedArcValid(line.toString(), state)) {
+                // The arc belongs to the line of the last move.
+                results.add(new ParsedCommand(line.toString(), state, Iterables.getLast(run).getLine()));
+                removedCommandCount += run.size() - 1;
+            } else {
+                results.addAll(run);
+            }
+        }
+        run.clear();
+        points.clear();
+        return results;
+    }
+
+    /**
+     * @return the end of the run with only the axes which the moves of the
+     * run have words for, the other axes are NaN.
+     */
+    private Position getRunEnd() {
+        boolean hasX = false;
+        boolean hasY = false;
+        boolean hasZ = false;
+        for (ParsedCommand c : run) {
+            arcWords.parse(c.getCommandString());
+            hasX |= arcWords.has('X');
+            hasY |= arcWords.has('Y');
+            hasZ |= arcWords.has('Z');
+        }
+
+        Position last = Iterables.getLast(points);
+        return new Position(
+                hasX ? last.x : Double.NaN,
+                hasY ? last.y : Double.NaN,
+                hasZ ? last.z : Double.NaN,
+                last.getUnits());
+    }
+
+    /**
+     * The end point and center are rounded when they are written, which
+     * changes the radius at the end of the arc. Checks the arc as the
+     * controller reads it, the radius at the start and end must match.
+     */
+    private boolean isRoundedArcValid(String line, GcodeState state) {
+        arcWords.parse(line);
+        Position end = new Position(runStart);
+        Position center = state.inAbsoluteIJKMode ? new Position(0, 0, 0, runStart.getUnits()) : new Position(runStart);
+        for (int i = 0; i < arcWords.size(); i++) {
+            double value = arcWords.getValue(i);
+            switch (arcWords.getLetter(i)) {
+                case 'X': end.x = value; break;
+                case 'Y': end.y = value; break;
+                case 'Z': end.z = value; break;
+                case 'I': center.x += value; break;
+                case 'J': center.y += value; break;
+                case 'K': center.z += value; break;
+                default: break;
+            }
+        }
+
+        double startRadius = Math.hypot(plane.axis0(runStart) - plane.axis0(center), plane.axis1(runStart) - plane.axis1(center));
+        double endRadius = Math.hypot(plane.axis0(end) - plane.axis0(center), plane.axis1(end) - plane.axis1(center));
+        double maxError = Math.min(tolerance, MAX_RADIUS_ERROR_MM) * toProgramUnits(state);
+        return Math.abs(startRadius - endRadius) <= maxError;
+    }
+
+    private static double toProgramUnits(GcodeState state) {
+        return UnitUtils.scaleUnits(Units.MM, state.isMetric ? Units.MM : Units.INCH);
+    }
+
+    private static void appendCenter(StringBuilder line, char letter, double center, double start, boolean absolute) {
+        line.append(letter);
+        GcodeNumberFormat.append(line, absolute ? center : center - start, DEFAULT_LINE_DECIMALS);
+    }
+}
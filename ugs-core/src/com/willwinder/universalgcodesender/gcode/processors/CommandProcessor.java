@@ -23,6 +23,7 @@ package com.willwinder.universalgcodesender.gcode.processors;
 
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
 import com.willwinder.universalgcodesender.gcode.GcodeState;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -44,4 +45,49 @@ public interface CommandProcessor {
      * @return 
      */
     String getHelp();
+
+    /**
+     * Processors are applied to chunks of a file on several threads unless they
+     * declare themselves sequential. A sequential processor sees every command
+     * of the file in order on a single thread, which is required if it keeps
+     * state between commands.
+     * @return true if the processor can't process a file in chunks.
+     */
+    default boolean isSequential() {
+        return false;
+    }
+
+    /**
+     * Sequential processors may hold back commands to combine them with the
+     * commands after them. This returns the commands held back, it is called
+     * at the end of a program and before lines which commands shouldn't be
+     * combined across, like comments.
+     * @return the commands held back, in order.
+     */
+    default List<String> flush() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Forgets the commands held back and anything else remembered from
+     * earlier commands, called before another program is processed.
+     */
+    default void reset() {
+    }
+
+    /**
+     * @return the number of commands the processor removed by combining them
+     * with other commands since the last reset.
+     */
+    default long getRemovedCommandCount() {
+        return 0;
+    }
+
+    /**
+     * @return the number of bytes the processor removed by shortening
+     * commands since the last reset.
+     */
+    default long getRemovedByteCount() {
+        return 0;
+    }
 }
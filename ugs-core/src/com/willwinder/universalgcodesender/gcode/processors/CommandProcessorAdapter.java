@@ -0,0 +1,93 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+
+import java.util.List;
+
+/**
+ * Runs a text based {@link CommandProcessor} as a {@link ParsedCommandProcessor}.
+ * A command which the processor returns unchanged is passed on as it is,
+ * other commands are parsed again when they are needed.
+ *
+ * @author wwinder
+ */
+public class CommandProcessorAdapter implements ParsedCommandProcessor {
+    private final CommandProcessor processor;
+
+    private CommandProcessorAdapter(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * @return the processor if it works on parsed commands, otherwise an adapter for it.
+     */
+    public static ParsedCommandProcessor adapt(CommandProcessor processor) {
+        if (processor instanceof ParsedCommandProcessor) {
+            return (ParsedCommandProcessor) processor;
+        }
+        return new CommandProcessorAdapter(processor);
+    }
+
+    public CommandProcessor getProcessor() {
+        return processor;
+    }
+
+    @Override
+    public List<ParsedCommand> processCommand(ParsedCommand command) throws GcodeParserException {
+        return command.replaceWith(processor.processCommand(command.getCommandString(), command.getPreState()));
+    }
+
+    @Override
+    public List<String> processCommand(String command, GcodeState state) throws GcodeParserException {
+        return processor.processCommand(command, state);
+    }
+
+    @Override
+    public String getHelp() {
+        return processor.getHelp();
+    }
+
+    @Override
+    public boolean isSequential() {
+        return processor.isSequential();
+    }
+
+    @Override
+    public List<String> flush() {
+        return processor.flush();
+    }
+
+    @Override
+    public void reset() {
+        processor.reset();
+    }
+
+    @Override
+    public long getRemovedCommandCount() {
+        return processor.getRemovedCommandCount();
+    }
+
+    @Override
+    public long getRemovedByteCount() {
+        return processor.getRemovedByteCount();
+    }
+}
@@ -0,0 +1,371 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeNumberFormat;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.GcodeWords;
+import com.willwinder.universalgcodesender.gcode.util.Code;
+import com.willwinder.universalgcodesender.gcode.util.Code.ModalGroup;
+import com.willwinder.universalgcodesender.gcode.util.Plane;
+import com.willwinder.universalgcodesender.i18n.Localization;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.willwinder.universalgcodesender.gcode.util.Code.G0;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G1;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G2;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G3;
+import static com.willwinder.universalgcodesender.gcode.util.Code.G93;
+
+/**
+ * Makes commands as short as possible to send less bytes to the controller.
+ * Whitespace is removed and numbers are written without padding, so
+ * "G01 X010.500" becomes "G1X10.5". On lines with a single G0, G1, G2 or G3
+ * move the words which don't change anything are removed as well: the
+ * motion code if it is already the active motion mode, the feed rate if it
+ * is unchanged and axis words which don't move the axis. Axis words are
+ * compared with the ones this processor wrote, not with the position in the
+ * original program, which earlier processors may have moved.
+ *
+ * A word is only removed if the program set the modal value it depends on,
+ * the controller may be in any state before that. Lines with other commands
+ * may change the state in ways which aren't tracked, after them words are
+ * only removed once the program has set the state again. Lines with
+ * comments, system commands or expressions are left unchanged.
+ *
+ * The processor tracks the state from the commands it sees, so it must see
+ * them in order. It should come after processors which change the commands,
+ * a command without a motion code is only parsed right in order.
+ *
+ * @author wwinder
+ */
+public class GcodeCompactor implements CommandProcessor {
+    private static final String AXES = "XYZ";
+
+    // Only used on the thread processing the program.
+    private final GcodeWords words = new GcodeWords();
+    private final StringBuilder line = new StringBuilder();
+
+    // The modal state set by the program, unknown until the program sets it.
+    private Code motionMode;
+    private double feed;
+    private boolean distanceModeKnown;
+
+    // The last absolute position written for each axis, NaN until it is written.
+    private final double[] axes = new double[AXES.length()];
+
+    private long removedByteCount = 0;
+
+    public GcodeCompactor() {
+        forget();
+    }
+
+    @Override
+    public String getHelp() {
+        return Localization.getString("sender.help.gcode-compactor");
+    }
+
+    /**
+     * The modal state is tracked between commands.
+     */
+    @Override
+    public boolean isSequential() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        forget();
+        removedByteCount = 0;
+    }
+
+    @Override
+    public long getRemovedByteCount() {
+        return removedByteCount;
+    }
+
+    @Override
+    public List<String> processCommand(String command, GcodeState state) {
+        String compacted = compact(command, state);
+        removedByteCount += command.length() - compacted.length();
+        return Collections.singletonList(compacted);
+    }
+
+    private String compact(String command, GcodeState state) {
+        if (!isPlainCommand(command)) {
+            String trimmed = command.trim();
+            if (!trimmed.isEmpty() && trimmed.charAt(0) != '(' && trimmed.charAt(0) != ';') {
+                forget();
+            }
+            return command;
+        }
+
+        words.parse(command);
+        for (int i = 0; i < words.size(); i++) {
+            if (!Character.isLetter(words.getLetter(i)) || Double.isNaN(words.getValue(i))) {
+                forget();
+                return command;
+            }
+        }
+
+        Code motion = getMotion();
+        line.setLength(0);
+        if (motion == null) {
+            compactCommand(state);
+        } else {
+            compactMotion(motion, state);
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return the motion of a line with a single G0, G1, G2 or G3 move and
+     * nothing but the words of the move, otherwise null.
+     */
+    private Code getMotion() {
+        Code motion = motionMode;
+        for (int i = 0; i < words.size(); i++) {
+            char letter = Character.toUpperCase(words.getLetter(i));
+            if (words.count(letter) > 1) {
+                return null;
+            }
+            switch (letter) {
+                case 'G':
+                    motion = words.getCode(i);
+                    if (motion != G0 && motion != G1 && motion != G2 && motion != G3) {
+                        return null;
+                    }
+                    break;
+                case 'X':
+                case 'Y':
+                case 'Z':
+                case 'F':
+                    break;
+                case 'I':
+                case 'J':
+                case 'K':
+                case 'R':
+                    if (motion != G2 && motion != G3) {
+                        return null;
+                    }
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        // Arc words must come after the motion code.
+        boolean arc = words.has('I') || words.has('J') || words.has('K') || words.has('R');
+        if (motion == null || arc && motion != G2 && motion != G3) {
+            return null;
+        }
+        return motion;
+    }
+
+    private void compactMotion(Code motion, GcodeState state) {
+        Plane plane = state.plane == null ? Plane.XY : state.plane;
+        boolean arc = motion == G2 || motion == G3;
+
+        // Drop the axis words which don't move the axis, unless none are left.
+        boolean[] dropAxis = new boolean[AXES.length()];
+        boolean axisLeft = false;
+        boolean planeAxisLeft = false;
+        for (int a = 0; a < AXES.length(); a++) {
+            int index = words.indexOf(AXES.charAt(a));
+            if (index < 0) {
+                continue;
+            }
+            double value = words.getValue(index);
+            dropAxis[a] = distanceModeKnown && (state.inAbsoluteMode ? value == axes[a] : value == 0);
+            if (!dropAxis[a]) {
+                axisLeft = true;
+                planeAxisLeft |= isInPlane(plane, AXES.charAt(a));
+            }
+        }
+        // Arcs need an axis word in the plane.
+        if (!axisLeft || arc && !planeAxisLeft) {
+            dropAxis = new boolean[AXES.length()];
+        }
+
+        for (int i = 0; i < words.size(); i++) {
+            char letter = Character.toUpperCase(words.getLetter(i));
+            double value = words.getValue(i);
+            boolean drop;
+            switch (letter) {
+                case 'G':
+                    drop = motion == motionMode && words.hasAxisWords();
+                    break;
+                case 'F':
+                    drop = value == feed && state.feedMode != G93;
+                    break;
+                case 'I':
+                case 'J':
+                case 'K':
+                    drop = !state.inAbsoluteIJKMode && value == 0 && hasOtherOffset(plane, letter);
+                    break;
+                case 'R':
+                    drop = false;
+                    break;
+                default:
+                    drop = dropAxis[AXES.indexOf(letter)];
+            }
+            if (!drop) {
+                appendWord(i);
+            }
+        }
+
+        // A redundant feed rate is the whole command.
+        if (line.length() == 0) {
+            for (int i = 0; i < words.size(); i++) {
+                appendWord(i);
+            }
+        }
+
+        motionMode = motion;
+        if (words.has('F')) {
+            feed = state.feedMode == G93 ? Double.NaN : words.get('F');
+        }
+        for (int a = 0; a < AXES.length(); a++) {
+            int index = words.indexOf(AXES.charAt(a));
+            if (index >= 0) {
+                axes[a] = distanceModeKnown && state.inAbsoluteMode ? words.getValue(index) : Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Normalizes the words of any other command and forgets the state it
+     * may change.
+     */
+    private void compactCommand(GcodeState state) {
+        for (int i = 0; i < words.size(); i++) {
+            appendWord(i);
+        }
+
+        if (words.has('G') || words.hasAxisWords()) {
+            forgetAxes();
+        }
+        boolean feedChanged = state.feedMode == G93;
+        for (Code code : words.getGCodes()) {
+            ModalGroup group = code.getType();
+            if (code.consumesMotion()) {
+                motionMode = null;
+            }
+            if (group == ModalGroup.Units || group == ModalGroup.Feedmode) {
+                feedChanged = true;
+            }
+            if (group == ModalGroup.Distance) {
+                distanceModeKnown = true;
+            }
+        }
+        if (feedChanged) {
+            feed = Double.NaN;
+        } else if (words.has('F')) {
+            feed = words.get('F');
+        }
+
+        // The end of the program resets the modal state.
+        for (int i = 0; i < words.size(); i++) {
+            char letter = Character.toUpperCase(words.getLetter(i));
+            if (letter == 'M' && (words.getValue(i) == 2 || words.getValue(i) == 30)) {
+                forget();
+            }
+        }
+    }
+
+    /**
+     * @return true if another offset in the plane of an arc is written and not zero.
+     */
+    private boolean hasOtherOffset(Plane plane, char letter) {
+        char other;
+        switch (plane) {
+            case ZX:
+                other = letter == 'I' ? 'K' : 'I';
+                break;
+            case YZ:
+                other = letter == 'J' ? 'K' : 'J';
+                break;
+            default:
+                other = letter == 'I' ? 'J' : 'I';
+        }
+        return isInPlane(plane, letter == 'I' ? 'X' : letter == 'J' ? 'Y' : 'Z')
+                && words.has(other) && words.get(other) != 0;
+    }
+
+    private static boolean isInPlane(Plane plane, char axis) {
+        switch (plane) {
+            case ZX:
+                return axis == 'Z' || axis == 'X';
+            case YZ:
+                return axis == 'Y' || axis == 'Z';
+            default:
+                return axis == 'X' || axis == 'Y';
+        }
+    }
+
+    /**
+     * Appends a word without padding, keeping the decimals it was written with.
+     */
+    private void appendWord(int index) {
+        String word = words.getWord(index);
+        int dot = word.indexOf('.');
+        int decimals = dot < 0 ? 0 : word.length() - dot - 1;
+
+        line.append(Character.toUpperCase(words.getLetter(index)));
+        int start = line.length();
+        GcodeNumberFormat.append(line, words.getValue(index), decimals);
+
+        // "0.5" is sent as ".5"
+        int zero = line.charAt(start) == '-' ? start + 1 : start;
+        if (line.length() > zero + 1 && line.charAt(zero) == '0' && line.charAt(zero + 1) == '.') {
+            line.deleteCharAt(zero);
+        }
+    }
+
+    /**
+     * @return true if the command only has words, no comments, system
+     * commands or expressions.
+     */
+    private static boolean isPlainCommand(String command) {
+        if (command.trim().isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '.' && c != '-' && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void forget() {
+        motionMode = null;
+        feed = Double.NaN;
+        distanceModeKnown = false;
+        forgetAxes();
+    }
+
+    private void forgetAxes() {
+        Arrays.fill(axes, Double.NaN);
+    }
+}
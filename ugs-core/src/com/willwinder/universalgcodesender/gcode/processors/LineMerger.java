@@ -0,0 +1,244 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.google.common.collect.Iterables;
+import com.willwinder.universalgcodesender.gcode.GcodeNumberFormat;
+import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.GcodeWords;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import com.willwinder.universalgcodesender.gcode.util.GcodeUtils;
+import com.willwinder.universalgcodesender.i18n.Localization;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.willwinder.universalgcodesender.gcode.util.Code.G1;
+
+/**
+ * Merges runs of short G1 moves which are nearly on a line into a single
+ * move, which saves a command, a planner block and an acknowledgement for
+ * every move removed.
+ *
+ * Moves are added to a run as long as every point of the run stays within
+ * the tolerance of a straight move from the start of the run, a streaming
+ * version of the Douglas-Peucker simplification. A run is also limited by
+ * the length of the merged move.
+ *
+ * Only absolute G1 moves without other words than X, Y, Z and F are merged,
+ * any other command, a change of the feed rate or a comment ends a run. The
+ * moves of a run are held back until it ends, so this processor must see
+ * the commands in order and be flushed at the end of the program.
+ *
+ * @author wwinder
+ */
+public class LineMerger implements ParsedCommandProcessor {
+    // Each move of a run is checked against the earlier ones.
+    private static final int MAX_MERGED_COMMANDS = 100;
+
+    private final double tolerance;
+    private final double maxSegmentLength;
+
+    // Only used on the thread processing the program.
+    private final GcodeWords words = new GcodeWords();
+
+    // The moves held back and the points they move to.
+    private final List<ParsedCommand> run = new ArrayList<>();
+    private final List<Position> points = new ArrayList<>();
+    private Position runStart;
+
+    // The feed rate set by the first move of the run, NaN if it has no F word.
+    private double runFeed;
+
+    // The axes which the moves of the run have words for, the merged move only writes these.
+    private boolean runHasX;
+    private boolean runHasY;
+    private boolean runHasZ;
+
+    private long removedCommandCount = 0;
+
+    /**
+     * @param tolerance largest distance in mm between a removed point and the merged move.
+     * @param maxSegmentLength length in mm of the longest merged move.
+     */
+    public LineMerger(double tolerance, double maxSegmentLength) {
+        this.tolerance = tolerance;
+        this.maxSegmentLength = maxSegmentLength;
+    }
+
+    @Override
+    public String getHelp() {
+        return Localization.getString("sender.help.line-merger");
+    }
+
+    /**
+     * Runs span several commands.
+     */
+    @Override
+    public boolean isSequential() {
+        return true;
+    }
+
+    @Override
+    public long getRemovedCommandCount() {
+        return removedCommandCount;
+    }
+
+    @Override
+    public List<ParsedCommand> processCommand(ParsedCommand command) throws GcodeParserException {
+        if (!run.isEmpty()) {
+            // Commands after a run follow the moves held back, not the ones returned.
+            GcodeState runState = Iterables.getLast(run).getPostState();
+            if (!runState.currentPoint.equals(command.getPreState().currentPoint)) {
+                command = command.withPreState(runState);
+            }
+        }
+
+        Position end = GcodeUtils.getMergeableMoveEnd(command, words);
+        if (end == null) {
+            List<ParsedCommand> results = takeRun();
+            results.add(command);
+            return results;
+        }
+
+        if (!run.isEmpty() && canMerge(command, end)) {
+            addToRun(command, end);
+            return Collections.emptyList();
+        }
+
+        List<ParsedCommand> results = takeRun();
+        runStart = command.getPreState().currentPoint;
+        runFeed = words.has('F') ? command.getPostState().speed : Double.NaN;
+        runHasX = runHasY = runHasZ = false;
+        addToRun(command, end);
+        return results;
+    }
+
+    /**
+     * Adds a move to the run, the words of the move must be in {@link #words}.
+     */
+    private void addToRun(ParsedCommand command, Position end) {
+        run.add(command);
+        points.add(end);
+        runHasX |= words.has('X');
+        runHasY |= words.has('Y');
+        runHasZ |= words.has('Z');
+    }
+
+    @Override
+    public List<String> flush() {
+        List<String> results = new ArrayList<>(1);
+        for (ParsedCommand c : takeRun()) {
+            results.add(c.getCommandString());
+        }
+        return results;
+    }
+
+    @Override
+    public List<ParsedCommand> flushCommands(GcodeState state) {
+        return takeRun();
+    }
+
+    @Override
+    public void reset() {
+        run.clear();
+        points.clear();
+        removedCommandCount = 0;
+    }
+
+    /**
+     * @return true if the run can be replaced by a single move to the end of the command.
+     */
+    private boolean canMerge(ParsedCommand command, Position end) throws GcodeParserException {
+        GcodeState state = command.getPreState();
+        if (run.size() >= MAX_MERGED_COMMANDS || command.getPostState().speed != state.speed) {
+            return false;
+        }
+
+        // The tolerances are in mm, the points in the units of the program.
+        double scale = UnitUtils.scaleUnits(Units.MM, state.isMetric ? Units.MM : Units.INCH);
+        if (runStart.distance(end) > maxSegmentLength * scale) {
+            return false;
+        }
+
+        double maxDistance = tolerance * scale;
+        for (Position point : points) {
+            if (distanceToSegment(point, runStart, end) > maxDistance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the moves held back with a single move.
+     * @return the merged move, or nothing if no moves are held back.
+     */
+    private List<ParsedCommand> takeRun() {
+        List<ParsedCommand> results = new ArrayList<>(2);
+        if (run.size() == 1) {
+            results.add(run.get(0));
+        } else if (run.size() > 1) {
+            ParsedCommand first = run.get(0);
+            Position last = Iterables.getLast(points);
+            Position end = new Position(
+                    runHasX ? last.x : Double.NaN,
+                    runHasY ? last.y : Double.NaN,
+                    runHasZ ? last.z : Double.NaN,
+                    last.getUnits());
+            StringBuilder line = new StringBuilder(GcodePreprocessorUtils.generateLineFromPoints(G1, runStart, end, true));
+            if (!Double.isNaN(runFeed)) {
+                line.append('F');
+                GcodeNumberFormat.append(line, runFeed, GcodePreprocessorUtils.DEFAULT_LINE_DECIMALS);
+            }
+            // The merged move belongs to the line of the last move.
+            results.add(new ParsedCommand(line.toString(), first.getPreState(), Iterables.getLast(run).getLine()));
+            removedCommandCount += run.size() - 1;
+        }
+        run.clear();
+        points.clear();
+        return results;
+    }
+
+    /**
+     * @return the distance between a point and the closest point of a line segment.
+     */
+    private static double distanceToSegment(Position p, Position start, Position end) {
+        double dx = end.x - start.x;
+        double dy = end.y - start.y;
+        double dz = end.z - start.z;
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+
+        double t = 0;
+        if (lengthSquared > 0) {
+            t = ((p.x - start.x) * dx + (p.y - start.y) * dy + (p.z - start.z) * dz) / lengthSquared;
+            t = Math.max(0, Math.min(1, t));
+        }
+
+        double x = start.x + t * dx - p.x;
+        double y = start.y + t * dy - p.y;
+        double z = start.z + t * dz - p.z;
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+}
@@ -22,7 +22,6 @@
 package com.willwinder.universalgcodesender.gcode.processors;
 
 import com.google.common.collect.Iterables;
-import com.willwinder.universalgcodesender.gcode.GcodeParser;
 import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils.SplitCommand;
@@ -39,7 +38,7 @@ import java.util.List;
  *
  * @author wwinder
  */
-public class LineSplitter implements CommandProcessor {
+public class LineSplitter implements ParsedCommandProcessor {
     final double maxSegmentLength;
 
     /**
@@ -68,16 +67,19 @@ public class LineSplitter implements CommandProcessor {
     }
 
     @Override
-    public List<String> processCommand(String commandString, GcodeState state) throws GcodeParserException {
-        List<GcodeParser.GcodeMeta> commands = GcodeParser.processCommand(commandString, 0, state);
+    public List<ParsedCommand> processCommand(ParsedCommand parsedCommand) throws GcodeParserException {
+        GcodeState state = parsedCommand.getPreState();
+        List<GcodeMeta> commands = parsedCommand.getMeta();
 
         List<String> results = new ArrayList<>();
 
         Code code = hasLine(commands);
         if (code == null) {
-            return Collections.singletonList(commandString);
+            return Collections.singletonList(parsedCommand);
         }
 
+        String commandString = parsedCommand.getCommandString();
+
         SplitCommand sc = GcodePreprocessorUtils.extractMotion(code, commandString);
         if (sc.remainder.length() > 0) {
             results.add(sc.remainder);
@@ -109,17 +111,17 @@ public class LineSplitter implements CommandProcessor {
 
                 Position next = new Position(newX, newY, newZ, start.getUnits());
                 results.add(GcodePreprocessorUtils.generateLineFromPoints(
-                        command.code, current, next, command.state.inAbsoluteMode, null));
+                        command.code, current, next, command.state.inAbsoluteMode));
                 current = next;
             }
 
             // Add the last line point.
             results.add(GcodePreprocessorUtils.generateLineFromPoints(
-                    command.code, current, end, command.state.inAbsoluteMode, null));
+                    command.code, current, end, command.state.inAbsoluteMode));
         } else {
-            return Collections.singletonList(commandString);
+            return Collections.singletonList(parsedCommand);
         }
 
-        return results;
+        return parsedCommand.replaceWith(results);
     }
 }
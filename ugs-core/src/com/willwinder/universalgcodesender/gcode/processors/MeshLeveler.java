@@ -18,7 +18,6 @@
  */
 package com.willwinder.universalgcodesender.gcode.processors;
 
-import com.willwinder.universalgcodesender.gcode.GcodeParser;
 import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
 import com.willwinder.universalgcodesender.gcode.GcodeState;
@@ -35,7 +34,7 @@ import java.util.List;
  *
  * @author wwinder
  */
-public class MeshLeveler implements CommandProcessor {
+public class MeshLeveler implements ParsedCommandProcessor {
     final private double materialSurfaceHeight;
     final private Position[][] surfaceMesh;
     final private Position lowerLeft;
@@ -135,12 +134,13 @@ public class MeshLeveler implements CommandProcessor {
     }
 
     @Override
-    public List<String> processCommand(final String commandString, GcodeState state) throws GcodeParserException {
-        List<GcodeMeta> commands = GcodeParser.processCommand(commandString, 0, state);
+    public List<ParsedCommand> processCommand(ParsedCommand parsedCommand) throws GcodeParserException {
+        GcodeState state = parsedCommand.getPreState();
+        List<GcodeMeta> commands = parsedCommand.getMeta();
 
         // If there are no lines, return unmodified input.
         if (!hasJustLines(commands)) {
-            return Collections.singletonList(commandString);
+            return Collections.singletonList(parsedCommand);
         }
 
         if (commands.size() > 1) {
@@ -154,7 +154,8 @@ public class MeshLeveler implements CommandProcessor {
         }
 
         Position start = state.currentPoint;
-        Position end = command.point.point();
+        // The parsed point is shared with the state after the command, don't modify it.
+        Position end = new Position(command.point.point());
 
         if (start.z != end.z) {
             this.lastZHeight = end.z;
@@ -175,8 +176,8 @@ public class MeshLeveler implements CommandProcessor {
         //end.z /= resultScaleFactor;
 
         String adjustedCommand = GcodePreprocessorUtils.generateLineFromPoints(
-                command.code, start, end, command.state.inAbsoluteMode, null);
-        return Collections.singletonList(adjustedCommand);
+                command.code, start, end, command.state.inAbsoluteMode);
+        return parsedCommand.replaceWith(Collections.singletonList(adjustedCommand));
     }
 
     protected Position[][] findBoundingArea(double x, double y) throws GcodeParserException {
@@ -239,4 +240,12 @@ public class MeshLeveler implements CommandProcessor {
     public String getHelp() {
         return null;
     }
+
+    /**
+     * The Z height of a command depends on the commands before it.
+     */
+    @Override
+    public boolean isSequential() {
+        return true;
+    }
 }
@@ -0,0 +1,157 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A command passed between {@link ParsedCommandProcessor}s together with the
+ * state it runs in. The command is parsed the first time its motions or the
+ * state after it are needed and the result is kept, a command which passes
+ * through a processor unchanged is never parsed again.
+ *
+ * The parsed motions and states are shared between processors and must not
+ * be modified.
+ *
+ * Each command remembers the number of the input line it was created from,
+ * so commands which a processor held back can be mapped to their line.
+ *
+ * @author wwinder
+ */
+public class ParsedCommand {
+    private final String command;
+    private final GcodeState preState;
+    private final int line;
+
+    private boolean parsed = false;
+    private List<GcodeMeta> meta;
+    private GcodeState postState;
+
+    /**
+     * @param command the gcode.
+     * @param preState the state of the parser before the command.
+     */
+    public ParsedCommand(String command, GcodeState preState) {
+        this(command, preState, -1);
+    }
+
+    /**
+     * @param command the gcode.
+     * @param preState the state of the parser before the command.
+     * @param line the number of the input line the command was created from.
+     */
+    public ParsedCommand(String command, GcodeState preState, int line) {
+        this.command = command;
+        this.preState = preState;
+        this.line = line;
+    }
+
+    public String getCommandString() {
+        return command;
+    }
+
+    /**
+     * @return the state of the parser before the command.
+     */
+    public GcodeState getPreState() {
+        return preState;
+    }
+
+    /**
+     * @return the number of the input line the command was created from, or -1 if it isn't known.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the motions of the command like {@link GcodeParser#processCommand(String, int, GcodeState)}
+     * returns them, null if there are no words in the command.
+     */
+    public List<GcodeMeta> getMeta() throws GcodeParserException {
+        parse();
+        return meta;
+    }
+
+    /**
+     * @return the state of the parser after the command.
+     */
+    public GcodeState getPostState() throws GcodeParserException {
+        parse();
+        return postState;
+    }
+
+    private void parse() throws GcodeParserException {
+        if (parsed) {
+            return;
+        }
+
+        meta = GcodeParser.processCommand(command, 0, preState);
+        postState = preState;
+        if (meta != null) {
+            for (GcodeMeta m : meta) {
+                if (m.state != null) {
+                    postState = m.state;
+                }
+            }
+        }
+        parsed = true;
+    }
+
+    /**
+     * @return this command if it already runs in the state, otherwise a copy
+     * of the command which runs in the state.
+     */
+    public ParsedCommand withPreState(GcodeState state) {
+        if (state == preState) {
+            return this;
+        }
+        return new ParsedCommand(command, state, line);
+    }
+
+    /**
+     * Creates the commands which replace this one, the first one runs in the
+     * state of this command and each of the others in the state after the
+     * previous one. They are created from the same line as this command.
+     *
+     * @param commands the replacement gcode.
+     * @return this command if it is replaced with itself.
+     */
+    public List<ParsedCommand> replaceWith(List<String> commands) throws GcodeParserException {
+        if (commands.size() == 1 && command.equals(commands.get(0))) {
+            return Collections.singletonList(this);
+        }
+
+        List<ParsedCommand> results = new ArrayList<>(commands.size());
+        GcodeState state = preState;
+        for (String c : commands) {
+            ParsedCommand next = new ParsedCommand(c, state, line);
+            results.add(next);
+            state = next.getPostState();
+        }
+        return results;
+    }
+}
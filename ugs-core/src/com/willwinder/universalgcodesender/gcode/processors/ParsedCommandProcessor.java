@@ -0,0 +1,73 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A command processor which works on parsed commands. The parser passes the
+ * same {@link ParsedCommand} down the processor chain until a processor
+ * replaces it, so a processor can look at the motions and states of a
+ * command without parsing it again.
+ *
+ * Processors which only implement {@link CommandProcessor} are used through
+ * a {@link CommandProcessorAdapter}.
+ *
+ * @author wwinder
+ */
+public interface ParsedCommandProcessor extends CommandProcessor {
+    /**
+     * Given a command returns a replacement list of commands, usually
+     * created with {@link ParsedCommand#replaceWith(List)}.
+     * @param command Input gcode and the state it runs in.
+     * @return One or more commands to replace the original command with.
+     */
+    List<ParsedCommand> processCommand(ParsedCommand command) throws GcodeParserException;
+
+    @Override
+    default List<String> processCommand(String command, GcodeState state) throws GcodeParserException {
+        List<ParsedCommand> commands = processCommand(new ParsedCommand(command, state));
+        List<String> results = new ArrayList<>(commands.size());
+        for (ParsedCommand c : commands) {
+            results.add(c.getCommandString());
+        }
+        return results;
+    }
+
+    /**
+     * Like {@link #flush()}, but returns the commands held back with the
+     * states they run in and the lines they were created from.
+     * @param state State of the parser after the last command returned.
+     * @return the commands held back, in order.
+     */
+    default List<ParsedCommand> flushCommands(GcodeState state) throws GcodeParserException {
+        List<String> held = flush();
+        List<ParsedCommand> results = new ArrayList<>(held.size());
+        for (String c : held) {
+            ParsedCommand next = new ParsedCommand(c, state);
+            results.add(next);
+            state = next.getPostState();
+        }
+        return results;
+    }
+}
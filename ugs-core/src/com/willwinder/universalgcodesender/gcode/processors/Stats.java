@@ -38,6 +38,8 @@ public class Stats implements CommandProcessor, GcodeStats {
     private Position max = new Position(Double.MIN_VALUE, Double.MIN_VALUE, Double.MIN_VALUE, Units.MM);
 
     private long commandCount = 0;
+    private long removedCommandCount = 0;
+    private long removedByteCount = 0;
 
     @Override
     public List<String> processCommand(String command, GcodeState state) throws GcodeParserException {
@@ -68,6 +70,14 @@ public class Stats implements CommandProcessor, GcodeStats {
         return "Caches program metrics, shouldn't be enabled or disabled.";
     }
 
+    /**
+     * The metrics are accumulated from every command.
+     */
+    @Override
+    public boolean isSequential() {
+        return true;
+    }
+
     @Override
     public final Position getMin() {
         return min;
@@ -82,5 +92,23 @@ public class Stats implements CommandProcessor, GcodeStats {
     public final long getCommandCount() {
         return commandCount;
     }
+
+    @Override
+    public final long getRemovedCommandCount() {
+        return removedCommandCount;
+    }
+
+    public void setRemovedCommandCount(long removedCommandCount) {
+        this.removedCommandCount = removedCommandCount;
+    }
+
+    @Override
+    public final long getRemovedByteCount() {
+        return removedByteCount;
+    }
+
+    public void setRemovedByteCount(long removedByteCount) {
+        this.removedByteCount = removedByteCount;
+    }
     
 }
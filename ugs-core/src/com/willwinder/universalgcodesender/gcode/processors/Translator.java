@@ -18,8 +18,10 @@
  */
 package com.willwinder.universalgcodesender.gcode.processors;
 
+import com.willwinder.universalgcodesender.gcode.GcodeNumberFormat;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
 import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.GcodeWords;
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
 import com.willwinder.universalgcodesender.model.Position;
 import com.willwinder.universalgcodesender.model.UnitUtils;
@@ -33,14 +35,24 @@ import org.apache.commons.lang3.StringUtils;
  */
 public class Translator implements CommandProcessor {
 
+  // Reusable tokenizer, one per thread so files can be processed in parallel.
+  private static final ThreadLocal<GcodeWords> WORDS = ThreadLocal.withInitial(GcodeWords::new);
+
+  // Precision of the translated coordinates.
+  private static final int DECIMALS = 9;
+
   private final Position offset;
 
   public Translator(Position offset) {
     this.offset = offset;
   }
 
-  private String shift(String part, double amount) {
-    return "" + part.charAt(0) + (Double.valueOf(part.substring(1)) + amount);
+  private static void shift(StringBuilder sb, GcodeWords words, int word, double amount) throws GcodeParserException {
+    double value = words.getValue(word);
+    if (Double.isNaN(value)) {
+      throw new GcodeParserException("Invalid number: " + words.getWord(word));
+    }
+    GcodeNumberFormat.append(sb.append(words.getLetter(word)), value + amount, DECIMALS);
   }
 
   @Override
@@ -52,46 +64,46 @@ public class Translator implements CommandProcessor {
 
     String comment = GcodePreprocessorUtils.parseComment(command);
     String rawCommand = GcodePreprocessorUtils.removeComment(command);
-    List<String> parts = GcodePreprocessorUtils.splitCommand(rawCommand);
+    GcodeWords words = WORDS.get().parse(rawCommand);
     StringBuilder sb = new StringBuilder();
 
     double x = offset.getPositionIn(UnitUtils.Units.getUnits(state.units)).x;
     double y = offset.getPositionIn(UnitUtils.Units.getUnits(state.units)).y;
     double z = offset.getPositionIn(UnitUtils.Units.getUnits(state.units)).z;
 
-    for (String part : parts) {
-      switch (Character.toUpperCase(part.charAt(0))) {
+    for (int i = 0; i < words.size(); i++) {
+      switch (Character.toUpperCase(words.getLetter(i))) {
         case 'X':
-          sb.append(shift(part, x));
+          shift(sb, words, i, x);
           break;
         case 'Y':
-          sb.append(shift(part, y));
+          shift(sb, words, i, y);
           break;
         case 'Z':
-          sb.append(shift(part, z));
+          shift(sb, words, i, z);
           break;
 
         // Grbl doesn't support absolute arcs, but what the hell.
         case 'I':
           if (state.inAbsoluteIJKMode) {
-            sb.append(shift(part, x));
+            shift(sb, words, i, x);
             break;
           }
         // fall through if not in absolute mode...
         case 'J':
           if (state.inAbsoluteIJKMode) {
-            sb.append(shift(part, y));
+            shift(sb, words, i, y);
             break;
           }
         // fall through if not in absolute mode...
         case 'K':
           if (state.inAbsoluteIJKMode) {
-            sb.append(shift(part, z));
+            shift(sb, words, i, z);
             break;
           }
         // fall through if not in absolute mode...
         default:
-          sb.append(part);
+          words.appendWord(i, sb);
       }
     }
 
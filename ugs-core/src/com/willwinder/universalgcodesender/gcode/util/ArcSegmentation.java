@@ -0,0 +1,116 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.util;
+
+/**
+ * Decides how many line segments an arc is expanded into.
+ *
+ * With a fixed segment length the number of segments grows with the length
+ * of the arc, a large radius arc becomes thousands of lines while a tiny arc
+ * gets too few to look round. With a chord tolerance the segments are as
+ * long as possible while no point of the arc is further than the tolerance
+ * from the line segments, so the count depends on the curvature instead.
+ *
+ * @author wwinder
+ */
+public class ArcSegmentation {
+    private final double segmentLength;
+    private final double chordTolerance;
+    private final int minSegments;
+    private final int maxSegments;
+
+    private ArcSegmentation(double segmentLength, double chordTolerance, int minSegments, int maxSegments) {
+        this.segmentLength = segmentLength;
+        this.chordTolerance = chordTolerance;
+        this.minSegments = minSegments;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Expands arcs into segments of a fixed length, the last segment may
+     * be shorter. Arcs are split into 20 segments if the length isn't
+     * positive.
+     *
+     * @param segmentLength the length of each segment.
+     */
+    public static ArcSegmentation fixedLength(double segmentLength) {
+        return new ArcSegmentation(segmentLength, 0, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Expands arcs into the fewest segments which keep the arc within a
+     * distance of the segments.
+     *
+     * @param chordTolerance the maximum distance between the arc and a segment.
+     * @param minSegments the minimum number of segments of an arc.
+     * @param maxSegments the maximum number of segments of an arc.
+     */
+    public static ArcSegmentation chordTolerance(double chordTolerance, int minSegments, int maxSegments) {
+        if (chordTolerance <= 0) {
+            throw new IllegalArgumentException("The chord tolerance must be positive: " + chordTolerance);
+        }
+        if (minSegments < 1 || maxSegments < minSegments) {
+            throw new IllegalArgumentException("Invalid segment limits: " + minSegments + ", " + maxSegments);
+        }
+        return new ArcSegmentation(0, chordTolerance, minSegments, maxSegments);
+    }
+
+    public boolean isChordTolerance() {
+        return chordTolerance > 0;
+    }
+
+    public double getSegmentLength() {
+        return segmentLength;
+    }
+
+    public double getChordTolerance() {
+        return chordTolerance;
+    }
+
+    public int getMinSegments() {
+        return minSegments;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    /**
+     * @param radius the radius of the arc.
+     * @param sweep the angle of the arc in radians.
+     * @return the number of segments to expand the arc into.
+     */
+    public int getSegmentCount(double radius, double sweep) {
+        if (!isChordTolerance()) {
+            if (segmentLength <= 0) {
+                return 20;
+            }
+            return (int) Math.ceil(sweep * radius / segmentLength);
+        }
+
+        // A chord over the angle a is furthest from the arc in its middle,
+        // at radius * (1 - cos(a / 2)).
+        double segments = minSegments;
+        if (chordTolerance < radius) {
+            double maxAngle = 2 * Math.acos(1 - chordTolerance / radius);
+            segments = Math.ceil(sweep / maxAngle);
+        }
+        return (int) Math.max(minSegments, Math.min(maxSegments, segments));
+    }
+}
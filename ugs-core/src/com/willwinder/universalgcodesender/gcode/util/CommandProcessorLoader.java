@@ -23,10 +23,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.willwinder.universalgcodesender.gcode.processors.ArcExpander;
+import com.willwinder.universalgcodesender.gcode.processors.ArcFitter;
 import com.willwinder.universalgcodesender.gcode.processors.CommandLengthProcessor;
 import com.willwinder.universalgcodesender.gcode.processors.CommentProcessor;
 import com.willwinder.universalgcodesender.gcode.processors.DecimalProcessor;
 import com.willwinder.universalgcodesender.gcode.processors.FeedOverrideProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.GcodeCompactor;
+import com.willwinder.universalgcodesender.gcode.processors.LineMerger;
 import com.willwinder.universalgcodesender.gcode.processors.M30Processor;
 import com.willwinder.universalgcodesender.gcode.processors.SpindleOnDweller;
 import com.willwinder.universalgcodesender.gcode.processors.PatternRemover;
@@ -54,6 +57,11 @@ public class CommandProcessorLoader {
      *         "optional": <optional>,
      *         "args": {}
      *     },{
+     *         "name": "ArcFitter",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {}
+     *     },{
      *         "name": "CommandLenghtProcessor",
      *         "enabled": <enabled>,
      *         "optional": <optional>,
@@ -74,6 +82,16 @@ public class CommandProcessorLoader {
      *         "optional": <optional>,
      *         "args": {}
      *     },{
+     *         "name": "GcodeCompactor",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {}
+     *     },{
+     *         "name": "LineMerger",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {}
+     *     },{
      *         "name": "M30Processor",
      *         "enabled": <enabled>,
      *         "optional": <optional>,
@@ -133,6 +151,20 @@ public class CommandProcessorLoader {
      *         "args": {
      *             "segmentLengthMM": <double>
      *         }
+     *         or, to expand arcs by the distance to the segments:
+     *         "args": {
+     *             "chordToleranceMM": <double>,
+     *             "minSegments": <int>,
+     *             "maxSegments": <int>
+     *         }
+     *     },{
+     *         "name": "ArcFitter",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {
+     *             "toleranceMM": <double>,
+     *             "minPoints": <int>
+     *         }
      *     },{
      *         "name": "CommandLenghtProcessor",
      *         "enabled": <enabled>,
@@ -159,6 +191,19 @@ public class CommandProcessorLoader {
      *             "speed": <double>
      *         }
      *     },{
+     *         "name": "GcodeCompactor",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {}
+     *     },{
+     *         "name": "LineMerger",
+     *         "enabled": <enabled>,
+     *         "optional": <optional>,
+     *         "args": {
+     *             "toleranceMM": <double>,
+     *             "maxSegmentLengthMM": <double>
+     *         }
+     *     },{
      *         "name": "M30Processor",
      *         "enabled": <enabled>
      *         "optional": <optional>,
@@ -192,8 +237,12 @@ public class CommandProcessorLoader {
 
             switch (pc.name) {
                 case "ArcExpander":
-                    double length = pc.args.get("segmentLengthMM").getAsDouble();
-                    p = new ArcExpander(true, length);
+                    p = createArcExpander(pc.args);
+                    break;
+                case "ArcFitter":
+                    double fitTolerance = pc.args.get("toleranceMM").getAsDouble();
+                    int minPoints = pc.args.get("minPoints").getAsInt();
+                    p = new ArcFitter(fitTolerance, minPoints);
                     break;
                 case "CommandLengthProcessor":
                     int commandLength = pc.args.get("commandLength").getAsInt();
@@ -210,9 +259,17 @@ public class CommandProcessorLoader {
                     double override = pc.args.get("speedOverridePercent").getAsDouble();
                     p = new FeedOverrideProcessor(override);
                     break;
+                case "GcodeCompactor":
+                    p = new GcodeCompactor();
+                    break;
                 case "M30Processor":
                     p = new M30Processor();
                     break;
+                case "LineMerger":
+                    double tolerance = pc.args.get("toleranceMM").getAsDouble();
+                    double maxSegmentLength = pc.args.get("maxSegmentLengthMM").getAsDouble();
+                    p = new LineMerger(tolerance, maxSegmentLength);
+                    break;
                 case "PatternRemover":
                     String pattern = pc.args.get("pattern").getAsString();
                     p = new PatternRemover(pattern);
@@ -234,6 +291,22 @@ public class CommandProcessorLoader {
         return list;
     }
 
+    /**
+     * Creates an arc expander using a chord tolerance if one is configured,
+     * otherwise using a fixed segment length.
+     */
+    static private ArcExpander createArcExpander(JsonObject args) {
+        if (args.has("chordToleranceMM")) {
+            double tolerance = args.get("chordToleranceMM").getAsDouble();
+            int minSegments = args.has("minSegments") ? args.get("minSegments").getAsInt() : 1;
+            int maxSegments = args.has("maxSegments") ? args.get("maxSegments").getAsInt() : Integer.MAX_VALUE;
+            return new ArcExpander(true, ArcSegmentation.chordTolerance(tolerance, minSegments, maxSegments));
+        }
+
+        double length = args.get("segmentLengthMM").getAsDouble();
+        return new ArcExpander(true, length);
+    }
+
     /**
      * Helper to instantiate a processor by name and call the getHelp method.
      * @param pc
@@ -244,8 +317,12 @@ public class CommandProcessorLoader {
         try {
             switch (pc.name) {
                 case "ArcExpander":
-                    double length = pc.args.get("segmentLengthMM").getAsDouble();
-                    p = new ArcExpander(true, length);
+                    p = createArcExpander(pc.args);
+                    break;
+                case "ArcFitter":
+                    double fitTolerance = pc.args.get("toleranceMM").getAsDouble();
+                    int minPoints = pc.args.get("minPoints").getAsInt();
+                    p = new ArcFitter(fitTolerance, minPoints);
                     break;
                 case "CommandLengthProcessor":
                     int commandLength = pc.args.get("commandLength").getAsInt();
@@ -262,9 +339,17 @@ public class CommandProcessorLoader {
                     double override = pc.args.get("speedOverridePercent").getAsDouble();
                     p = new FeedOverrideProcessor(override);
                     break;
+                case "GcodeCompactor":
+                    p = new GcodeCompactor();
+                    break;
                 case "M30Processor":
                     p = new M30Processor();
                     break;
+                case "LineMerger":
+                    double tolerance = pc.args.get("toleranceMM").getAsDouble();
+                    double maxSegmentLength = pc.args.get("maxSegmentLengthMM").getAsDouble();
+                    p = new LineMerger(tolerance, maxSegmentLength);
+                    break;
                 case "PatternRemover":
                     String pattern = pc.args.get("pattern").getAsString();
                     p = new PatternRemover(pattern);
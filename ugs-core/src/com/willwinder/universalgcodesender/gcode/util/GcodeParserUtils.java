@@ -19,7 +19,10 @@
 package com.willwinder.universalgcodesender.gcode.util;
 
 import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.processors.ParsedCommand;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
 import com.willwinder.universalgcodesender.utils.GcodeStreamReader;
 import com.willwinder.universalgcodesender.utils.GcodeStreamWriter;
@@ -27,7 +30,14 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Collection;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,66 +51,319 @@ import org.apache.commons.lang3.StringUtils;
 public class GcodeParserUtils {
     private static final Logger logger = Logger.getLogger(GcodeParserUtils.class.getName());
 
+    // Number of lines preprocessed by each parallel task.
+    private static final int CHUNK_SIZE = 1000;
+
+    // Number of chunks read ahead for each thread in the pool.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // Number of lines remembered to write the commands held back by a processor.
+    private static final int MAX_RECENT_LINES = 1000;
+
+    /**
+     * A line of the input file split into the command and its comment.
+     */
+    private static class Line {
+        final String original;
+        final String command;
+        final String comment;
+
+        Line(String original, String command, String comment) {
+            this.original = original;
+            this.command = command;
+            this.comment = comment;
+        }
+    }
+
+    /**
+     * Source of input lines, returns null at the end of the file.
+     */
+    private interface LineReader {
+        Line next() throws IOException;
+    }
+
     /**
      * Helper method to apply processors to gcode.
      */
     public static void processAndExport(GcodeParser gcp, File input, File output)
             throws IOException, GcodeParserException {
-        try(BufferedReader br = new BufferedReader(new FileReader(input))) {
-            if (processAndExportGcodeStream(gcp, br, output)) {
-                return;
-            }
+        processAndExport(gcp, input, output, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Helper method to apply processors to gcode, using the given pool to
+     * process chunks of the file in parallel.
+     */
+    public static void processAndExport(GcodeParser gcp, File input, File output, ForkJoinPool pool)
+            throws IOException, GcodeParserException {
+        try (GcodeStreamWriter gsw = new GcodeStreamWriter(output)) {
+            processAndExport(gcp, input, gsw, pool);
+        }
+    }
+
+    /**
+     * Helper method to apply processors to gcode and write them to the given
+     * writer, which is left open.
+     */
+    public static void processAndExport(GcodeParser gcp, File input, GcodeStreamWriter gsw, ForkJoinPool pool)
+            throws IOException, GcodeParserException {
+        if (processAndExportGcodeStream(gcp, input, gsw, pool)) {
+            return;
         }
 
         try(BufferedReader br = new BufferedReader(new FileReader(input))) {
-            processAndExportText(gcp, br, output);
+            processAndExportText(gcp, br, gsw, pool);
         }
     }
 
     /**
      * Common logic in processAndExport* methods.
      */
-    private static void write(GcodeParser gcp, GcodeStreamWriter gsw, String original, String command, String comment, int idx) throws GcodeParserException {
+    private static void write(GcodeParser gcp, GcodeStreamWriter gsw, Line line, int idx, Map<Integer, Line> recentLines)
+            throws GcodeParserException {
         if (idx % 100000 == 0) {
             logger.log(Level.FINE, "gcode processing line: " + idx);
         }
 
-        if (StringUtils.isEmpty(command)) {
-            gsw.addLine(original, command, comment, idx);
+        if (StringUtils.isEmpty(line.command)) {
+            // Commands aren't combined across comments.
+            writeHeldCommands(gcp, gsw, idx - 1, recentLines);
+            gsw.addLine(line.original, line.command, line.comment, idx);
         }
         else {
+            // A command with a comment isn't combined with the ones around it,
+            // the comment would be lost or written at the wrong move.
+            boolean hasComment = StringUtils.isNotEmpty(line.comment);
+            if (hasComment) {
+                writeHeldCommands(gcp, gsw, idx - 1, recentLines);
+            }
+
             // Parse the gcode for the buffer.
-            Collection<String> lines = gcp.preprocessCommand(command, gcp.getCurrentState());
+            recentLines.put(idx, line);
+            List<ParsedCommand> commands = gcp.preprocessCommand(line.command, gcp.getCurrentState(), idx);
+            writeCommands(gsw, commands, idx, recentLines);
+
+            gcp.addCommand(line.command);
+            if (hasComment) {
+                writeHeldCommands(gcp, gsw, idx, recentLines);
+            }
+        }
+    }
+
+    /**
+     * Writes the commands which the processors held back to combine them
+     * with the commands after them.
+     */
+    private static void writeHeldCommands(GcodeParser gcp, GcodeStreamWriter gsw, int idx, Map<Integer, Line> recentLines)
+            throws GcodeParserException {
+        writeCommands(gsw, gcp.flushCommandProcessors(gcp.getCurrentState()), idx, recentLines);
+    }
+
+    /**
+     * Writes processed commands with the line they were created from, so a
+     * command which was held back keeps the number, text and comment of its
+     * own line. Commands from an unknown line are written as the given line.
+     */
+    private static void writeCommands(GcodeStreamWriter gsw, List<ParsedCommand> commands, int idx,
+            Map<Integer, Line> recentLines) {
+        for (ParsedCommand command : commands) {
+            String processedLine = command.getCommandString();
+            Line line = recentLines.get(command.getLine());
+            if (line != null) {
+                gsw.addLine(line.original, processedLine, line.comment, command.getLine());
+            } else {
+                line = recentLines.get(idx);
+                if (line != null) {
+                    gsw.addLine(line.original, processedLine, line.comment, idx);
+                } else {
+                    gsw.addLine(processedLine, processedLine, "", idx);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the processors to every line from the reader. The lines are
+     * processed in parallel chunks unless one of the processors is sequential.
+     */
+    private static void process(GcodeParser gcp, LineReader reader, GcodeStreamWriter gsw, ForkJoinPool pool)
+            throws IOException, GcodeParserException {
+        int threads = pool.getParallelism();
+        int idx = 0;
+
+        if (threads < 2 || !gcp.canPreprocessInParallel()) {
+            // Processors only hold back commands of the last few lines.
+            Map<Integer, Line> recentLines = new LinkedHashMap<Integer, Line>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Line> eldest) {
+                    return size() > MAX_RECENT_LINES;
+                }
+            };
+            for (Line line; (line = reader.next()) != null; ) {
+                write(gcp, gsw, line, ++idx, recentLines);
+            }
+            writeHeldCommands(gcp, gsw, idx, recentLines);
+            return;
+        }
+
+        int batchSize = CHUNK_SIZE * CHUNKS_PER_THREAD * threads;
+        List<Line> batch = new ArrayList<>(batchSize);
+        for (Line line; (line = reader.next()) != null; ) {
+            batch.add(line);
+            if (batch.size() == batchSize) {
+                idx = processBatch(gcp, gsw, batch, idx, pool);
+                batch.clear();
+            }
+        }
+        processBatch(gcp, gsw, batch, idx, pool);
+    }
+
+    /**
+     * Runs the parser through the batch to record its state at the start of
+     * each chunk, then preprocesses the chunks in parallel and writes the
+     * results in order.
+     * @return the index of the last line written.
+     */
+    private static int processBatch(GcodeParser gcp, GcodeStreamWriter gsw, List<Line> batch, int idx,
+            ForkJoinPool pool) throws IOException, GcodeParserException {
+        List<GcodeState> chunkStates = new ArrayList<>();
+        GcodeParserException parseError = null;
+        int end = batch.size();
+        for (int i = 0; i < end; i++) {
+            if (i % CHUNK_SIZE == 0) {
+                chunkStates.add(gcp.getCurrentState().copy());
+            }
+            if ((idx + i + 1) % 100000 == 0) {
+                logger.log(Level.FINE, "gcode processing line: " + (idx + i + 1));
+            }
+
+            String command = batch.get(i).command;
+            if (StringUtils.isNotEmpty(command)) {
+                try {
+                    gcp.addCommand(command);
+                } catch (GcodeParserException e) {
+                    // Preprocess up to and including the failing line like the sequential version.
+                    parseError = e;
+                    end = i + 1;
+                }
+            }
+        }
+
+        List<Future<List<List<String>>>> chunks = new ArrayList<>();
+        for (int start = 0; start < end; start += CHUNK_SIZE) {
+            List<Line> lines = batch.subList(start, Math.min(end, start + CHUNK_SIZE));
+            GcodeState state = chunkStates.get(start / CHUNK_SIZE);
+            chunks.add(pool.submit(() -> preprocessChunk(gcp, lines, state)));
+        }
+
+        try {
+            for (int c = 0; c < chunks.size(); c++) {
+                List<List<String>> results = chunks.get(c).get();
+                List<Line> lines = batch.subList(c * CHUNK_SIZE, c * CHUNK_SIZE + results.size());
+                for (int i = 0; i < results.size(); i++) {
+                    Line line = lines.get(i);
+                    idx++;
+                    if (results.get(i) == null) {
+                        gsw.addLine(line.original, line.command, line.comment, idx);
+                    } else {
+                        for (String processedLine : results.get(i)) {
+                            gsw.addLine(line.original, processedLine, line.comment, idx);
+                        }
+                    }
+                }
+
+                // Let a reader streaming the output have each chunk as soon as it is written.
+                gsw.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing gcode");
+        } catch (ExecutionException e) {
+            // The pool wraps checked exceptions from the task.
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof GcodeParserException) {
+                    throw (GcodeParserException) cause;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+
+        if (parseError != null) {
+            throw parseError;
+        }
+        return idx;
+    }
+
+    /**
+     * Preprocesses a chunk of lines starting from the parser state recorded
+     * for its first line.
+     * @return the processed commands for each line, or null for lines without a command.
+     */
+    private static List<List<String>> preprocessChunk(GcodeParser gcp, List<Line> lines, GcodeState initialState)
+            throws GcodeParserException {
+        List<List<String>> results = new ArrayList<>(lines.size());
+        GcodeState state = initialState;
+        for (int i = 0; i < lines.size(); i++) {
+            String command = lines.get(i).command;
+            if (StringUtils.isEmpty(command)) {
+                results.add(null);
+                continue;
+            }
+
+            results.add(gcp.preprocessCommand(command, state));
+            if (i < lines.size() - 1) {
+                state = nextState(command, state);
+            }
+        }
+        return results;
+    }
 
-            for(String processedLine : lines) {
-                gsw.addLine(original, processedLine, comment, idx);
+    /**
+     * Returns the state a parser in the given state would have after addCommand.
+     */
+    private static GcodeState nextState(String command, GcodeState state) throws GcodeParserException {
+        int commandNumber = state.commandNumber + 1;
+        GcodeState next = null;
+        List<GcodeMeta> metaObjects = GcodeParser.processCommand(command, commandNumber, state, true);
+        if (metaObjects != null) {
+            for (GcodeMeta meta : metaObjects) {
+                if (meta.state != null) {
+                    next = meta.state;
+                }
             }
+        }
 
-            gcp.addCommand(command);
+        if (next == null) {
+            next = state.copy();
+            next.commandNumber = commandNumber;
         }
+        return next;
     }
 
     /**
      * Attempts to read the input file in GcodeStream format.
      * @return whether or not we succeed processing the file.
      */
-    private static boolean processAndExportGcodeStream(GcodeParser gcp, BufferedReader input, File output)
+    private static boolean processAndExportGcodeStream(GcodeParser gcp, File input, GcodeStreamWriter gsw, ForkJoinPool pool)
             throws IOException, GcodeParserException {
 
         // Preprocess a GcodeStream file.
-        try {
-            IGcodeStreamReader gsr = new GcodeStreamReader(input);
-            try (GcodeStreamWriter gsw = new GcodeStreamWriter(output)) {
-                int i = 0;
-                while (gsr.getNumRowsRemaining() > 0) {
-                    i++;
-                    GcodeCommand gc = gsr.getNextCommand();
-                    write(gcp, gsw, gc.getOriginalCommandString(), gc.getCommandString(), gc.getComment(), i);
+        try (IGcodeStreamReader gsr = new GcodeStreamReader(input)) {
+            process(gcp, () -> {
+                if (gsr.getNumRowsRemaining() <= 0) {
+                    return null;
                 }
+                GcodeCommand gc = gsr.getNextCommand();
+                return new Line(gc.getOriginalCommandString(), gc.getCommandString(), gc.getComment());
+            }, gsw, pool);
 
-                // Done processing GcodeStream file.
-                return true;
-            }
+            // Done processing GcodeStream file.
+            return true;
         } catch (GcodeStreamReader.NotGcodeStreamFile ex) {
             // File exists, but isn't a stream reader. So go ahead and try parsing it as a raw gcode file.
         }
@@ -111,21 +374,20 @@ public class GcodeParserUtils {
      * Attempts to read the input file in gcode-text format.
      * @return whether or not we succeed processing the file.
      */
-    private static void processAndExportText(GcodeParser gcp, BufferedReader input, File output)
+    private static void processAndExportText(GcodeParser gcp, BufferedReader input, GcodeStreamWriter gsw, ForkJoinPool pool)
             throws IOException, GcodeParserException {
         // Preprocess a regular gcode file.
         try(BufferedReader br = input) {
-            try (GcodeStreamWriter gsw = new GcodeStreamWriter(output)) {
-                int i = 0;
-                for(String line; (line = br.readLine()) != null; ) {
-                    i++;
-
-                    String comment = GcodePreprocessorUtils.parseComment(line);
-                    String commentRemoved = GcodePreprocessorUtils.removeComment(line);
-
-                    write(gcp, gsw, line, commentRemoved, comment, i);
+            process(gcp, () -> {
+                String line = br.readLine();
+                if (line == null) {
+                    return null;
                 }
-            }
+
+                String comment = GcodePreprocessorUtils.parseComment(line);
+                String commentRemoved = GcodePreprocessorUtils.removeComment(line);
+                return new Line(line, commentRemoved, comment);
+            }, gsw, pool);
         }
     }
 }
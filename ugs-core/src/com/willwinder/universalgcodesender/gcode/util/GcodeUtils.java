@@ -19,9 +19,17 @@
 package com.willwinder.universalgcodesender.gcode.util;
 
 import com.willwinder.universalgcodesender.Utils;
+import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
+import com.willwinder.universalgcodesender.gcode.GcodeWords;
+import com.willwinder.universalgcodesender.gcode.processors.ParsedCommand;
 import com.willwinder.universalgcodesender.model.PartialPosition;
+import com.willwinder.universalgcodesender.model.Position;
 import com.willwinder.universalgcodesender.model.UnitUtils.Units;
 
+import java.util.List;
+
+import static com.willwinder.universalgcodesender.gcode.util.Code.G1;
+
 /**
  * @author wwinder
  */
@@ -124,4 +132,43 @@ public class GcodeUtils {
         return sb.toString();
     }
 
-}
\ No newline at end of file
+    /**
+     * Checks if a command is an absolute G1 move without other words than
+     * X, Y, Z and F, the moves which processors can combine with other moves.
+     *
+     * @param words parses the command, afterwards it holds its words.
+     * @return the end of the move if it can be combined, otherwise null.
+     */
+    public static Position getMergeableMoveEnd(ParsedCommand command, GcodeWords words) throws GcodeParserException {
+        if (!command.getPreState().inAbsoluteMode) {
+            return null;
+        }
+
+        words.parse(command.getCommandString());
+        for (int i = 0; i < words.size(); i++) {
+            switch (Character.toUpperCase(words.getLetter(i))) {
+                case 'G':
+                    if (words.getCode(i) != G1) {
+                        return null;
+                    }
+                    break;
+                case 'X':
+                case 'Y':
+                case 'Z':
+                case 'F':
+                    if (Double.isNaN(words.getValue(i))) {
+                        return null;
+                    }
+                    break;
+                default:
+                    return null;
+            }
+        }
+
+        List<GcodeMeta> meta = command.getMeta();
+        if (meta == null || meta.size() != 1 || meta.get(0).code != G1 || meta.get(0).point == null) {
+            return null;
+        }
+        return meta.get(0).point.point();
+    }
+}
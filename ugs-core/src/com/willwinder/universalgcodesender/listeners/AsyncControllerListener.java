@@ -0,0 +1,104 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.listeners;
+
+import com.willwinder.universalgcodesender.listeners.AsyncListenerDispatcher.Policy;
+import com.willwinder.universalgcodesender.model.Alarm;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UGSEvent.ControlState;
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+
+/**
+ * A controller listener which passes events on to another listener on a
+ * separate thread, so a slow listener doesn't hold up the controller.
+ *
+ * State changes, alarms, comments, probe results and file completion are
+ * always delivered. Status reports and sent, completed or skipped commands
+ * are handled according to the policy.
+ *
+ * @author wwinder
+ */
+public class AsyncControllerListener implements ControllerListener {
+    private enum Frequent {
+        SKIPPED, SENT, COMPLETE, STATUS
+    }
+
+    private final AsyncListenerDispatcher<ControllerListener> dispatcher;
+
+    public AsyncControllerListener(ControllerListener listener, Policy policy) {
+        this(listener, policy, AsyncListenerDispatcher.DEFAULT_CAPACITY, 10);
+    }
+
+    public AsyncControllerListener(ControllerListener listener, Policy policy, int capacity, int maxBatchesPerSecond) {
+        dispatcher = new AsyncListenerDispatcher<>(listener, policy, capacity, maxBatchesPerSecond);
+    }
+
+    public AsyncListenerDispatcher<ControllerListener> getDispatcher() {
+        return dispatcher;
+    }
+
+    public void close() {
+        dispatcher.close();
+    }
+
+    @Override
+    public void controlStateChange(ControlState state) {
+        dispatcher.dispatch(l -> l.controlStateChange(state));
+    }
+
+    @Override
+    public void fileStreamComplete(String filename, boolean success) {
+        dispatcher.dispatch(l -> l.fileStreamComplete(filename, success));
+    }
+
+    @Override
+    public void receivedAlarm(Alarm alarm) {
+        dispatcher.dispatch(l -> l.receivedAlarm(alarm));
+    }
+
+    @Override
+    public void commandSkipped(GcodeCommand command) {
+        dispatcher.dispatchFrequent(Frequent.SKIPPED, l -> l.commandSkipped(command));
+    }
+
+    @Override
+    public void commandSent(GcodeCommand command) {
+        dispatcher.dispatchFrequent(Frequent.SENT, l -> l.commandSent(command));
+    }
+
+    @Override
+    public void commandComplete(GcodeCommand command) {
+        dispatcher.dispatchFrequent(Frequent.COMPLETE, l -> l.commandComplete(command));
+    }
+
+    @Override
+    public void commandComment(String comment) {
+        dispatcher.dispatch(l -> l.commandComment(comment));
+    }
+
+    @Override
+    public void probeCoordinates(Position p) {
+        dispatcher.dispatch(l -> l.probeCoordinates(p));
+    }
+
+    @Override
+    public void statusStringListener(ControllerStatus status) {
+        dispatcher.dispatchFrequent(Frequent.STATUS, l -> l.statusStringListener(status));
+    }
+}
@@ -0,0 +1,268 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.listeners;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers events to a single listener on its own thread through a queue,
+ * so that a slow listener never holds up the thread that produced the
+ * event.
+ *
+ * Events are either critical, like state changes and alarms, or frequent,
+ * like sent commands and status reports. Critical events are always
+ * delivered in order. How frequent events are handled depends on the
+ * {@link Policy} of the dispatcher.
+ *
+ * @param <L> the listener type
+ * @author wwinder
+ */
+public class AsyncListenerDispatcher<L> {
+    private static final Logger logger = Logger.getLogger(AsyncListenerDispatcher.class.getName());
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    public enum Policy {
+        /**
+         * Every event is delivered in order. The producer never waits, if
+         * the listener falls a full queue behind the queue grows and the
+         * events past the capacity are counted.
+         */
+        LOSSLESS,
+
+        /**
+         * Only the latest frequent event of each kind is delivered, older
+         * ones which haven't been delivered yet are replaced.
+         */
+        LATEST_ONLY,
+
+        /**
+         * Events are collected and delivered in batches at a limited rate.
+         * Frequent events are dropped if the queue is full.
+         */
+        BATCHED
+    }
+
+    private final L listener;
+    private final Policy policy;
+    private final int capacity;
+    private final long batchIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<Consumer<L>> queue = new ArrayDeque<>();
+    private final Map<Object, Consumer<L>> latest = new LinkedHashMap<>();
+    private boolean running = true;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * @param listener the listener to deliver events to
+     * @param policy how frequent events are handled
+     * @param capacity the maximum number of queued events, a soft limit for {@link Policy#LOSSLESS}
+     * @param maxBatchesPerSecond the delivery rate for {@link Policy#BATCHED}
+     */
+    public AsyncListenerDispatcher(L listener, Policy policy, int capacity, int maxBatchesPerSecond) {
+        if (capacity < 1 || maxBatchesPerSecond < 1) {
+            throw new IllegalArgumentException("Capacity and rate must be positive");
+        }
+        this.listener = listener;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.batchIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxBatchesPerSecond;
+
+        Thread thread = new Thread(this::run, "Dispatch " + listener.getClass().getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues an event which is always delivered.
+     *
+     * @param event the event to deliver
+     */
+    public void dispatch(Consumer<L> event) {
+        lock.lock();
+        try {
+            if (running) {
+                // Keep coalesced events ahead of anything that came after them
+                queue.addAll(latest.values());
+                latest.clear();
+                queue.add(event);
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a frequent event, which may be coalesced with other events with
+     * the same key or dropped depending on the policy.
+     *
+     * @param key identifies the kind of event
+     * @param event the event to deliver
+     */
+    public void dispatchFrequent(Object key, Consumer<L> event) {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+
+            switch (policy) {
+                case LOSSLESS:
+                    if (queue.size() >= capacity) {
+                        overflowed.incrementAndGet();
+                    }
+                    queue.add(event);
+                    break;
+                case LATEST_ONLY:
+                    if (latest.put(key, event) != null) {
+                        coalesced.incrementAndGet();
+                    }
+                    break;
+                case BATCHED:
+                    if (queue.size() >= capacity) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    queue.add(event);
+                    break;
+                default:
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Consumer<L>> batch = new ArrayList<>();
+        long nextBatch = System.nanoTime();
+
+        while (true) {
+            lock.lock();
+            try {
+                while (running && queue.isEmpty() && latest.isEmpty()) {
+                    notEmpty.await();
+                }
+                if (!running) {
+                    return;
+                }
+
+                if (policy == Policy.BATCHED) {
+                    long wait;
+                    while (running && (wait = nextBatch - System.nanoTime()) > 0) {
+                        notEmpty.awaitNanos(wait);
+                    }
+                }
+
+                batch.addAll(queue);
+                queue.clear();
+                batch.addAll(latest.values());
+                latest.clear();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            nextBatch = System.nanoTime() + batchIntervalNanos;
+            for (Consumer<L> event : batch) {
+                try {
+                    event.accept(listener);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Listener " + listener.getClass().getSimpleName() + " failed to handle event", e);
+                }
+            }
+            delivered.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    public L getListener() {
+        return listener;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of events delivered to the listener
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of events queued past the capacity by {@link Policy#LOSSLESS}
+     */
+    public long getOverflowedCount() {
+        return overflowed.get();
+    }
+
+    /**
+     * @return the number of events replaced by a later event of the same kind
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * Stops delivering events, events which haven't been delivered are discarded.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            queue.clear();
+            latest.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (dropped.get() > 0 || coalesced.get() > 0 || overflowed.get() > 0) {
+            logger.log(Level.INFO, "Listener {0} dropped {1}, coalesced {2} and queued {3} events past the capacity",
+                    new Object[]{listener.getClass().getSimpleName(), dropped.get(), coalesced.get(), overflowed.get()});
+        }
+    }
+}
@@ -37,6 +37,7 @@ public class ControllerStatus {
     private final AccessoryStates accessoryStates;
     private final ControllerState state;
     private final UnitUtils.Units feedSpeedUnits;
+    private final BufferState bufferState;
 
     /**
      * Baseline constructor. This data should always be present. Represents the
@@ -48,7 +49,7 @@ public class ControllerStatus {
      * @param workCoord controller work coordinates
      */
     ControllerStatus(String stateString, ControllerState state, Position machineCoord, Position workCoord) {
-        this(stateString, state, machineCoord, workCoord, 0d, UnitUtils.Units.MM, 0d, null, null, null, null);
+        this(stateString, state, machineCoord, workCoord, 0d, UnitUtils.Units.MM, 0d, null, null, null, null, null);
     }
 
     /**
@@ -57,7 +58,7 @@ public class ControllerStatus {
     ControllerStatus(String stateString, ControllerState state, Position machineCoord,
                             Position workCoord, Double feedSpeed, UnitUtils.Units feedSpeedUnits, Double spindleSpeed,
                             OverridePercents overrides, Position workCoordinateOffset,
-                            EnabledPins pins, AccessoryStates states) {
+                            EnabledPins pins, AccessoryStates states, BufferState bufferState) {
         this.stateString = stateString;
         this.state = state;
         this.machineCoord = machineCoord;
@@ -69,6 +70,7 @@ public class ControllerStatus {
         this.overrides = overrides;
         this.pins = pins;
         this.accessoryStates = states;
+        this.bufferState = bufferState;
     }
 
     /**
@@ -121,6 +123,13 @@ public class ControllerStatus {
         return feedSpeedUnits;
     }
 
+    /**
+     * @return the free space in the controller buffers or null if not reported
+     */
+    public BufferState getBufferState() {
+        return bufferState;
+    }
+
     public static class EnabledPins {
         final public boolean X;
         final public boolean Y;
@@ -169,4 +178,13 @@ public class ControllerStatus {
             this.spindle = spindle;
         }
     }
-}
\ No newline at end of file
+
+    public static class BufferState {
+        final public int plannerBlocksAvailable;
+        final public int rxBytesAvailable;
+        public BufferState(int plannerBlocksAvailable, int rxBytesAvailable) {
+            this.plannerBlocksAvailable = plannerBlocksAvailable;
+            this.rxBytesAvailable = rxBytesAvailable;
+        }
+    }
+}
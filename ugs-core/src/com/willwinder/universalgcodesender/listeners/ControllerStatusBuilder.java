@@ -40,6 +40,7 @@ public class ControllerStatusBuilder {
     private Position workCoordinateOffset = Position.ZERO;
     private ControllerStatus.EnabledPins pins = null;
     private ControllerStatus.AccessoryStates accessoryStates = null;
+    private ControllerStatus.BufferState bufferState = null;
     private ControllerStatus lastStatus = null;
     private UnitUtils.Units reportingUnits = null;
     private boolean overwritten = false;
@@ -70,7 +71,8 @@ public class ControllerStatusBuilder {
                 .setOverrides(controllerStatus.getOverrides())
                 .setWorkCoordinateOffset(controllerStatus.getWorkCoordinateOffset())
                 .setPins(controllerStatus.getEnabledPins())
-                .setAccessoryStates(controllerStatus.getAccessoryStates());
+                .setAccessoryStates(controllerStatus.getAccessoryStates())
+                .setBufferState(controllerStatus.getBufferState());
         }
         return controllerStatusBuilder;
     }
@@ -139,6 +141,11 @@ public class ControllerStatusBuilder {
         return this;
     }
 
+    public ControllerStatusBuilder setBufferState(ControllerStatus.BufferState bufferState) {
+        this.bufferState = bufferState;
+        return this;
+    }
+
     public static ControllerState getControllerStateFromStateString(String stateString) {
         return Optional.ofNullable(stateString)
                        .map(ControllerStatusBuilder::getControllerState)
@@ -212,6 +219,6 @@ public class ControllerStatusBuilder {
 
         if (!stateOverWritten)
             state = getControllerStateFromStateString(stateString);
-        return new ControllerStatus(stateString, state, machineCoord, workCoord, feedSpeed, feedSpeedUnits, spindleSpeed, overrides, workCoordinateOffset, pins, accessoryStates);
+        return new ControllerStatus(stateString, state, machineCoord, workCoord, feedSpeed, feedSpeedUnits, spindleSpeed, overrides, workCoordinateOffset, pins, accessoryStates, bufferState);
     }
 }
\ No newline at end of file
@@ -36,4 +36,15 @@ public interface MessageListener {
      * @param message     the message to be written to the console
      */
     void onMessage(MessageType messageType, String message);
+
+    /**
+     * Messages of types the listener isn't interested in are neither created
+     * nor delivered to it.
+     *
+     * @param messageType the type of message
+     * @return true if the listener wants messages of the given type
+     */
+    default boolean isInterestedIn(MessageType messageType) {
+        return true;
+    }
 }
@@ -72,6 +72,12 @@ public interface BackendAPI extends BackendAPIReadOnly {
     // Control options
     void connect(String firmware, String port, int baudRate) throws Exception;
     void disconnect() throws Exception;
+
+    /**
+     * Disconnects and stops the background work of the backend, called when
+     * the application exits.
+     */
+    void shutdown() throws Exception;
     void sendGcodeCommand(String commandText) throws Exception;
     void sendGcodeCommand(boolean restoreParserState, String commandText) throws Exception;
     void sendGcodeCommand(GcodeCommand command) throws Exception;
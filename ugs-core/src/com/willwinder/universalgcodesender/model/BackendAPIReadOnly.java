@@ -19,6 +19,7 @@
 package com.willwinder.universalgcodesender.model;
 
 import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.listeners.AsyncListenerDispatcher;
 import com.willwinder.universalgcodesender.listeners.MessageListener;
 import com.willwinder.universalgcodesender.listeners.ControllerListener;
 import com.willwinder.universalgcodesender.listeners.ControllerStateListener;
@@ -66,6 +67,17 @@ public interface BackendAPIReadOnly {
      */
     void addControllerListener(ControllerListener listener);
 
+    /**
+     * Adds a controller listener which receives events on its own thread.
+     * Status reports and command events are coalesced or dropped according
+     * to the policy if the listener can't keep up, other events are always
+     * delivered.
+     *
+     * @param listener the listener to be added
+     * @param policy how frequent events are delivered
+     */
+    void addControllerListener(ControllerListener listener, AsyncListenerDispatcher.Policy policy);
+
     /**
      * Removes a controller listener
      *
@@ -107,6 +119,12 @@ public interface BackendAPIReadOnly {
 
     // Send status
     long getNumRows();
+
+    /**
+     * @return false while the file is still being preprocessed, until then
+     * the number of rows and the remaining duration are lower bounds.
+     */
+    boolean isNumRowsFinal();
     long getNumSentRows();
     long getNumRemainingRows();
     long getNumCompletedRows();
@@ -48,6 +48,8 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -62,7 +64,9 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
     private static final Logger logger = Logger.getLogger(GUIBackend.class.getName());
     private static final String NEW_LINE = "\n    ";
 
-    private final MessageService messageService = new MessageService();
+    private static final int CONSOLE_DISPLAY_RATE = 20;
+
+    private final MessageService messageService = new MessageService(CONSOLE_DISPLAY_RATE, MessageService.DEFAULT_BUFFER_SIZE);
 
     private IController controller = null;
     private Settings settings = null;
@@ -70,15 +74,26 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
     private Position workCoord = null;
 
     private final Collection<ControllerListener> controllerListeners = new ArrayList<>();
+    private final Map<ControllerListener, AsyncControllerListener> asyncControllerListeners = new HashMap<>();
     private final Collection<UGSEventListener> ugsEventListener = new ArrayList<>();
     private final Collection<ControllerStateListener> controllerStateListener = new ArrayList<>();
 
     // GUI State
     private File gcodeFile = null;
-    private File processedGcodeFile = null;
+    // Read by the processed file cache on the preprocessing thread.
+    private volatile File processedGcodeFile = null;
+
+    // Set while the processed file is written on a background thread.
+    private PipelinedGcodeStream pipeline = null;
+    private Thread pipelineThread = null;
     private File tempDir = null;
     private String firmware = null;
 
+    // Identifies the processors of the gcode parser for the processed file cache.
+    private String processorConfig = null;
+    private ProcessedGcodeCache processedFileCache = null;
+    private int processedFileCacheSize = 0;
+
     private long lastResponse = Long.MIN_VALUE;
     private boolean streamFailed = false;
     private boolean autoconnect = false;
@@ -129,8 +144,24 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
         }
     }
 
+    @Override
+    public void addControllerListener(ControllerListener listener, AsyncListenerDispatcher.Policy policy) {
+        if (!asyncControllerListeners.containsKey(listener)) {
+            AsyncControllerListener asyncListener = new AsyncControllerListener(listener, policy);
+            asyncControllerListeners.put(listener, asyncListener);
+            addControllerListener(asyncListener);
+        }
+    }
+
     @Override
     public void removeControllerListener(ControllerListener listener) {
+        AsyncControllerListener asyncListener = asyncControllerListeners.remove(listener);
+        if (asyncListener != null) {
+            removeControllerListener(asyncListener);
+            asyncListener.close();
+            return;
+        }
+
         if (controllerListeners.contains(listener)) {
             logger.log(Level.INFO, "Removing controller state listener: " + listener.getClass().getSimpleName());
             controllerListeners.remove(listener);
@@ -180,9 +211,11 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
             for (CommandProcessor p : processors) {
                 gcp.addCommandProcessor(p);
             }
+            processorConfig = FirmwareUtils.getProcessorConfigFor(firmware);
         }
         catch (Exception e) {
             initializeWithFallbackProcessors(gcp);
+            processorConfig = "fallback";
         }
     }
 
@@ -208,6 +241,9 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
         logger.log(Level.INFO, "Connecting to {0} on port {1}", new Object[]{firmware, port});
         updateWithFirmware(firmware);
 
+        // Release a controller left over from a failed connection attempt.
+        disconnectInternal();
+
         this.controller = fetchControllerFromFirmware(firmware);
         this.controller.setMessageService(messageService);
         applySettings(settings);
@@ -245,10 +281,27 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
         disconnectInternal();
     }
 
+    @Override
+    public void shutdown() throws Exception {
+        try {
+            disconnect();
+        } finally {
+            messageService.close();
+        }
+    }
+
     private void disconnectInternal() throws Exception {
         logger.log(Level.INFO, "Disconnecting.");
         if (this.controller != null) {
-            this.controller.closeCommPort();
+            try {
+                this.controller.closeCommPort();
+            } finally {
+                // Stops the event loop thread of the controller.
+                this.controller.setEventLoopEnabled(false);
+
+                // Show the messages of the closed connection before those of the next one.
+                messageService.flush();
+            }
             this.controller.removeListener(this);
             this.controller.getFirmwareSettings().removeListener(this);
             this.controller = null;
@@ -297,6 +350,7 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
         logger.log(Level.INFO, "Applying settings.");
         this.settings = settings;
         this.settings.setSettingChangeListener(this);
+        this.messageService.setSummarizeSentLines(settings.isConsoleSummaryEnabled());
         if (this.controller != null) {
             applySettingsToController(this.settings, this.controller);
         }
@@ -421,6 +475,7 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
     @Override
     public void setGcodeFile(File file) throws Exception {
         logger.log(Level.INFO, "Setting gcode file.");
+        stopPipelinedPreprocessing();
         initGcodeParser();
         this.gcodeFile = file;
         this.processedGcodeFile = null;
@@ -430,8 +485,11 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
 
         initializeProcessedLines(true, this.gcodeFile, this.gcp);
 
-        this.sendUGSEvent(new UGSEvent(FileState.FILE_LOADED,
-                processedGcodeFile.getAbsolutePath()), false);
+        // A pipelined file is loaded once the background processing is done.
+        if (pipeline == null) {
+            this.sendUGSEvent(new UGSEvent(FileState.FILE_LOADED,
+                    processedGcodeFile.getAbsolutePath()), false);
+        }
     }
 
     @Override
@@ -473,11 +531,16 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
             return;
         }
 
+        // The processed file has to be complete before it can be processed again.
+        awaitPipelinedPreprocessing();
+
         // re-initialize starting with the already processed file.
         initializeProcessedLines(true, this.processedGcodeFile, parser);
 
-        this.sendUGSEvent(new UGSEvent(FileState.FILE_LOADED,
-                processedGcodeFile.getAbsolutePath()), false);
+        if (pipeline == null) {
+            this.sendUGSEvent(new UGSEvent(FileState.FILE_LOADED,
+                    processedGcodeFile.getAbsolutePath()), false);
+        }
     }
     
     @Override
@@ -502,7 +565,7 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
             // This will throw an exception and prevent that other stuff from
             // happening (clearing the table before its ready for clearing.
             this.controller.isReadyToStreamFile();
-            this.controller.queueStream(new GcodeStreamReader(this.processedGcodeFile));
+            this.controller.queueStream(openProcessedGcodeStream());
             this.controller.beginStreaming();
         } catch (Exception e) {
             this.sendUGSEvent(new UGSEvent(ControlState.COMM_IDLE), false);
@@ -510,12 +573,47 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
         }
     }
     
+    /**
+     * Opens the processed file for streaming, binary streams are memory mapped
+     * so that the sender can be positioned anywhere in the file. Optionally
+     * the stream is read ahead on a background thread.
+     */
+    private IGcodeStreamReader openProcessedGcodeStream() throws Exception {
+        PipelinedGcodeStream stream = this.pipeline;
+        if (stream != null) {
+            if (!stream.isComplete()) {
+                // Rows are sent as they are processed.
+                return new PipelinedGcodeStreamReader(this.processedGcodeFile, stream);
+            } else if (stream.getError() != null) {
+                throw new Exception("Could not preprocess the gcode file.", stream.getError());
+            }
+        }
+
+        IGcodeStreamReader reader;
+        if (GcodeStream.isBinaryGcodeStream(this.processedGcodeFile)) {
+            reader = new MappedGcodeStreamReader(this.processedGcodeFile);
+        } else {
+            reader = new GcodeStreamReader(this.processedGcodeFile);
+        }
+
+        if (settings.isPrefetchGcodeStream()) {
+            reader = new PrefetchingGcodeStreamReader(reader);
+        }
+        return reader;
+    }
+
     @Override
     public long getNumRows() {
         logger.log(Level.FINEST, "Getting number of rows.");
         return controller == null ? 0 : this.controller.rowsInSend();
     }
     
+    @Override
+    public boolean isNumRowsFinal() {
+        PipelinedGcodeStream stream = this.pipeline;
+        return stream == null || stream.isComplete();
+    }
+
     @Override
     public long getNumSentRows() {
         logger.log(Level.FINEST, "Getting number of sent rows.");
@@ -813,8 +911,20 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
             logger.info("Start preprocessing");
             long start = System.currentTimeMillis();
             if (this.processedGcodeFile == null || forceReprocess) {
+                stopPipelinedPreprocessing();
                 gcp.reset();
 
+                String cacheKey = getProcessedFileCacheKey(startFile, gcodeParser);
+                Optional<ProcessedGcodeCache.Entry> cached = cacheKey == null ?
+                        Optional.empty() : processedFileCache.get(cacheKey);
+                if (cached.isPresent()) {
+                    logger.info("Using cached processed file " + cached.get().getFile());
+                    this.processedGcodeFile = cached.get().getFile();
+                    this.settings.setFileStats(cached.get().getFileStats());
+                    logRemovedCommands(cached.get().getFileStats());
+                    return;
+                }
+
                 String name = startFile.getName();
 
                 // If this is being re-processed, strip the ugs postfix and try again.
@@ -825,17 +935,164 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
                 }
                 this.processedGcodeFile =
                         new File(this.getTempDir(), name + "_ugs_" + System.currentTimeMillis());
+
+                if (settings.isPipelinedPreprocessing()) {
+                    startPipelinedPreprocessing(gcodeParser, startFile, this.processedGcodeFile, cacheKey);
+                    return;
+                }
+
                 this.preprocessAndExportToFile(gcodeParser, startFile, this.processedGcodeFile);
+                storeFileStats();
 
-                // Store gcode file stats.
-                GcodeStats gs = gcp.getCurrentStats();
-                this.settings.setFileStats(new FileStats(
-                    gs.getMin(), gs.getMax(), gs.getCommandCount()));
+                // Nothing is reading the processed file yet, so it can be replaced with the cached one.
+                File cachedFile = cacheProcessedFile(cacheKey, this.processedGcodeFile);
+                if (cachedFile != null) {
+                    this.processedGcodeFile.delete();
+                    this.processedGcodeFile = cachedFile;
+                }
             }
             long end = System.currentTimeMillis();
             logger.info("Took " + (end - start) + "ms to preprocess");
         }
     }
+
+    /**
+     * Gets the key of the processed file in the cache, processing with
+     * another parser or processing an already processed file isn't cached.
+     *
+     * @return the key or null if the file shouldn't be cached.
+     */
+    private String getProcessedFileCacheKey(File startFile, GcodeParser gcodeParser) {
+        if (gcodeParser != gcp || !startFile.equals(gcodeFile) || processorConfig == null) {
+            return null;
+        }
+
+        int cacheSize = settings.getProcessedFileCacheSize();
+        if (cacheSize <= 0) {
+            return null;
+        }
+        if (processedFileCache == null || processedFileCacheSize != cacheSize) {
+            processedFileCache = new ProcessedGcodeCache(
+                    new File(SettingsFactory.getSettingsDirectory(), "processed_files"),
+                    cacheSize * 1024L * 1024L,
+                    file -> file.equals(this.processedGcodeFile));
+            processedFileCacheSize = cacheSize;
+        }
+
+        try {
+            return processedFileCache.getKey(startFile, processorConfig, firmware);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not create cache key for " + startFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the processed file and its stats to the cache.
+     *
+     * @return the cached file or null if it wasn't cached.
+     */
+    private File cacheProcessedFile(String cacheKey, File processedFile) {
+        if (cacheKey == null) {
+            return null;
+        }
+
+        try {
+            return processedFileCache.put(cacheKey, processedFile, settings.getFileStats());
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not cache processed file " + processedFile, e);
+            return null;
+        }
+    }
+
+    private void storeFileStats() {
+        GcodeStats gs = gcp.getCurrentStats();
+        FileStats fileStats = new FileStats(gs.getMin(), gs.getMax(), gs.getCommandCount(),
+                gs.getRemovedCommandCount(), gs.getRemovedByteCount());
+        this.settings.setFileStats(fileStats);
+        logRemovedCommands(fileStats);
+    }
+
+    private void logRemovedCommands(FileStats fileStats) {
+        if (fileStats.removedCommandCount > 0) {
+            logger.info("Removed " + fileStats.removedCommandCount + " commands by merging them while preprocessing");
+        }
+        if (fileStats.removedByteCount > 0) {
+            logger.info("Removed " + fileStats.removedByteCount + " bytes by compacting commands while preprocessing");
+        }
+    }
+
+    /**
+     * Preprocesses the file on a background thread. The output can be
+     * streamed while it is written, the file is reported as loaded when the
+     * processing is done.
+     */
+    private void startPipelinedPreprocessing(GcodeParser gcodeParser, File input, File output, String cacheKey)
+            throws FileNotFoundException {
+        PipelinedGcodeStream stream = new PipelinedGcodeStream();
+        GcodeStreamWriter gsw = new GcodeStreamWriter(output, stream);
+        long start = System.currentTimeMillis();
+
+        pipeline = stream;
+        pipelineThread = new Thread(() -> {
+            try {
+                try (GcodeStreamWriter writer = gsw) {
+                    GcodeParserUtils.processAndExport(gcodeParser, input, writer, ForkJoinPool.commonPool());
+                }
+                storeFileStats();
+                cacheProcessedFile(cacheKey, output);
+                stream.complete();
+
+                long end = System.currentTimeMillis();
+                logger.info("Took " + (end - start) + "ms to preprocess");
+                this.sendUGSEvent(new UGSEvent(FileState.FILE_LOADED, output.getAbsolutePath()), false);
+            } catch (CancellationException e) {
+                logger.log(Level.INFO, "Preprocessing of " + input + " was cancelled");
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Could not preprocess " + input, e);
+                stream.fail(e);
+                preprocessingFailed(e);
+            }
+        }, "GcodePreprocessor");
+        pipelineThread.setDaemon(true);
+        pipelineThread.start();
+    }
+
+    /**
+     * Reports a file that could not be preprocessed, a send of the partial
+     * file is cancelled.
+     */
+    private void preprocessingFailed(Exception cause) {
+        dispatchMessage(MessageType.ERROR, Localization.getString("mainWindow.error.preprocessingFile")
+                + ": " + cause.getMessage() + "\n");
+
+        if (this.controller != null && this.controller.isStreaming()) {
+            try {
+                this.controller.cancelSend();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Could not cancel the send of a file that failed preprocessing", e);
+            }
+        }
+    }
+
+    private void awaitPipelinedPreprocessing() throws InterruptedException {
+        if (pipelineThread != null) {
+            pipelineThread.join();
+        }
+    }
+
+    /**
+     * Cancels any preprocessing still running in the background, the parser
+     * is shared so it has to finish before another file is processed.
+     */
+    private void stopPipelinedPreprocessing() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.cancel();
+            awaitPipelinedPreprocessing();
+        }
+        pipeline = null;
+        pipelineThread = null;
+    }
     
     private void sendUGSEvent(UGSEvent event, boolean force) {
         if (event.isControllerStatusEvent()) return;
@@ -865,6 +1122,9 @@ public class GUIBackend implements BackendAPI, ControllerListener, SettingChange
 
     @Override
     public void settingChanged() {
+        if (settings != null) {
+            messageService.setSummarizeSentLines(settings.isConsoleSummaryEnabled());
+        }
         this.sendUGSEvent(new UGSEvent(EventType.SETTING_EVENT), false);
     }
 
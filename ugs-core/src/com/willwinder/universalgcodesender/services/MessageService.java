@@ -21,15 +21,31 @@ package com.willwinder.universalgcodesender.services;
 import com.willwinder.universalgcodesender.listeners.MessageListener;
 import com.willwinder.universalgcodesender.listeners.MessageType;
 
-import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * A service for handling message listeners and for dispatching messages to them.
  *
+ * Messages may be given as a supplier which is only called if there is a
+ * listener interested in the message type. If the service is created with
+ * a display rate, messages are kept in a bounded ring buffer and delivered
+ * to the listeners in batches at that rate. Buffered lines sent during
+ * streaming can then be summarized as a range of line numbers. Errors are
+ * delivered right away together with everything buffered before them.
+ *
  * @author Joacim Breiler
  */
 public class MessageService {
+    private static final Logger logger = Logger.getLogger(MessageService.class.getName());
+    public static final int DEFAULT_BUFFER_SIZE = 10000;
+    private static final int NO_LINE = -1;
 
     /**
      * A set of message listeners
@@ -37,10 +53,79 @@ public class MessageService {
     private final Set<MessageListener> listeners;
 
     /**
-     * Default constructor
+     * A message waiting to be delivered, the entries are reused.
+     */
+    private static class Entry {
+        private MessageType type;
+        private String text;
+        private Supplier<String> supplier;
+        private int lineNumber;
+
+        private void set(MessageType type, String text, Supplier<String> supplier, int lineNumber) {
+            this.type = type;
+            this.text = text;
+            this.supplier = supplier;
+            this.lineNumber = lineNumber;
+        }
+
+        private String format() {
+            return text != null ? text : supplier.get();
+        }
+    }
+
+    // Ring buffer of messages, guarded by itself.
+    private final Entry[] buffer;
+    private int head = 0;
+    private int count = 0;
+    private int droppedSinceFlush = 0;
+    private long dropped = 0;
+
+    // Entries being delivered, guarded by flushLock.
+    private final Entry[] flushing;
+    private final Object flushLock = new Object();
+    private final StringBuilder batch = new StringBuilder();
+
+    private final ScheduledExecutorService executor;
+    private volatile boolean closed = false;
+    private volatile boolean summarizeSentLines = false;
+
+    /**
+     * Default constructor, messages are delivered right away on the
+     * dispatching thread.
      */
     public MessageService() {
-        this.listeners = new HashSet<>();
+        this.listeners = new CopyOnWriteArraySet<>();
+        this.buffer = null;
+        this.flushing = null;
+        this.executor = null;
+    }
+
+    /**
+     * Creates a service which buffers messages and delivers them at the
+     * given rate on a separate thread.
+     *
+     * @param flushesPerSecond how many times per second buffered messages are delivered
+     * @param bufferSize the maximum number of buffered messages, the oldest are dropped first
+     */
+    public MessageService(int flushesPerSecond, int bufferSize) {
+        if (flushesPerSecond < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("Rate and buffer size must be positive");
+        }
+        this.listeners = new CopyOnWriteArraySet<>();
+        this.buffer = new Entry[bufferSize];
+        this.flushing = new Entry[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            buffer[i] = new Entry();
+            flushing[i] = new Entry();
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Console messages");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = TimeUnit.SECONDS.toMillis(1) / flushesPerSecond;
+        executor.scheduleAtFixedRate(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -50,7 +135,200 @@ public class MessageService {
      * @param message the message text to be written
      */
     public void dispatchMessage(MessageType messageType, String message) {
-        listeners.forEach(listener -> listener.onMessage(messageType, message));
+        if (isListeningFor(messageType)) {
+            add(messageType, message, null, NO_LINE);
+        }
+    }
+
+    /**
+     * Dispatches a message to all message listeners. The message is only
+     * created if a listener is interested in the message type.
+     *
+     * @param messageType the verbosity of the message
+     * @param message a supplier of the message text to be written
+     */
+    public void dispatchMessage(MessageType messageType, Supplier<String> message) {
+        if (isListeningFor(messageType)) {
+            add(messageType, null, message, NO_LINE);
+        }
+    }
+
+    /**
+     * Dispatches an info message about a line sent while streaming. If lines
+     * are summarized, consecutive lines are written as a single range
+     * instead of the message.
+     *
+     * @param lineNumber the number of the sent line
+     * @param message a supplier of the message text to be written
+     */
+    public void dispatchSentLine(int lineNumber, Supplier<String> message) {
+        if (isListeningFor(MessageType.INFO)) {
+            add(MessageType.INFO, null, message, lineNumber);
+        }
+    }
+
+    /**
+     * @param messageType the verbosity of a message
+     * @return true if any listener wants messages of the given type
+     */
+    public boolean isListeningFor(MessageType messageType) {
+        for (MessageListener listener : listeners) {
+            if (listener.isInterestedIn(messageType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(MessageType messageType, String text, Supplier<String> supplier, int lineNumber) {
+        if (buffer == null) {
+            deliver(messageType, text != null ? text : supplier.get());
+            return;
+        }
+        if (closed) {
+            // Nothing delivers buffered messages anymore.
+            flush();
+            deliver(messageType, text != null ? text : supplier.get());
+            return;
+        }
+
+        synchronized (buffer) {
+            if (count == buffer.length) {
+                head = (head + 1) % buffer.length;
+                count--;
+                droppedSinceFlush++;
+                dropped++;
+            }
+            buffer[(head + count) % buffer.length].set(messageType, text, supplier, lineNumber);
+            count++;
+        }
+
+        if (messageType == MessageType.ERROR) {
+            flush();
+        }
+    }
+
+    private void deliver(MessageType messageType, String message) {
+        for (MessageListener listener : listeners) {
+            if (listener.isInterestedIn(messageType)) {
+                listener.onMessage(messageType, message);
+            }
+        }
+    }
+
+    /**
+     * Delivers all buffered messages. Consecutive info messages are joined
+     * and delivered as one. Verbose and error messages are delivered one by
+     * one as listeners may prefix each of them.
+     */
+    public void flush() {
+        if (buffer == null) {
+            return;
+        }
+
+        synchronized (flushLock) {
+            int size;
+            int droppedMessages;
+            synchronized (buffer) {
+                size = count;
+                for (int i = 0; i < size; i++) {
+                    Entry entry = buffer[(head + i) % buffer.length];
+                    flushing[i].set(entry.type, entry.text, entry.supplier, entry.lineNumber);
+                    entry.set(null, null, null, NO_LINE);
+                }
+                head = 0;
+                count = 0;
+                droppedMessages = droppedSinceFlush;
+                droppedSinceFlush = 0;
+            }
+
+            if (droppedMessages > 0) {
+                deliver(MessageType.INFO, "**** " + droppedMessages + " console messages were dropped ****\n");
+            }
+
+            MessageType batchType = null;
+            for (int i = 0; i < size; i++) {
+                Entry entry = flushing[i];
+                if (entry.type != batchType || entry.type != MessageType.INFO) {
+                    deliverBatch(batchType);
+                    batchType = entry.type;
+                }
+
+                if (summarizeSentLines && entry.lineNumber != NO_LINE) {
+                    int first = entry.lineNumber;
+                    while (i + 1 < size && flushing[i + 1].lineNumber == flushing[i].lineNumber + 1) {
+                        i++;
+                    }
+                    int last = flushing[i].lineNumber;
+                    batch.append("**** Sent line").append(first == last ? " " : "s ").append(first);
+                    if (first != last) {
+                        batch.append('-').append(last);
+                    }
+                    batch.append(" ****\n");
+                } else {
+                    batch.append(entry.format());
+                }
+            }
+            deliverBatch(batchType);
+
+            for (int i = 0; i < size; i++) {
+                flushing[i].set(null, null, null, NO_LINE);
+            }
+        }
+    }
+
+    private void deliverBatch(MessageType messageType) {
+        if (batch.length() > 0) {
+            deliver(messageType, batch.toString());
+            batch.setLength(0);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Couldn't deliver console messages", e);
+        }
+    }
+
+    /**
+     * Stops the periodic delivery of buffered messages and delivers anything
+     * still buffered. Later messages are delivered right away.
+     */
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        closed = true;
+        executor.shutdownNow();
+        flush();
+    }
+
+    /**
+     * Enables summarizing lines sent while streaming as ranges of line
+     * numbers, only has an effect if messages are buffered.
+     *
+     * @param summarizeSentLines true to summarize sent lines
+     */
+    public void setSummarizeSentLines(boolean summarizeSentLines) {
+        this.summarizeSentLines = summarizeSentLines;
+    }
+
+    public boolean isSummarizeSentLines() {
+        return summarizeSentLines;
+    }
+
+    /**
+     * @return the number of messages dropped because the buffer was full
+     */
+    public long getDroppedMessageCount() {
+        if (buffer == null) {
+            return 0;
+        }
+        synchronized (buffer) {
+            return dropped;
+        }
     }
 
     /**
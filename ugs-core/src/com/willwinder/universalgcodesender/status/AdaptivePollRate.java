@@ -0,0 +1,186 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+/**
+ * Works out how often to poll for status reports from what the machine is
+ * doing and how much of the link the reports use.
+ *
+ * The configured status update rate is used while the machine moves. Polls
+ * are faster while jogging and probing so that the position stays smooth,
+ * and slower while idle. On a serial link the interval is never so short
+ * that the reports would use more than a share of its bandwidth, which is
+ * kept small while streaming so the reports don't slow down the program.
+ *
+ * @author wwinder
+ */
+public class AdaptivePollRate {
+    /**
+     * The shortest interval, the firmware has to build every report.
+     */
+    public static final int MIN_INTERVAL = 20;
+
+    /**
+     * The longest interval while idle.
+     */
+    public static final int MAX_IDLE_INTERVAL = 1000;
+
+    /**
+     * The share of the link reports may use while streaming and otherwise.
+     */
+    public static final double MAX_STREAMING_SHARE = 0.05;
+    public static final double MAX_SHARE = 0.25;
+
+    private static final int FAST_DIVISOR = 4;
+    private static final int IDLE_MULTIPLIER = 5;
+
+    // A start and stop bit for every byte, a line ending for every report and a request byte.
+    private static final int BITS_PER_BYTE = 10;
+    private static final int REPORT_OVERHEAD_BYTES = 3;
+
+    // Until a report has been measured, a GRBL 1.1 report is about this long.
+    private static final int DEFAULT_REPORT_SIZE = 60;
+
+    public enum Activity {
+        IDLE,
+        MOVING,
+        STREAMING,
+        JOGGING,
+        PROBING
+    }
+
+    private int baseInterval;
+    private int baudRate = 0;
+    private double reportSize = DEFAULT_REPORT_SIZE;
+    private Activity activity = Activity.IDLE;
+    private int interval;
+
+    /**
+     * @param baseInterval the configured status update rate in milliseconds
+     */
+    public AdaptivePollRate(int baseInterval) {
+        this.baseInterval = baseInterval;
+        this.interval = calculateInterval();
+    }
+
+    /**
+     * @param baseInterval the configured status update rate in milliseconds
+     */
+    public synchronized void setBaseInterval(int baseInterval) {
+        this.baseInterval = baseInterval;
+        this.interval = calculateInterval();
+    }
+
+    /**
+     * @param baudRate the rate of the serial link, or 0 if the link isn't limited by a baud rate
+     */
+    public synchronized void setBaudRate(int baudRate) {
+        this.baudRate = baudRate;
+        this.interval = calculateInterval();
+    }
+
+    /**
+     * Adds the length of a received report to the average report size.
+     *
+     * @param length the number of characters in the report
+     */
+    public synchronized void reportReceived(int length) {
+        reportSize = (reportSize * 7 + length) / 8;
+    }
+
+    /**
+     * Updates the activity of the machine.
+     *
+     * @param activity what the machine is doing
+     * @return true if the interval should be changed
+     */
+    public synchronized boolean update(Activity activity) {
+        boolean activityChanged = this.activity != activity;
+        this.activity = activity;
+
+        // Ignore small changes in the report size to avoid restarting the polls all the time
+        int calculated = calculateInterval();
+        if (activityChanged || Math.abs(calculated - interval) > interval / 10) {
+            boolean changed = calculated != interval;
+            interval = calculated;
+            return changed;
+        }
+        return false;
+    }
+
+    private int calculateInterval() {
+        int target;
+        switch (activity) {
+            case JOGGING:
+            case PROBING:
+                target = baseInterval / FAST_DIVISOR;
+                break;
+            case IDLE:
+                target = Math.min(baseInterval * IDLE_MULTIPLIER, Math.max(MAX_IDLE_INTERVAL, baseInterval));
+                break;
+            default:
+                target = baseInterval;
+        }
+
+        double maxShare = activity == Activity.STREAMING ? MAX_STREAMING_SHARE : MAX_SHARE;
+        int minInterval = (int) Math.ceil(getReportTime() / maxShare);
+        return Math.max(MIN_INTERVAL, Math.max(target, minInterval));
+    }
+
+    /**
+     * @return the time it takes to transfer one report and its request in milliseconds
+     */
+    public synchronized double getReportTime() {
+        if (baudRate <= 0) {
+            return 0;
+        }
+        return (reportSize + REPORT_OVERHEAD_BYTES) * BITS_PER_BYTE * 1000.0 / baudRate;
+    }
+
+    /**
+     * @return the interval in milliseconds
+     */
+    public synchronized int getInterval() {
+        return interval;
+    }
+
+    public synchronized Activity getActivity() {
+        return activity;
+    }
+
+    /**
+     * @return the average report size in characters
+     */
+    public synchronized int getReportSize() {
+        return (int) Math.round(reportSize);
+    }
+
+    /**
+     * @return the share of the link bandwidth used by reports, between 0 and 1
+     */
+    public synchronized double getBandwidthShare() {
+        return getReportTime() / interval;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d ms while %s, %d byte reports use %.1f%% of the link",
+                interval, activity.name().toLowerCase(), getReportSize(), getBandwidthShare() * 100);
+    }
+}
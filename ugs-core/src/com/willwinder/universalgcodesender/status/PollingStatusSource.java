@@ -0,0 +1,87 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Requests a status report every interval. Only one request is
+ * outstanding at a time, if its report is lost another one is sent once
+ * reports are stale.
+ *
+ * @author wwinder
+ */
+public class PollingStatusSource extends StatusSource {
+    private final Request request;
+    private final Consumer<Exception> errorHandler;
+    private volatile boolean outstanding = false;
+
+    /**
+     * @param executor runs the polls
+     * @param interval the time between two polls in milliseconds
+     * @param request sends a status request to the firmware
+     * @param errorHandler is told about requests that couldn't be sent
+     */
+    public PollingStatusSource(Executor executor, int interval, Request request, Consumer<Exception> errorHandler) {
+        super(executor, interval);
+        this.request = request;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.POLL;
+    }
+
+    @Override
+    public synchronized void start() {
+        outstanding = false;
+        super.start();
+    }
+
+    @Override
+    protected void tick() {
+        if (outstanding && !isStale()) {
+            return;
+        }
+
+        try {
+            outstanding = true;
+            resetStaleTimeout();
+            request.send();
+        } catch (Exception e) {
+            outstanding = false;
+            errorHandler.accept(e);
+        }
+    }
+
+    @Override
+    public void reportReceived() {
+        super.reportReceived();
+        outstanding = false;
+    }
+
+    /**
+     * @return true if a status request is waiting for its report
+     */
+    public boolean isOutstanding() {
+        return outstanding;
+    }
+}
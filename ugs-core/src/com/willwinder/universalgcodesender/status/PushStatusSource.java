@@ -0,0 +1,74 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Receives status reports which the firmware sends on its own, nothing is
+ * sent to the firmware while reports arrive. The source only watches for
+ * reports that stop arriving and then requests a report to recover.
+ *
+ * @author wwinder
+ */
+public class PushStatusSource extends StatusSource {
+    private final Request recover;
+    private final Consumer<Exception> errorHandler;
+    private final BooleanSupplier reportsExpected;
+
+    /**
+     * @param executor runs the stale checks
+     * @param interval the interval the firmware pushes reports at in milliseconds
+     * @param reportsExpected true while the firmware should be pushing reports, some firmwares only push while moving
+     * @param recover requests a report when reports are stale
+     * @param errorHandler is told about recover requests that couldn't be sent
+     */
+    public PushStatusSource(Executor executor, int interval, BooleanSupplier reportsExpected,
+                            Request recover, Consumer<Exception> errorHandler) {
+        super(executor, interval);
+        this.reportsExpected = reportsExpected;
+        this.recover = recover;
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public Mode getMode() {
+        return Mode.PUSH;
+    }
+
+    @Override
+    protected void tick() {
+        if (!reportsExpected.getAsBoolean()) {
+            resetStaleTimeout();
+            return;
+        }
+
+        if (isStale()) {
+            // Wait another timeout before asking again
+            resetStaleTimeout();
+            try {
+                recover.send();
+            } catch (Exception e) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+}
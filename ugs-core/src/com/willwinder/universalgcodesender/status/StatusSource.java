@@ -0,0 +1,181 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+import javax.swing.Timer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Where a controller gets its status reports from. The controller tells the
+ * source about every status report it receives, the source keeps track of
+ * the report cadence and decides what to do when reports stop arriving.
+ *
+ * The source ticks once every interval. Ticks are run with the executor
+ * given to the source, usually the thread that handles controller
+ * responses.
+ *
+ * @author wwinder
+ */
+public abstract class StatusSource {
+    private static final Logger logger = Logger.getLogger(StatusSource.class.getName());
+
+    /**
+     * Reports are stale when none has arrived for this many intervals.
+     */
+    public static final int STALE_INTERVALS = 10;
+
+    public enum Mode {
+        /**
+         * Reports are requested by the controller every interval.
+         */
+        POLL,
+
+        /**
+         * Reports are sent by the firmware on its own.
+         */
+        PUSH
+    }
+
+    /**
+     * Sends something to the firmware, like a status request.
+     */
+    public interface Request {
+        void send() throws Exception;
+    }
+
+    private final Executor executor;
+    private Timer timer;
+    private int interval;
+
+    private volatile long lastReportNanos = 0;
+    private volatile long timeoutStartNanos = 0;
+    private volatile long averageCadenceNanos = 0;
+    private volatile boolean stale = false;
+
+    /**
+     * @param executor runs the ticks of the source
+     * @param interval the expected time between two reports in milliseconds
+     */
+    protected StatusSource(Executor executor, int interval) {
+        this.executor = executor;
+        this.interval = interval;
+    }
+
+    public abstract Mode getMode();
+
+    /**
+     * Called once every interval while the source is running.
+     */
+    protected abstract void tick();
+
+    public synchronized void start() {
+        if (timer == null || !timer.isRunning()) {
+            timeoutStartNanos = System.nanoTime();
+            stale = false;
+            timer = new Timer(interval, e -> executor.execute(this::tick));
+            timer.start();
+        }
+    }
+
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.stop();
+            timer = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return timer != null && timer.isRunning();
+    }
+
+    /**
+     * Changes the expected time between two reports. A running source keeps
+     * running, the next tick comes right away if the interval got shorter.
+     *
+     * @param interval the interval in milliseconds
+     */
+    public synchronized void setInterval(int interval) {
+        boolean shorter = interval < this.interval;
+        this.interval = interval;
+        if (isRunning()) {
+            timer.setDelay(interval);
+            timer.setInitialDelay(shorter ? 0 : interval);
+            if (shorter) {
+                timer.restart();
+            }
+        }
+    }
+
+    public synchronized int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Should be called by the controller for every status report it receives.
+     */
+    public void reportReceived() {
+        long now = System.nanoTime();
+        if (lastReportNanos != 0) {
+            // Long pauses, like a firmware which only reports while moving, shouldn't skew the cadence
+            long cadence = Math.min(now - lastReportNanos, TimeUnit.MILLISECONDS.toNanos(getInterval()) * STALE_INTERVALS);
+            averageCadenceNanos = averageCadenceNanos == 0 ? cadence : (averageCadenceNanos * 7 + cadence) / 8;
+        }
+        lastReportNanos = now;
+        timeoutStartNanos = now;
+
+        if (stale) {
+            logger.log(Level.INFO, "Status reports are arriving again");
+            stale = false;
+        }
+    }
+
+    /**
+     * @return the average time between the last reports in milliseconds
+     */
+    public long getReportCadence() {
+        return TimeUnit.NANOSECONDS.toMillis(averageCadenceNanos);
+    }
+
+    /**
+     * Checks if reports have stopped arriving. The expected cadence is the
+     * interval or the measured cadence, whichever is longer.
+     *
+     * @return true if no report has arrived for {@link #STALE_INTERVALS} times the expected cadence
+     */
+    public boolean isStale() {
+        long expected = Math.max(TimeUnit.MILLISECONDS.toNanos(getInterval()), averageCadenceNanos);
+        long waited = System.nanoTime() - timeoutStartNanos;
+        boolean isStale = waited > expected * STALE_INTERVALS;
+        if (isStale && !stale) {
+            logger.log(Level.WARNING, "No status report received for {0} ms", TimeUnit.NANOSECONDS.toMillis(waited));
+        }
+        stale = isStale;
+        return isStale;
+    }
+
+    /**
+     * Restarts the stale timeout, for instance after requesting a report.
+     */
+    protected void resetStaleTimeout() {
+        timeoutStartNanos = System.nanoTime();
+    }
+}
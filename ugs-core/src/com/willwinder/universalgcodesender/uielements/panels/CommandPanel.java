@@ -58,6 +58,8 @@ public class CommandPanel extends JPanel implements UGSEventListener, MessageLis
             Localization.getString("mainWindow.swing.showVerboseOutputCheckBox"));
     private final JCheckBoxMenuItem scrollWindowMenuItem = new JCheckBoxMenuItem(
             Localization.getString("mainWindow.swing.scrollWindowCheckBox"));
+    private final JCheckBoxMenuItem summarizeMenuItem = new JCheckBoxMenuItem(
+            Localization.getString("mainWindow.swing.summarizeConsoleCheckBox"));
 
 
     /**
@@ -101,6 +103,7 @@ public class CommandPanel extends JPanel implements UGSEventListener, MessageLis
 
         menu.add(showVerboseMenuItem);
         menu.add(scrollWindowMenuItem);
+        menu.add(summarizeMenuItem);
         SwingHelpers.traverse(this, (comp) -> comp.setComponentPopupMenu(menu));
     }
 
@@ -141,6 +144,11 @@ public class CommandPanel extends JPanel implements UGSEventListener, MessageLis
         });
     }
 
+    @Override
+    public boolean isInterestedIn(MessageType messageType) {
+        return !MessageType.VERBOSE.equals(messageType) || showVerboseMenuItem.isSelected();
+    }
+
     private void checkScrollWindow() {
         // Console output.
         DefaultCaret caret = (DefaultCaret) consoleTextArea.getCaret();
@@ -155,11 +163,13 @@ public class CommandPanel extends JPanel implements UGSEventListener, MessageLis
     public void loadSettings() {
         scrollWindowMenuItem.setSelected(backend.getSettings().isScrollWindowEnabled());
         showVerboseMenuItem.setSelected(backend.getSettings().isVerboseOutputEnabled());
+        summarizeMenuItem.setSelected(backend.getSettings().isConsoleSummaryEnabled());
         checkScrollWindow();
     }
 
     public void saveSettings() {
         backend.getSettings().setScrollWindowEnabled(scrollWindowMenuItem.isSelected());
         backend.getSettings().setVerboseOutputEnabled(showVerboseMenuItem.isSelected());
+        backend.getSettings().setConsoleSummaryEnabled(summarizeMenuItem.isSelected());
     }
 }
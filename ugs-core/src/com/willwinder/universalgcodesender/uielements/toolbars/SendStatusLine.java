@@ -48,7 +48,7 @@ public class SendStatusLine extends JLabel implements UGSEventListener, Controll
     private static final String SEND_PREFIX = "Send Status: ";
     private static final String LOAD_PREFIX = "Loaded File: ";
     private static final String NO_FILE_LOADED = "No file loaded";
-    private static final String SEND_FORMAT = SEND_PREFIX + "(%d/%d) %s / %s";
+    private static final String SEND_FORMAT = SEND_PREFIX + "(%d/%s%d) %s / %s";
     private static final String COMPLETED_FORMAT = SEND_PREFIX + "completed after %s";
     private static final String ROWS_FORMAT = LOAD_PREFIX + "%d rows";
 
@@ -80,6 +80,7 @@ public class SendStatusLine extends JLabel implements UGSEventListener, Controll
                         try {
                             setText(String.format(SEND_FORMAT, 
                                     backend.getNumSentRows(),
+                                    backend.isNumRowsFinal() ? "" : ">=",
                                     backend.getNumRows(),
                                     Utils.formattedMillis(backend.getSendDuration()),
                                     Utils.formattedMillis(backend.getSendRemainingDuration())));
@@ -108,10 +108,30 @@ public class ControllerSettings {
      *     "name": "GRBL",
      *     "args": null
      * }
+     *
+     * Supported args:
+     * "batchWrites": true - write all commands that fit in the controller
+     *                       buffer to the connection at once.
+     * "eventLoop": true   - let a single thread own the controller state,
+     *                       see {@link IController#setEventLoopEnabled}.
      */
     public IController getController() {
-        //String controllerName = controllerConfig.get("name").getAsString();
-        String controllerName = this.Controller.name;
+        IController controller = createController(this.Controller.name);
+        controller.setBatchWritesEnabled(getBooleanArg("batchWrites"));
+        controller.setEventLoopEnabled(getBooleanArg("eventLoop"));
+        return controller;
+    }
+
+    private boolean getBooleanArg(String name) {
+        JsonElement args = this.Controller.args;
+        if (args == null || !args.isJsonObject()) {
+            return false;
+        }
+        JsonElement value = args.getAsJsonObject().get(name);
+        return value != null && value.isJsonPrimitive() && value.getAsBoolean();
+    }
+
+    private static IController createController(String controllerName) {
         CONTROLLER controller = CONTROLLER.fromString(controllerName);
         switch (controller) {
             case GRBL:
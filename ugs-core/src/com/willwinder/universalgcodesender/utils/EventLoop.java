@@ -0,0 +1,170 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single thread which runs posted tasks in order.
+ *
+ * Any number of threads may post tasks, they are put on a lock free queue
+ * and the loop thread parks while the queue is empty. State that is only
+ * touched from tasks running in the loop doesn't need any locking.
+ *
+ * @author wwinder
+ */
+public class EventLoop {
+    private static final Logger logger = Logger.getLogger(EventLoop.class.getName());
+
+    /**
+     * A task which may throw a checked exception back to the caller.
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public EventLoop(String name) {
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loop() {
+        while (running) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "Uncaught exception in event loop task", t);
+            }
+        }
+        discardQueued();
+    }
+
+    /**
+     * @return true if called from the loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Posts a task to run in the loop after all previously posted tasks.
+     *
+     * @param task the task to run
+     */
+    public void execute(Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("The event loop " + thread.getName() + " has been shut down.");
+        }
+        queue.offer(task);
+        LockSupport.unpark(thread);
+
+        // If the loop was shut down meanwhile the task may never run.
+        if (!running && queue.remove(task)) {
+            throw new RejectedExecutionException("The event loop " + thread.getName() + " has been shut down.");
+        }
+    }
+
+    /**
+     * Runs a task in the loop and waits for it to finish. If called from the
+     * loop thread the task is run right away. Exceptions thrown by the task
+     * are rethrown to the caller. If the loop is shut down before the task
+     * has run a {@link RejectedExecutionException} is thrown.
+     *
+     * @param task the task to run
+     */
+    public void call(Task task) throws Exception {
+        compute(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Like {@link #call(Task)} but returns the result of the task.
+     *
+     * @param task the task to run
+     * @return the result of the task
+     */
+    public <T> T compute(Callable<T> task) throws Exception {
+        if (inEventLoop()) {
+            return task.call();
+        }
+
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        } catch (CancellationException e) {
+            throw new RejectedExecutionException("The event loop " + thread.getName() + " was shut down before the task was run.");
+        }
+    }
+
+    /**
+     * Stops the loop, tasks which haven't been run yet are discarded and
+     * callers waiting for them are released.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        discardQueued();
+    }
+
+    /**
+     * Discards all queued tasks, callers waiting for them are released.
+     */
+    private void discardQueued() {
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
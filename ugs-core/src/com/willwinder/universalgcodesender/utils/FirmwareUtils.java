@@ -108,6 +108,17 @@ public class FirmwareUtils {
         return Optional.of(configFiles.get(firmware).loader.getProcessors());
     }
 
+    /**
+     * Gets the serialized command processor configuration of a firmware, the
+     * processors created by {@link #getParserFor} only depend on this.
+     */
+    public static String getProcessorConfigFor(String firmware) throws Exception {
+        if (!configFiles.containsKey(firmware)) {
+            throw new Exception("Missing config file.");
+        }
+        return new Gson().toJson(configFiles.get(firmware).loader.getProcessorConfigs());
+    }
+
     public static void addPatternRemoverForFirmware(String firmware, String pattern) throws IOException {
         if (!configFiles.containsKey(firmware)) {
             return;
@@ -26,9 +26,36 @@
  */
 package com.willwinder.universalgcodesender.utils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 /**
+ * Shared constants for the GcodeStream file formats.
+ *
+ * There are two formats:
+ * <ul>
+ *   <li>The legacy text format, a "gsw_meta:" header line followed by one
+ *       "++" separated line per command. It can still be read but is no
+ *       longer written.</li>
+ *   <li>The binary format written by {@link GcodeStreamWriter}:
+ *   <pre>
+ *   header  : magic "UGSB" | int version | int row count | int flags
+ *             | long index offset | long command index offset
+ *   record  : byte flags | varint command number | field original
+ *             | field processed (omitted if equal to original) | field comment
+ *   field   : varint byte length | UTF-8 bytes
+ *   index   : one long file offset per record
+ *   command : int first command number | int count | one int per command
+ *   index     number, the first row with that number or higher. Only
+ *             present when the command numbers never decrease.
+ *   </pre></li>
+ * </ul>
  *
  * @author wwinder
  */
@@ -43,4 +70,57 @@ public abstract class GcodeStream {
     protected final String separator = "++";
     protected final Pattern splitPattern = Pattern.compile(Pattern.quote(separator));
     protected final String metaPrefix = "gsw_meta:";
+
+    protected static final byte[] BINARY_MAGIC = {'U', 'G', 'S', 'B'};
+    protected static final int BINARY_VERSION = 2;
+    protected static final int BINARY_HEADER_SIZE = 32;
+    protected static final int BINARY_INDEX_ENTRY_SIZE = 8;
+
+    protected static final int HEADER_FLAG_COMMAND_INDEX = 0x01;
+
+    protected static final int RECORD_FLAG_PROCESSED_IS_ORIGINAL = 0x01;
+
+    /**
+     * Checks the first bytes of a file for the binary GcodeStream magic number.
+     */
+    public static boolean isBinaryGcodeStream(File f) throws IOException {
+        byte[] magic = new byte[BINARY_MAGIC.length];
+        try (InputStream in = new FileInputStream(f)) {
+            int read = 0;
+            while (read < magic.length) {
+                int n = in.read(magic, read, magic.length - read);
+                if (n < 0) {
+                    return false;
+                }
+                read += n;
+            }
+        }
+        return Arrays.equals(magic, BINARY_MAGIC);
+    }
+
+    /**
+     * Writes an unsigned variable length integer, 7 bits per byte.
+     */
+    protected static int writeVarInt(DataOutput out, int value) throws IOException {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+            bytes++;
+        }
+        out.writeByte(value);
+        return bytes;
+    }
+
+    protected static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer in gcode stream.");
+    }
 }
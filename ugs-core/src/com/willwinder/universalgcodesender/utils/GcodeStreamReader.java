@@ -27,25 +27,73 @@
 package com.willwinder.universalgcodesender.utils;
 
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.Closeable;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
 
 /**
+ * Reads a GcodeStream file front to back. Files written by
+ * {@link GcodeStreamWriter} are in the binary format, files in the legacy
+ * text format are still supported.
  *
  * @author wwinder
  */
 public class GcodeStreamReader extends GcodeStream implements IGcodeStreamReader {
+    // Only one of these is set depending on the file format.
     BufferedReader reader;
+    DataInputStream input;
+
     int numRows;
     int numRowsRemaining;
 
+    // Scratch space for decoding binary fields.
+    private byte[] fieldBuffer = new byte[256];
+
     public static class NotGcodeStreamFile extends Exception {}
 
+    /**
+     * Reads binary records from an input positioned after the header, used
+     * for streams that are still being written.
+     */
+    protected GcodeStreamReader(DataInputStream input) {
+        this.input = input;
+    }
+
     public GcodeStreamReader(BufferedReader reader) throws NotGcodeStreamFile {
+        initTextFormat(reader);
+    }
+
+    public GcodeStreamReader(File f) throws NotGcodeStreamFile, FileNotFoundException {
+        boolean binary;
+        try {
+            binary = isBinaryGcodeStream(f);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new NotGcodeStreamFile();
+        }
+
+        try {
+            if (binary) {
+                initBinaryFormat(new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536)));
+            } else {
+                initTextFormat(new BufferedReader(new FileReader(f)));
+            }
+        } catch (NotGcodeStreamFile e) {
+            IOUtils.closeQuietly(this);
+            throw e;
+        }
+    }
+
+    private void initTextFormat(BufferedReader reader) throws NotGcodeStreamFile {
         this.reader = reader;
         
         try {
@@ -58,13 +106,29 @@ public class GcodeStreamReader extends GcodeStream implements IGcodeStreamReader
             metadata = metadata.substring(super.metaPrefix.length(), metadata.length());
             numRows = Integer.parseInt(metadata);
             numRowsRemaining = numRows;
-        } catch (IOException | NumberFormatException e) {
+        } catch (IOException | NumberFormatException | NullPointerException e) {
             throw new NotGcodeStreamFile();
         }
     }
 
-    public GcodeStreamReader(File f) throws NotGcodeStreamFile, FileNotFoundException {
-        this(new BufferedReader(new FileReader(f)));
+    private void initBinaryFormat(DataInputStream input) throws NotGcodeStreamFile {
+        this.input = input;
+
+        try {
+            byte[] magic = new byte[BINARY_MAGIC.length];
+            input.readFully(magic);
+            int version = input.readInt();
+            if (!Arrays.equals(magic, BINARY_MAGIC) || version > BINARY_VERSION) {
+                throw new NotGcodeStreamFile();
+            }
+            numRows = input.readInt();
+            numRowsRemaining = numRows;
+
+            // Skip the rest of the header, the index isn't needed for sequential reads.
+            input.readFully(new byte[BINARY_HEADER_SIZE - BINARY_MAGIC.length - 8]);
+        } catch (IOException e) {
+            throw new NotGcodeStreamFile();
+        }
     }
     
     @Override
@@ -85,16 +149,22 @@ public class GcodeStreamReader extends GcodeStream implements IGcodeStreamReader
     private String[] parseLine(String line) {
         return splitPattern.split(line, -1);
     }
+
     @Override
     public GcodeCommand getNextCommand() throws IOException {
         if (numRowsRemaining == 0) return null;
 
+        GcodeCommand command = input != null ? readBinaryCommand() : readTextCommand();
+        numRowsRemaining--;
+        return command;
+    }
+
+    private GcodeCommand readTextCommand() throws IOException {
         String line = reader.readLine();
         String nextLine[] = parseLine(line);
         if (nextLine.length != NUM_COLUMNS) {
             throw new IOException("Corrupt data found while processing gcode stream: " + line);
         }
-        numRowsRemaining--;
         return new GcodeCommand(
                 nextLine[COL_PROCESSED_COMMAND],
                 nextLine[COL_ORIGINAL_COMMAND],
@@ -103,8 +173,33 @@ public class GcodeStreamReader extends GcodeStream implements IGcodeStreamReader
                 false);
     }
 
+    protected GcodeCommand readBinaryCommand() throws IOException {
+        int flags = input.readUnsignedByte();
+        int commandNumber = readVarInt(input);
+        String original = readField();
+        String processed = (flags & RECORD_FLAG_PROCESSED_IS_ORIGINAL) != 0 ? original : readField();
+        String comment = readField();
+        return new GcodeCommand(processed, original, comment, commandNumber, false);
+    }
+
+    private String readField() throws IOException {
+        int length = readVarInt(input);
+        if (length == 0) {
+            return "";
+        }
+        if (length > fieldBuffer.length) {
+            fieldBuffer = new byte[Math.max(length, fieldBuffer.length * 2)];
+        }
+        input.readFully(fieldBuffer, 0, length);
+        return new String(fieldBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
     @Override
     public void close() throws IOException {
-        reader.close();
+        if (input != null) {
+            input.close();
+        } else {
+            reader.close();
+        }
     }
 }
@@ -27,29 +27,81 @@
 package com.willwinder.universalgcodesender.utils;
 
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
 
 /**
+ * Writes a binary GcodeStream file, see {@link GcodeStream} for the layout.
+ *
+ * Record offsets and the command number index are spooled to temporary
+ * files while writing and appended to the end of the stream when it is
+ * closed, the header is then updated with the row count and index positions.
+ *
+ * When writing to a {@link PipelinedGcodeStream} the records are flushed and
+ * published in batches, when a reader is waiting for them or on
+ * {@link #flush()}, so that the file can be streamed before it is complete.
  *
  * @author wwinder
  */
 public class GcodeStreamWriter extends GcodeStream implements Closeable {
-    File file;
-    PrintWriter fileWriter;
-    Integer lineCount = 0;
-    String metadataReservedSize = "                                                  ";
+    private final File file;
+    private final File indexFile;
+    private final File commandIndexFile;
+    private final DataOutputStream fileWriter;
+    private final DataOutputStream indexWriter;
+    private final DataOutputStream commandIndexWriter;
+    private long position = 0;
+    private int lineCount = 0;
+
+    // Gaps larger than this between command numbers disable the command index.
+    private static final int MAX_COMMAND_NUMBER_GAP = 65536;
+    private boolean commandIndexValid = true;
+    private int firstCommandNumber;
+    private int lastCommandNumber;
+
+    // Rows or time between flushes when a reader is streaming the file.
+    private static final int PUBLISH_ROWS = 500;
+    private static final long PUBLISH_INTERVAL_NS = 100_000_000L;
+    private final PipelinedGcodeStream pipeline;
+    private int publishedRows = 0;
+    private long publishedTime = System.nanoTime();
 
     public GcodeStreamWriter(File f) throws FileNotFoundException {
+        this(f, null);
+    }
+
+    public GcodeStreamWriter(File f, PipelinedGcodeStream pipeline) throws FileNotFoundException {
         file = f;
-        fileWriter = new PrintWriter(f);
-        // 50 bytes at the beginning of the file to store metadata
-        fileWriter.append(metadataReservedSize);
-        fileWriter.append("\n");
+        this.pipeline = pipeline;
+        indexFile = new File(f.getPath() + ".idx");
+        fileWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 65536));
+        indexWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 65536));
+        commandIndexFile = new File(f.getPath() + ".cidx");
+        commandIndexWriter = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(commandIndexFile), 65536));
+
+        // Reserve space for the header, it is filled in when the stream is closed.
+        try {
+            fileWriter.write(new byte[BINARY_HEADER_SIZE]);
+            position = BINARY_HEADER_SIZE;
+            if (pipeline != null) {
+                // A pipelined reader skips the header as soon as it is opened.
+                fileWriter.flush();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write gcode stream header.", e);
+        }
     }
 
     private String getString(String str) {
@@ -57,29 +109,11 @@ public class GcodeStreamWriter extends GcodeStream implements Closeable {
     }
 
     public void addLine(GcodeCommand command) {
-        lineCount++;
-        String sep = "";
-        for (int i = 0; i < NUM_COLUMNS; i++) {
-            fileWriter.append(sep);
-            switch (i) {
-                case COL_ORIGINAL_COMMAND:
-                    fileWriter.append(command.getOriginalCommandString());
-                    break;
-                case COL_PROCESSED_COMMAND:
-                    fileWriter.append(command.getCommandString());
-                    break;
-                case COL_COMMENT:
-                    fileWriter.append(command.getComment());
-                    break;
-                case COL_COMMAND_NUMBER:
-                    fileWriter.append(Integer.toString(command.getCommandNumber()));
-                    break;
-                default:
-                    break;
-            }
-            sep = separator;
-        }
-        fileWriter.append("\n");
+        writeRecord(
+                StringUtils.defaultString(command.getOriginalCommandString()),
+                StringUtils.defaultString(command.getCommandString()),
+                StringUtils.defaultString(command.getComment()),
+                command.getCommandNumber());
     }
 
     public void addLine(String original, String processed, String comment, int commandNumber) {
@@ -89,41 +123,128 @@ public class GcodeStreamWriter extends GcodeStream implements Closeable {
             throw new IllegalArgumentException("Cannot include newlines in gcode stream.");
         }
 
-        lineCount++;
-        String sep = "";
-        for (int i = 0; i < NUM_COLUMNS; i++) {
-            fileWriter.append(sep);
-            switch (i) {
-                case COL_ORIGINAL_COMMAND:
-                    fileWriter.append(getString(original));
-                    break;
-                case COL_PROCESSED_COMMAND:
-                    fileWriter.append(getString(processed));
-                    break;
-                case COL_COMMENT:
-                    fileWriter.append(getString(comment));
-                    break;
-                case COL_COMMAND_NUMBER:
-                    fileWriter.append(Integer.toString(commandNumber));
-                    break;
-                default:
-                    break;
+        writeRecord(getString(original), getString(processed), getString(comment), commandNumber);
+    }
+
+    private void writeRecord(String original, String processed, String comment, int commandNumber) {
+        try {
+            indexWriter.writeLong(position);
+            updateCommandIndex(commandNumber);
+
+            boolean processedIsOriginal = original.equals(processed);
+            fileWriter.writeByte(processedIsOriginal ? RECORD_FLAG_PROCESSED_IS_ORIGINAL : 0);
+            position += 1;
+            position += writeVarInt(fileWriter, commandNumber);
+            position += writeField(original);
+            if (!processedIsOriginal) {
+                position += writeField(processed);
             }
-            sep = separator;
+            position += writeField(comment);
+            lineCount++;
+
+            if (pipeline != null) {
+                if (pipeline.isCancelled()) {
+                    throw new CancellationException("Gcode stream writing was cancelled: " + file);
+                }
+                if (lineCount - publishedRows >= PUBLISH_ROWS || pipeline.isReaderWaiting()
+                        || System.nanoTime() - publishedTime >= PUBLISH_INTERVAL_NS) {
+                    publish();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write to gcode stream: " + file, e);
         }
-        fileWriter.append("\n");
+    }
+
+    /**
+     * Adds an entry for every command number between the previous record and
+     * this one, each pointing at the current row.
+     */
+    private void updateCommandIndex(int commandNumber) throws IOException {
+        if (!commandIndexValid) {
+            return;
+        }
+
+        if (lineCount == 0) {
+            firstCommandNumber = commandNumber;
+            lastCommandNumber = commandNumber;
+            commandIndexWriter.writeInt(lineCount);
+            return;
+        }
+
+        long gap = (long) commandNumber - lastCommandNumber;
+        if (gap < 0 || gap > MAX_COMMAND_NUMBER_GAP) {
+            commandIndexValid = false;
+            return;
+        }
+        for (long i = 0; i < gap; i++) {
+            commandIndexWriter.writeInt(lineCount);
+        }
+        lastCommandNumber = commandNumber;
+    }
+
+    /**
+     * Flushes the records written so far, making them visible to a pipelined reader.
+     */
+    public void flush() throws IOException {
+        if (pipeline != null) {
+            publish();
+        } else {
+            fileWriter.flush();
+        }
+    }
+
+    private void publish() throws IOException {
+        fileWriter.flush();
+        publishedRows = lineCount;
+        publishedTime = System.nanoTime();
+        pipeline.publish(lineCount);
+    }
+
+    private int writeField(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = writeVarInt(fileWriter, bytes.length);
+        fileWriter.write(bytes);
+        return length + bytes.length;
     }
 
     @Override
     public void close() throws IOException {
-        fileWriter.close();
+        long indexOffset = position;
+        long commandIndexOffset = 0;
+        boolean hasCommandIndex = commandIndexValid && lineCount > 0;
+
+        try {
+            if (pipeline != null) {
+                publish();
+            }
+            indexWriter.close();
+            commandIndexWriter.close();
+
+            // Append the indexes to the end of the stream.
+            Files.copy(indexFile.toPath(), fileWriter);
+            if (hasCommandIndex) {
+                commandIndexOffset = indexOffset + (long) lineCount * BINARY_INDEX_ENTRY_SIZE;
+                fileWriter.writeInt(firstCommandNumber);
+                fileWriter.writeInt(lastCommandNumber - firstCommandNumber + 1);
+                Files.copy(commandIndexFile.toPath(), fileWriter);
+            }
+            fileWriter.close();
+        } finally {
+            indexFile.delete();
+            commandIndexFile.delete();
+        }
+
         try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE);
+            header.put(BINARY_MAGIC);
+            header.putInt(BINARY_VERSION);
+            header.putInt(lineCount);
+            header.putInt(hasCommandIndex ? HEADER_FLAG_COMMAND_INDEX : 0);
+            header.putLong(indexOffset);
+            header.putLong(commandIndexOffset);
             raw.seek(0);
-            String metadata = "gsw_meta:" + lineCount.toString();
-            if (metadata.length() > metadataReservedSize.length()) {
-                throw new IOException("Too many lines to write metadata for GcodeStreamWriter!");
-            }
-            raw.write(metadata.getBytes(), 0, metadata.length());
+            raw.write(header.array());
         }
     }
 }
@@ -51,6 +51,16 @@ public interface IGcodeStreamReader extends Closeable {
      */
     int getNumRowsRemaining();
 
+    /**
+     * Returns false while the stream is still being written, the number of
+     * rows is then only a lower bound.
+     *
+     * @return true if the number of rows will not change
+     */
+    default boolean isNumRowsFinal() {
+        return true;
+    }
+
     /**
      * Returns the next command in the stream or null if stream is finished
      *
@@ -58,4 +68,14 @@ public interface IGcodeStreamReader extends Closeable {
      * @throws IOException if the stream can not be read
      */
     GcodeCommand getNextCommand() throws IOException;
+
+    /**
+     * Sets a listener that is called when more commands can be read from a
+     * stream that is still being written, i.e. when {@link #ready()} might
+     * have changed. Streams that are complete never call it.
+     *
+     * @param listener the listener or null to remove it
+     */
+    default void setRowsAvailableListener(Runnable listener) {
+    }
 }
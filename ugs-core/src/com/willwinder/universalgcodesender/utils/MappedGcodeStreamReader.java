@@ -0,0 +1,311 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.GcodeStreamReader.NotGcodeStreamFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reader for binary GcodeStream files backed by memory mapped buffers.
+ *
+ * Unlike {@link GcodeStreamReader} it can jump to any row or command number
+ * in constant time using the indexes at the end of the file. Additional
+ * cursors over the same file can be created with {@link #newCursor()}, they
+ * share the mapped file and keep their own position. The file is released
+ * when the last cursor is closed.
+ *
+ * @author wwinder
+ */
+public class MappedGcodeStreamReader extends GcodeStream implements IGcodeStreamReader {
+    // The data section is mapped in segments, each overlapping the next so
+    // that nearly every record is contained in a single segment.
+    private static final long SEGMENT_SIZE = 1L << 28;
+    private static final int SEGMENT_OVERLAP = 1 << 16;
+
+    private final MappedFile file;
+    private int row = 0;
+    private boolean closed = false;
+
+    // Per cursor view of the segment holding the current record.
+    private ByteBuffer segment;
+    private long segmentStart = -1;
+    private long segmentEnd = -1;
+    private byte[] fieldBuffer = new byte[256];
+
+    public MappedGcodeStreamReader(File f) throws NotGcodeStreamFile, IOException {
+        this(MappedFile.open(f), 0);
+    }
+
+    private MappedGcodeStreamReader(MappedFile file, int row) {
+        this.file = file;
+        this.row = row;
+    }
+
+    /**
+     * Creates an independent cursor over the same file starting at the
+     * current position of this reader.
+     */
+    public MappedGcodeStreamReader newCursor() {
+        if (closed) {
+            throw new IllegalStateException("Gcode stream has been closed.");
+        }
+        file.references.incrementAndGet();
+        return new MappedGcodeStreamReader(file, row);
+    }
+
+    /**
+     * Moves the cursor to the first row with the given command number, or
+     * the first row after it if the number doesn't exist in the stream.
+     *
+     * @param commandNumber the command number to move to
+     * @return the row the cursor was moved to
+     */
+    public int seek(int commandNumber) throws IOException {
+        if (file.commandIndex != null) {
+            int offset = commandNumber - file.firstCommandNumber;
+            if (offset < 0) {
+                return seekRow(0);
+            } else if (offset >= file.commandIndexSize) {
+                return seekRow(file.numRows);
+            }
+            return seekRow(file.commandIndex.getInt(offset * 4));
+        }
+
+        // Command numbers aren't ordered, look for an exact match.
+        for (int r = 0; r < file.numRows; r++) {
+            if (commandNumberAt(r) == commandNumber) {
+                return seekRow(r);
+            }
+        }
+        return seekRow(file.numRows);
+    }
+
+    /**
+     * Moves the cursor to the given row.
+     *
+     * @param row the row to move to, zero based
+     * @return the row the cursor was moved to
+     */
+    public int seekRow(int row) {
+        if (row < 0 || row > file.numRows) {
+            throw new IllegalArgumentException("Row " + row + " is outside of the gcode stream.");
+        }
+        this.row = row;
+        return row;
+    }
+
+    /**
+     * @return the row that the next call to {@link #getNextCommand()} returns
+     */
+    public int getCurrentRow() {
+        return row;
+    }
+
+    @Override
+    public boolean ready() {
+        return getNumRowsRemaining() > 0;
+    }
+
+    @Override
+    public int getNumRows() {
+        return file.numRows;
+    }
+
+    @Override
+    public int getNumRowsRemaining() {
+        return file.numRows - row;
+    }
+
+    @Override
+    public GcodeCommand getNextCommand() throws IOException {
+        if (row >= file.numRows) return null;
+
+        ByteBuffer buffer = recordBuffer(row);
+        int flags = buffer.get() & 0xFF;
+        int commandNumber = readVarInt(buffer);
+        String original = readField(buffer);
+        String processed = (flags & RECORD_FLAG_PROCESSED_IS_ORIGINAL) != 0 ? original : readField(buffer);
+        String comment = readField(buffer);
+        row++;
+        return new GcodeCommand(processed, original, comment, commandNumber, false);
+    }
+
+    private int commandNumberAt(int r) throws IOException {
+        ByteBuffer buffer = recordBuffer(r);
+        buffer.get();
+        return readVarInt(buffer);
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the record in the given row.
+     */
+    private ByteBuffer recordBuffer(int r) throws IOException {
+        long start = file.recordOffset(r);
+        long end = r + 1 < file.numRows ? file.recordOffset(r + 1) : file.indexOffset;
+
+        if (start < segmentStart || end > segmentEnd) {
+            long segmentNumber = start / SEGMENT_SIZE;
+            ByteBuffer mapped = file.segment(segmentNumber);
+            segmentStart = segmentNumber * SEGMENT_SIZE;
+            segmentEnd = segmentStart + mapped.capacity();
+
+            if (end > segmentEnd) {
+                // Record is larger than the segment overlap, map it on its own.
+                mapped = file.map(start, end - start);
+                segmentStart = start;
+                segmentEnd = end;
+            }
+            segment = mapped.duplicate();
+        }
+
+        segment.position((int) (start - segmentStart));
+        return segment;
+    }
+
+    private String readField(ByteBuffer buffer) throws IOException {
+        int length = readVarInt(buffer);
+        if (length == 0) {
+            return "";
+        }
+        if (length > fieldBuffer.length) {
+            fieldBuffer = new byte[Math.max(length, fieldBuffer.length * 2)];
+        }
+        buffer.get(fieldBuffer, 0, length);
+        return new String(fieldBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer in gcode stream.");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segment = null;
+        if (file.references.decrementAndGet() == 0) {
+            file.channel.close();
+        }
+    }
+
+    /**
+     * The mapped file and its indexes, shared between all cursors.
+     */
+    private static class MappedFile {
+        private final FileChannel channel;
+        private final int numRows;
+        private final long indexOffset;
+        private final ByteBuffer index;
+        private final ByteBuffer commandIndex;
+        private final int firstCommandNumber;
+        private final int commandIndexSize;
+        private final MappedByteBuffer[] segments;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private MappedFile(FileChannel channel) throws NotGcodeStreamFile, IOException {
+            this.channel = channel;
+
+            ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the complete header
+            }
+            header.flip();
+            if (header.remaining() < BINARY_HEADER_SIZE) {
+                throw new NotGcodeStreamFile();
+            }
+
+            byte[] magic = new byte[BINARY_MAGIC.length];
+            header.get(magic);
+            int version = header.getInt();
+            if (!Arrays.equals(magic, BINARY_MAGIC) || version > BINARY_VERSION) {
+                throw new NotGcodeStreamFile();
+            }
+            numRows = header.getInt();
+            int flags = header.getInt();
+            indexOffset = header.getLong();
+            long commandIndexOffset = header.getLong();
+
+            index = map(indexOffset, (long) numRows * BINARY_INDEX_ENTRY_SIZE);
+
+            if ((flags & HEADER_FLAG_COMMAND_INDEX) != 0 && commandIndexOffset > 0) {
+                ByteBuffer commandIndexHeader = map(commandIndexOffset, 8);
+                firstCommandNumber = commandIndexHeader.getInt(0);
+                commandIndexSize = commandIndexHeader.getInt(4);
+                commandIndex = map(commandIndexOffset + 8, (long) commandIndexSize * 4);
+            } else {
+                firstCommandNumber = 0;
+                commandIndexSize = 0;
+                commandIndex = null;
+            }
+
+            segments = new MappedByteBuffer[(int) (indexOffset / SEGMENT_SIZE) + 1];
+        }
+
+        static MappedFile open(File f) throws NotGcodeStreamFile, IOException {
+            FileChannel channel = new RandomAccessFile(f, "r").getChannel();
+            try {
+                return new MappedFile(channel);
+            } catch (NotGcodeStreamFile | IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        long recordOffset(int r) {
+            return index.getLong(r * BINARY_INDEX_ENTRY_SIZE);
+        }
+
+        synchronized ByteBuffer segment(long segmentNumber) throws IOException {
+            int i = (int) segmentNumber;
+            if (segments[i] == null) {
+                long start = segmentNumber * SEGMENT_SIZE;
+                long size = Math.min(SEGMENT_SIZE + SEGMENT_OVERLAP, indexOffset - start);
+                segments[i] = map(start, size);
+            }
+            return segments[i];
+        }
+
+        MappedByteBuffer map(long position, long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Gcode stream section is too large to be mapped.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import java.io.IOException;
+
+/**
+ * Progress of a GcodeStream file that is still being written, shared between
+ * the {@link GcodeStreamWriter} producing it and the
+ * {@link PipelinedGcodeStreamReader} streaming it to the controller.
+ *
+ * The writer publishes the number of rows that have been flushed to the file,
+ * readers never wait for it: they check if their next row is available and
+ * are notified through a listener when more rows are published.
+ *
+ * @author wwinder
+ */
+public class PipelinedGcodeStream {
+    private int rows = 0;
+    private boolean complete = false;
+    private boolean cancelled = false;
+    private Exception error;
+    private volatile boolean readerWaiting = false;
+    private volatile Runnable listener;
+
+    /**
+     * Called by the writer when more rows are readable from the file.
+     */
+    public void publish(int rows) {
+        synchronized (this) {
+            if (rows <= this.rows) {
+                return;
+            }
+            this.rows = rows;
+            readerWaiting = false;
+        }
+        notifyListener();
+    }
+
+    /**
+     * Called when every row has been written.
+     */
+    public void complete() {
+        synchronized (this) {
+            complete = true;
+            readerWaiting = false;
+        }
+        notifyListener();
+    }
+
+    /**
+     * Called when the stream could not be written completely.
+     */
+    public void fail(Exception e) {
+        synchronized (this) {
+            error = e;
+            complete = true;
+            readerWaiting = false;
+        }
+        notifyListener();
+    }
+
+    /**
+     * Asks the writer to stop, readers see the stream as failed.
+     */
+    public void cancel() {
+        boolean failed;
+        synchronized (this) {
+            cancelled = true;
+            failed = !complete;
+        }
+        if (failed) {
+            fail(new IOException("Gcode stream processing was cancelled"));
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of rows written so far, the final number once complete.
+     */
+    public synchronized int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return true if all rows have been written or writing has failed.
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public synchronized Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return true if a reader is waiting for rows, the writer should flush.
+     */
+    public boolean isReaderWaiting() {
+        return readerWaiting;
+    }
+
+    /**
+     * Checks without blocking if at least the given number of rows have been
+     * written. If not, the writer is asked to flush as soon as it can.
+     */
+    public synchronized boolean isAvailable(int count) {
+        if (rows >= count) {
+            return true;
+        }
+        if (!complete) {
+            readerWaiting = true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets a listener that is called from the writing thread whenever rows
+     * are published or the stream completes or fails. Null removes it.
+     */
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void notifyListener() {
+        Runnable current = listener;
+        if (current != null) {
+            current.run();
+        }
+    }
+}
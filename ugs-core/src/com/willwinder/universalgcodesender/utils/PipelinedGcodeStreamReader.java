@@ -0,0 +1,110 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Reads a binary GcodeStream file while it is being written. Rows are read as
+ * soon as the writer has published them. The reader never blocks: when it has
+ * caught up with the writer it is not {@link #ready()} and
+ * {@link #getNextCommand()} returns null until more rows are published.
+ *
+ * Until the stream is complete the number of rows is a lower bound and there
+ * is always at least one row remaining.
+ *
+ * @author wwinder
+ */
+public class PipelinedGcodeStreamReader extends GcodeStreamReader {
+    private final PipelinedGcodeStream pipeline;
+    private int rowsRead = 0;
+
+    public PipelinedGcodeStreamReader(File f, PipelinedGcodeStream pipeline) throws IOException {
+        super(openRecords(f));
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Skips the header, the row count and indexes in it are only filled in
+     * once the stream is complete.
+     */
+    private static DataInputStream openRecords(File f) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 65536));
+        try {
+            input.readFully(new byte[BINARY_HEADER_SIZE]);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        return input;
+    }
+
+    @Override
+    public boolean ready() {
+        return pipeline.isAvailable(rowsRead + 1);
+    }
+
+    @Override
+    public int getNumRows() {
+        return pipeline.getRows();
+    }
+
+    @Override
+    public int getNumRowsRemaining() {
+        int remaining = pipeline.getRows() - rowsRead;
+        return pipeline.isComplete() ? remaining : Math.max(remaining, 1);
+    }
+
+    @Override
+    public boolean isNumRowsFinal() {
+        return pipeline.isComplete();
+    }
+
+    @Override
+    public GcodeCommand getNextCommand() throws IOException {
+        if (!pipeline.isAvailable(rowsRead + 1)) {
+            Exception error = pipeline.getError();
+            if (error != null) {
+                throw new IOException("Could not process the gcode stream", error);
+            }
+            return null;
+        }
+
+        GcodeCommand command = readBinaryCommand();
+        rowsRead++;
+        return command;
+    }
+
+    @Override
+    public void setRowsAvailableListener(Runnable listener) {
+        pipeline.setListener(listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        pipeline.setListener(null);
+        super.close();
+    }
+}
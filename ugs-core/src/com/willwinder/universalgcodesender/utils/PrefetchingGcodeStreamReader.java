@@ -0,0 +1,193 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A gcode stream decorator that reads commands from another stream on a
+ * background thread. Commands are buffered in a bounded ring so that slow
+ * disk reads don't stall the thread sending commands to the controller.
+ *
+ * Each time a command is requested before the background thread has caught
+ * up it is counted as a starvation event.
+ *
+ * @author wwinder
+ */
+public class PrefetchingGcodeStreamReader implements IGcodeStreamReader {
+    private static final Logger logger = Logger.getLogger(PrefetchingGcodeStreamReader.class.getName());
+    public static final int DEFAULT_CAPACITY = 1000;
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final IGcodeStreamReader reader;
+    private final ArrayBlockingQueue<GcodeCommand> ring;
+    private final int capacity;
+    private final int numRows;
+    private final Thread prefetchThread;
+
+    private volatile IOException error;
+    private volatile boolean closed = false;
+
+    // Only touched by the consuming thread.
+    private int numRowsRemaining;
+    private long starvationCount = 0;
+    private int lowestOccupancy;
+
+    public PrefetchingGcodeStreamReader(IGcodeStreamReader reader) {
+        this(reader, DEFAULT_CAPACITY);
+    }
+
+    public PrefetchingGcodeStreamReader(IGcodeStreamReader reader, int capacity) {
+        this.reader = reader;
+        this.capacity = capacity;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.numRows = reader.getNumRows();
+        this.numRowsRemaining = reader.getNumRowsRemaining();
+        this.lowestOccupancy = capacity;
+
+        prefetchThread = new Thread(this::prefetch, "GcodeStreamPrefetch");
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed && reader.getNumRowsRemaining() > 0) {
+                GcodeCommand command = reader.getNextCommand();
+                if (command == null) {
+                    break;
+                }
+                ring.put(command);
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Could not prefetch gcode stream", e);
+            error = e;
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Could not prefetch gcode stream", e);
+            error = new IOException(e);
+        } catch (InterruptedException e) {
+            // Closed while waiting for room in the ring.
+        }
+    }
+
+    @Override
+    public boolean ready() {
+        return numRowsRemaining > 0;
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public int getNumRowsRemaining() {
+        return numRowsRemaining;
+    }
+
+    @Override
+    public GcodeCommand getNextCommand() throws IOException {
+        if (numRowsRemaining == 0) return null;
+
+        lowestOccupancy = Math.min(lowestOccupancy, ring.size());
+        GcodeCommand command = ring.poll();
+        if (command == null) {
+            starvationCount++;
+            command = waitForCommand();
+            if (command == null) {
+                return null;
+            }
+        }
+
+        numRowsRemaining--;
+        return command;
+    }
+
+    private GcodeCommand waitForCommand() throws IOException {
+        try {
+            GcodeCommand command;
+            while ((command = ring.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) == null) {
+                if (error != null) {
+                    throw new IOException("Could not read the gcode stream", error);
+                }
+
+                // The underlying stream ended early.
+                if (!prefetchThread.isAlive() && ring.isEmpty()) {
+                    numRowsRemaining = 0;
+                    return null;
+                }
+            }
+            return command;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the gcode stream");
+        }
+    }
+
+    /**
+     * @return the number of times a command was requested before it had been prefetched
+     */
+    public long getStarvationCount() {
+        return starvationCount;
+    }
+
+    /**
+     * @return the number of commands currently waiting in the ring
+     */
+    public int getOccupancy() {
+        return ring.size();
+    }
+
+    /**
+     * @return the lowest number of waiting commands seen when a command was requested
+     */
+    public int getLowestOccupancy() {
+        return lowestOccupancy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        prefetchThread.interrupt();
+        try {
+            prefetchThread.join(POLL_TIMEOUT_MS * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ring.clear();
+        reader.close();
+
+        logger.log(Level.INFO, "Gcode stream prefetch starved {0} times, lowest occupancy {1} of {2}",
+                new Object[]{starvationCount, lowestOccupancy, capacity});
+    }
+}
@@ -0,0 +1,259 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.willwinder.universalgcodesender.utils.Settings.FileStats;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A content addressed cache of processed GcodeStream files.
+ *
+ * Entries are keyed by a hash of the source file contents, the processor
+ * configuration and the firmware, a cached file is only reused when all of
+ * them match. The file stats are stored next to each entry so that the
+ * file doesn't need to be read again on a hit.
+ *
+ * Hashing a large file takes a while, so the content hash is remembered
+ * for the path, size and modification time of the source file. Reopening
+ * an unchanged file only needs a lookup.
+ *
+ * Entries are evicted least recently used first when the total size of
+ * the cache exceeds the limit, files which are in use are kept.
+ *
+ * @author wwinder
+ */
+public class ProcessedGcodeCache {
+    private static final Logger logger = Logger.getLogger(ProcessedGcodeCache.class.getName());
+
+    // Bump when the GcodeStream format changes to invalidate old entries.
+    private static final String FORMAT_VERSION = "1";
+
+    private static final String STREAM_SUFFIX = ".gcs";
+    private static final String STATS_SUFFIX = ".stats";
+    private static final String CONTENT_HASHES = "content-hashes.properties";
+    private static final int MAX_CONTENT_HASHES = 1000;
+
+    private final Gson gson = new Gson();
+    private final File directory;
+    private final long maxSize;
+    private final Predicate<File> inUse;
+    private final Properties contentHashes = new Properties();
+
+    /**
+     * @param directory where the processed files are stored.
+     * @param maxSize maximum total size of the cache in bytes.
+     */
+    public ProcessedGcodeCache(File directory, long maxSize) {
+        this(directory, maxSize, file -> false);
+    }
+
+    /**
+     * @param directory where the processed files are stored.
+     * @param maxSize maximum total size of the cache in bytes.
+     * @param inUse tells if a cached file is being streamed or read, it isn't evicted then.
+     */
+    public ProcessedGcodeCache(File directory, long maxSize, Predicate<File> inUse) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.inUse = inUse;
+        directory.mkdirs();
+
+        File hashes = new File(directory, CONTENT_HASHES);
+        if (hashes.exists()) {
+            try (Reader reader = Files.newBufferedReader(hashes.toPath(), StandardCharsets.UTF_8)) {
+                contentHashes.load(reader);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not read the cached content hashes", e);
+            }
+        }
+    }
+
+    /**
+     * Creates the key of the processed version of a file.
+     *
+     * @param source the unprocessed gcode file.
+     * @param processorConfig serialized configuration of the command processors.
+     * @param firmware the firmware the file is processed for.
+     */
+    public synchronized String getKey(File source, String processorConfig, String firmware) throws IOException {
+        String contentHash = getContentHash(source);
+        return Hashing.sha256().newHasher()
+                .putString(FORMAT_VERSION, StandardCharsets.UTF_8)
+                .putString(contentHash, StandardCharsets.UTF_8)
+                .putString(String.valueOf(processorConfig), StandardCharsets.UTF_8)
+                .putString(String.valueOf(firmware), StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * Looks up a processed file, the entry is marked as recently used.
+     */
+    public synchronized Optional<Entry> get(String key) {
+        File stream = getStreamFile(key);
+        File stats = getStatsFile(key);
+        if (!stream.exists() || !stats.exists()) {
+            return Optional.empty();
+        }
+
+        try (Reader reader = Files.newBufferedReader(stats.toPath(), StandardCharsets.UTF_8)) {
+            FileStats fileStats = gson.fromJson(reader, FileStats.class);
+            if (fileStats == null) {
+                return Optional.empty();
+            }
+            stream.setLastModified(System.currentTimeMillis());
+            return Optional.of(new Entry(stream, fileStats));
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not read cached file stats for " + key, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Adds a processed file to the cache. The file is linked into the cache
+     * when possible and copied otherwise, it is left in place either way.
+     *
+     * @return the cached file.
+     */
+    public synchronized File put(String key, File processed, FileStats fileStats) throws IOException {
+        File stream = getStreamFile(key);
+        File stats = getStatsFile(key);
+        stream.delete();
+        stats.delete();
+
+        try {
+            Files.createLink(stream.toPath(), processed.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(processed.toPath(), stream.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        stream.setLastModified(System.currentTimeMillis());
+
+        // The stats are written last, without them the entry isn't used.
+        try (Writer writer = Files.newBufferedWriter(stats.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(fileStats, writer);
+        }
+
+        evict(key);
+        return stream;
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits its limit,
+     * the entry which was just added and files in use are kept.
+     */
+    private void evict(String added) {
+        File[] streams = directory.listFiles((dir, name) -> name.endsWith(STREAM_SUFFIX));
+        if (streams == null) {
+            return;
+        }
+
+        long size = Arrays.stream(streams).mapToLong(File::length).sum();
+        Arrays.sort(streams, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < streams.length && size > maxSize; i++) {
+            String name = streams[i].getName();
+            String key = name.substring(0, name.length() - STREAM_SUFFIX.length());
+            if (key.equals(added) || inUse.test(streams[i])) {
+                continue;
+            }
+            logger.log(Level.INFO, "Evicting processed file {0} from the cache", key);
+
+            // A file which is open elsewhere may not be deleted, its entry stays valid.
+            long length = streams[i].length();
+            if (streams[i].delete()) {
+                size -= length;
+                getStatsFile(key).delete();
+            } else {
+                logger.log(Level.WARNING, "Could not evict processed file {0} from the cache", key);
+            }
+        }
+    }
+
+    private String getContentHash(File source) throws IOException {
+        String fileKey = source.getCanonicalPath() + "|" + source.length() + "|" + source.lastModified();
+        String contentHash = contentHashes.getProperty(fileKey);
+        if (contentHash != null) {
+            return contentHash;
+        }
+
+        contentHash = com.google.common.io.Files.asByteSource(source).hash(Hashing.sha256()).toString();
+
+        if (contentHashes.size() >= MAX_CONTENT_HASHES) {
+            contentHashes.clear();
+        }
+        contentHashes.setProperty(fileKey, contentHash);
+        saveContentHashes();
+        return contentHash;
+    }
+
+    private void saveContentHashes() {
+        File hashes = new File(directory, CONTENT_HASHES);
+        try (OutputStream out = new FileOutputStream(hashes)) {
+            contentHashes.store(out, "Content hashes of processed gcode files");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not store the cached content hashes", e);
+        }
+    }
+
+    private File getStreamFile(String key) {
+        return new File(directory, key + STREAM_SUFFIX);
+    }
+
+    private File getStatsFile(String key) {
+        return new File(directory, key + STATS_SUFFIX);
+    }
+
+    /**
+     * A processed file and the stats of the gcode in it.
+     */
+    public static class Entry {
+        private final File file;
+        private final FileStats fileStats;
+
+        public Entry(File file, FileStats fileStats) {
+            this.file = file;
+            this.fileStats = fileStats;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public FileStats getFileStats() {
+            return fileStats;
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class Settings {
     private double jogFeedRate = 10;
     private boolean scrollWindowEnabled = true;
     private boolean verboseOutputEnabled = false;
+    private boolean consoleSummaryEnabled = false;
     private boolean commandTableEnabled = false;
     // Sender Settings
     private WindowSettings mainWindowSettings = new WindowSettings(0,0,640,520);
@@ -74,6 +75,10 @@ public class Settings {
     private boolean showSerialPortWarning = true;
     private boolean autoStartPendant = false;
 
+    private boolean prefetchGcodeStream = false;
+    private boolean pipelinedPreprocessing = false;
+    private int processedFileCacheSize = 2048;
+
     private boolean autoConnect = false;
     private boolean autoReconnect = false;
 
@@ -279,6 +284,18 @@ public class Settings {
         changed();
     }
 
+    /**
+     * @return true if lines sent while streaming are written to the console as ranges of line numbers
+     */
+    public boolean isConsoleSummaryEnabled() {
+        return consoleSummaryEnabled;
+    }
+
+    public void setConsoleSummaryEnabled(boolean consoleSummaryEnabled) {
+        this.consoleSummaryEnabled = consoleSummaryEnabled;
+        changed();
+    }
+
     public boolean isCommandTableEnabled() {
         return commandTableEnabled;
     }
@@ -398,6 +415,44 @@ public class Settings {
         changed();
     }
 
+    /**
+     * If the gcode stream should be read ahead on a background thread while streaming.
+     */
+    public boolean isPrefetchGcodeStream() {
+        return prefetchGcodeStream;
+    }
+
+    public void setPrefetchGcodeStream(boolean prefetchGcodeStream) {
+        this.prefetchGcodeStream = prefetchGcodeStream;
+        changed();
+    }
+
+    /**
+     * If a file should be preprocessed on a background thread so that it can
+     * be sent before the preprocessing has finished.
+     */
+    public boolean isPipelinedPreprocessing() {
+        return pipelinedPreprocessing;
+    }
+
+    public void setPipelinedPreprocessing(boolean pipelinedPreprocessing) {
+        this.pipelinedPreprocessing = pipelinedPreprocessing;
+        changed();
+    }
+
+    /**
+     * The maximum size in megabytes of the cache with processed files, zero
+     * disables the cache.
+     */
+    public int getProcessedFileCacheSize() {
+        return processedFileCacheSize;
+    }
+
+    public void setProcessedFileCacheSize(int processedFileCacheSize) {
+        this.processedFileCacheSize = processedFileCacheSize;
+        changed();
+    }
+
     public boolean isAutoConnectEnabled() {
         return autoConnect;
     }
@@ -498,6 +553,10 @@ public class Settings {
         public Position maxCoordinate;
         public long numCommands;
 
+        // Commands and bytes the preprocessors removed by merging and compacting commands.
+        public long removedCommandCount;
+        public long removedByteCount;
+
         public FileStats() {
             this.minCoordinate = new Position(0, 0, 0, Units.MM);
             this.maxCoordinate = new Position(0, 0, 0, Units.MM);
@@ -509,5 +568,11 @@ public class Settings {
             this.maxCoordinate = max;
             this.numCommands = num;
         }
+
+        public FileStats(Position min, Position max, long num, long removedCommandCount, long removedByteCount) {
+            this(min, max, num);
+            this.removedCommandCount = removedCommandCount;
+            this.removedByteCount = removedByteCount;
+        }
     }
 }
@@ -30,6 +30,7 @@ import com.willwinder.universalgcodesender.gcode.GcodeParser.GcodeMeta;
 import com.willwinder.universalgcodesender.gcode.GcodePreprocessorUtils;
 import com.willwinder.universalgcodesender.gcode.processors.CommentProcessor;
 import com.willwinder.universalgcodesender.gcode.processors.WhitespaceProcessor;
+import com.willwinder.universalgcodesender.gcode.util.ArcSegmentation;
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
 import com.willwinder.universalgcodesender.gcode.util.PlaneFormatter;
 import com.willwinder.universalgcodesender.model.Position;
@@ -45,6 +46,11 @@ import java.util.List;
 
 public class GcodeViewParse {
 
+    /**
+     * Arcs are drawn within a hundredth of a millimeter of the actual arc.
+     */
+    public static final ArcSegmentation DEFAULT_ARC_SEGMENTATION = ArcSegmentation.chordTolerance(0.01, 4, 1000);
+
     // false = incremental; true = absolute
     boolean absoluteMode = true;
     static boolean absoluteIJK = false;
@@ -110,11 +116,10 @@ public class GcodeViewParse {
     /**
      * Create a gcode parser with required configuration.
      */
-    private static GcodeParser getParser(double arcSegmentLength) {
+    private static GcodeParser getParser() {
         GcodeParser gp = new GcodeParser();
         gp.addCommandProcessor(new CommentProcessor());
         gp.addCommandProcessor(new WhitespaceProcessor());
-        //gp.addCommandProcessor(new ArcExpander(true, arcSegmentLength, 4));
         return gp;
     }
 
@@ -129,8 +134,19 @@ public class GcodeViewParse {
      */
     public List<LineSegment> toObjFromReader(IGcodeStreamReader reader,
                                              double arcSegmentLength) throws IOException, GcodeParserException {
+        return toObjFromReader(reader, ArcSegmentation.fixedLength(arcSegmentLength));
+    }
+
+    /**
+     * Convert gcode to a LineSegment collection.
+     *
+     * @param reader commands to visualize.
+     * @param arcSegmentation decides how many line segments an arc is drawn with.
+     */
+    public List<LineSegment> toObjFromReader(IGcodeStreamReader reader,
+                                             ArcSegmentation arcSegmentation) throws IOException, GcodeParserException {
         lines.clear();
-        GcodeParser gp = getParser(arcSegmentLength);
+        GcodeParser gp = getParser();
 
         // Save the state
         Position start = new Position();
@@ -142,7 +158,7 @@ public class GcodeViewParse {
                 List<GcodeMeta> points = gp.addCommand(command, commandObject.getCommandNumber());
                 for (GcodeMeta meta : points) {
                     if (meta.point != null) {
-                        addLinesFromPointSegment(start, meta.point, arcSegmentLength, lines);
+                        addLinesFromPointSegment(start, meta.point, arcSegmentation, lines);
                         start.set(meta.point.point());
                     }
                 }
@@ -158,7 +174,17 @@ public class GcodeViewParse {
      * @param arcSegmentLength length of line segments when expanding an arc.
      */
     public List<LineSegment> toObjRedux(List<String> gcode, double arcSegmentLength) throws GcodeParserException {
-        GcodeParser gp = getParser(arcSegmentLength);
+        return toObjRedux(gcode, ArcSegmentation.fixedLength(arcSegmentLength));
+    }
+
+    /**
+     * Convert gcode to a LineSegment collection.
+     *
+     * @param gcode commands to visualize.
+     * @param arcSegmentation decides how many line segments an arc is drawn with.
+     */
+    public List<LineSegment> toObjRedux(List<String> gcode, ArcSegmentation arcSegmentation) throws GcodeParserException {
+        GcodeParser gp = getParser();
 
         lines.clear();
 
@@ -171,7 +197,7 @@ public class GcodeViewParse {
                 List<GcodeMeta> points = gp.addCommand(command);
                 for (GcodeMeta meta : points) {
                     if (meta.point != null) {
-                        addLinesFromPointSegment(start, meta.point, arcSegmentLength, lines);
+                        addLinesFromPointSegment(start, meta.point, arcSegmentation, lines);
                         // if the last set point is in a different or unknown unit, crate a new point-instance with the correct unit set
                         if (start.getUnits() != UnitUtils.Units.MM && gp.getCurrentState().isMetric){
                             start=new Position(
@@ -196,9 +222,8 @@ public class GcodeViewParse {
      * Turns a point segment into one or more LineSegment. Arcs are expanded.
      * Keeps track of the minimum and maximum x/y/z locations.
      */
-    private List<LineSegment> addLinesFromPointSegment(final Position start, final PointSegment endSegment, double arcSegmentLength, List<LineSegment> ret) {
+    private List<LineSegment> addLinesFromPointSegment(final Position start, final PointSegment endSegment, ArcSegmentation arcSegmentation, List<LineSegment> ret) {
         // For a line segment list ALL arcs must be converted to lines.
-        double minArcLength = 0;
         LineSegment ls;
         endSegment.convertToMetric();
         
@@ -211,7 +236,7 @@ public class GcodeViewParse {
                 List<Position> points =
                     GcodePreprocessorUtils.generatePointsAlongArcBDring(
                         start, end, endSegment.center(), endSegment.isClockwise(),
-                        endSegment.getRadius(), minArcLength, arcSegmentLength, new PlaneFormatter(endSegment.getPlaneState()));
+                        endSegment.getRadius(), arcSegmentation, new PlaneFormatter(endSegment.getPlaneState()));
                 // Create line segments from points.
                 if (points != null) {
                     Position startPoint = start;
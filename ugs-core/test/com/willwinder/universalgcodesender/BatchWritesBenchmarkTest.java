@@ -0,0 +1,131 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender;
+
+import com.willwinder.universalgcodesender.connection.ConnectionDriver;
+import com.willwinder.universalgcodesender.connection.LoopBackConnection;
+import com.willwinder.universalgcodesender.listeners.CommunicatorListener;
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams commands through the loopback connection with and without batched
+ * writes and prints the number of writes per command and the throughput.
+ *
+ * The loopback connection has no cost per write, so its throughput only
+ * shows part of the gain. The writes saved are what batching is about, on a
+ * serial port each of them is a system call and a USB transfer. The timing depends on the machine, so it only
+ * runs with the benchmarks profile: mvn test -Pbenchmarks
+ *
+ * @author wwinder
+ */
+public class BatchWritesBenchmarkTest {
+    private static final int NUM_COMMANDS = 5000;
+
+    @Test
+    public void streamWithAndWithoutBatchWrites() throws Exception {
+        Result unbatched = stream(false);
+        Result batched = stream(true);
+
+        System.out.println(String.format("Loopback streaming unbatched: %.2f writes/command, %.0f commands/s",
+                unbatched.writesPerCommand(), unbatched.commandsPerSecond));
+        System.out.println(String.format("Loopback streaming batched: %.2f writes/command, %.0f commands/s",
+                batched.writesPerCommand(), batched.commandsPerSecond));
+        assertTrue("Batching should need fewer writes", batched.writes < unbatched.writes);
+    }
+
+    private static class Result {
+        private final long writes;
+        private final double commandsPerSecond;
+
+        private Result(long writes, double commandsPerSecond) {
+            this.writes = writes;
+            this.commandsPerSecond = commandsPerSecond;
+        }
+
+        private double writesPerCommand() {
+            return (double) writes / NUM_COMMANDS;
+        }
+    }
+
+    private Result stream(boolean batchWrites) throws Exception {
+        LoopBackCommunicator communicator = new LoopBackCommunicator();
+        communicator.setBatchWritesEnabled(batchWrites);
+
+        // Counts the writes of streamed commands.
+        AtomicLong writes = new AtomicLong();
+        communicator.connection = new LoopBackConnection(0) {
+            @Override
+            public void sendStringToComm(String command) throws Exception {
+                writes.incrementAndGet();
+                super.sendStringToComm(command);
+            }
+        };
+
+        CountDownLatch completed = new CountDownLatch(NUM_COMMANDS);
+        communicator.addListener(new CommunicatorListener() {
+            @Override
+            public void rawResponseListener(String response) {
+                if ("ok".equals(response)) {
+                    completed.countDown();
+                }
+            }
+
+            @Override
+            public void commandSent(GcodeCommand command) {
+            }
+
+            @Override
+            public void commandSkipped(GcodeCommand command) {
+            }
+
+            @Override
+            public void communicatorPausedOnError() {
+            }
+        });
+
+        communicator.connect(ConnectionDriver.JSERIALCOMM, "loopback", 0);
+        try {
+            // The loopback connection doesn't respond to the first two commands.
+            communicator.connection.sendStringToComm("G4P0\n");
+            communicator.connection.sendStringToComm("G4P0\n");
+
+            writes.set(0);
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_COMMANDS; i++) {
+                // A completed long command makes room for several short ones.
+                String command = i % 4 == 0 ? "G1X100.1234Y200.5678Z3.5F1000" : "G1X" + (i % 100);
+                communicator.queueCommand(new GcodeCommand(command));
+            }
+            communicator.streamCommands();
+
+            assertTrue("All commands should be completed", completed.await(60, TimeUnit.SECONDS));
+            long elapsed = System.nanoTime() - start;
+            return new Result(writes.get(), NUM_COMMANDS / (elapsed / 1e9));
+        } finally {
+            communicator.disconnect();
+        }
+    }
+}
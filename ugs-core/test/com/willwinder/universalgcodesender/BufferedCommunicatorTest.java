@@ -22,6 +22,7 @@ import com.willwinder.universalgcodesender.connection.Connection;
 import com.willwinder.universalgcodesender.connection.ConnectionDriver;
 import com.willwinder.universalgcodesender.listeners.CommunicatorListener;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.EventLoop;
 import com.willwinder.universalgcodesender.utils.GcodeStreamReader;
 import com.willwinder.universalgcodesender.utils.GcodeStreamTest;
 import com.willwinder.universalgcodesender.utils.GcodeStreamWriter;
@@ -34,18 +35,25 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingDeque;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -395,6 +403,178 @@ public class BufferedCommunicatorTest {
         System.out.println("-N/A for abstract class-");
     }
 
+    @Test
+    public void batchWritesShouldSendAllCommandsInOneWrite() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        instance.setConnection(connection);
+        instance.setBatchWritesEnabled(true);
+
+        ArgumentCaptor<String> commandCaptor = ArgumentCaptor.forClass(String.class);
+        doNothing().when(connection).sendStringToComm(commandCaptor.capture());
+
+        CommunicatorListener listener = mock(CommunicatorListener.class);
+        ArgumentCaptor<GcodeCommand> sentCaptor = ArgumentCaptor.forClass(GcodeCommand.class);
+        instance.addListener(listener);
+
+        instance.queueCommand(new GcodeCommand("G0X1"));
+        instance.queueCommand(new GcodeCommand("G0X2"));
+        instance.queueCommand(new GcodeCommand("G0X3"));
+
+        // When
+        instance.streamCommands();
+
+        // Then
+        assertEquals(1, commandCaptor.getAllValues().size());
+        assertEquals("G0X1\nG0X2\nG0X3\n", commandCaptor.getValue());
+
+        verify(listener, times(3)).commandSent(sentCaptor.capture());
+        assertEquals("G0X1", sentCaptor.getAllValues().get(0).getCommandString());
+        assertEquals("G0X2", sentCaptor.getAllValues().get(1).getCommandString());
+        assertEquals("G0X3", sentCaptor.getAllValues().get(2).getCommandString());
+        assertEquals(3, instance.numActiveCommands());
+    }
+
+    @Test
+    public void batchWritesShouldNeedFewerWritesPerCommand() throws Exception {
+        // A completed long command makes room for the short ones after it.
+        List<String> commands = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            commands.add(i % 4 == 0 ? "G1X100.1234Y200.5678Z3.5F1000" : "G1X" + (i % 10));
+        }
+
+        List<String> unbatchedWrites = stream(commands, false);
+        List<String> batchedWrites = stream(commands, true);
+
+        // The same bytes are written with fewer writes.
+        assertEquals(String.join("", unbatchedWrites), String.join("", batchedWrites));
+        assertEquals(commands.size(), unbatchedWrites.size());
+        assertTrue("Batched writes: " + batchedWrites.size(), batchedWrites.size() < commands.size() * 3 / 4);
+    }
+
+    @Test
+    public void failedBatchWriteShouldPauseTheSend() throws Exception {
+        BufferedCommunicator communicator = new BufferedCommunicatorImpl(new LinkedBlockingDeque<>(), new LinkedBlockingDeque<>());
+        Field f = AbstractCommunicator.class.getDeclaredField("launchEventsInDispatchThread");
+        f.setAccessible(true);
+        f.set(communicator, false);
+
+        Connection connection = mock(Connection.class);
+        doThrow(new IOException("Port closed")).when(connection).sendStringToComm(any());
+        CommunicatorListener listener = mock(CommunicatorListener.class);
+        communicator.setConnection(connection);
+        communicator.addListener(listener);
+        communicator.setBatchWritesEnabled(true);
+
+        communicator.queueCommand(new GcodeCommand("G0X1"));
+        communicator.queueCommand(new GcodeCommand("G0X2"));
+        communicator.streamCommands();
+
+        assertTrue(communicator.isPaused());
+        verify(listener).communicatorPausedOnError();
+        verify(listener, never()).commandSent(any());
+    }
+
+    /**
+     * Streams the commands with a controller responding "ok" to one command
+     * at a time.
+     * @return the strings written to the connection.
+     */
+    private List<String> stream(List<String> commands, boolean batchWrites) throws Exception {
+        BufferedCommunicator communicator = new BufferedCommunicatorImpl(new LinkedBlockingDeque<>(), new LinkedBlockingDeque<>());
+        Field f = AbstractCommunicator.class.getDeclaredField("launchEventsInDispatchThread");
+        f.setAccessible(true);
+        f.set(communicator, false);
+
+        Connection connection = mock(Connection.class);
+        ArgumentCaptor<String> writeCaptor = ArgumentCaptor.forClass(String.class);
+        doNothing().when(connection).sendStringToComm(writeCaptor.capture());
+        communicator.setConnection(connection);
+        communicator.setBatchWritesEnabled(batchWrites);
+
+        commands.forEach(command -> communicator.queueCommand(new GcodeCommand(command)));
+        communicator.streamCommands();
+        while (communicator.areActiveCommands()) {
+            communicator.handleResponseMessage("ok");
+        }
+        return writeCaptor.getAllValues();
+    }
+
+    @Test
+    public void batchWritesShouldBeFlushedBeforeSkippedCommands() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        instance.setConnection(connection);
+        instance.setBatchWritesEnabled(true);
+
+        CommunicatorListener listener = mock(CommunicatorListener.class);
+        instance.addListener(listener);
+
+        instance.queueCommand(new GcodeCommand("G0X1"));
+        instance.queueCommand(new GcodeCommand(""));
+        instance.queueCommand(new GcodeCommand("G0X2"));
+
+        // When
+        instance.streamCommands();
+
+        // Then
+        InOrder inOrder = inOrder(connection, listener);
+        inOrder.verify(connection).sendStringToComm("G0X1\n");
+        inOrder.verify(listener).commandSent(any(GcodeCommand.class));
+        inOrder.verify(listener).commandSkipped(any(GcodeCommand.class));
+        inOrder.verify(connection).sendStringToComm("G0X2\n");
+        inOrder.verify(listener).commandSent(any(GcodeCommand.class));
+    }
+
+    @Test
+    public void eventLoopShouldOwnStreamingAndListenerEvents() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        instance.setConnection(connection);
+        EventLoop eventLoop = new EventLoop("test event loop");
+        instance.setEventLoop(eventLoop);
+
+        List<Thread> listenerThreads = new ArrayList<>();
+        instance.addListener(new CommunicatorListener() {
+            @Override
+            public void commandSent(GcodeCommand command) {
+                listenerThreads.add(Thread.currentThread());
+            }
+
+            @Override
+            public void rawResponseListener(String response) {
+                listenerThreads.add(Thread.currentThread());
+            }
+
+            @Override
+            public void commandSkipped(GcodeCommand command) {
+            }
+
+            @Override
+            public void communicatorPausedOnError() {
+            }
+        });
+
+        try {
+            // When
+            instance.queueCommand(new GcodeCommand("G0X1"));
+            instance.streamCommands();
+            instance.handleResponseMessage("ok");
+
+            // Then
+            eventLoop.call(() -> {
+                assertEquals(0, instance.numActiveCommands());
+                assertEquals(2, listenerThreads.size());
+                for (Thread thread : listenerThreads) {
+                    assertEquals(Thread.currentThread(), thread);
+                }
+            });
+            verify(connection).sendStringToComm("G0X1\n");
+        } finally {
+            eventLoop.shutdown();
+        }
+    }
+
     @Test
     public void testStreamCommandsOrderStringCommandsFirst() throws Exception {
         // Given
@@ -18,6 +18,7 @@
  */
 package com.willwinder.universalgcodesender;
 
+import com.willwinder.universalgcodesender.listeners.ControllerStatus.BufferState;
 import com.willwinder.universalgcodesender.utils.CommUtils;
 import com.willwinder.universalgcodesender.mockobjects.MockConnection;
 import com.willwinder.universalgcodesender.mockobjects.MockGrbl;
@@ -489,4 +490,69 @@ public class GrblCommunicatorTest {
         assertEquals(0, cb.size());
         assertFalse("The communicator should not be paused when last command has an error", instance.isPaused());
     }
+
+    @Test
+    public void bufferReportShouldGrowTheRxBuffer() {
+        MockConnection mc = new MockConnection(mg.in, mg.out);
+        GrblCommunicator instance = new GrblCommunicator(cb, asl, mc);
+        assertEquals(GrblUtils.GRBL_RX_BUFFER_SIZE, instance.getBufferSize());
+
+        // A standard GRBL doesn't change the buffer size
+        instance.updateBufferState(new BufferState(15, 127));
+        assertEquals(GrblUtils.GRBL_RX_BUFFER_SIZE, instance.getBufferSize());
+
+        // A board with a larger buffer
+        instance.updateBufferState(new BufferState(35, 1023));
+        assertEquals(1018, instance.getBufferSize());
+
+        // Twenty commands fit in the larger buffer
+        String thirtyNineCharString = "thirty-nine character command here.....";
+        for (int i = 0; i < 20; i++) {
+            instance.queueCommand(new GcodeCommand(thirtyNineCharString));
+        }
+        instance.streamCommands();
+        assertEquals(20, asl.size());
+
+        // Reports with commands in flight doesn't change the size
+        instance.updateBufferState(new BufferState(20, 300));
+        assertEquals(1018, instance.getBufferSize());
+        assertEquals(35, instance.getPlannerBlockCount());
+        assertEquals(20, instance.getPlannerBlocksAvailable());
+        assertEquals(15 / 35.0, instance.getPlannerOccupancy(), 0.0001);
+    }
+
+    @Test
+    public void resetShouldClearTheSentCharacters() {
+        MockConnection mc = new MockConnection(mg.in, mg.out);
+        GrblCommunicator instance = new GrblCommunicator(cb, asl, mc);
+        String thirtyNineCharString = "thirty-nine character command here.....";
+        instance.queueCommand(new GcodeCommand(thirtyNineCharString));
+        instance.queueCommand(new GcodeCommand(thirtyNineCharString));
+        instance.streamCommands();
+        assertEquals(80, instance.getSentBufferSize());
+
+        // The controller drops its buffer on a reset
+        instance.resetBuffers();
+        assertEquals(0, instance.getSentBufferSize());
+    }
+
+    @Test
+    public void emptyBufferReportShouldCorrectDrift() {
+        MockConnection mc = new MockConnection(mg.in, mg.out);
+        GrblCommunicator instance = new GrblCommunicator(cb, asl, mc);
+        String thirtyNineCharString = "thirty-nine character command here.....";
+        instance.queueCommand(new GcodeCommand(thirtyNineCharString));
+        instance.streamCommands();
+
+        // The active command was lost without its characters being released
+        asl.clear();
+        assertEquals(40, instance.getSentBufferSize());
+
+        // While the controller still has data it isn't corrected
+        instance.updateBufferState(new BufferState(15, 80));
+        assertEquals(40, instance.getSentBufferSize());
+
+        instance.updateBufferState(new BufferState(15, 127));
+        assertEquals(0, instance.getSentBufferSize());
+    }
 }
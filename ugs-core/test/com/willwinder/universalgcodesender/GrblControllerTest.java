@@ -27,6 +27,7 @@ import com.willwinder.universalgcodesender.model.PartialPosition;
 import com.willwinder.universalgcodesender.model.UGSEvent.ControlState;
 import com.willwinder.universalgcodesender.model.UnitUtils;
 import com.willwinder.universalgcodesender.services.MessageService;
+import com.willwinder.universalgcodesender.status.StatusSource;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
 import com.willwinder.universalgcodesender.utils.GUIHelpers;
 import com.willwinder.universalgcodesender.utils.GcodeStreamReader;
@@ -1042,6 +1043,26 @@ public class GrblControllerTest {
         // TODO: Test that status strings trigger both listener events
         //          (verbose console and position event)
     }
+    @Test
+    public void pushedStatusReportsShouldStopPolling() throws Exception {
+        GrblController instance = new GrblController(mgc);
+        instance.openCommPort(getSettings().getConnectionDriver(), "foo", 2400);
+        instance.rawResponseHandler("Grbl 1.1f");
+        assertEquals(StatusSource.Mode.POLL, instance.getStatusSource().getMode());
+
+        // Reports arriving without being requested
+        for (int i = 0; i < 5; i++) {
+            instance.rawResponseHandler("<Idle|MPos:0.000,0.000,0.000|FS:0,0>");
+        }
+        assertEquals(StatusSource.Mode.PUSH, instance.getStatusSource().getMode());
+        assertTrue(instance.getStatusSource().isRunning());
+
+        // A reset goes back to polling
+        instance.rawResponseHandler("Grbl 1.1f");
+        assertEquals(StatusSource.Mode.POLL, instance.getStatusSource().getMode());
+        instance.closeCommPort();
+    }
+
     /**
      * Test of rawResponseListener method, of class GrblController.
      */
@@ -0,0 +1,87 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender;
+
+import com.willwinder.universalgcodesender.listeners.ControllerStatus;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Parses the status reports in the test corpus with GrblUtils and with the
+ * GrblStatusParser, checks that both give the same status for every report
+ * and prints the throughput. Only run with "mvn test -Pbenchmarks".
+ *
+ * @author wwinder
+ */
+public class GrblStatusParserBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void parseWithGrblUtilsAndGrblStatusParser() throws Exception {
+        List<String> reports = GrblStatusParserTest.readStatusReports();
+        Capabilities capabilities = new Capabilities();
+        capabilities.addCapability(GrblCapabilitiesConstants.V1_FORMAT);
+
+        // Compare single reports, the two keep values between reports differently
+        for (String report : reports) {
+            ControllerStatus expected = GrblUtils.getStatusFromStatusString(null, report, capabilities, Units.MM);
+            assertThat(new GrblStatusParser().parse(report, Units.MM)).as(report)
+                    .isEqualToComparingFieldByFieldRecursively(expected);
+        }
+
+        ControllerStatus[] last = new ControllerStatus[1];
+        Runnable grblUtils = () -> {
+            for (String report : reports) {
+                last[0] = GrblUtils.getStatusFromStatusString(last[0], report, capabilities, Units.MM);
+            }
+        };
+        GrblStatusParser parser = new GrblStatusParser();
+        Runnable statusParser = () -> {
+            for (String report : reports) {
+                last[0] = parser.parse(report, Units.MM);
+            }
+        };
+
+        double grblUtilsRate = measure(grblUtils, reports.size());
+        double statusParserRate = measure(statusParser, reports.size());
+        assertNotNull(last[0]);
+
+        System.out.println(String.format("Status reports: %.0f reports/s with GrblUtils, %.0f reports/s with GrblStatusParser",
+                grblUtilsRate, statusParserRate));
+    }
+
+    private static double measure(Runnable parse, int reportsPerIteration) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parse.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) ITERATIONS * reportsPerIteration / (elapsed / 1e9);
+    }
+}
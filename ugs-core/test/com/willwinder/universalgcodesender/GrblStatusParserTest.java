@@ -0,0 +1,112 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender;
+
+import com.willwinder.universalgcodesender.listeners.ControllerState;
+import com.willwinder.universalgcodesender.listeners.ControllerStatus;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GrblStatusParserTest {
+
+    /**
+     * @return the GRBL 1.1 status reports in the test corpus
+     */
+    static List<String> readStatusReports() throws IOException {
+        try (InputStream input = GrblStatusParserTest.class.getClassLoader().getResourceAsStream("grbl/status_reports.txt")) {
+            return IOUtils.readLines(input, StandardCharsets.UTF_8).stream()
+                    .filter(line -> line.startsWith("<"))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void parserShouldMatchGrblUtils() throws IOException {
+        Capabilities capabilities = new Capabilities();
+        capabilities.addCapability(GrblCapabilitiesConstants.V1_FORMAT);
+
+        for (String report : readStatusReports()) {
+            ControllerStatus expected = GrblUtils.getStatusFromStatusString(null, report, capabilities, Units.MM);
+            ControllerStatus status = new GrblStatusParser().parse(report, Units.MM);
+            assertThat(status).as(report).isEqualToComparingFieldByFieldRecursively(expected);
+        }
+    }
+
+    @Test
+    public void unchangedReportsShouldReturnTheSameStatus() {
+        GrblStatusParser parser = new GrblStatusParser();
+        ControllerStatus first = parser.parse("<Run|MPos:1.000,2.000,3.000|Bf:15,128|FS:500,0>", Units.MM);
+        assertThat(parser.parse("<Run|MPos:1.000,2.000,3.000|Bf:15,128|FS:500,0>", Units.MM)).isSameAs(first);
+
+        ControllerStatus moved = parser.parse("<Run|MPos:1.500,2.000,3.000|Bf:15,128|FS:500,0>", Units.MM);
+        assertThat(moved).isNotSameAs(first);
+        assertThat(moved.getMachineCoord()).isEqualTo(new Position(1.5, 2, 3, Units.MM));
+        assertThat(moved.getBufferState()).isSameAs(first.getBufferState());
+        assertThat(moved.getStateString()).isSameAs(first.getStateString());
+    }
+
+    @Test
+    public void valuesShouldBeKeptBetweenReports() {
+        GrblStatusParser parser = new GrblStatusParser();
+        parser.parse("<Run|MPos:10.000,20.000,30.000|FS:500,1000|WCO:1.000,2.000,3.000|Ov:90,100,110|A:SF>", Units.MM);
+        ControllerStatus status = parser.parse("<Run|MPos:11.000,20.000,30.000|Bf:3,10>", Units.MM);
+
+        assertThat(status.getWorkCoordinateOffset()).isEqualTo(new Position(1, 2, 3, Units.MM));
+        assertThat(status.getWorkCoord()).isEqualTo(new Position(10, 18, 27, Units.MM));
+        assertThat(status.getFeedSpeed()).isEqualTo(500);
+        assertThat(status.getSpindleSpeed()).isEqualTo(1000);
+        assertThat(status.getOverrides().spindle).isEqualTo(110);
+        assertThat(status.getAccessoryStates().Flood).isTrue();
+
+        // Accessories are only reported with the overrides, pins whenever they are triggered
+        status = parser.parse("<Hold:0|MPos:11.000,20.000,30.000|Pn:P|Ov:100,100,100>", Units.MM);
+        assertThat(status.getState()).isEqualTo(ControllerState.HOLD);
+        assertThat(status.getStateString()).isEqualTo("Hold");
+        assertThat(status.getAccessoryStates().Flood).isFalse();
+        assertThat(status.getEnabledPins().Probe).isTrue();
+        assertThat(status.getBufferState()).isNull();
+
+        status = parser.parse("<Idle|MPos:11.000,20.000,30.000>", Units.MM);
+        assertThat(status.getEnabledPins().Probe).isFalse();
+
+        parser.reset();
+        status = parser.parse("<Idle|MPos:11.000,20.000,30.000>", Units.MM);
+        assertThat(status.getWorkCoord()).isEqualTo(new Position(11, 20, 30, Units.MM));
+        assertThat(status.getOverrides()).isNull();
+    }
+
+    @Test
+    public void malformedFieldsShouldBeIgnored() {
+        GrblStatusParser parser = new GrblStatusParser();
+        ControllerStatus status = parser.parse("<Idle|MPos:1.0,x,3.0|WPos:1.0,2.0,3.0|Foo|Bar:1|Bf:1>", Units.INCH);
+        assertThat(status.getWorkCoord()).isEqualTo(new Position(1, 2, 3, Units.INCH));
+        assertThat(status.getMachineCoord()).isEqualTo(new Position(1, 2, 3, Units.INCH));
+        assertThat(status.getBufferState()).isNull();
+    }
+}
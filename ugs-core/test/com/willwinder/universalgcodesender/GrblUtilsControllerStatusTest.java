@@ -64,6 +64,22 @@ public class GrblUtilsControllerStatusTest {
         assertThat(controllerStatus.getAccessoryStates().SpindleCW).isTrue();
     }
 
+    @Test
+    public void getStatusFromStringVersion1WithBufferState() {
+        String status = "<Run|MPos:1.1,2.2,3.3|Bf:3,1008>";
+        Capabilities version = new Capabilities();
+        version.addCapability(GrblCapabilitiesConstants.V1_FORMAT);
+        UnitUtils.Units unit = UnitUtils.Units.MM;
+
+        ControllerStatus controllerStatus = GrblUtils.getStatusFromStatusString(null, status, version, unit);
+        assertThat(controllerStatus.getBufferState().plannerBlocksAvailable).isEqualTo(3);
+        assertThat(controllerStatus.getBufferState().rxBytesAvailable).isEqualTo(1008);
+
+        // The buffer state is only known from reports which contain it
+        controllerStatus = GrblUtils.getStatusFromStatusString(controllerStatus, "<Run|MPos:1.1,2.2,3.3>", version, unit);
+        assertThat(controllerStatus.getBufferState()).isNull();
+    }
+
     @Test
     public void getStatusFromStringVersion1WithoutWorkCoordinateOffsetStatusString() {
         String status = "<Idle|MPos:1.1,2.2,3.3|WPos:4.4,5.5,6.6|Ov:1,2,3|F:12345.6|FS:12345.7,65432.1|Pn:XYZPDHRS|A:SFMC>";
@@ -0,0 +1,68 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender;
+
+import com.willwinder.universalgcodesender.connection.Connection;
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+public class TinyGCommunicatorTest {
+    private TinyGCommunicator instance;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        instance = new TinyGCommunicator();
+        Field f = AbstractCommunicator.class.getDeclaredField("launchEventsInDispatchThread");
+        f.setAccessible(true);
+        f.set(instance, false);
+
+        connection = mock(Connection.class);
+        instance.setConnection(connection);
+    }
+
+    @Test
+    public void statusRequestsSentImmediatelyShouldNotCompleteActiveCommands() throws Exception {
+        instance.queueCommand(new GcodeCommand("{\"gc\":\"G1X10F100\"}"));
+        instance.streamCommands();
+        instance.pauseSend();
+
+        instance.sendStringImmediately("{sr:n}");
+
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).sendStringToComm("{\"gc\":\"G1X10F100\"}\n");
+        inOrder.verify(connection).sendStringToComm("{sr:n}\n");
+
+        // The response to the status request
+        instance.handleResponseMessage("{\"r\":{\"sr\":{\"stat\":5}},\"f\":[1,0,6]}");
+        assertEquals(1, instance.numActiveCommands());
+
+        // The response to the streamed command
+        instance.handleResponseMessage("{\"r\":{\"gc\":\"G1X10F100\"},\"f\":[1,0,20]}");
+        assertEquals(0, instance.numActiveCommands());
+    }
+}
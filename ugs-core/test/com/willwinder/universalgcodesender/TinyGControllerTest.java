@@ -33,6 +33,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -73,6 +74,19 @@ public class TinyGControllerTest {
         verify(controllerListener, times(0)).commandComplete(any());
     }
 
+    @Test
+    public void closeCommPortShouldStopTheStatusSourceWhenThePortWasLost() throws Exception {
+        // Given
+        controller.getStatusSource().start();
+        when(communicator.isConnected()).thenReturn(false);
+
+        // When
+        controller.closeCommPort();
+
+        // Then
+        assertFalse(controller.getStatusSource().isRunning());
+    }
+
     @Test
     public void rawResponseWithResultForNoCommandShouldNotDispatchCommandComplete() {
         // Given
@@ -0,0 +1,156 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.connection;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutputSchedulerTest {
+
+    @Test
+    public void bulkDataShouldBeWrittenInSlices() throws Exception {
+        List<String> written = new ArrayList<>();
+        OutputScheduler scheduler = new OutputScheduler(
+                (data, offset, length, urgent) -> written.add(new String(data, offset, length)), 5);
+
+        scheduler.writeBulk("G0X1\nG0X2\nG0".getBytes());
+
+        assertEquals(Arrays.asList("G0X1\n", "G0X2\n", "G0"), written);
+    }
+
+    @Test
+    public void urgentBytesShouldBeWrittenBeforeTheRestOfALargeBuffer() throws Exception {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstSliceStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSlice = new CountDownLatch(1);
+
+        OutputScheduler scheduler = new OutputScheduler((data, offset, length, urgent) -> {
+            if (written.isEmpty()) {
+                firstSliceStarted.countDown();
+                releaseFirstSlice.await(5, TimeUnit.SECONDS);
+            }
+            written.add(urgent ? "!" : new String(data, offset, length));
+        });
+
+        char[] bulk = new char[OutputScheduler.DEFAULT_SLICE_SIZE * 10];
+        Arrays.fill(bulk, 'a');
+        Thread bulkWriter = new Thread(() -> {
+            try {
+                scheduler.writeBulk(new String(bulk).getBytes());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        bulkWriter.start();
+        assertTrue(firstSliceStarted.await(5, TimeUnit.SECONDS));
+
+        // Queue a feed hold while the first slice is being written.
+        Thread urgentWriter = new Thread(() -> {
+            try {
+                scheduler.writeUrgent((byte) '!');
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        urgentWriter.start();
+        Thread.sleep(50);
+        releaseFirstSlice.countDown();
+
+        bulkWriter.join(5000);
+        urgentWriter.join(5000);
+
+        // The feed hold only waits for the first slice.
+        assertEquals(11, written.size());
+        assertEquals(OutputScheduler.DEFAULT_SLICE_SIZE, written.get(0).length());
+        assertEquals("!", written.get(1));
+        assertEquals(new String(bulk), String.join("", written).replace("!", ""));
+    }
+
+    @Test
+    public void urgentBytesShouldBeWrittenBetweenBulkWrites() throws Exception {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstWrite = new CountDownLatch(1);
+
+        OutputScheduler scheduler = new OutputScheduler((data, offset, length, urgent) -> {
+            if (written.isEmpty()) {
+                firstWriteStarted.countDown();
+                releaseFirstWrite.await(5, TimeUnit.SECONDS);
+            }
+            written.add(urgent ? "!" : new String(data, offset, length));
+        });
+
+        Thread bulkWriter = new Thread(() -> {
+            try {
+                scheduler.writeBulk("aa".getBytes());
+                scheduler.writeBulk("bb".getBytes());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        bulkWriter.start();
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+
+        // Queue a real-time byte while the first write is in progress
+        Thread urgentWriter = new Thread(() -> {
+            try {
+                scheduler.writeUrgent((byte) '!');
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        urgentWriter.start();
+        Thread.sleep(100);
+        releaseFirstWrite.countDown();
+
+        bulkWriter.join(5000);
+        urgentWriter.join(5000);
+
+        assertEquals("aa", written.get(0));
+        assertEquals("!", written.get(1));
+        assertEquals("bb", written.get(2));
+
+        assertEquals(1, scheduler.getUrgentBytesWritten());
+        // Most of the sleep, the byte is queued shortly after the thread starts.
+        assertTrue(scheduler.getMaxUrgentLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(scheduler.getMaxUrgentLatencyNanos(), scheduler.getLastUrgentLatencyNanos());
+    }
+
+    @Test
+    public void statisticsShouldBeReset() throws Exception {
+        OutputScheduler scheduler = new OutputScheduler((data, offset, length, urgent) -> {});
+        scheduler.writeUrgent((byte) '?');
+        scheduler.writeUrgent((byte) '?');
+        assertEquals(2, scheduler.getUrgentBytesWritten());
+
+        scheduler.resetStatistics();
+        assertEquals(0, scheduler.getUrgentBytesWritten());
+        assertEquals(0, scheduler.getMaxUrgentLatencyNanos());
+        assertEquals(0, scheduler.getAverageUrgentLatencyNanos());
+    }
+}
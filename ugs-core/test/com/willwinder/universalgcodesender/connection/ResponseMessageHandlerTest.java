@@ -21,6 +21,13 @@ package com.willwinder.universalgcodesender.connection;
 import com.willwinder.universalgcodesender.AbstractCommunicator;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -120,4 +127,55 @@ public class ResponseMessageHandlerTest {
         verify(communicator, times(1)).handleResponseMessage(" test2 ");
         verify(communicator, times(1)).handleResponseMessage("test3");
     }
+
+    @Test
+    public void lineEndingSplitBetweenChunksShouldDispatchMessage() throws Exception {
+        // Given
+        AbstractCommunicator communicator = mock(AbstractCommunicator.class);
+        responseMessageHandler.addListener(communicator);
+        byte[] data = "ok\r\n<Idle>\r\n".getBytes();
+
+        // When
+        responseMessageHandler.handleResponse(data, 0, 3);
+        responseMessageHandler.handleResponse(data, 3, 5);
+        responseMessageHandler.handleResponse(data, 8, data.length - 8);
+
+        // Then
+        verify(communicator, times(1)).handleResponseMessage("ok");
+        verify(communicator, times(1)).handleResponseMessage("<Idle>");
+    }
+
+    @Test
+    public void byteBufferResponsesShouldDispatchMessages() throws Exception {
+        // Given
+        AbstractCommunicator communicator = mock(AbstractCommunicator.class);
+        responseMessageHandler.addListener(communicator);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put("test1\ntes".getBytes()).flip();
+
+        // When
+        responseMessageHandler.handleResponse(buffer);
+        responseMessageHandler.handleResponse(ByteBuffer.wrap("t2\n".getBytes()));
+
+        // Then
+        assertFalse(buffer.hasRemaining());
+        verify(communicator, times(1)).handleResponseMessage("test1");
+        verify(communicator, times(1)).handleResponseMessage("test2");
+    }
+
+    @Test
+    public void repeatedShortMessagesShouldBeReused() throws Exception {
+        // Given
+        AbstractCommunicator communicator = mock(AbstractCommunicator.class);
+        responseMessageHandler.addListener(communicator);
+        ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+
+        // When
+        responseMessageHandler.handleResponse("ok\nok\n");
+
+        // Then
+        verify(communicator, times(2)).handleResponseMessage(messages.capture());
+        assertEquals("ok", messages.getAllValues().get(0));
+        assertSame(messages.getAllValues().get(0), messages.getAllValues().get(1));
+    }
 }
@@ -0,0 +1,159 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.connection;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TCPConnectionTest {
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<String> responses = new CopyOnWriteArrayList<>();
+    private TCPConnection connection;
+
+    /**
+     * Starts a server which greets like GRBL and answers every line with "ok".
+     * It closes the connection when it receives "close".
+     */
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverThread = new Thread(() -> {
+            try (Socket socket = serverSocket.accept()) {
+                OutputStream out = socket.getOutputStream();
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                out.write("Grbl 1.1f ['$' for help]\r\n".getBytes());
+                out.flush();
+
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.equals("close")) {
+                        return;
+                    }
+                    received.add(line);
+                    out.write("ok\r\n".getBytes());
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+                // The client went away
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        connection = new TCPConnection();
+        connection.setUri("tcp://localhost:" + serverSocket.getLocalPort());
+        connection.addListener(responses::add);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.closePort();
+        serverSocket.close();
+        serverThread.join(1000);
+    }
+
+    private void waitForResponses(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && responses.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, responses.size());
+    }
+
+    @Test
+    public void commandsShouldBeAnswered() throws Exception {
+        assertTrue(connection.openPort());
+        assertTrue(connection.isTcpNoDelay());
+
+        connection.sendStringToComm("G0X1\n");
+        connection.sendStringToComm("G0X2\n");
+
+        waitForResponses(3);
+        assertEquals("Grbl 1.1f ['$' for help]", responses.get(0));
+        assertEquals("ok", responses.get(1));
+        assertEquals("ok", responses.get(2));
+        assertEquals("G0X1", received.get(0));
+        assertEquals("G0X2", received.get(1));
+    }
+
+    @Test
+    public void manyWritesShouldArriveInOrder() throws Exception {
+        connection.openPort();
+
+        int count = 5000;
+        for (int i = 0; i < count; i++) {
+            connection.sendStringToComm("G1X" + i + "\n");
+        }
+
+        waitForResponses(count + 1);
+        for (int i = 0; i < count; i++) {
+            assertEquals("G1X" + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void unreachablePortShouldThrowConnectionException() throws Exception {
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+        serverThread.join(1000);
+
+        TCPConnection unreachable = new TCPConnection();
+        unreachable.setUri("tcp://localhost:" + port);
+        try {
+            unreachable.openPort();
+            fail("Connecting to a closed port should fail");
+        } catch (ConnectionException e) {
+            assertFalse(unreachable.isOpen());
+        }
+    }
+
+    @Test
+    public void writingAfterRemoteCloseShouldThrowConnectionException() throws Exception {
+        connection.openPort();
+        connection.sendStringToComm("close\n");
+
+        for (int i = 0; i < 500 && connection.isOpen(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse("The connection should be closed", connection.isOpen());
+
+        try {
+            connection.sendStringToComm("G0X1\n");
+            fail("Writing to a lost connection should fail");
+        } catch (ConnectionException e) {
+            // expected
+        }
+    }
+}
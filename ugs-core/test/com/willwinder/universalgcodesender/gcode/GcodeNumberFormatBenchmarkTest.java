@@ -0,0 +1,109 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import com.willwinder.universalgcodesender.i18n.Localization;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Formats coordinates with DecimalFormat and with GcodeNumberFormat, checks
+ * that both give the same text and prints the heap allocated and the
+ * throughput per formatted number. Only run with "mvn test -Pbenchmarks".
+ *
+ * @author wwinder
+ */
+public class GcodeNumberFormatBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 100;
+    private static final int DECIMALS = 4;
+
+    private interface Format {
+        int run();
+    }
+
+    @Test
+    public void formatCoordinates() {
+        Random random = new Random(42);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (random.nextDouble() - 0.5) * 1000;
+        }
+
+        DecimalFormat df = new DecimalFormat("0.####", Localization.dfs);
+        for (double value : values) {
+            // Values rounding to zero are written as "0" instead of "-0"
+            String expected = "-0".equals(df.format(value)) ? "0" : df.format(value);
+            assertEquals(expected, GcodeNumberFormat.format(value, DECIMALS));
+        }
+
+        StringBuilder dfBuilder = new StringBuilder();
+        Format decimalFormat = () -> {
+            int length = 0;
+            for (double value : values) {
+                dfBuilder.setLength(0);
+                dfBuilder.append("X").append(df.format(value));
+                length += dfBuilder.length();
+            }
+            return length;
+        };
+
+        StringBuilder builder = new StringBuilder();
+        Format gcodeNumberFormat = () -> {
+            int length = 0;
+            for (double value : values) {
+                builder.setLength(0);
+                GcodeNumberFormat.append(builder.append('X'), value, DECIMALS);
+                length += builder.length();
+            }
+            return length;
+        };
+
+        String decimalFormatResult = measure(decimalFormat, values.length);
+        String gcodeNumberFormatResult = measure(gcodeNumberFormat, values.length);
+        assertEquals(decimalFormat.run(), gcodeNumberFormat.run());
+
+        System.out.println("DecimalFormat: " + decimalFormatResult);
+        System.out.println("GcodeNumberFormat: " + gcodeNumberFormatResult);
+    }
+
+    private static String measure(Format format, int numbersPerIteration) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            format.run();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            format.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+        double numbers = (double) ITERATIONS * numbersPerIteration;
+        return String.format("%.0f bytes/number, %.0f numbers/s", bytes / numbers, numbers / (elapsed / 1e9));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import com.willwinder.universalgcodesender.i18n.Localization;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GcodeNumberFormatTest {
+
+    private static String exact(double value, int decimals) {
+        BigDecimal rounded = new BigDecimal(value).setScale(decimals, RoundingMode.HALF_EVEN);
+        return rounded.signum() == 0 ? "0" : rounded.stripTrailingZeros().toPlainString();
+    }
+
+    @Test
+    public void formatShouldRoundAndTrimZeros() {
+        assertThat(GcodeNumberFormat.format(0, 4)).isEqualTo("0");
+        assertThat(GcodeNumberFormat.format(1.5, 4)).isEqualTo("1.5");
+        assertThat(GcodeNumberFormat.format(10, 4)).isEqualTo("10");
+        assertThat(GcodeNumberFormat.format(0.5, 0)).isEqualTo("0");
+        assertThat(GcodeNumberFormat.format(1.5, 0)).isEqualTo("2");
+        assertThat(GcodeNumberFormat.format(0.00049, 3)).isEqualTo("0");
+        assertThat(GcodeNumberFormat.format(-0.00049, 3)).isEqualTo("0");
+        assertThat(GcodeNumberFormat.format(-0.0005001, 3)).isEqualTo("-0.001");
+        assertThat(GcodeNumberFormat.format(1.99999999, 5)).isEqualTo("2");
+        assertThat(GcodeNumberFormat.format(12.0305, 4)).isEqualTo("12.0305");
+        assertThat(GcodeNumberFormat.format(-3.14159265, 2)).isEqualTo("-3.14");
+
+        // 1.0005 is stored as 1.000499999...
+        assertThat(GcodeNumberFormat.format(1.0005, 3)).isEqualTo("1");
+        // 0.125 is exact, ties are rounded to even
+        assertThat(GcodeNumberFormat.format(0.125, 2)).isEqualTo("0.12");
+        assertThat(GcodeNumberFormat.format(0.375, 2)).isEqualTo("0.38");
+
+        // Too large for the fast path
+        assertThat(GcodeNumberFormat.format(1e20, 2)).isEqualTo("100000000000000000000");
+        assertThat(GcodeNumberFormat.format(0.1, 20)).isEqualTo("0.10000000000000000555");
+
+        assertThat(GcodeNumberFormat.format(Double.NaN, 2)).isEqualTo("NaN");
+        assertThatThrownBy(() -> GcodeNumberFormat.format(1, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void formatShouldRoundTheExactValue() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int decimals = random.nextInt(10);
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8));
+            if (i % 3 == 0) {
+                // Values close to a rounding tie
+                value = Math.round(value * 1000) / 1000.0 + 0.0005;
+            }
+            assertThat(GcodeNumberFormat.format(value, decimals))
+                    .as("%s with %d decimals", value, decimals)
+                    .isEqualTo(exact(value, decimals));
+        }
+    }
+
+    @Test
+    public void formatShouldMatchDecimalFormat() {
+        // The format used for gcode before GcodeNumberFormat
+        DecimalFormat df = new DecimalFormat("0.####", Localization.dfs);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(6));
+            // GcodeNumberFormat never writes "-0"
+            String expected = "-0".equals(df.format(value)) ? "0" : df.format(value);
+            assertThat(GcodeNumberFormat.format(value, 4)).as("%s", value).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void appendShouldWriteIntoTheBuilder() {
+        StringBuilder sb = new StringBuilder("G1X");
+        GcodeNumberFormat.append(sb, 1.23456, 3).append('Y');
+        GcodeNumberFormat.append(sb, -0.05, 3);
+        assertThat(sb.toString()).isEqualTo("G1X1.235Y-0.05");
+    }
+
+    @Test
+    public void parseShouldReadPartOfAString() {
+        String line = "G1X-1.25Y.5Z3.F+10";
+        assertThat(GcodeNumberFormat.parse(line, 3, 8)).isEqualTo(-1.25);
+        assertThat(GcodeNumberFormat.parse(line, 9, 11)).isEqualTo(0.5);
+        assertThat(GcodeNumberFormat.parse(line, 12, 14)).isEqualTo(3);
+        assertThat(GcodeNumberFormat.parse(line, 15, 18)).isEqualTo(10);
+        assertThat(GcodeNumberFormat.parse("0.1234567890123456789", 0, 21)).isEqualTo(0.1234567890123456789);
+        assertThat(GcodeNumberFormat.parse("1e3", 0, 3)).isEqualTo(1000);
+
+        assertThatThrownBy(() -> GcodeNumberFormat.parse("X", 0, 1)).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> GcodeNumberFormat.parse("-.", 0, 2)).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    public void parseShouldMatchParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            String number = GcodeNumberFormat.format((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)), random.nextInt(12));
+            assertThat(GcodeNumberFormat.parse(number, 0, number.length()))
+                    .as(number)
+                    .isEqualTo(Double.parseDouble(number));
+        }
+    }
+}
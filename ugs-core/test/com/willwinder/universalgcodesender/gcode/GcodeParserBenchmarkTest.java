@@ -0,0 +1,168 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import com.willwinder.universalgcodesender.gcode.processors.ArcExpander;
+import com.willwinder.universalgcodesender.gcode.processors.CommandLengthProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.CommentProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.DecimalProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.LineSplitter;
+import com.willwinder.universalgcodesender.gcode.processors.M30Processor;
+import com.willwinder.universalgcodesender.gcode.processors.WhitespaceProcessor;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parses the lines of a processed gcode file and prints the heap allocated
+ * and the throughput per parsed line. Checks that the shared parser states
+ * aren't changed by later lines and that reused parsers give the same
+ * result. Only run with "mvn test -Pbenchmarks".
+ *
+ * @author wwinder
+ */
+public class GcodeParserBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    private interface Parse {
+        void run() throws Exception;
+    }
+
+    @Test
+    public void parseAndPreprocessLines() throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get(
+                getClass().getClassLoader().getResource("./gcode/circle_test.nc.processed").toURI()));
+
+        GcodeParser parser = new GcodeParser();
+        Parse parse = () -> {
+            parser.reset();
+            for (String line : lines) {
+                parser.addCommand(line);
+            }
+        };
+
+        GcodeParser preprocessor = new GcodeParser();
+        preprocessor.addCommandProcessor(new CommentProcessor());
+        preprocessor.addCommandProcessor(new WhitespaceProcessor());
+        Parse preprocess = () -> {
+            preprocessor.reset();
+            for (String line : lines) {
+                for (String processed : preprocessor.preprocessCommand(line, preprocessor.getCurrentState())) {
+                    preprocessor.addCommand(processed);
+                }
+            }
+        };
+
+        GcodeParser chainPreprocessor = createChainPreprocessor();
+        Parse chainPreprocess = () -> {
+            chainPreprocessor.reset();
+            for (String line : lines) {
+                for (String processed : chainPreprocessor.preprocessCommand(line, chainPreprocessor.getCurrentState())) {
+                    chainPreprocessor.addCommand(processed);
+                }
+            }
+        };
+
+        assertStatesAreNotChangedByLaterLines(lines);
+        List<String> expectedLines = preprocess(createChainPreprocessor(), lines);
+
+        String parseResult = measure(parse, lines.size());
+        String preprocessResult = measure(preprocess, lines.size());
+        String chainPreprocessResult = measure(chainPreprocess, lines.size());
+
+        chainPreprocessor.reset();
+        assertEquals(expectedLines, preprocess(chainPreprocessor, lines));
+
+        System.out.println("Parse: " + parseResult);
+        System.out.println("Preprocess and parse: " + preprocessResult);
+        System.out.println("Preprocess with a processor chain and parse: " + chainPreprocessResult);
+    }
+
+    /**
+     * A chain like the default firmware configurations use.
+     */
+    private static GcodeParser createChainPreprocessor() {
+        GcodeParser chainPreprocessor = new GcodeParser();
+        chainPreprocessor.addCommandProcessor(new CommentProcessor());
+        chainPreprocessor.addCommandProcessor(new WhitespaceProcessor());
+        chainPreprocessor.addCommandProcessor(new M30Processor());
+        chainPreprocessor.addCommandProcessor(new DecimalProcessor(4));
+        chainPreprocessor.addCommandProcessor(new CommandLengthProcessor(50));
+        chainPreprocessor.addCommandProcessor(new ArcExpander(true, 1));
+        chainPreprocessor.addCommandProcessor(new LineSplitter(100));
+        return chainPreprocessor;
+    }
+
+    private static List<String> preprocess(GcodeParser preprocessor, List<String> lines) throws Exception {
+        List<String> result = new ArrayList<>();
+        for (String line : lines) {
+            for (String processed : preprocessor.preprocessCommand(line, preprocessor.getCurrentState())) {
+                preprocessor.addCommand(processed);
+                result.add(processed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The parser shares parts of its state between the states it hands out,
+     * none of them may change when the following lines are parsed.
+     */
+    private static void assertStatesAreNotChangedByLaterLines(List<String> lines) throws Exception {
+        GcodeParser parser = new GcodeParser();
+        List<GcodeState> states = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (String line : lines) {
+            for (GcodeParser.GcodeMeta meta : parser.addCommand(line)) {
+                states.add(meta.state);
+                expected.add(meta.state.toString());
+            }
+        }
+
+        for (int i = 0; i < states.size(); i++) {
+            assertEquals(expected.get(i), states.get(i).toString());
+        }
+    }
+
+    private static String measure(Parse parse, int linesPerIteration) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            parse.run();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+        double lines = (double) ITERATIONS * linesPerIteration;
+        return String.format("%.0f bytes/line, %.0f lines/s", bytes / lines, lines / (elapsed / 1e9));
+    }
+}
@@ -252,7 +252,7 @@ public class GcodeParserTest {
         instance.addCommandProcessor(new CommandLengthProcessor(50));
         result = instance.preprocessCommand(command, instance.getCurrentState());
         assertEquals(1, result.size());
-        assertEquals("G01X0.88889F200.0", result.get(0));
+        assertEquals("G01X0.88889F200", result.get(0));
     }
 
     @Test
@@ -428,4 +428,40 @@ public class GcodeParserTest {
         GcodeMeta meta = Iterables.getOnlyElement(metaList);
         assertThat(meta.state.spindleSpeed).isEqualTo(100.0);
     }
+
+    @Test
+    public void eachCodeShouldGetItsOwnStateWithoutModifyingTheInput() throws Exception {
+        GcodeState input = new GcodeState();
+        Position inputPoint = input.currentPoint;
+        List<GcodeMeta> metaList = GcodeParser.processCommand("G20 G91 G1 X1", 0, input);
+
+        assertThat(metaList).hasSize(3);
+        assertThat(metaList.get(0).state).isNotSameAs(metaList.get(1).state);
+        assertThat(metaList.get(1).state).isNotSameAs(metaList.get(2).state);
+        assertThat(metaList.get(0).state.isMetric).isFalse();
+        assertThat(metaList.get(0).state.inAbsoluteMode).isTrue();
+        assertThat(metaList.get(2).state.inAbsoluteMode).isFalse();
+        assertThat(metaList.get(2).state.currentPoint).isEqualTo(new Position(1, 0, 0, Units.INCH));
+
+        assertThat(input.isMetric).isTrue();
+        assertThat(input.inAbsoluteMode).isTrue();
+        assertThat(input.currentMotionMode).isEqualTo(G0);
+        assertThat(input.currentPoint).isSameAs(inputPoint);
+        assertThat(inputPoint).isEqualTo(new Position(0, 0, 0, MM));
+    }
+
+    @Test
+    public void preprocessCommandShouldNotModifyTheInitialState() throws Exception {
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new CommentProcessor());
+        gcp.addCommandProcessor(new ArcExpander(true, 1));
+        GcodeState initial = new GcodeState();
+        initial.currentMotionMode = G1;
+
+        List<String> result = gcp.preprocessCommand("G2 X2 Y0 I1 J0 (arc)", initial);
+
+        assertThat(result.size()).isGreaterThan(1);
+        assertThat(initial.currentMotionMode).isEqualTo(G1);
+        assertThat(initial.currentPoint).isEqualTo(new Position(0, 0, 0, MM));
+    }
 }
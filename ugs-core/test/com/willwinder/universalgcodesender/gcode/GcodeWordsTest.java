@@ -0,0 +1,123 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode;
+
+import com.willwinder.universalgcodesender.gcode.util.Code;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GcodeWordsTest {
+    private static final List<String> LINES = Arrays.asList(
+            "G0 X1 Y2 Z3",
+            "g1x-1.5y.5z-.25f1200",
+            "G02 X10 Y10 I5 J0 R5",
+            "G38.2 Z-10 F100",
+            "G038.2 G1.0 G1. G-1 G.1 G G90.1 G91.1",
+            "X1 0 Y 2.5",
+            "X1=2 Y1-2 Z--3",
+            "GX1 X Y1.2.3",
+            "$H",
+            "$J=G91 X10 F100",
+            "M3 S12000 T1 N100",
+            "X12345678901234567890.5 Y0.00000000000000001",
+            "X-0 Y+1 Z1e5",
+            "  ",
+            "");
+
+    @Test
+    public void wordsShouldMatchSplitCommand() throws Exception {
+        GcodeWords words = new GcodeWords();
+        for (String line : getLines()) {
+            assertSameWords(words.parse(line), line);
+        }
+    }
+
+    @Test
+    public void wordsShouldBeFoundByLetter() {
+        GcodeWords words = new GcodeWords().parse("G1 X1 y2 G90 X3 F100");
+        assertThat(words.has('X')).isTrue();
+        assertThat(words.has('Z')).isFalse();
+        assertThat(words.has('*')).isFalse();
+        assertThat(words.count('x')).isEqualTo(2);
+        assertThat(words.indexOf('X')).isEqualTo(1);
+        assertThat(words.get('X')).isEqualTo(1);
+        assertThat(words.get('Y')).isEqualTo(2);
+        assertThat(words.get('Z')).isNaN();
+        assertThat(words.getGCodes()).containsExactly(Code.G1, Code.G90);
+
+        // The same instance is reused for the next line
+        words.parse("Z5");
+        assertThat(words.size()).isEqualTo(1);
+        assertThat(words.has('X')).isFalse();
+        assertThat(words.get('Z')).isEqualTo(5);
+    }
+
+    private static void assertSameWords(GcodeWords words, String line) {
+        List<String> expected = GcodePreprocessorUtils.splitCommand(line);
+        assertThat(words.size()).as(line).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            String word = expected.get(i);
+            assertThat(words.getWord(i)).as(line).isEqualTo(word);
+            assertThat(words.getLetter(i)).as(line).isEqualTo(word.charAt(0));
+            assertThat(words.getValue(i)).as(word).isEqualTo(parseValue(word));
+            if (Character.toUpperCase(word.charAt(0)) == 'G') {
+                assertThat(words.getCode(i)).as(word).isEqualTo(Code.lookupCode(word));
+            }
+        }
+        assertThat(words.hasAxisWords()).as(line).isEqualTo(GcodePreprocessorUtils.hasAxisWords(expected));
+        assertThat(words.getGCodes()).as(line).containsExactlyElementsOf(GcodePreprocessorUtils.getGCodes(expected));
+        for (char letter : "FGSXYZIJKR".toCharArray()) {
+            assertThat(words.get(letter)).as(line + " " + letter).isEqualTo(GcodePreprocessorUtils.parseCoord(expected, letter));
+        }
+    }
+
+    private static double parseValue(String word) {
+        if (word.startsWith("$")) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(word.substring(1));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private List<String> getLines() throws IOException, URISyntaxException {
+        List<String> lines = new ArrayList<>(LINES);
+        File fixtures = new File(getClass().getClassLoader().getResource("gcode").toURI());
+        Collection<File> files = FileUtils.listFiles(fixtures, new String[]{"nc"}, true);
+        for (File file : files) {
+            for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+                lines.add(GcodePreprocessorUtils.removeComment(line));
+            }
+        }
+        return lines;
+    }
+}
@@ -117,12 +117,8 @@ public class FixturesTest {
         // process the input file and write it to the output temp file
         GcodeParserUtils.processAndExport(gcp, tempFile, output.toFile());
 
-        // read the output back in and compare it to the fixture
-        //GcodeStreamReader reader = new GcodeStreamReader(output.toFile());
-        URI outputTest = output.toUri();
-
-        // compare the generated raw stream output
-        Iterator<String> testLines = Files.lines(Paths.get(outputTest)).iterator();
+        // compare the generated raw stream output, rendered in the legacy text layout
+        Iterator<String> testLines = streamLines(output.toFile()).iterator();
 
         // check the generated stream
         checkOrInitializeFixture(fixtureName + "-stream", streamOutputFixture, testLines);
@@ -141,6 +137,26 @@ public class FixturesTest {
 
     }
 
+    /**
+     * Renders every record of a gcode stream the same way the legacy text
+     * format stored them, which is what the stream fixtures contain.
+     */
+    private List<String> streamLines(File streamFile) throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (IGcodeStreamReader reader = new GcodeStreamReader(streamFile)) {
+            lines.add("gsw_meta:" + reader.getNumRows());
+            GcodeCommand c;
+            while ((c = reader.getNextCommand()) != null) {
+                lines.add(Joiner.on("++").join(
+                        c.getOriginalCommandString(),
+                        c.getCommandString(),
+                        c.getCommandNumber(),
+                        c.getComment()));
+            }
+        }
+        return lines;
+    }
+
     private void checkOrInitializeFixture(String name, String fixtureResourceName, Iterator<String> testLines) throws URISyntaxException, IOException {
         // check if the fixture already exists
         URL fixtureUri = this.getClass().getClassLoader().getResource(fixtureResourceName);
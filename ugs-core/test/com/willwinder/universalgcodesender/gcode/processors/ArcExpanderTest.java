@@ -20,6 +20,7 @@
 package com.willwinder.universalgcodesender.gcode.processors;
 
 import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.ArcSegmentation;
 import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
 import com.willwinder.universalgcodesender.gcode.util.Plane;
 import static com.willwinder.universalgcodesender.gcode.util.Plane.*;
@@ -162,6 +163,44 @@ public class ArcExpanderTest {
         }
     }
 
+    @Test
+    public void expandArcWithChordTolerance() throws Exception {
+        System.out.println("expandArcWithChordTolerance");
+        GcodeState state = new GcodeState();
+        state.currentPoint = new Position(-100,0,0,MM);
+        state.plane = XY;
+
+        double tolerance = 0.01;
+        ArcExpander instance = new ArcExpander(true, ArcSegmentation.chordTolerance(tolerance, 4, 1000));
+
+        // Half circle with a large radius, X-100 -> X100, Y0 -> Y100 -> Y0
+        List<String> result = instance.processCommand("G2 Y0 X100 R100", state);
+
+        // A fixed 0.3mm segment length needs 1048 lines for this arc.
+        double maxAngle = 2 * Math.acos(1 - tolerance / 100);
+        assertThat(result.size()).isEqualTo((int)Math.ceil(Math.PI / maxAngle));
+        verifyLines(new Position(0,0,0,MM), result, 100., new Position(-100, 0, 0,MM), new Position(100,100,0,MM), state.plane);
+
+        // The middle of each segment is within the tolerance of the arc.
+        double previousX = -100;
+        double previousY = 0;
+        for (String line : result) {
+            Matcher m = LINE_COORDS.matcher(line);
+            assertThat(m.find()).isTrue();
+            double x = Double.parseDouble(m.group(1));
+            double y = Double.parseDouble(m.group(2));
+            double middle = Math.hypot((x + previousX) / 2, (y + previousY) / 2);
+            assertThat(100 - middle).isLessThanOrEqualTo(tolerance + 1e-9);
+            previousX = x;
+            previousY = y;
+        }
+
+        // A tiny arc still gets the minimum number of segments.
+        state.currentPoint = new Position(-0.001,0,0,MM);
+        result = instance.processCommand("G2 Y0 X0.001 R0.001", state);
+        assertThat(result.size()).isEqualTo(4);
+    }
+
 
     /**
      * Verify that the points around given center point have a known radius and
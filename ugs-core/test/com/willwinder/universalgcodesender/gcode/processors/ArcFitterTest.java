@@ -0,0 +1,191 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArcFitterTest {
+
+    private static GcodeParser createParser(CommandProcessor... processors) {
+        GcodeParser gcp = new GcodeParser();
+        for (CommandProcessor p : processors) {
+            gcp.addCommandProcessor(p);
+        }
+        return gcp;
+    }
+
+    /**
+     * Preprocesses the commands like a file is preprocessed.
+     */
+    private static List<String> process(GcodeParser gcp, List<String> commands) throws GcodeParserException {
+        List<String> results = new ArrayList<>();
+        for (String command : commands) {
+            results.addAll(gcp.preprocessCommand(command, gcp.getCurrentState()));
+            gcp.addCommand(command);
+        }
+        for (ParsedCommand c : gcp.flushCommandProcessors(gcp.getCurrentState())) {
+            results.add(c.getCommandString());
+        }
+        return results;
+    }
+
+    /**
+     * Moves along a circle around X10 Y0 through X0 Y0, counter clockwise
+     * for positive angles.
+     */
+    private static List<String> circle(double fromAngle, double toAngle, int moves, String suffix) {
+        List<String> commands = new ArrayList<>();
+        for (int i = 1; i <= moves; i++) {
+            double angle = Math.PI + fromAngle + (toAngle - fromAngle) * i / moves;
+            commands.add(String.format(Locale.US, "G1 X%.9f Y%.9f%s", 10 + 10 * Math.cos(angle), 10 * Math.sin(angle), suffix));
+        }
+        return commands;
+    }
+
+    @Test
+    public void expandedArcsShouldBeFittedAgain() throws Exception {
+        String[][] arcs = {
+                {"G17", "G2 X2 Y0 I1 J0", "G2X2Y0Z0I1J0F0"},
+                {"G17", "G3 X2 Y0 I1 J0", "G3X2Y0Z0I1J0F0"},
+                {"G18", "G2 X0 Z2 I0 K1", "G2X0Y0Z2I0K1F0"},
+                {"G19", "G3 Y2 Z0 J1 K0", "G3X0Y2Z0J1K0F0"},
+        };
+        for (String[] arc : arcs) {
+            GcodeParser gcp = createParser(new ArcExpander(true, 0.1), new ArcFitter(0.002, 4));
+            List<String> commands = new ArrayList<>();
+            commands.add(arc[0]);
+            commands.add(arc[1]);
+
+            assertThat(process(gcp, commands)).as(arc[1]).containsExactly(arc[0], arc[2]);
+            assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isEqualTo((int) Math.ceil(Math.PI / 0.1) - 1);
+        }
+    }
+
+    @Test
+    public void circlesShouldBeSplitIntoArcs() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = circle(0, -2 * Math.PI, 2000, "");
+
+        List<String> results = process(gcp, commands);
+
+        // Arcs are limited to three quarters of a circle and 100 moves.
+        assertThat(results).hasSize(20);
+        assertThat(results).allMatch(c -> c.startsWith("G2"));
+        assertThat(results.get(19)).startsWith("G2X0Y0I");
+    }
+
+    @Test
+    public void arcsShouldOnlyWriteTheAxesOfTheMoves() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = circle(0, -0.5, 10, "");
+        commands.addAll(circle(-0.5, -1, 10, " Z-1"));
+
+        List<String> results = process(gcp, commands);
+
+        // The first move at Z-1 also moves down, so it isn't on either arc.
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).startsWith("G2").doesNotContain("Z");
+        assertThat(results.get(2)).startsWith("G2").contains("Z-1");
+    }
+
+    @Test
+    public void shortRunsShouldNotBeFitted() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = circle(0, -0.15, 3, "");
+        assertThat(process(gcp, commands)).isEqualTo(commands);
+
+        gcp = createParser(new ArcFitter(0.01, 4));
+        commands = circle(0, -0.2, 4, "");
+        assertThat(process(gcp, commands)).hasSize(1);
+    }
+
+    @Test
+    public void linesShouldNotBeFitted() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            commands.add("G1 X" + i + " Y" + (i % 2) * 0.001);
+        }
+        assertThat(process(gcp, commands)).isEqualTo(commands);
+    }
+
+    @Test
+    public void pointsOutsideTheToleranceShouldEndTheArc() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = circle(0, -0.25, 5, "");
+        commands.add("G1 X2 Y5");
+        commands.addAll(circle(-0.3, -0.7, 8, ""));
+
+        List<String> results = process(gcp, commands);
+
+        // The first move after the outlier can't be on an arc with it.
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0)).startsWith("G2");
+        assertThat(results.get(1)).isEqualTo("G1 X2 Y5");
+        assertThat(results.get(2)).isEqualTo(commands.get(6));
+        assertThat(results.get(3)).startsWith("G2");
+    }
+
+    @Test
+    public void feedRateChangesShouldEndTheArc() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = circle(0, -0.25, 5, " F100");
+        commands.addAll(circle(-0.25, -0.5, 5, " F200"));
+
+        List<String> results = process(gcp, commands);
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0)).startsWith("G2").endsWith("F100");
+        assertThat(results.get(1)).startsWith("G2").endsWith("F200");
+    }
+
+    @Test
+    public void absoluteArcCentersShouldBeWritten() throws Exception {
+        GcodeParser gcp = createParser(new ArcFitter(0.01, 4));
+        List<String> commands = new ArrayList<>();
+        commands.add("G90.1");
+        commands.addAll(circle(0, 0.25, 5, ""));
+
+        List<String> results = process(gcp, commands);
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(1)).startsWith("G3").endsWith("I10J0");
+    }
+
+    @Test
+    public void arcsShouldNotBeWrittenIfRoundingChangesTheRadius() throws Exception {
+        // The end point of this arc is rounded by less than the tolerance of the radius.
+        GcodeParser gcp = createParser(new ArcFitter(0.00002, 4));
+        List<String> commands = circle(0, -0.02, 10, "");
+        assertThat(process(gcp, commands)).hasSize(1);
+
+        // Rounding this end point moves it 0.00005 mm away from the circle.
+        gcp = createParser(new ArcFitter(0.00002, 4));
+        commands = circle(0, -0.0255, 10, "");
+        assertThat(process(gcp, commands)).isEqualTo(commands);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GcodeCompactorTest {
+
+    private static List<String> compact(GcodeParser gcp, String... commands) throws GcodeParserException {
+        List<String> results = new ArrayList<>();
+        for (String command : commands) {
+            results.addAll(gcp.preprocessCommand(command, gcp.getCurrentState()));
+            gcp.addCommand(command);
+        }
+        return results;
+    }
+
+    private static List<String> compact(String... commands) throws GcodeParserException {
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new GcodeCompactor());
+        return compact(gcp, commands);
+    }
+
+    @Test
+    public void numbersShouldBeWrittenWithoutPadding() throws Exception {
+        assertThat(compact("G01 X010.500 Y-0.250", "M03 S01000", "g0 x-0.000 y.5"))
+                .containsExactly("G1X10.5Y-.25", "M3S1000", "G0X0Y.5");
+    }
+
+    @Test
+    public void redundantWordsShouldBeRemoved() throws Exception {
+        assertThat(compact(
+                "G90",
+                "G1 X1 Y0 F100",
+                "G1 X2 Y0 F100",
+                "G1 X2 Y1 F200",
+                "G0 Z5",
+                "G0 X0 Y0 Z5"))
+                .containsExactly("G90", "G1X1Y0F100", "X2", "Y1F200", "G0Z5", "X0Y0");
+    }
+
+    @Test
+    public void wordsShouldBeKeptUntilTheProgramSetsTheState() throws Exception {
+        // The controller may be in any distance mode or position at the start.
+        assertThat(compact("G1 X0 Y0 F100", "G1 X0 Y1 F100", "G91", "G1 X0 Y1"))
+                .containsExactly("G1X0Y0F100", "X0Y1", "G91", "Y1");
+    }
+
+    @Test
+    public void otherCommandsShouldResetTheState() throws Exception {
+        assertThat(compact(
+                "G90",
+                "G1 X1 Y1 F100",
+                "(comment)",
+                "G1 X1 Y2 F100",
+                "G20",
+                "G1 X1 Y3 F100",
+                "$H",
+                "G1 X1 Y4 F100"))
+                .containsExactly("G90", "G1X1Y1F100", "(comment)", "Y2", "G20", "X1Y3F100", "$H", "G1X1Y4F100");
+    }
+
+    @Test
+    public void movesShouldKeepAnAxisWord() throws Exception {
+        assertThat(compact("G90", "G0 X1 Y1", "G0 X1 Y1", "F100", "F100"))
+                .containsExactly("G90", "G0X1Y1", "X1Y1", "F100", "F100");
+    }
+
+    @Test
+    public void arcsShouldKeepTheWordsTheyNeed() throws Exception {
+        assertThat(compact(
+                "G90",
+                "G0 X0 Y0 Z0",
+                "G2 X2 Y0 Z0 I1 J0 F100",
+                "G2 X0 Y0 I-1 J0",
+                "G2 X0 Y0 Z1 I1 J0"))
+                .containsExactly("G90", "G0X0Y0Z0", "G2X2I1F100", "X0I-1", "X0Y0Z1I1");
+    }
+
+    @Test
+    public void axisWordsShouldBeComparedWithTheMovedCommands() throws Exception {
+        // The translator moves the commands away from the positions of the program.
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new Translator(new Position(10, 0, 0, Units.MM)));
+        gcp.addCommandProcessor(new GcodeCompactor());
+
+        assertThat(compact(gcp, "G90", "G1 X10 Y0 F100", "G1 X0 Y3", "G1 X0 Y4"))
+                .containsExactly("G90", "G1X20Y0F100", "X10Y3", "Y4");
+    }
+
+    @Test
+    public void inverseTimeFeedRatesShouldBeKept() throws Exception {
+        assertThat(compact("G90 G93", "G1 X1 F10", "G1 X2 F10"))
+                .containsExactly("G90G93", "G1X1F10", "X2F10");
+    }
+
+    @Test
+    public void removedBytesShouldBeCounted() throws Exception {
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new GcodeCompactor());
+        List<String> commands = Arrays.asList("G90", "G01 X1.0 F100", "G01 X2.0 F100");
+
+        List<String> results = compact(gcp, commands.toArray(new String[0]));
+
+        long removed = commands.stream().mapToInt(String::length).sum()
+                - results.stream().mapToInt(String::length).sum();
+        assertThat(removed).isEqualTo(16);
+        assertThat(gcp.getCurrentStats().getRemovedByteCount()).isEqualTo(removed);
+
+        gcp.reset();
+        assertThat(gcp.getCurrentStats().getRemovedByteCount()).isZero();
+    }
+}
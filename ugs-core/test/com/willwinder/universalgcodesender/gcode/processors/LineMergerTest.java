@@ -0,0 +1,154 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import com.willwinder.universalgcodesender.gcode.util.Plane;
+import com.willwinder.universalgcodesender.model.Position;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.willwinder.universalgcodesender.model.UnitUtils.Units.MM;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LineMergerTest {
+
+    private static GcodeParser createParser(CommandProcessor... processors) {
+        GcodeParser gcp = new GcodeParser();
+        for (CommandProcessor p : processors) {
+            gcp.addCommandProcessor(p);
+        }
+        return gcp;
+    }
+
+    /**
+     * Preprocesses the commands like a file is preprocessed.
+     */
+    private static List<String> process(GcodeParser gcp, String... commands) throws GcodeParserException {
+        List<String> results = new ArrayList<>();
+        for (String command : commands) {
+            results.addAll(gcp.preprocessCommand(command, gcp.getCurrentState()));
+            gcp.addCommand(command);
+        }
+        for (ParsedCommand c : gcp.flushCommandProcessors(gcp.getCurrentState())) {
+            results.add(c.getCommandString());
+        }
+        return results;
+    }
+
+    @Test
+    public void collinearMovesShouldBeMerged() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+
+        List<String> results = process(gcp, "G90", "G1 X1 Y0 F100", "G1 X2", "X3 Y0.001", "G1 X4 Y0", "M5");
+
+        assertThat(results).containsExactly("G90", "G1X4Y0F100", "M5");
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void movesOutsideTheToleranceShouldNotBeMerged() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+
+        // A corner and a zig zag deeper than the tolerance are kept.
+        List<String> results = process(gcp, "G1 X1 Y0", "G1 X2 Y0", "G1 X2 Y1", "G1 X2.1 Y2", "G1 X2 Y3");
+
+        assertThat(results).containsExactly("G1X2Y0", "G1 X2 Y1", "G1 X2.1 Y2", "G1 X2 Y3");
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void runsShouldEndAtFeedRateChangesAndOtherCommands() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+
+        List<String> results = process(gcp,
+                "G1 X1 F100", "G1 X2", "G1 X3 F200", "G1 X4", "G1 X5 S1000", "G1 X6", "G0 X7", "G91 G1 X1", "X1");
+
+        assertThat(results).containsExactly(
+                "G1X2F100", "G1X4F200", "G1 X5 S1000", "G1 X6", "G0 X7", "G91 G1 X1", "X1");
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void mergedMovesShouldOnlyWriteTheAxesOfTheRun() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+
+        List<String> results = process(gcp, "G1 X1 Y0 F100", "G1 X2 Y0", "G1 X3 Y0", "G1 Z-1", "G1 Z-2", "G1 X4 Z-2.0001", "G1 X5 Z-2");
+
+        assertThat(results).containsExactly("G1X3Y0F100", "G1Z-2", "G1X5Z-2");
+    }
+
+    @Test
+    public void mergedMovesShouldNotExceedTheMaximumLength() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 2.5));
+
+        List<String> results = process(gcp, "G1 X1", "G1 X2", "G1 X3", "G1 X4", "G1 X5");
+
+        assertThat(results).containsExactly("G1X2", "G1X4", "G1 X5");
+    }
+
+    @Test
+    public void toleranceShouldBeInMillimeters() throws Exception {
+        // 0.001 inch is more than the tolerance, 0.0001 inch isn't.
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+        assertThat(process(gcp, "G20", "G1 X1 Y0.001", "G1 X2 Y0")).containsExactly("G20", "G1 X1 Y0.001", "G1 X2 Y0");
+
+        gcp = createParser(new LineMerger(0.01, 100));
+        assertThat(process(gcp, "G20", "G1 X1 Y0.0001", "G1 X2 Y0")).containsExactly("G20", "G1X2Y0");
+    }
+
+    @Test
+    public void expandedArcsShouldBeMerged() throws Exception {
+        GcodeParser gcp = createParser(new ArcExpander(true, 0.1), new LineMerger(0.01, 100));
+
+        List<String> results = process(gcp, "G2 X2 Y0 I1 J0");
+
+        // The 32 expanded lines are merged into lines of about 2 * acos(0.99) radians.
+        int merged = (int) Math.ceil(Math.PI / (2 * Math.acos(0.99)));
+        assertThat(results.size()).isCloseTo(merged, within(2));
+        ArcExpanderTest.verifyLines(new Position(1, 0, 0, MM), results, 1.,
+                new Position(-1, 0, 0, MM), new Position(1, 1, 0, MM), Plane.XY);
+        assertThat(results.get(results.size() - 1)).isEqualTo("G1X2Y0Z0");
+    }
+
+    @Test
+    public void mergedMovesShouldStartWhereTheRunStartsInLaterProcessors() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100), new LineSplitter(1));
+
+        // The merged move is released with the M5, after the parser has passed X3.
+        List<String> results = process(gcp, "G1 X1 Y0", "G1 X2 Y0", "G1 X3 Y0", "M5");
+
+        assertThat(results).containsExactly("G1X1Y0Z0", "G1X2Y0Z0", "G1X3Y0Z0", "M5");
+    }
+
+    @Test
+    public void resetShouldDropHeldMoves() throws Exception {
+        GcodeParser gcp = createParser(new LineMerger(0.01, 100));
+        gcp.preprocessCommand("G1 X1", gcp.getCurrentState());
+        gcp.addCommand("G1 X1");
+
+        gcp.reset();
+        assertThat(gcp.flushCommandProcessors(gcp.getCurrentState())).isEmpty();
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isZero();
+    }
+}
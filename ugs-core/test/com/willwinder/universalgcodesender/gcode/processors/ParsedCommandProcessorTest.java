@@ -0,0 +1,116 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.processors;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.util.GcodeParserException;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParsedCommandProcessorTest {
+
+    private static GcodeState initialState() {
+        GcodeState state = new GcodeState();
+        state.currentPoint = new Position(0, 0, 0, Units.MM);
+        state.commandNumber = -1;
+        return state;
+    }
+
+    @Test
+    public void unchangedCommandsShouldBePassedOn() throws Exception {
+        ParsedCommandProcessor adapter = CommandProcessorAdapter.adapt(new WhitespaceProcessor());
+        ParsedCommand command = new ParsedCommand("G1X1Y2", initialState());
+        GcodeState postState = command.getPostState();
+
+        List<ParsedCommand> results = adapter.processCommand(command);
+
+        assertThat(results).containsExactly(command);
+        assertThat(results.get(0).getPostState()).isSameAs(postState);
+        assertThat(command.withPreState(command.getPreState())).isSameAs(command);
+    }
+
+    @Test
+    public void replacedCommandsShouldRunAfterEachOther() throws Exception {
+        ParsedCommand command = new ParsedCommand("G1X10", initialState());
+        List<ParsedCommand> results = new LineSplitter(4).processCommand(command);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getPreState()).isSameAs(command.getPreState());
+        for (int i = 1; i < results.size(); i++) {
+            assertThat(results.get(i).getPreState()).isSameAs(results.get(i - 1).getPostState());
+        }
+        assertThat(results.get(2).getPostState().currentPoint).isEqualTo(new Position(10, 0, 0, Units.MM));
+    }
+
+    @Test
+    public void adapterShouldOnlyWrapTextProcessors() {
+        ArcExpander arcExpander = new ArcExpander(true, 1);
+        assertThat(CommandProcessorAdapter.adapt(arcExpander)).isSameAs(arcExpander);
+
+        CommandProcessor text = new WhitespaceProcessor();
+        assertThat(CommandProcessorAdapter.adapt(text)).isInstanceOf(CommandProcessorAdapter.class);
+    }
+
+    @Test
+    public void parsedProcessorsShouldMatchTheTextProcessors() throws Exception {
+        List<String> program = Arrays.asList(
+                "G17 G21 G90", "G0 X0 Y0 (start)", "G1 X10 Y0 F100", "G2 X20 Y10 I0 J10",
+                "Y20", "G3 X10 Y30 R10", "G91 G1 X-5", "G90 X0 Y0", "M30");
+
+        GcodeParser parsed = new GcodeParser();
+        GcodeParser text = new GcodeParser();
+        for (CommandProcessor p : Arrays.asList(new CommentProcessor(), new WhitespaceProcessor(),
+                new ArcExpander(true, 1), new LineSplitter(2), new M30Processor())) {
+            parsed.addCommandProcessor(p);
+            // Hide the parsed interface so that the adapter is used.
+            text.addCommandProcessor(new CommandProcessor() {
+                @Override
+                public List<String> processCommand(String command, GcodeState state) throws GcodeParserException {
+                    return p.processCommand(command, state);
+                }
+
+                @Override
+                public String getHelp() {
+                    return p.getHelp();
+                }
+            });
+        }
+
+        assertThat(preprocess(parsed, program)).isEqualTo(preprocess(text, program));
+    }
+
+    private static List<String> preprocess(GcodeParser parser, List<String> program) throws Exception {
+        List<String> results = new ArrayList<>();
+        for (String line : program) {
+            for (String processed : parser.preprocessCommand(line, parser.getCurrentState())) {
+                parser.addCommand(processed);
+                results.add(processed);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ArcSegmentationTest {
+
+    @Test
+    public void fixedLengthShouldDependOnArcLength() {
+        ArcSegmentation segmentation = ArcSegmentation.fixedLength(0.3);
+        assertThat(segmentation.isChordTolerance()).isFalse();
+        assertThat(segmentation.getSegmentCount(1, Math.PI)).isEqualTo(11);
+        assertThat(segmentation.getSegmentCount(100, Math.PI)).isEqualTo(1048);
+
+        // Without a segment length arcs are split in a fixed number of segments.
+        assertThat(ArcSegmentation.fixedLength(0).getSegmentCount(100, Math.PI)).isEqualTo(20);
+    }
+
+    @Test
+    public void chordToleranceShouldDependOnCurvature() {
+        ArcSegmentation segmentation = ArcSegmentation.chordTolerance(0.01, 4, 1000);
+        assertThat(segmentation.isChordTolerance()).isTrue();
+
+        // Doubling the radius needs roughly sqrt(2) times the segments.
+        assertThat(segmentation.getSegmentCount(100, Math.PI)).isEqualTo(112);
+        assertThat(segmentation.getSegmentCount(200, Math.PI)).isEqualTo(158);
+
+        // A longer arc with the same radius needs more segments.
+        assertThat(segmentation.getSegmentCount(100, 2 * Math.PI)).isEqualTo(223);
+    }
+
+    @Test
+    public void chordToleranceShouldBeClamped() {
+        ArcSegmentation segmentation = ArcSegmentation.chordTolerance(0.01, 4, 100);
+        assertThat(segmentation.getSegmentCount(0.001, Math.PI)).isEqualTo(4);
+        assertThat(segmentation.getSegmentCount(1, 0.0001)).isEqualTo(4);
+        assertThat(segmentation.getSegmentCount(10000, 2 * Math.PI)).isEqualTo(100);
+    }
+
+    @Test
+    public void invalidChordToleranceShouldThrow() {
+        assertThatThrownBy(() -> ArcSegmentation.chordTolerance(0, 4, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ArcSegmentation.chordTolerance(0.01, 0, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ArcSegmentation.chordTolerance(0.01, 10, 4))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.gcode.util;
+
+import com.willwinder.universalgcodesender.gcode.GcodeParser;
+import com.willwinder.universalgcodesender.gcode.GcodeState;
+import com.willwinder.universalgcodesender.gcode.processors.ArcExpander;
+import com.willwinder.universalgcodesender.gcode.processors.ArcFitter;
+import com.willwinder.universalgcodesender.gcode.processors.CommandProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.CommentProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.DecimalProcessor;
+import com.willwinder.universalgcodesender.gcode.processors.LineMerger;
+import com.willwinder.universalgcodesender.gcode.processors.LineSplitter;
+import com.willwinder.universalgcodesender.gcode.processors.Translator;
+import com.willwinder.universalgcodesender.gcode.processors.WhitespaceProcessor;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import com.willwinder.universalgcodesender.utils.GcodeStreamReader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GcodeParserUtilsTest {
+    private ForkJoinPool pool;
+    private final List<File> files = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        files.forEach(File::delete);
+    }
+
+    private File createFile(List<String> lines) throws IOException {
+        File file = File.createTempFile("gcode_parser_utils", ".nc");
+        files.add(file);
+        Files.write(file.toPath(), lines);
+        return file;
+    }
+
+    /**
+     * A program with modal changes in every block so the chunks start in
+     * different units, distance modes and motion modes.
+     */
+    private static List<String> createProgram(int blocks) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < blocks; i++) {
+            lines.add(i % 2 == 0 ? "G90" : "G91");
+            lines.add(i % 3 == 0 ? "G20" : "G21");
+            lines.add(String.format(Locale.US, "G1 X%.3f Y%.3f F%d (move %d)", i % 7 * 0.5, i % 5 * 0.25, 100 + i, i));
+            lines.add("G2 X2 Y0 I1 J0");
+            lines.add(String.format(Locale.US, "Y%.9f", i % 11 * 0.123456789));
+            lines.add("");
+            lines.add("; block " + i);
+            lines.add("G3 X-2 Y0 I-1 J0");
+            lines.add("X0.123456789 Z-1");
+            lines.add("G0 Z5");
+        }
+        return lines;
+    }
+
+    private static GcodeParser createParser(boolean sequential) {
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new CommentProcessor());
+        gcp.addCommandProcessor(new Translator(new Position(1, 2, 3, Units.MM)));
+        gcp.addCommandProcessor(new ArcExpander(true, 1));
+        gcp.addCommandProcessor(new LineSplitter(2));
+        gcp.addCommandProcessor(new DecimalProcessor(4));
+        gcp.addCommandProcessor(new WhitespaceProcessor());
+        if (sequential) {
+            gcp.addCommandProcessor(new CommandProcessor() {
+                @Override
+                public List<String> processCommand(String command, GcodeState state) {
+                    return Collections.singletonList(command);
+                }
+
+                @Override
+                public String getHelp() {
+                    return "Sequential pass through";
+                }
+
+                @Override
+                public boolean isSequential() {
+                    return true;
+                }
+            });
+        }
+        return gcp;
+    }
+
+    @Test
+    public void parallelProcessingShouldMatchSequentialProcessing() throws Exception {
+        File input = createFile(createProgram(250));
+        File sequentialOutput = createFile(Collections.emptyList());
+        File parallelOutput = createFile(Collections.emptyList());
+
+        GcodeParser sequential = createParser(true);
+        assertThat(sequential.canPreprocessInParallel()).isFalse();
+        GcodeParserUtils.processAndExport(sequential, input, sequentialOutput, pool);
+
+        GcodeParser parallel = createParser(false);
+        assertThat(parallel.canPreprocessInParallel()).isTrue();
+        GcodeParserUtils.processAndExport(parallel, input, parallelOutput, pool);
+
+        byte[] expected = Files.readAllBytes(sequentialOutput.toPath());
+        assertThat(expected.length).isGreaterThan(100000);
+        assertThat(Files.readAllBytes(parallelOutput.toPath())).isEqualTo(expected);
+        GcodeState expectedState = sequential.getCurrentState();
+        assertThat(parallel.getCurrentState().currentPoint).isEqualTo(expectedState.currentPoint);
+        assertThat(parallel.getCurrentState().isMetric).isEqualTo(expectedState.isMetric);
+        assertThat(parallel.getCurrentState().inAbsoluteMode).isEqualTo(expectedState.inAbsoluteMode);
+        assertThat(parallel.getCurrentState().commandNumber).isEqualTo(expectedState.commandNumber);
+
+        // Processing the processed stream file again takes the GcodeStream path.
+        File reprocessedOutput = createFile(Collections.emptyList());
+        GcodeParser reprocess = new GcodeParser();
+        reprocess.addCommandProcessor(new WhitespaceProcessor());
+        GcodeParserUtils.processAndExport(reprocess, parallelOutput, reprocessedOutput, pool);
+        try (GcodeStreamReader processed = new GcodeStreamReader(parallelOutput);
+             GcodeStreamReader reprocessed = new GcodeStreamReader(reprocessedOutput)) {
+            assertThat(reprocessed.getNumRows()).isEqualTo(processed.getNumRows());
+        }
+    }
+
+    @Test
+    public void parallelProcessingShouldReportParserErrors() throws Exception {
+        List<String> program = createProgram(200);
+        program.set(1500, "G0 G1 X1");
+        File input = createFile(program);
+        File output = createFile(Collections.emptyList());
+
+        assertThatThrownBy(() -> GcodeParserUtils.processAndExport(createParser(false), input, output, pool))
+                .isInstanceOf(GcodeParserException.class);
+    }
+
+    @Test
+    public void heldCommandsShouldBeWrittenBeforeCommentsAndAtTheEnd() throws Exception {
+        File input = createFile(Arrays.asList("G1 X1 F100", "G1 X2", "(comment)", "G1 X3", "G1 X4"));
+        File output = createFile(Collections.emptyList());
+
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new LineMerger(0.01, 100));
+        GcodeParserUtils.processAndExport(gcp, input, output, pool);
+
+        List<String> commands = new ArrayList<>();
+        try (GcodeStreamReader reader = new GcodeStreamReader(output)) {
+            while (reader.getNumRowsRemaining() > 0) {
+                commands.add(reader.getNextCommand().getCommandString());
+            }
+        }
+        assertThat(commands).containsExactly("G1X2F100", "", "G1X4");
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void mergedMovesShouldKeepTheLineOfTheirLastMove() throws Exception {
+        List<String> lines = Arrays.asList("G1 X1 F100", "G1 X2", "G1 X3", "G0 Z5");
+        File input = createFile(lines);
+        File output = createFile(Collections.emptyList());
+
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new LineMerger(0.01, 100));
+        GcodeParserUtils.processAndExport(gcp, input, output, pool);
+
+        List<GcodeCommand> commands = new ArrayList<>();
+        try (GcodeStreamReader reader = new GcodeStreamReader(output)) {
+            while (reader.getNumRowsRemaining() > 0) {
+                commands.add(reader.getNextCommand());
+            }
+        }
+        assertThat(commands).hasSize(2);
+        assertThat(commands.get(0).getCommandString()).isEqualTo("G1X3F100");
+        assertThat(commands.get(0).getCommandNumber()).isEqualTo(3);
+        assertThat(commands.get(0).getOriginalCommandString()).isEqualTo(lines.get(2));
+        assertThat(commands.get(1).getCommandString()).isEqualTo("G0 Z5");
+        assertThat(commands.get(1).getCommandNumber()).isEqualTo(4);
+    }
+
+    @Test
+    public void movesWithCommentsShouldNotBeMerged() throws Exception {
+        List<String> lines = Arrays.asList("G1 X1 Y0 F100 (a)", "G1 X2 Y0 ; b", "G1 X3 Y0", "G1 X4 Y0");
+        File input = createFile(lines);
+        File output = createFile(Collections.emptyList());
+
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new LineMerger(0.01, 100));
+        GcodeParserUtils.processAndExport(gcp, input, output, pool);
+
+        List<GcodeCommand> commands = new ArrayList<>();
+        try (GcodeStreamReader reader = new GcodeStreamReader(output)) {
+            while (reader.getNumRowsRemaining() > 0) {
+                commands.add(reader.getNextCommand());
+            }
+        }
+        assertThat(commands).hasSize(3);
+        assertThat(commands.get(0).getCommandString()).isEqualTo("G1 X1 Y0 F100");
+        assertThat(commands.get(0).getComment()).isEqualTo("a");
+        assertThat(commands.get(1).getCommandString()).isEqualTo("G1 X2 Y0");
+        assertThat(commands.get(1).getComment()).isEqualTo("b");
+        assertThat(commands.get(2).getCommandString()).isEqualTo("G1X4Y0");
+        assertThat(commands.get(2).getCommandNumber()).isEqualTo(4);
+    }
+
+    @Test
+    public void fittedArcsShouldKeepTheLineOfTheirLastMove() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            double angle = Math.PI - Math.PI / 2 * i / 20;
+            lines.add(String.format(Locale.US, "G1 X%.6f Y%.6f", 10 + 10 * Math.cos(angle), 10 * Math.sin(angle)));
+        }
+        lines.add("(done)");
+        lines.add("G0 Z5");
+        File input = createFile(lines);
+        File output = createFile(Collections.emptyList());
+
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new ArcFitter(0.01, 4));
+        GcodeParserUtils.processAndExport(gcp, input, output, pool);
+
+        List<GcodeCommand> commands = new ArrayList<>();
+        try (GcodeStreamReader reader = new GcodeStreamReader(output)) {
+            while (reader.getNumRowsRemaining() > 0) {
+                commands.add(reader.getNextCommand());
+            }
+        }
+        assertThat(commands).hasSize(3);
+        assertThat(commands.get(0).getCommandString()).startsWith("G2X10Y10I10J0");
+        assertThat(commands.get(0).getCommandNumber()).isEqualTo(20);
+        assertThat(commands.get(0).getOriginalCommandString()).isEqualTo(lines.get(19));
+        assertThat(commands.get(1).getCommandNumber()).isEqualTo(21);
+        assertThat(commands.get(2).getCommandString()).isEqualTo("G0 Z5");
+        assertThat(commands.get(2).getCommandNumber()).isEqualTo(22);
+    }
+
+    @Test
+    public void movesWithCommentsShouldNotBeFittedToArcs() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            double angle = Math.PI - Math.PI / 2 * i / 20;
+            lines.add(String.format(Locale.US, "G1 X%.6f Y%.6f ; move %d", 10 + 10 * Math.cos(angle), 10 * Math.sin(angle), i));
+        }
+        File input = createFile(lines);
+        File output = createFile(Collections.emptyList());
+
+        GcodeParser gcp = new GcodeParser();
+        gcp.addCommandProcessor(new ArcFitter(0.01, 4));
+        GcodeParserUtils.processAndExport(gcp, input, output, pool);
+
+        List<GcodeCommand> commands = new ArrayList<>();
+        try (GcodeStreamReader reader = new GcodeStreamReader(output)) {
+            while (reader.getNumRowsRemaining() > 0) {
+                commands.add(reader.getNextCommand());
+            }
+        }
+        assertThat(commands).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(commands.get(i).getCommandString()).startsWith("G1 ");
+            assertThat(commands.get(i).getComment()).isEqualTo("move " + (i + 1));
+        }
+        assertThat(gcp.getCurrentStats().getRemovedCommandCount()).isZero();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.listeners;
+
+import com.willwinder.universalgcodesender.listeners.AsyncListenerDispatcher.Policy;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncListenerDispatcherTest {
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsyncListenerDispatcher<List<String>> dispatcher;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        dispatcher.close();
+    }
+
+    /**
+     * Blocks the listener thread until released so that events pile up.
+     */
+    private void blockListener() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        dispatcher.dispatch(l -> {
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitDelivered(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getDeliveredCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, dispatcher.getDeliveredCount());
+    }
+
+    @Test
+    public void losslessShouldDeliverEverythingInOrder() throws Exception {
+        dispatcher = new AsyncListenerDispatcher<>(received, Policy.LOSSLESS, 2, 10);
+        for (int i = 0; i < 100; i++) {
+            String value = Integer.toString(i);
+            dispatcher.dispatchFrequent("status", l -> l.add(value));
+        }
+
+        awaitDelivered(100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.toString(i), received.get(i));
+        }
+        assertEquals(0, dispatcher.getDroppedCount());
+        assertEquals(0, dispatcher.getCoalescedCount());
+    }
+
+    @Test
+    public void losslessShouldNotBlockTheProducerWhenFull() throws Exception {
+        dispatcher = new AsyncListenerDispatcher<>(received, Policy.LOSSLESS, 2, 10);
+        blockListener();
+
+        // Returns while the listener is blocked.
+        for (int i = 0; i < 5; i++) {
+            String value = Integer.toString(i);
+            dispatcher.dispatchFrequent("status", l -> l.add(value));
+        }
+        assertEquals(3, dispatcher.getOverflowedCount());
+        release.countDown();
+
+        awaitDelivered(6);
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4"), received);
+        assertEquals(0, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void latestOnlyShouldCoalesceFrequentEvents() throws Exception {
+        dispatcher = new AsyncListenerDispatcher<>(received, Policy.LATEST_ONLY, 10, 10);
+        blockListener();
+
+        dispatcher.dispatchFrequent("status", l -> l.add("status 1"));
+        dispatcher.dispatchFrequent("sent", l -> l.add("sent 1"));
+        dispatcher.dispatchFrequent("status", l -> l.add("status 2"));
+        dispatcher.dispatch(l -> l.add("alarm"));
+        dispatcher.dispatchFrequent("status", l -> l.add("status 3"));
+        dispatcher.dispatchFrequent("status", l -> l.add("status 4"));
+        release.countDown();
+
+        awaitDelivered(5);
+        assertEquals(4, received.size());
+        assertEquals("status 2", received.get(0));
+        assertEquals("sent 1", received.get(1));
+        assertEquals("alarm", received.get(2));
+        assertEquals("status 4", received.get(3));
+        assertEquals(2, dispatcher.getCoalescedCount());
+    }
+
+    @Test
+    public void batchedShouldDropFrequentEventsWhenFull() throws Exception {
+        dispatcher = new AsyncListenerDispatcher<>(received, Policy.BATCHED, 3, 1000);
+        blockListener();
+
+        for (int i = 0; i < 5; i++) {
+            String value = Integer.toString(i);
+            dispatcher.dispatchFrequent("status", l -> l.add(value));
+        }
+        dispatcher.dispatch(l -> l.add("alarm"));
+        release.countDown();
+
+        awaitDelivered(5);
+        assertEquals(4, received.size());
+        assertEquals("alarm", received.get(3));
+        assertEquals(2, dispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void batchedShouldLimitTheDeliveryRate() throws Exception {
+        dispatcher = new AsyncListenerDispatcher<>(received, Policy.BATCHED, 100, 20);
+        CountDownLatch first = new CountDownLatch(1);
+        dispatcher.dispatchFrequent("status", l -> first.countDown());
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        CountDownLatch second = new CountDownLatch(1);
+        dispatcher.dispatchFrequent("status", l -> second.countDown());
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+
+        // At most 20 batches per second
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+}
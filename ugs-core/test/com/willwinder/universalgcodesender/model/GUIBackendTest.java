@@ -24,6 +24,8 @@ import com.willwinder.universalgcodesender.firmware.IFirmwareSettings;
 import com.willwinder.universalgcodesender.listeners.ControllerState;
 import com.willwinder.universalgcodesender.listeners.ControllerStatus;
 import com.willwinder.universalgcodesender.listeners.ControllerStatusBuilder;
+import com.willwinder.universalgcodesender.listeners.MessageListener;
+import com.willwinder.universalgcodesender.listeners.MessageType;
 import com.willwinder.universalgcodesender.listeners.UGSEventListener;
 import com.willwinder.universalgcodesender.model.UGSEvent.ControlState;
 import com.willwinder.universalgcodesender.types.GcodeCommand;
@@ -265,6 +267,7 @@ public class GUIBackendTest {
 
         // Then
         verify(controller).closeCommPort();
+        verify(controller).setEventLoopEnabled(false);
         assertNull("The instance should now be null", instance.getController());
         assertEquals(ControlState.COMM_DISCONNECTED, instance.getControlState());
         assertFalse(instance.isConnected());
@@ -274,6 +277,24 @@ public class GUIBackendTest {
         assertEquals(ControlState.COMM_DISCONNECTED, eventArgumentCaptor.getValue().getControlState());
     }
 
+    @Test
+    public void shutdownShouldDisconnectAndDeliverMessagesRightAway() throws Exception {
+        // Given
+        instance.connect(FIRMWARE, PORT, BAUD_RATE);
+        MessageListener messageListener = mock(MessageListener.class);
+        when(messageListener.isInterestedIn(any())).thenReturn(true);
+        instance.addMessageListener(messageListener);
+
+        // When
+        instance.shutdown();
+        instance.dispatchMessage(MessageType.INFO, "message\n");
+
+        // Then
+        verify(controller).closeCommPort();
+        assertFalse(instance.isConnected());
+        verify(messageListener).onMessage(MessageType.INFO, "message\n");
+    }
+
     @Test
     public void sendGcodeCommandWhenConnectedShouldBeOk() throws Exception {
         // Given
@@ -0,0 +1,183 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.services;
+
+import com.willwinder.universalgcodesender.listeners.MessageListener;
+import com.willwinder.universalgcodesender.listeners.MessageType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class MessageServiceTest {
+
+    private static class RecordingListener implements MessageListener {
+        private final List<String> messages = new ArrayList<>();
+        private boolean verbose = false;
+
+        @Override
+        public void onMessage(MessageType messageType, String message) {
+            messages.add(messageType + ":" + message);
+        }
+
+        @Override
+        public boolean isInterestedIn(MessageType messageType) {
+            return verbose || messageType != MessageType.VERBOSE;
+        }
+    }
+
+    @Test
+    public void messagesShouldOnlyBeCreatedIfSomeoneIsListening() {
+        MessageService messageService = new MessageService();
+        messageService.dispatchMessage(MessageType.INFO, () -> {
+            fail("Nobody is listening");
+            return "";
+        });
+
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+        assertFalse(messageService.isListeningFor(MessageType.VERBOSE));
+        messageService.dispatchMessage(MessageType.VERBOSE, () -> {
+            fail("Nobody is listening for verbose messages");
+            return "";
+        });
+
+        messageService.dispatchMessage(MessageType.INFO, () -> "info\n");
+        assertEquals(1, listener.messages.size());
+        assertEquals("INFO:info\n", listener.messages.get(0));
+    }
+
+    @Test
+    public void bufferedMessagesShouldBeDeliveredInBatches() {
+        MessageService messageService = new MessageService(1, 100);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+
+        messageService.dispatchMessage(MessageType.INFO, "one\n");
+        messageService.dispatchMessage(MessageType.INFO, () -> "two\n");
+        messageService.dispatchMessage(MessageType.INFO, "three\n");
+        assertEquals(0, listener.messages.size());
+
+        messageService.flush();
+        assertEquals(1, listener.messages.size());
+        assertEquals("INFO:one\ntwo\nthree\n", listener.messages.get(0));
+        messageService.close();
+    }
+
+    @Test
+    public void verboseMessagesShouldBeDeliveredOneByOne() {
+        MessageService messageService = new MessageService(1, 100);
+        RecordingListener listener = new RecordingListener();
+        listener.verbose = true;
+        messageService.addListener(listener);
+
+        messageService.dispatchMessage(MessageType.VERBOSE, "one\n");
+        messageService.dispatchMessage(MessageType.VERBOSE, "two\n");
+        messageService.dispatchMessage(MessageType.INFO, "three\n");
+
+        messageService.flush();
+        assertEquals(3, listener.messages.size());
+        assertEquals("VERBOSE:one\n", listener.messages.get(0));
+        assertEquals("VERBOSE:two\n", listener.messages.get(1));
+        assertEquals("INFO:three\n", listener.messages.get(2));
+        messageService.close();
+    }
+
+    @Test
+    public void errorsShouldBeDeliveredRightAway() {
+        MessageService messageService = new MessageService(1, 100);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+
+        messageService.dispatchMessage(MessageType.INFO, "one\n");
+        messageService.dispatchMessage(MessageType.ERROR, "error\n");
+
+        assertEquals(2, listener.messages.size());
+        assertEquals("INFO:one\n", listener.messages.get(0));
+        assertEquals("ERROR:error\n", listener.messages.get(1));
+        messageService.close();
+    }
+
+    @Test
+    public void closeShouldDeliverBufferedMessages() {
+        MessageService messageService = new MessageService(1, 100);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+
+        messageService.dispatchMessage(MessageType.INFO, "one\n");
+        messageService.close();
+
+        assertEquals(1, listener.messages.size());
+        assertEquals("INFO:one\n", listener.messages.get(0));
+    }
+
+    @Test
+    public void messagesAfterCloseShouldBeDeliveredRightAway() {
+        MessageService messageService = new MessageService(1, 100);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+        messageService.close();
+
+        messageService.dispatchMessage(MessageType.INFO, "one\n");
+
+        assertEquals(1, listener.messages.size());
+        assertEquals("INFO:one\n", listener.messages.get(0));
+    }
+
+    @Test
+    public void sentLinesShouldBeSummarized() {
+        MessageService messageService = new MessageService(1, 100);
+        messageService.setSummarizeSentLines(true);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+
+        for (int line = 10; line < 20; line++) {
+            messageService.dispatchSentLine(line, () -> ">>> G1X1\n");
+        }
+        messageService.dispatchMessage(MessageType.INFO, "ok\n");
+        messageService.dispatchSentLine(20, () -> ">>> G1X1\n");
+
+        messageService.flush();
+        assertEquals(1, listener.messages.size());
+        assertEquals("INFO:**** Sent lines 10-19 ****\nok\n**** Sent line 20 ****\n", listener.messages.get(0));
+        messageService.close();
+    }
+
+    @Test
+    public void oldestMessagesShouldBeDroppedWhenTheBufferIsFull() {
+        MessageService messageService = new MessageService(1, 2);
+        RecordingListener listener = new RecordingListener();
+        messageService.addListener(listener);
+
+        messageService.dispatchMessage(MessageType.INFO, "one\n");
+        messageService.dispatchMessage(MessageType.INFO, "two\n");
+        messageService.dispatchMessage(MessageType.INFO, "three\n");
+
+        messageService.flush();
+        assertEquals(1, messageService.getDroppedMessageCount());
+        assertEquals(2, listener.messages.size());
+        assertEquals("INFO:**** 1 console messages were dropped ****\n", listener.messages.get(0));
+        assertEquals("INFO:two\nthree\n", listener.messages.get(1));
+        messageService.close();
+    }
+}
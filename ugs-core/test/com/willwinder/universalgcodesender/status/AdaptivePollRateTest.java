@@ -0,0 +1,84 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+import com.willwinder.universalgcodesender.status.AdaptivePollRate.Activity;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptivePollRateTest {
+
+    @Test
+    public void pollRateShouldFollowTheActivity() {
+        AdaptivePollRate pollRate = new AdaptivePollRate(200);
+        pollRate.setBaudRate(115200);
+        assertEquals(1000, pollRate.getInterval());
+
+        assertTrue(pollRate.update(Activity.JOGGING));
+        assertEquals(50, pollRate.getInterval());
+
+        assertFalse(pollRate.update(Activity.PROBING));
+        assertEquals(50, pollRate.getInterval());
+
+        assertTrue(pollRate.update(Activity.STREAMING));
+        assertEquals(200, pollRate.getInterval());
+
+        assertTrue(pollRate.update(Activity.IDLE));
+        assertEquals(1000, pollRate.getInterval());
+    }
+
+    @Test
+    public void slowLinksShouldLimitTheBandwidthShare() {
+        AdaptivePollRate pollRate = new AdaptivePollRate(200);
+        pollRate.setBaudRate(9600);
+
+        pollRate.update(Activity.STREAMING);
+        assertEquals(1313, pollRate.getInterval());
+        assertEquals(AdaptivePollRate.MAX_STREAMING_SHARE, pollRate.getBandwidthShare(), 0.001);
+
+        pollRate.update(Activity.JOGGING);
+        assertEquals(263, pollRate.getInterval());
+        assertEquals(AdaptivePollRate.MAX_SHARE, pollRate.getBandwidthShare(), 0.001);
+    }
+
+    @Test
+    public void smallReportsShouldAllowFasterPolls() {
+        AdaptivePollRate pollRate = new AdaptivePollRate(200);
+        pollRate.setBaudRate(9600);
+        pollRate.update(Activity.STREAMING);
+
+        for (int i = 0; i < 50; i++) {
+            pollRate.reportReceived(20);
+        }
+        assertTrue(pollRate.update(Activity.STREAMING));
+        assertEquals(20, pollRate.getReportSize());
+        assertEquals(481, pollRate.getInterval());
+    }
+
+    @Test
+    public void networkLinksShouldOnlyBeLimitedByTheMinimumInterval() {
+        AdaptivePollRate pollRate = new AdaptivePollRate(40);
+        pollRate.update(Activity.JOGGING);
+        assertEquals(AdaptivePollRate.MIN_INTERVAL, pollRate.getInterval());
+        assertEquals(0, pollRate.getBandwidthShare(), 0);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.status;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StatusSourceTest {
+    private static final int INTERVAL = 10;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private StatusSource source;
+
+    @After
+    public void tearDown() {
+        source.stop();
+    }
+
+    private void waitForIntervals(int intervals) throws InterruptedException {
+        Thread.sleep(INTERVAL * intervals);
+    }
+
+    @Test
+    public void pollShouldOnlyHaveOneOutstandingRequest() throws Exception {
+        PollingStatusSource polling = new PollingStatusSource(Runnable::run, INTERVAL, requests::incrementAndGet, e -> {});
+        source = polling;
+        polling.start();
+
+        waitForIntervals(3);
+        assertEquals(1, requests.get());
+        assertTrue(polling.isOutstanding());
+
+        polling.reportReceived();
+        assertFalse(polling.isOutstanding());
+        waitForIntervals(3);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void pollShouldBeResentWhenTheReportIsLost() throws Exception {
+        source = new PollingStatusSource(Runnable::run, INTERVAL, requests::incrementAndGet, e -> {});
+        source.start();
+
+        waitForIntervals(StatusSource.STALE_INTERVALS * 3);
+        assertTrue(requests.get() >= 2);
+        assertTrue(requests.get() <= 4);
+    }
+
+    @Test
+    public void pushShouldNotRequestReportsWhileTheyArrive() throws Exception {
+        source = new PushStatusSource(Runnable::run, INTERVAL, () -> true, requests::incrementAndGet, e -> {});
+        source.start();
+
+        for (int i = 0; i < StatusSource.STALE_INTERVALS * 2; i++) {
+            source.reportReceived();
+            waitForIntervals(1);
+        }
+        assertEquals(0, requests.get());
+        assertFalse(source.isStale());
+        assertTrue(source.getReportCadence() >= INTERVAL);
+    }
+
+    @Test
+    public void pushShouldRequestAReportWhenStale() throws Exception {
+        AtomicBoolean moving = new AtomicBoolean(false);
+        source = new PushStatusSource(Runnable::run, INTERVAL, moving::get, requests::incrementAndGet, e -> {});
+        source.start();
+
+        // No reports are expected while the machine stands still
+        waitForIntervals(StatusSource.STALE_INTERVALS * 2);
+        assertEquals(0, requests.get());
+
+        moving.set(true);
+        waitForIntervals(StatusSource.STALE_INTERVALS * 3);
+        assertTrue(requests.get() >= 1);
+
+        source.reportReceived();
+        assertFalse(source.isStale());
+    }
+}
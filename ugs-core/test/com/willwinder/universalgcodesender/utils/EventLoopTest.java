@@ -0,0 +1,155 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopTest {
+    private EventLoop eventLoop;
+
+    @Before
+    public void setUp() {
+        eventLoop = new EventLoop("test event loop");
+    }
+
+    @After
+    public void tearDown() {
+        eventLoop.shutdown();
+    }
+
+    @Test
+    public void tasksFromManyThreadsShouldRunInTheLoop() throws Exception {
+        // Not synchronized, only touched by the loop thread.
+        List<Integer> values = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    final int value = i;
+                    eventLoop.execute(() -> values.add(value));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        eventLoop.call(() -> assertEquals(4000, values.size()));
+    }
+
+    @Test
+    public void tasksFromOneThreadShouldRunInOrder() throws Exception {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            eventLoop.execute(() -> values.add(value));
+        }
+
+        eventLoop.call(() -> {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i, values.get(i).intValue());
+            }
+        });
+    }
+
+    @Test
+    public void callFromTheLoopShouldRunDirectly() throws Exception {
+        assertFalse(eventLoop.inEventLoop());
+        eventLoop.call(() -> {
+            assertTrue(eventLoop.inEventLoop());
+            // Waiting for a task posted after this one would dead lock.
+            eventLoop.call(() -> assertTrue(eventLoop.inEventLoop()));
+        });
+    }
+
+    @Test
+    public void computeShouldReturnTheResultOfTheTask() throws Exception {
+        assertEquals("test event loop", eventLoop.compute(() -> Thread.currentThread().getName()));
+        assertEquals(Boolean.FALSE, eventLoop.compute(() -> eventLoop.compute(() -> false)));
+    }
+
+    @Test(expected = IOException.class)
+    public void callShouldRethrowExceptions() throws Exception {
+        eventLoop.call(() -> {
+            throw new IOException("failure");
+        });
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shutdownLoopShouldRejectTasks() {
+        eventLoop.shutdown();
+        assertFalse(eventLoop.isRunning());
+        eventLoop.execute(() -> {});
+    }
+
+    @Test
+    public void loopShouldKeepRunningAfterAnError() throws Exception {
+        eventLoop.execute(() -> {
+            throw new AssertionError("failure");
+        });
+
+        eventLoop.call(() -> assertTrue(eventLoop.isRunning()));
+    }
+
+    @Test
+    public void pendingCallsShouldFailWhenTheLoopIsShutDown() throws Exception {
+        CountDownLatch blockLoop = new CountDownLatch(1);
+        eventLoop.execute(() -> {
+            try {
+                blockLoop.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                eventLoop.call(() -> {});
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        caller.start();
+        Thread.sleep(50);
+
+        eventLoop.shutdown();
+        blockLoop.countDown();
+        caller.join(5000);
+
+        assertFalse(caller.isAlive());
+        assertTrue(failure.get() instanceof RejectedExecutionException);
+    }
+}
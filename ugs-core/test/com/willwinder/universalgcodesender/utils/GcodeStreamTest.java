@@ -108,4 +108,68 @@ public class GcodeStreamTest {
             FileUtils.forceDelete(f);
         }
     }
+
+    @Test
+    public void testLegacyTextFormatIsReadable() throws IOException, GcodeStreamReader.NotGcodeStreamFile {
+        File f = new File(tempDir,"legacyGcodeFile");
+        try {
+            try (PrintWriter writer = new PrintWriter(f)) {
+                writer.println("gsw_meta:2");
+                writer.println("G0 X1 (move)++G0X1++1++move");
+                writer.println("G1 Y2++G1Y2++2++");
+            }
+
+            try (IGcodeStreamReader gsr = new GcodeStreamReader(f)) {
+                Assert.assertEquals(2, gsr.getNumRows());
+
+                GcodeCommand gc = gsr.getNextCommand();
+                Assert.assertEquals("G0X1", gc.getCommandString());
+                Assert.assertEquals("G0 X1 (move)", gc.getOriginalCommandString());
+                Assert.assertEquals("move", gc.getComment());
+                Assert.assertEquals(1, gc.getCommandNumber());
+
+                gc = gsr.getNextCommand();
+                Assert.assertEquals("G1Y2", gc.getCommandString());
+                Assert.assertEquals(2, gc.getCommandNumber());
+                Assert.assertEquals(0, gsr.getNumRowsRemaining());
+            }
+        } finally {
+            FileUtils.forceDelete(f);
+        }
+    }
+
+    @Test
+    public void testBinaryFormatPreservesFields() throws IOException, GcodeStreamReader.NotGcodeStreamFile {
+        File f = new File(tempDir,"binaryGcodeFile");
+        try {
+            try (GcodeStreamWriter gsw = new GcodeStreamWriter(f)) {
+                gsw.addLine("G0 X1 (move)", "G0X1", "move", 1);
+                gsw.addLine("G1 Y2", "G1 Y2", null, 2);
+                gsw.addLine(new GcodeCommand("G2 X\u00e5", "G2 X\u00e5", "", 3, false));
+            }
+
+            Assert.assertTrue(GcodeStream.isBinaryGcodeStream(f));
+
+            try (IGcodeStreamReader gsr = new GcodeStreamReader(f)) {
+                Assert.assertEquals(3, gsr.getNumRows());
+
+                GcodeCommand gc = gsr.getNextCommand();
+                Assert.assertEquals("G0X1", gc.getCommandString());
+                Assert.assertEquals("G0 X1 (move)", gc.getOriginalCommandString());
+                Assert.assertEquals("move", gc.getComment());
+
+                gc = gsr.getNextCommand();
+                Assert.assertEquals("G1 Y2", gc.getCommandString());
+                Assert.assertEquals("G1 Y2", gc.getOriginalCommandString());
+                Assert.assertEquals("", gc.getComment());
+
+                gc = gsr.getNextCommand();
+                Assert.assertEquals("G2 X\u00e5", gc.getCommandString());
+                Assert.assertEquals(3, gc.getCommandNumber());
+                Assert.assertNull(gsr.getNextCommand());
+            }
+        } finally {
+            FileUtils.forceDelete(f);
+        }
+    }
 }
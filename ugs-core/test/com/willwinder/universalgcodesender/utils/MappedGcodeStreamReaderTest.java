@@ -0,0 +1,137 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MappedGcodeStreamReaderTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("mapped_gcode_stream", ".tmp");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.forceDelete(file);
+    }
+
+    /**
+     * Writes rows where every command number produces two lines, like an
+     * expanded arc would.
+     */
+    private void writeStream(int commands) throws IOException {
+        try (GcodeStreamWriter gsw = new GcodeStreamWriter(file)) {
+            for (int i = 1; i <= commands; i++) {
+                gsw.addLine("G1 X" + i, "G1X" + i + ".0", null, i);
+                gsw.addLine("G1 X" + i, "G1X" + i + ".5", null, i);
+            }
+        }
+    }
+
+    @Test
+    public void readsAllRowsInOrder() throws Exception {
+        writeStream(1000);
+
+        try (MappedGcodeStreamReader reader = new MappedGcodeStreamReader(file)) {
+            assertEquals(2000, reader.getNumRows());
+            for (int i = 1; i <= 1000; i++) {
+                assertEquals("G1X" + i + ".0", reader.getNextCommand().getCommandString());
+                GcodeCommand command = reader.getNextCommand();
+                assertEquals("G1X" + i + ".5", command.getCommandString());
+                assertEquals("G1 X" + i, command.getOriginalCommandString());
+                assertEquals(i, command.getCommandNumber());
+            }
+            assertEquals(0, reader.getNumRowsRemaining());
+            assertNull(reader.getNextCommand());
+        }
+    }
+
+    @Test
+    public void seekShouldMoveToFirstRowOfCommand() throws Exception {
+        writeStream(1000);
+
+        try (MappedGcodeStreamReader reader = new MappedGcodeStreamReader(file)) {
+            assertEquals(1000, reader.seek(501));
+            assertEquals(1000, reader.getNumRowsRemaining());
+            GcodeCommand command = reader.getNextCommand();
+            assertEquals(501, command.getCommandNumber());
+            assertEquals("G1X501.0", command.getCommandString());
+
+            // Seeking outside of the stream is clamped
+            assertEquals(0, reader.seek(-10));
+            assertEquals(2000, reader.seek(5000));
+            assertNull(reader.getNextCommand());
+        }
+    }
+
+    @Test
+    public void seekShouldFindCommandsWhenNumbersAreNotOrdered() throws Exception {
+        try (GcodeStreamWriter gsw = new GcodeStreamWriter(file)) {
+            gsw.addLine("G0 X3", "G0 X3", null, 3);
+            gsw.addLine("G0 X1", "G0 X1", null, 1);
+            gsw.addLine("G0 X2", "G0 X2", null, 2);
+        }
+
+        try (MappedGcodeStreamReader reader = new MappedGcodeStreamReader(file)) {
+            assertEquals(2, reader.seek(2));
+            assertEquals("G0 X2", reader.getNextCommand().getCommandString());
+        }
+    }
+
+    @Test
+    public void cursorsShouldKeepTheirOwnPosition() throws Exception {
+        writeStream(100);
+
+        MappedGcodeStreamReader reader = new MappedGcodeStreamReader(file);
+        reader.seek(10);
+        MappedGcodeStreamReader cursor = reader.newCursor();
+
+        reader.getNextCommand();
+        reader.getNextCommand();
+        assertEquals(11, reader.getNextCommand().getCommandNumber());
+
+        // The cursor is still usable after the original reader is closed.
+        reader.close();
+        assertEquals(10, cursor.getNextCommand().getCommandNumber());
+        assertEquals(200 - 19, cursor.getNumRowsRemaining());
+        cursor.close();
+    }
+
+    @Test(expected = GcodeStreamReader.NotGcodeStreamFile.class)
+    public void textFilesAreNotSupported() throws Exception {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("gsw_meta:1");
+            writer.println("G0X1++G0X1++1++");
+        }
+        new MappedGcodeStreamReader(file);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelinedGcodeStreamReaderTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("pipelined_gcode_stream", ".gsw");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void shouldReadRowsWhileTheyAreWritten() throws Exception {
+        PipelinedGcodeStream pipeline = new PipelinedGcodeStream();
+        AtomicInteger notifications = new AtomicInteger();
+
+        try (GcodeStreamWriter writer = new GcodeStreamWriter(file, pipeline);
+             PipelinedGcodeStreamReader reader = new PipelinedGcodeStreamReader(file, pipeline)) {
+            reader.setRowsAvailableListener(notifications::incrementAndGet);
+
+            // Nothing is written yet, the reader returns without waiting.
+            assertFalse(reader.ready());
+            assertNull(reader.getNextCommand());
+            assertTrue(pipeline.isReaderWaiting());
+
+            // A waiting reader makes the writer publish the next row.
+            writer.addLine("G1X0", "G1X0", "", 0);
+            assertFalse(pipeline.isReaderWaiting());
+            assertEquals(1, notifications.get());
+
+            for (int i = 1; i < 10; i++) {
+                writer.addLine("G1X" + i, "G1X" + i, "", i);
+            }
+            writer.flush();
+            for (int i = 0; i < 10; i++) {
+                assertTrue(reader.ready());
+                assertEquals("G1X" + i, reader.getNextCommand().getCommandString());
+            }
+
+            // Only a lower bound of the rows is known while writing.
+            assertFalse(reader.isNumRowsFinal());
+            assertEquals(10, reader.getNumRows());
+            assertEquals(1, reader.getNumRowsRemaining());
+            assertFalse(reader.ready());
+            assertNull(reader.getNextCommand());
+
+            for (int i = 10; i < 2000; i++) {
+                writer.addLine("G1X" + i, "G1X" + i, "", i);
+            }
+            writer.flush();
+            pipeline.complete();
+
+            for (int i = 10; i < 2000; i++) {
+                GcodeCommand command = reader.getNextCommand();
+                assertEquals("G1X" + i, command.getCommandString());
+                assertEquals(i, command.getCommandNumber());
+            }
+
+            assertTrue(reader.isNumRowsFinal());
+            assertEquals(2000, reader.getNumRows());
+            assertEquals(0, reader.getNumRowsRemaining());
+            assertFalse(reader.ready());
+            assertNull(reader.getNextCommand());
+        }
+
+        // The completed file is a regular gcode stream.
+        try (GcodeStreamReader reader = new GcodeStreamReader(file)) {
+            assertEquals(2000, reader.getNumRows());
+        }
+    }
+
+    @Test
+    public void cancelledStreamShouldFailTheReader() throws Exception {
+        PipelinedGcodeStream pipeline = new PipelinedGcodeStream();
+        try (GcodeStreamWriter writer = new GcodeStreamWriter(file, pipeline)) {
+            // Enough rows to be published without a waiting reader.
+            for (int i = 0; i < 500; i++) {
+                writer.addLine("G0X0", "G0X0", "", i);
+            }
+
+            PipelinedGcodeStreamReader reader = new PipelinedGcodeStreamReader(file, pipeline);
+            assertEquals("G0X0", reader.getNextCommand().getCommandString());
+
+            pipeline.cancel();
+            try {
+                writer.addLine("G0X1", "G0X1", "", 500);
+                fail("The writer should stop when cancelled.");
+            } catch (CancellationException expected) {
+            }
+
+            try {
+                for (int i = 1; i <= 500; i++) {
+                    reader.getNextCommand();
+                }
+                fail("The reader should fail when the stream was cancelled.");
+            } catch (IOException expected) {
+            }
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.willwinder.universalgcodesender.types.GcodeCommand;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchingGcodeStreamReaderTest {
+
+    private static List<GcodeCommand> createCommands(int count) {
+        List<GcodeCommand> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commands.add(new GcodeCommand("G1X" + i, i));
+        }
+        return commands;
+    }
+
+    @Test
+    public void shouldReturnCommandsInOrder() throws Exception {
+        try (PrefetchingGcodeStreamReader reader = new PrefetchingGcodeStreamReader(new SimpleGcodeStreamReader(createCommands(500)), 16)) {
+            assertEquals(500, reader.getNumRows());
+            for (int i = 0; i < 500; i++) {
+                assertEquals(500 - i, reader.getNumRowsRemaining());
+                assertEquals("G1X" + i, reader.getNextCommand().getCommandString());
+            }
+            assertEquals(0, reader.getNumRowsRemaining());
+            assertNull(reader.getNextCommand());
+        }
+    }
+
+    @Test
+    public void slowSourceShouldBeCountedAsStarvation() throws Exception {
+        IGcodeStreamReader slowReader = new SimpleGcodeStreamReader(createCommands(5)) {
+            @Override
+            public GcodeCommand getNextCommand() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ignored) {
+                }
+                return super.getNextCommand();
+            }
+        };
+
+        try (PrefetchingGcodeStreamReader reader = new PrefetchingGcodeStreamReader(slowReader)) {
+            while (reader.getNextCommand() != null) {
+                // read everything
+            }
+            assertTrue(reader.getStarvationCount() > 0);
+            assertEquals(0, reader.getLowestOccupancy());
+        }
+    }
+
+    @Test
+    public void fullRingShouldNotStarve() throws Exception {
+        try (PrefetchingGcodeStreamReader reader = new PrefetchingGcodeStreamReader(new SimpleGcodeStreamReader(createCommands(10)), 10)) {
+            // Wait until everything has been prefetched
+            for (int i = 0; i < 100 && reader.getOccupancy() < 10; i++) {
+                Thread.sleep(10);
+            }
+
+            while (reader.getNextCommand() != null) {
+                // read everything
+            }
+            assertEquals(0, reader.getStarvationCount());
+        }
+    }
+
+    @Test
+    public void streamEndingEarlyShouldReturnNull() throws Exception {
+        IGcodeStreamReader truncatedReader = new SimpleGcodeStreamReader(createCommands(5)) {
+            @Override
+            public GcodeCommand getNextCommand() {
+                return null;
+            }
+        };
+
+        try (PrefetchingGcodeStreamReader reader = new PrefetchingGcodeStreamReader(truncatedReader)) {
+            assertNull(reader.getNextCommand());
+            assertEquals(0, reader.getNumRowsRemaining());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readErrorsShouldBePropagated() throws Exception {
+        IGcodeStreamReader failingReader = new IGcodeStreamReader() {
+            @Override
+            public boolean ready() {
+                return true;
+            }
+
+            @Override
+            public int getNumRows() {
+                return 5;
+            }
+
+            @Override
+            public int getNumRowsRemaining() {
+                return 5;
+            }
+
+            @Override
+            public GcodeCommand getNextCommand() throws IOException {
+                throw new IOException("Disk error");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        try (PrefetchingGcodeStreamReader reader = new PrefetchingGcodeStreamReader(failingReader)) {
+            reader.getNextCommand();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+    Copyright 2019 Will Winder
+
+    This file is part of Universal Gcode Sender (UGS).
+
+    UGS is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    UGS is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with UGS.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.willwinder.universalgcodesender.utils;
+
+import com.google.common.io.Files;
+import com.willwinder.universalgcodesender.model.Position;
+import com.willwinder.universalgcodesender.model.UnitUtils.Units;
+import com.willwinder.universalgcodesender.utils.Settings.FileStats;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProcessedGcodeCacheTest {
+    private File directory;
+    private File cacheDirectory;
+
+    @Before
+    public void setUp() {
+        directory = Files.createTempDir();
+        cacheDirectory = new File(directory, "cache");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private File writeFile(String name, String contents) throws IOException {
+        File file = new File(directory, name);
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    public void keyShouldDependOnContentsConfigAndFirmware() throws IOException {
+        ProcessedGcodeCache cache = new ProcessedGcodeCache(cacheDirectory, 1024);
+        File file = writeFile("file.gcode", "G0 X1\n");
+        File copy = writeFile("copy.gcode", "G0 X1\n");
+        File other = writeFile("other.gcode", "G0 X2\n");
+
+        String key = cache.getKey(file, "config", "GRBL");
+        assertThat(cache.getKey(copy, "config", "GRBL")).isEqualTo(key);
+        assertThat(cache.getKey(other, "config", "GRBL")).isNotEqualTo(key);
+        assertThat(cache.getKey(file, "other config", "GRBL")).isNotEqualTo(key);
+        assertThat(cache.getKey(file, "config", "TinyG")).isNotEqualTo(key);
+
+        // The content hash is remembered between sessions.
+        ProcessedGcodeCache reopened = new ProcessedGcodeCache(cacheDirectory, 1024);
+        assertThat(reopened.getKey(file, "config", "GRBL")).isEqualTo(key);
+
+        // A modified file gets a new key.
+        FileUtils.writeStringToFile(file, "G0 X3\n", StandardCharsets.UTF_8);
+        file.setLastModified(file.lastModified() + 2000);
+        assertThat(reopened.getKey(file, "config", "GRBL")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void putShouldStoreTheFileAndStats() throws IOException {
+        ProcessedGcodeCache cache = new ProcessedGcodeCache(cacheDirectory, 1024);
+        File processed = writeFile("processed", "processed contents");
+        FileStats stats = new FileStats(new Position(-1, -2, -3, Units.MM), new Position(1, 2, 3, Units.MM), 42, 7, 1234);
+
+        assertThat(cache.get("key")).isEmpty();
+        File cached = cache.put("key", processed, stats);
+
+        // The processed file is left in place.
+        assertThat(processed).exists();
+        assertThat(FileUtils.readFileToString(cached, StandardCharsets.UTF_8)).isEqualTo("processed contents");
+
+        Optional<ProcessedGcodeCache.Entry> entry = new ProcessedGcodeCache(cacheDirectory, 1024).get("key");
+        assertThat(entry).isPresent();
+        assertThat(entry.get().getFile()).isEqualTo(cached);
+        assertThat(entry.get().getFileStats().numCommands).isEqualTo(42);
+        assertThat(entry.get().getFileStats().removedCommandCount).isEqualTo(7);
+        assertThat(entry.get().getFileStats().removedByteCount).isEqualTo(1234);
+        assertThat(entry.get().getFileStats().minCoordinate).isEqualTo(stats.minCoordinate);
+        assertThat(entry.get().getFileStats().maxCoordinate).isEqualTo(stats.maxCoordinate);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesShouldBeEvicted() throws IOException {
+        ProcessedGcodeCache cache = new ProcessedGcodeCache(cacheDirectory, 250);
+        File processed = writeFile("processed", new String(new char[100]).replace('\0', 'x'));
+
+        File first = cache.put("first", processed, new FileStats());
+        File second = cache.put("second", processed, new FileStats());
+        first.setLastModified(System.currentTimeMillis() - 20000);
+        second.setLastModified(System.currentTimeMillis() - 10000);
+
+        // Using the first entry makes the second one the least recently used.
+        assertThat(cache.get("first")).isPresent();
+        cache.put("third", processed, new FileStats());
+
+        assertThat(cache.get("first")).isPresent();
+        assertThat(cache.get("second")).isEmpty();
+        assertThat(cache.get("third")).isPresent();
+
+        // An entry larger than the cache is kept until the next one is added.
+        ProcessedGcodeCache small = new ProcessedGcodeCache(cacheDirectory, 50);
+        small.put("fourth", processed, new FileStats());
+        assertThat(small.get("first")).isEmpty();
+        assertThat(small.get("third")).isEmpty();
+        assertThat(small.get("fourth")).isPresent();
+    }
+
+    @Test
+    public void filesInUseShouldNotBeEvicted() throws IOException {
+        AtomicReference<File> inUse = new AtomicReference<>();
+        ProcessedGcodeCache cache = new ProcessedGcodeCache(cacheDirectory, 150, file -> file.equals(inUse.get()));
+        File processed = writeFile("processed", new String(new char[100]).replace('\0', 'x'));
+
+        inUse.set(cache.put("first", processed, new FileStats()));
+        cache.put("second", processed, new FileStats());
+
+        assertThat(cache.get("first")).isPresent();
+        assertThat(cache.get("second")).isPresent();
+
+        // Once it isn't used the first entry is evicted.
+        inUse.set(null);
+        cache.put("third", processed, new FileStats());
+        assertThat(cache.get("first")).isEmpty();
+    }
+}
@@ -1,7 +1,7 @@
 G17
 G0X-0.75Y0Z0
 G0X-1.5Y0Z0
-G1X-1.496788385Y0.098104694Z0F0.0
+G1X-1.496788385Y0.098104694Z0F0
 G1X-1.487167292Y0.195789288Z0
 G1X-1.471177921Y0.292635483Z0
 G1X-1.448888739Y0.388228568Z0
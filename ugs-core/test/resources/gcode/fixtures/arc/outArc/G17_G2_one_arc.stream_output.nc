@@ -2,7 +2,7 @@ gsw_meta:51
 G17++G17++1++
 G00 X-1.5 Y0.++G0X-0.75Y0Z0++2++
 G00 X-1.5 Y0.++G0X-1.5Y0Z0++2++
-G02 X1.5 Y0 I1.5 J0++G1X-1.496788385Y0.098104694Z0F0.0++3++
+G02 X1.5 Y0 I1.5 J0++G1X-1.496788385Y0.098104694Z0F0++3++
 G02 X1.5 Y0 I1.5 J0++G1X-1.487167292Y0.195789288Z0++3++
 G02 X1.5 Y0 I1.5 J0++G1X-1.471177921Y0.292635483Z0++3++
 G02 X1.5 Y0 I1.5 J0++G1X-1.448888739Y0.388228568Z0++3++
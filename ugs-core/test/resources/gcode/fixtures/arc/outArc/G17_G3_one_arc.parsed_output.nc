@@ -1,7 +1,7 @@
 G17
 G0X-0.75Y0Z0
 G0X-1.5Y0Z0
-G1X-1.496788385Y-0.098104694Z0F0.0
+G1X-1.496788385Y-0.098104694Z0F0
 G1X-1.487167292Y-0.195789288Z0
 G1X-1.471177921Y-0.292635483Z0
 G1X-1.448888739Y-0.388228568Z0
@@ -24,7 +24,7 @@ G1X-0.388228568Y-1.448888739Z0
 G1X-0.292635483Y-1.471177921Z0
 G1X-0.195789288Y-1.487167292Z0
 G1X-0.098104694Y-1.496788385Z0
-G1X-0Y-1.5Z0
+G1X0Y-1.5Z0
 G1X0.098104694Y-1.496788385Z0
 G1X0.195789288Y-1.487167292Z0
 G1X0.292635483Y-1.471177921Z0
@@ -1,7 +1,7 @@
 G18
 G0X-0.75Y0Z0
 G0X-1.5Y0Z0
-G1X-1.496788385Y0Z0.098104694F0.0
+G1X-1.496788385Y0Z0.098104694F0
 G1X-1.487167292Y0Z0.195789288
 G1X-1.471177921Y0Z0.292635483
 G1X-1.448888739Y0Z0.388228568
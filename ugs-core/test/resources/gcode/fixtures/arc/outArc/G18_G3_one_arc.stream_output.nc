@@ -2,7 +2,7 @@ gsw_meta:51
 G18++G18++1++
 G00 X-1.5 Y0.++G0X-0.75Y0Z0++2++
 G00 X-1.5 Y0.++G0X-1.5Y0Z0++2++
-G03 X1.5 Z0 I1.5 K0++G1X-1.496788385Y0Z0.098104694F0.0++3++
+G03 X1.5 Z0 I1.5 K0++G1X-1.496788385Y0Z0.098104694F0++3++
 G03 X1.5 Z0 I1.5 K0++G1X-1.487167292Y0Z0.195789288++3++
 G03 X1.5 Z0 I1.5 K0++G1X-1.471177921Y0Z0.292635483++3++
 G03 X1.5 Z0 I1.5 K0++G1X-1.448888739Y0Z0.388228568++3++
@@ -1,7 +1,7 @@
 G19
 G0X0Y-0.75Z0
 G0X0Y-1.5Z0
-G1X0Y-1.496788385Z0.098104694F0.0
+G1X0Y-1.496788385Z0.098104694F0
 G1X0Y-1.487167292Z0.195789288
 G1X0Y-1.471177921Z0.292635483
 G1X0Y-1.448888739Z0.388228568
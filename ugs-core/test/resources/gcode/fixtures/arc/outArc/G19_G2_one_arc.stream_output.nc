@@ -2,7 +2,7 @@ gsw_meta:51
 G19++G19++1++
 G00 Y-1.5 Z0 X0++G0X0Y-0.75Z0++2++
 G00 Y-1.5 Z0 X0++G0X0Y-1.5Z0++2++
-G02 Y1.5 Z0 J1.5 K0++G1X0Y-1.496788385Z0.098104694F0.0++3++
+G02 Y1.5 Z0 J1.5 K0++G1X0Y-1.496788385Z0.098104694F0++3++
 G02 Y1.5 Z0 J1.5 K0++G1X0Y-1.487167292Z0.195789288++3++
 G02 Y1.5 Z0 J1.5 K0++G1X0Y-1.471177921Z0.292635483++3++
 G02 Y1.5 Z0 J1.5 K0++G1X0Y-1.448888739Z0.388228568++3++
@@ -1,7 +1,7 @@
 G19
 G0X0Y-0.75Z0
 G0X0Y-1.5Z0
-G1X0Y-1.496788385Z-0.098104694F0.0
+G1X0Y-1.496788385Z-0.098104694F0
 G1X0Y-1.487167292Z-0.195789288
 G1X0Y-1.471177921Z-0.292635483
 G1X0Y-1.448888739Z-0.388228568
@@ -24,7 +24,7 @@ G1X0Y-0.388228568Z-1.448888739
 G1X0Y-0.292635483Z-1.471177921
 G1X0Y-0.195789288Z-1.487167292
 G1X0Y-0.098104694Z-1.496788385
-G1X0Y-0Z-1.5
+G1X0Y0Z-1.5
 G1X0Y0.098104694Z-1.496788385
 G1X0Y0.195789288Z-1.487167292
 G1X0Y0.292635483Z-1.471177921
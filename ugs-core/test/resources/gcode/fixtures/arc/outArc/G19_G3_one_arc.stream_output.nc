@@ -2,7 +2,7 @@ gsw_meta:51
 G19++G19++1++
 G00 Y-1.5 Z0 X0++G0X0Y-0.75Z0++2++
 G00 Y-1.5 Z0 X0++G0X0Y-1.5Z0++2++
-G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.496788385Z-0.098104694F0.0++3++
+G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.496788385Z-0.098104694F0++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.487167292Z-0.195789288++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.471177921Z-0.292635483++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.448888739Z-0.388228568++3++
@@ -25,7 +25,7 @@ G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.388228568Z-1.448888739++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.292635483Z-1.471177921++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.195789288Z-1.487167292++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.098104694Z-1.496788385++3++
-G03 Y1.5 Z0 J1.5 K0++G1X0Y-0Z-1.5++3++
+G03 Y1.5 Z0 J1.5 K0++G1X0Y0Z-1.5++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.098104694Z-1.496788385++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.195789288Z-1.487167292++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.292635483Z-1.471177921++3++
@@ -1,6 +1,6 @@
 G17
 G00 X0 Y0
-G1X0.003279559Y0.099135876Z0.052631579F0.0
+G1X0.003279559Y0.099135876Z0.052631579F0
 G1X0.013103896Y0.197838257Z0.105263158
 G1X0.029430051Y0.295675541Z0.157894737
 G1X0.052186635Y0.392219911Z0.210526316
@@ -95,7 +95,7 @@ G1X0.029430051Y-0.295675541Z4.842105263
 G1X0.013103896Y-0.197838257Z4.894736842
 G1X0.003279559Y-0.099135876Z4.947368421
 G1X0Y0Z5
-G1X0.003279559Y-0.099135876Z5.052631579F0.0
+G1X0.003279559Y-0.099135876Z5.052631579F0
 G1X0.013103896Y-0.197838257Z5.105263158
 G1X0.029430051Y-0.295675541Z5.157894737
 G1X0.052186635Y-0.392219911Z5.210526316
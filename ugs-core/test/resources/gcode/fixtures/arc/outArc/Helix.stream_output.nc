@@ -1,7 +1,7 @@
 gsw_meta:192                                      
 G17++G17++1++
 G00 X0 Y0++G00 X0 Y0++2++
-G02 X0 Y0 Z5 I1.5 J0++G1X0.003279559Y0.099135876Z0.052631579F0.0++3++
+G02 X0 Y0 Z5 I1.5 J0++G1X0.003279559Y0.099135876Z0.052631579F0++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.013103896Y0.197838257Z0.105263158++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.029430051Y0.295675541Z0.157894737++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.052186635Y0.392219911Z0.210526316++3++
@@ -96,7 +96,7 @@ G02 X0 Y0 Z5 I1.5 J0++G1X0.029430051Y-0.295675541Z4.842105263++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.013103896Y-0.197838257Z4.894736842++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.003279559Y-0.099135876Z4.947368421++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0Y0Z5++3++
-G03 X0 Y0 Z10 I1.5 J0++G1X0.003279559Y-0.099135876Z5.052631579F0.0++4++
+G03 X0 Y0 Z10 I1.5 J0++G1X0.003279559Y-0.099135876Z5.052631579F0++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X0.013103896Y-0.197838257Z5.105263158++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X0.029430051Y-0.295675541Z5.157894737++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X0.052186635Y-0.392219911Z5.210526316++4++
@@ -69,15 +69,15 @@ G1X13.86Y29.12Z1.0467
 G1X13.86Y29.12Z0.0933
 G1X13.86Y29.12Z-0.86
 G19
-G1X13.86Y29.101243557Z-0.93F200.0
+G1X13.86Y29.101243557Z-0.93F200
 G1X13.86Y29.05Z-0.981243557
 G1X13.86Y28.98Z-1
 G1 Y28.84
 G17
-G1X13.878756443Y28.77Z-1F200.0
+G1X13.878756443Y28.77Z-1F200
 G1X13.93Y28.718756443Z-1
 G1X14Y28.7Z-1
-G1X14.099958996Y28.699660139Z-1F200.0
+G1X14.099958996Y28.699660139Z-1F200
 G1X14.19991337Y28.698640571Z-1
 G1X14.2998585Y28.696941344Z-1
 G1X14.399789764Y28.694562537Z-1
@@ -539,7 +539,7 @@ G1X14.2998585Y-0.696941344Z-1
 G1X14.19991337Y-0.698640571Z-1
 G1X14.099958996Y-0.699660139Z-1
 G1X14Y-0.7Z-1
-G1X13.900041004Y-0.699660139Z-1F200.0
+G1X13.900041004Y-0.699660139Z-1F200
 G1X13.80008663Y-0.698640571Z-1
 G1X13.7001415Y-0.696941344Z-1
 G1X13.600210236Y-0.694562537Z-1
@@ -1001,12 +1001,12 @@ G1X13.7001415Y28.696941344Z-1
 G1X13.80008663Y28.698640571Z-1
 G1X13.900041004Y28.699660139Z-1
 G1X14Y28.7Z-1
-G1X14.07Y28.718756443Z-1F200.0
+G1X14.07Y28.718756443Z-1F200
 G1X14.121243557Y28.77Z-1
 G1X14.14Y28.84Z-1
 G1 Y28.98
 G19
-G1X14.14Y29.05Z-0.981243557F200.0
+G1X14.14Y29.05Z-0.981243557F200
 G1X14.14Y29.101243557Z-0.93
 G1X14.14Y29.12Z-0.86
 G0X14.14Y29.12Z0.1273
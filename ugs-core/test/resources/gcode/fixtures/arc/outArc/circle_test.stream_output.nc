@@ -70,15 +70,15 @@ Z-0.86++G1X13.86Y29.12Z1.0467++20++
 Z-0.86++G1X13.86Y29.12Z0.0933++20++
 Z-0.86++G1X13.86Y29.12Z-0.86++20++
 G19 G2 Y28.98 Z-1 J-0.14++G19++21++
-G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y29.101243557Z-0.93F200.0++21++
+G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y29.101243557Z-0.93F200++21++
 G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y29.05Z-0.981243557++21++
 G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y28.98Z-1++21++
 G1 Y28.84++G1 Y28.84++22++
 G17 G3 X14 Y28.7 I0.14++G17++23++
-G17 G3 X14 Y28.7 I0.14++G1X13.878756443Y28.77Z-1F200.0++23++
+G17 G3 X14 Y28.7 I0.14++G1X13.878756443Y28.77Z-1F200++23++
 G17 G3 X14 Y28.7 I0.14++G1X13.93Y28.718756443Z-1++23++
 G17 G3 X14 Y28.7 I0.14++G1X14Y28.7Z-1++23++
-G2 Y-0.7 J-14.7++G1X14.099958996Y28.699660139Z-1F200.0++24++
+G2 Y-0.7 J-14.7++G1X14.099958996Y28.699660139Z-1F200++24++
 G2 Y-0.7 J-14.7++G1X14.19991337Y28.698640571Z-1++24++
 G2 Y-0.7 J-14.7++G1X14.2998585Y28.696941344Z-1++24++
 G2 Y-0.7 J-14.7++G1X14.399789764Y28.694562537Z-1++24++
@@ -540,7 +540,7 @@ G2 Y-0.7 J-14.7++G1X14.2998585Y-0.696941344Z-1++24++
 G2 Y-0.7 J-14.7++G1X14.19991337Y-0.698640571Z-1++24++
 G2 Y-0.7 J-14.7++G1X14.099958996Y-0.699660139Z-1++24++
 G2 Y-0.7 J-14.7++G1X14Y-0.7Z-1++24++
-Y28.7 J14.7++G1X13.900041004Y-0.699660139Z-1F200.0++25++
+Y28.7 J14.7++G1X13.900041004Y-0.699660139Z-1F200++25++
 Y28.7 J14.7++G1X13.80008663Y-0.698640571Z-1++25++
 Y28.7 J14.7++G1X13.7001415Y-0.696941344Z-1++25++
 Y28.7 J14.7++G1X13.600210236Y-0.694562537Z-1++25++
@@ -1002,12 +1002,12 @@ Y28.7 J14.7++G1X13.7001415Y28.696941344Z-1++25++
 Y28.7 J14.7++G1X13.80008663Y28.698640571Z-1++25++
 Y28.7 J14.7++G1X13.900041004Y28.699660139Z-1++25++
 Y28.7 J14.7++G1X14Y28.7Z-1++25++
-G3 X14.14 Y28.84 J0.14++G1X14.07Y28.718756443Z-1F200.0++26++
+G3 X14.14 Y28.84 J0.14++G1X14.07Y28.718756443Z-1F200++26++
 G3 X14.14 Y28.84 J0.14++G1X14.121243557Y28.77Z-1++26++
 G3 X14.14 Y28.84 J0.14++G1X14.14Y28.84Z-1++26++
 G1 Y28.98++G1 Y28.98++27++
 G19 G3 Y29.12 Z-0.86 K0.14++G19++28++
-G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.05Z-0.981243557F200.0++28++
+G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.05Z-0.981243557F200++28++
 G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.101243557Z-0.93++28++
 G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.12Z-0.86++28++
 G0 Z10++G0X14.14Y29.12Z0.1273++29++
@@ -1,6 +1,6 @@
 G17
 G00 X-1.5 Y0.
-G1X-1.213525492Y0.881677878Z0F0.0
+G1X-1.213525492Y0.881677878Z0F0
 G1X-0.463525492Y1.426584774Z0
 G1X0.463525492Y1.426584774Z0
 G1X1.213525492Y0.881677878Z0
@@ -1,7 +1,7 @@
 gsw_meta:7                                        
 G17++G17++1++
 G00 X-1.5 Y0.++G00 X-1.5 Y0.++2++
-G02 X1.5 Y0 I1.5 J0++G1X-1.213525492Y0.881677878Z0F0.0++3++
+G02 X1.5 Y0 I1.5 J0++G1X-1.213525492Y0.881677878Z0F0++3++
 G02 X1.5 Y0 I1.5 J0++G1X-0.463525492Y1.426584774Z0++3++
 G02 X1.5 Y0 I1.5 J0++G1X0.463525492Y1.426584774Z0++3++
 G02 X1.5 Y0 I1.5 J0++G1X1.213525492Y0.881677878Z0++3++
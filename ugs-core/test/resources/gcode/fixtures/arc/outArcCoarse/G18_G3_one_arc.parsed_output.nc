@@ -1,6 +1,6 @@
 G18
 G00 X-1.5 Y0.
-G1X-1.213525492Y0Z0.881677878F0.0
+G1X-1.213525492Y0Z0.881677878F0
 G1X-0.463525492Y0Z1.426584774
 G1X0.463525492Y0Z1.426584774
 G1X1.213525492Y0Z0.881677878
@@ -1,7 +1,7 @@
 gsw_meta:7                                        
 G18++G18++1++
 G00 X-1.5 Y0.++G00 X-1.5 Y0.++2++
-G03 X1.5 Z0 I1.5 K0++G1X-1.213525492Y0Z0.881677878F0.0++3++
+G03 X1.5 Z0 I1.5 K0++G1X-1.213525492Y0Z0.881677878F0++3++
 G03 X1.5 Z0 I1.5 K0++G1X-0.463525492Y0Z1.426584774++3++
 G03 X1.5 Z0 I1.5 K0++G1X0.463525492Y0Z1.426584774++3++
 G03 X1.5 Z0 I1.5 K0++G1X1.213525492Y0Z0.881677878++3++
@@ -1,6 +1,6 @@
 G19
 G00 Y-1.5 Z0 X0
-G1X0Y-1.213525492Z-0.881677878F0.0
+G1X0Y-1.213525492Z-0.881677878F0
 G1X0Y-0.463525492Z-1.426584774
 G1X0Y0.463525492Z-1.426584774
 G1X0Y1.213525492Z-0.881677878
@@ -1,7 +1,7 @@
 gsw_meta:7                                        
 G19++G19++1++
 G00 Y-1.5 Z0 X0++G00 Y-1.5 Z0 X0++2++
-G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.213525492Z-0.881677878F0.0++3++
+G03 Y1.5 Z0 J1.5 K0++G1X0Y-1.213525492Z-0.881677878F0++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.463525492Z-1.426584774++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.463525492Z-1.426584774++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y1.213525492Z-0.881677878++3++
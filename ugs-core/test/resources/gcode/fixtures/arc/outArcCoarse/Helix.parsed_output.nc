@@ -1,6 +1,6 @@
 G17
 G00 X0 Y0
-G1X0.286474508Y0.881677878Z0.5F0.0
+G1X0.286474508Y0.881677878Z0.5F0
 G1X1.036474508Y1.426584774Z1
 G1X1.963525492Y1.426584774Z1.5
 G1X2.713525492Y0.881677878Z2
@@ -10,7 +10,7 @@ G1X1.963525492Y-1.426584774Z3.5
 G1X1.036474508Y-1.426584774Z4
 G1X0.286474508Y-0.881677878Z4.5
 G1X0Y0Z5
-G1X0.286474508Y-0.881677878Z5.5F0.0
+G1X0.286474508Y-0.881677878Z5.5F0
 G1X1.036474508Y-1.426584774Z6
 G1X1.963525492Y-1.426584774Z6.5
 G1X2.713525492Y-0.881677878Z7
@@ -1,7 +1,7 @@
 gsw_meta:22                                       
 G17++G17++1++
 G00 X0 Y0++G00 X0 Y0++2++
-G02 X0 Y0 Z5 I1.5 J0++G1X0.286474508Y0.881677878Z0.5F0.0++3++
+G02 X0 Y0 Z5 I1.5 J0++G1X0.286474508Y0.881677878Z0.5F0++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X1.036474508Y1.426584774Z1++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X1.963525492Y1.426584774Z1.5++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X2.713525492Y0.881677878Z2++3++
@@ -11,7 +11,7 @@ G02 X0 Y0 Z5 I1.5 J0++G1X1.963525492Y-1.426584774Z3.5++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X1.036474508Y-1.426584774Z4++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0.286474508Y-0.881677878Z4.5++3++
 G02 X0 Y0 Z5 I1.5 J0++G1X0Y0Z5++3++
-G03 X0 Y0 Z10 I1.5 J0++G1X0.286474508Y-0.881677878Z5.5F0.0++4++
+G03 X0 Y0 Z10 I1.5 J0++G1X0.286474508Y-0.881677878Z5.5F0++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X1.036474508Y-1.426584774Z6++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X1.963525492Y-1.426584774Z6.5++4++
 G03 X0 Y0 Z10 I1.5 J0++G1X2.713525492Y-0.881677878Z7++4++
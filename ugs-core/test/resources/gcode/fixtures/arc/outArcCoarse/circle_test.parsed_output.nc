@@ -19,11 +19,11 @@ Z5
 G1 Z2 F200
 Z-0.86
 G19
-G1X13.86Y28.98Z-1F200.0
+G1X13.86Y28.98Z-1F200
 G1 Y28.84
 G17
-G1X14Y28.7Z-1F200.0
-G1X14.981851716Y28.667173116Z-1F200.0
+G1X14Y28.7Z-1F200
+G1X14.981851716Y28.667173116Z-1F200
 G1X15.959318244Y28.568839076Z-1
 G1X16.928033981Y28.405437064Z-1
 G1X17.883672408Y28.177696873Z-1
@@ -70,7 +70,7 @@ G1X16.928033981Y-0.405437064Z-1
 G1X15.959318244Y-0.568839076Z-1
 G1X14.981851716Y-0.667173116Z-1
 G1X14Y-0.7Z-1
-G1X13.018148284Y-0.667173116Z-1F200.0
+G1X13.018148284Y-0.667173116Z-1F200
 G1X12.040681756Y-0.568839076Z-1
 G1X11.071966019Y-0.405437064Z-1
 G1X10.116327592Y-0.177696873Z-1
@@ -117,10 +117,10 @@ G1X11.071966019Y28.405437064Z-1
 G1X12.040681756Y28.568839076Z-1
 G1X13.018148284Y28.667173116Z-1
 G1X14Y28.7Z-1
-G1X14.14Y28.84Z-1F200.0
+G1X14.14Y28.84Z-1F200
 G1 Y28.98
 G19
-G1X14.14Y29.12Z-0.86F200.0
+G1X14.14Y29.12Z-0.86F200
 G0 Z10
 S0 M5
 G17
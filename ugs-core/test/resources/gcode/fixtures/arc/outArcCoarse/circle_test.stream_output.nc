@@ -20,11 +20,11 @@ Z5++Z5++18++
 G1 Z2 F200++G1 Z2 F200++19++
 Z-0.86++Z-0.86++20++
 G19 G2 Y28.98 Z-1 J-0.14++G19++21++
-G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y28.98Z-1F200.0++21++
+G19 G2 Y28.98 Z-1 J-0.14++G1X13.86Y28.98Z-1F200++21++
 G1 Y28.84++G1 Y28.84++22++
 G17 G3 X14 Y28.7 I0.14++G17++23++
-G17 G3 X14 Y28.7 I0.14++G1X14Y28.7Z-1F200.0++23++
-G2 Y-0.7 J-14.7++G1X14.981851716Y28.667173116Z-1F200.0++24++
+G17 G3 X14 Y28.7 I0.14++G1X14Y28.7Z-1F200++23++
+G2 Y-0.7 J-14.7++G1X14.981851716Y28.667173116Z-1F200++24++
 G2 Y-0.7 J-14.7++G1X15.959318244Y28.568839076Z-1++24++
 G2 Y-0.7 J-14.7++G1X16.928033981Y28.405437064Z-1++24++
 G2 Y-0.7 J-14.7++G1X17.883672408Y28.177696873Z-1++24++
@@ -71,7 +71,7 @@ G2 Y-0.7 J-14.7++G1X16.928033981Y-0.405437064Z-1++24++
 G2 Y-0.7 J-14.7++G1X15.959318244Y-0.568839076Z-1++24++
 G2 Y-0.7 J-14.7++G1X14.981851716Y-0.667173116Z-1++24++
 G2 Y-0.7 J-14.7++G1X14Y-0.7Z-1++24++
-Y28.7 J14.7++G1X13.018148284Y-0.667173116Z-1F200.0++25++
+Y28.7 J14.7++G1X13.018148284Y-0.667173116Z-1F200++25++
 Y28.7 J14.7++G1X12.040681756Y-0.568839076Z-1++25++
 Y28.7 J14.7++G1X11.071966019Y-0.405437064Z-1++25++
 Y28.7 J14.7++G1X10.116327592Y-0.177696873Z-1++25++
@@ -118,10 +118,10 @@ Y28.7 J14.7++G1X11.071966019Y28.405437064Z-1++25++
 Y28.7 J14.7++G1X12.040681756Y28.568839076Z-1++25++
 Y28.7 J14.7++G1X13.018148284Y28.667173116Z-1++25++
 Y28.7 J14.7++G1X14Y28.7Z-1++25++
-G3 X14.14 Y28.84 J0.14++G1X14.14Y28.84Z-1F200.0++26++
+G3 X14.14 Y28.84 J0.14++G1X14.14Y28.84Z-1F200++26++
 G1 Y28.98++G1 Y28.98++27++
 G19 G3 Y29.12 Z-0.86 K0.14++G19++28++
-G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.12Z-0.86F200.0++28++
+G19 G3 Y29.12 Z-0.86 K0.14++G1X14.14Y29.12Z-0.86F200++28++
 G0 Z10++G0 Z10++29++
 S0 M5++S0 M5++30++
 G17++G17++31++
@@ -24,7 +24,7 @@ G1X-0.3882Y-1.4489Z0
 G1X-0.2926Y-1.4712Z0
 G1X-0.1958Y-1.4872Z0
 G1X-0.0981Y-1.4968Z0
-G1X-0Y-1.5Z0
+G1X0Y-1.5Z0
 G1X0.0981Y-1.4968Z0
 G1X0.1958Y-1.4872Z0
 G1X0.2926Y-1.4712Z0
@@ -25,7 +25,7 @@ G03 X1.5 Y0 I1.5 J0++G1X-0.3882Y-1.4489Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X-0.2926Y-1.4712Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X-0.1958Y-1.4872Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X-0.0981Y-1.4968Z0++3++
-G03 X1.5 Y0 I1.5 J0++G1X-0Y-1.5Z0++3++
+G03 X1.5 Y0 I1.5 J0++G1X0Y-1.5Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X0.0981Y-1.4968Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X0.1958Y-1.4872Z0++3++
 G03 X1.5 Y0 I1.5 J0++G1X0.2926Y-1.4712Z0++3++
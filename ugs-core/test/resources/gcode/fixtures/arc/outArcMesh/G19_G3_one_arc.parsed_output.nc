@@ -24,7 +24,7 @@ G1X0Y-0.3882Z-1.4489
 G1X0Y-0.2926Z-1.4712
 G1X0Y-0.1958Z-1.4872
 G1X0Y-0.0981Z-1.4968
-G1X0Y-0Z-1.5
+G1X0Y0Z-1.5
 G1X0Y0.0981Z-1.4968
 G1X0Y0.1958Z-1.4872
 G1X0Y0.2926Z-1.4712
@@ -25,7 +25,7 @@ G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.3882Z-1.4489++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.2926Z-1.4712++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.1958Z-1.4872++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y-0.0981Z-1.4968++3++
-G03 Y1.5 Z0 J1.5 K0++G1X0Y-0Z-1.5++3++
+G03 Y1.5 Z0 J1.5 K0++G1X0Y0Z-1.5++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.0981Z-1.4968++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.1958Z-1.4872++3++
 G03 Y1.5 Z0 J1.5 K0++G1X0Y0.2926Z-1.4712++3++
@@ -19,10 +19,14 @@
 package com.willwinder.ugs.nbp.core.lifecycle;
 
 import com.willwinder.ugs.nbp.lib.lookup.CentralLookup;
+import com.willwinder.universalgcodesender.model.BackendAPI;
 import com.willwinder.universalgcodesender.utils.Settings;
 import com.willwinder.universalgcodesender.utils.SettingsFactory;
 import org.openide.modules.OnStop;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  *
  * @author wwinder
@@ -34,6 +38,12 @@ public class shutdown implements Runnable {
         // Save settings.
         Settings settings = CentralLookup.getDefault().lookup(Settings.class);
         SettingsFactory.saveSettings(settings);
+
+        try {
+            CentralLookup.getDefault().lookup(BackendAPI.class).shutdown();
+        } catch (Exception e) {
+            Logger.getLogger(shutdown.class.getName()).log(Level.WARNING, "Could not shut down the backend", e);
+        }
     }
     
 }
@@ -49,6 +49,11 @@ public class ConsoleNotificationService implements MessageListener {
         backend.addMessageListener(this);
     }
 
+    @Override
+    public boolean isInterestedIn(MessageType messageType) {
+        return messageType.equals(MessageType.ERROR);
+    }
+
     @Override
     public void onMessage(MessageType messageType, String message) {
         if (messageType.equals(MessageType.ERROR)) {
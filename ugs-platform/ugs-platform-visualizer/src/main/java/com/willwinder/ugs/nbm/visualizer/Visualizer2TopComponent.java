@@ -27,6 +27,7 @@ import com.willwinder.ugs.nbp.lib.lookup.CentralLookup;
 import com.willwinder.ugs.nbp.lib.services.LocalizingService;
 import com.willwinder.ugs.nbp.lib.services.TopComponentLocalizer;
 import com.willwinder.universalgcodesender.i18n.Localization;
+import com.willwinder.universalgcodesender.listeners.AsyncListenerDispatcher;
 import com.willwinder.universalgcodesender.model.BackendAPI;
 import org.apache.commons.lang3.StringUtils;
 import org.openide.awt.ActionID;
@@ -166,7 +167,8 @@ public final class Visualizer2TopComponent extends TopComponent {
         }
 
         // Install listeners...
-        backend.addControllerListener(this.rih);
+        // The renderer only draws the latest position, it may skip intermediate events
+        backend.addControllerListener(this.rih, AsyncListenerDispatcher.Policy.LATEST_ONLY);
         backend.addUGSEventListener(this.rih);
 
         // shutdown hook...
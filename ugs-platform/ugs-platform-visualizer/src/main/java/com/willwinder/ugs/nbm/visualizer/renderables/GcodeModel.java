@@ -227,11 +227,11 @@ public class GcodeModel extends Renderable {
             logger.log(Level.INFO, "About to process {}", gcodeFile);
             try {
                 IGcodeStreamReader gsr = new GcodeStreamReader(new File(gcodeFile));
-                gcodeLineList = gcvp.toObjFromReader(gsr, 0.3);
+                gcodeLineList = gcvp.toObjFromReader(gsr, GcodeViewParse.DEFAULT_ARC_SEGMENTATION);
             } catch (GcodeStreamReader.NotGcodeStreamFile e) {
                 List<String> linesInFile;
                 linesInFile = VisualizerUtils.readFiletoArrayList(this.gcodeFile);
-                gcodeLineList = gcvp.toObjRedux(linesInFile, 0.3);
+                gcodeLineList = gcvp.toObjRedux(linesInFile, GcodeViewParse.DEFAULT_ARC_SEGMENTATION);
             }
 
             this.objectMin = gcvp.getMinimumExtremes();